@@ -0,0 +1,160 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.benchmark;
+
+import java.util.Locale;
+
+import org.apache.commons.cli.CommandLine;
+import org.apache.commons.cli.CommandLineParser;
+import org.apache.commons.cli.HelpFormatter;
+import org.apache.commons.cli.Options;
+import org.apache.commons.cli.ParseException;
+import org.apache.commons.cli.PosixParser;
+import org.caffinitas.ohc.Admission;
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.caffinitas.ohc.benchmark.distribution.Distribution;
+import org.caffinitas.ohc.benchmark.distribution.OptionDistribution;
+
+/**
+ * Single threaded simulation, that compares the hit ratios of the eviction algorithms of the linked implementation.
+ * Each request reads a key chosen by a key distribution and puts the key, if it is not in the cache.
+ * The first 10% of the requests warm up the cache and are not counted.
+ * The value size of each key is fixed and chosen by the value size distribution, use a distribution with mixed
+ * value sizes like {@code -vs ~exp(64..262144)} to compare the admission policies of W-TinyLFU.
+ */
+public final class HitRatioBenchmark {
+    public static final String CAPACITY = "cap";
+    public static final String SEGMENT_COUNT = "sc";
+    public static final String REQUESTS = "n";
+    public static final String KEY_DISTS = "kd";
+    public static final String VALUE_SIZE_DIST = "vs";
+    public static final String EVICTIONS = "e";
+    public static final String ADMISSIONS = "a";
+    public static final String SEED = "seed";
+
+    public static final String DEFAULT_KEY_DISTS = "~exp(1..1000000);extreme(1..1000000,1.5)";
+    public static final String DEFAULT_EVICTIONS = "LRU,W_TINY_LFU,CLOCK,S3_FIFO";
+    public static final String DEFAULT_ADMISSIONS = "FREQUENCY";
+
+    public static void main(String[] args) throws Exception {
+        Locale.setDefault(Locale.ENGLISH);
+        Locale.setDefault(Locale.Category.FORMAT, Locale.ENGLISH);
+
+        CommandLine cmd = parseArguments(args);
+
+        long capacity = Long.parseLong(cmd.getOptionValue(CAPACITY, "" + (64 * 1024 * 1024)));
+        int segmentCount = Integer.parseInt(cmd.getOptionValue(SEGMENT_COUNT, "1"));
+        long requests = OptionDistribution.parseLong(cmd.getOptionValue(REQUESTS, "10m"));
+        String[] keyDists = cmd.getOptionValue(KEY_DISTS, DEFAULT_KEY_DISTS).split(";");
+        String valueSizeDist = cmd.getOptionValue(VALUE_SIZE_DIST, BenchmarkOHC.DEFAULT_VALUE_SIZE_DIST);
+        String[] evictions = cmd.getOptionValue(EVICTIONS, DEFAULT_EVICTIONS).split(",");
+        String[] admissions = cmd.getOptionValue(ADMISSIONS, DEFAULT_ADMISSIONS).split(",");
+        long seed = Long.parseLong(cmd.getOptionValue(SEED, "42"));
+
+        BenchmarkOHC.printMessage("Hit ratios with capacity %d, %d segments, %d requests, value sizes '%s'%n",
+                capacity, segmentCount, requests, valueSizeDist);
+        BenchmarkOHC.printMessage("%-32s %-12s %-16s %10s %15s %12s %10s",
+                "key distribution", "eviction", "admission", "hit ratio", "byte hit ratio", "evictions", "size");
+
+        for (String keyDist : keyDists) {
+            for (String eviction : evictions) {
+                Eviction evict = Eviction.valueOf(eviction.trim());
+                // the admission policy only applies to W-TinyLFU
+                String[] evictionAdmissions = evict == Eviction.W_TINY_LFU ? admissions : new String[]{ DEFAULT_ADMISSIONS };
+                for (String admission : evictionAdmissions) {
+                    Distribution keys = OptionDistribution.get(keyDist).get();
+                    keys.setSeed(seed);
+                    Distribution valueSizes = OptionDistribution.get(valueSizeDist).get();
+
+                    try (OHCache<Long, byte[]> cache = OHCacheBuilder.<Long, byte[]> newBuilder()
+                                                                     .keySerializer(BenchmarkUtils.longSerializer)
+                                                                     .valueSerializer(BenchmarkUtils.serializer)
+                                                                     .capacity(capacity)
+                                                                     .segmentCount(segmentCount)
+                                                                     .eviction(evict)
+                                                                     .admission(Admission.valueOf(admission.trim()))
+                                                                     .build()) {
+                        long warmUp = requests / 10;
+                        long hitBytes = 0L;
+                        long requestedBytes = 0L;
+                        for (long i = 0; i < requests; i++) {
+                            if (i == warmUp) {
+                                cache.resetStatistics();
+                                hitBytes = requestedBytes = 0L;
+                            }
+
+                            Long key = keys.next();
+                            int valueSize = valueSize(valueSizes, seed, key);
+                            requestedBytes += valueSize;
+                            if (cache.get(key) == null) {
+                                cache.put(key, new byte[valueSize]);
+                            } else {
+                                hitBytes += valueSize;
+                            }
+                        }
+
+                        OHCacheStats stats = cache.stats();
+                        double hitRatio = (double) stats.getHitCount() / (stats.getHitCount() + stats.getMissCount());
+                        double byteHitRatio = (double) hitBytes / requestedBytes;
+                        BenchmarkOHC.printMessage("%-32s %-12s %-16s %10.4f %15.4f %12d %10d",
+                                keyDist, evict, evict == Eviction.W_TINY_LFU ? admission.trim() : "-",
+                                hitRatio, byteHitRatio, stats.getEvictionCount(), stats.getSize());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * The value size of a key does not change, so derive it from the key instead of drawing it for each put.
+     */
+    private static int valueSize(Distribution valueSizes, long seed, long key) {
+        long h = (key ^ seed) * 0x9e3779b97f4a7c15L;
+        h ^= h >>> 32;
+        return (int) valueSizes.inverseCumProb((h >>> 11) / (double) (1L << 53));
+    }
+
+    private static CommandLine parseArguments(String[] args) throws ParseException {
+        CommandLineParser parser = new PosixParser();
+        Options options = new Options();
+        options.addOption("h", false, "help, print this command");
+
+        options.addOption(CAPACITY, true, "size of the cache - default: 64MB");
+        options.addOption(SEGMENT_COUNT, true, "number of segments - default: 1");
+        options.addOption(REQUESTS, true, "number of requests per key distribution and eviction algorithm - default: 10m");
+        options.addOption(KEY_DISTS, true, "key distributions separated by ';' - default: " + DEFAULT_KEY_DISTS);
+        options.addOption(VALUE_SIZE_DIST, true, "value sizes - default: " + BenchmarkOHC.DEFAULT_VALUE_SIZE_DIST);
+        options.addOption(EVICTIONS, true, "eviction algorithms separated by ',' - default: " + DEFAULT_EVICTIONS);
+        options.addOption(ADMISSIONS, true, "admission policies of W_TINY_LFU separated by ',' - default: " + DEFAULT_ADMISSIONS);
+        options.addOption(SEED, true, "random seed - default: 42");
+
+        CommandLine cmd = parser.parse(options, args);
+        if (cmd.hasOption("h")) {
+            HelpFormatter formatter = new HelpFormatter();
+            String help = "";
+            for (String s : OptionDistribution.help()) {
+                help = help + '\n' + s;
+            }
+            formatter.printHelp(160, "HitRatioBenchmark", null, options, help);
+            System.exit(0);
+        }
+
+        return cmd;
+    }
+}
@@ -0,0 +1,41 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Implementation to load values for cache entries using
+ * {@link OHAsyncCache#getWithLoader(Object, AsyncCacheLoader) OHAsyncCache.getWithLoader}.
+ * Unlike {@link CacheLoader}, the load does not need a thread of its own - the returned stage
+ * may complete on any thread, for example when a non-blocking I/O operation finishes.
+ *
+ * @param <K> type of the cache key
+ * @param <V> type of the cache value
+ */
+@FunctionalInterface
+public interface AsyncCacheLoader<K, V> {
+    /**
+     * Starts loading the value for {@code key}.
+     * The returned stage completes with a non-{@code null} value on success or with {@code null}
+     * if no value for the requested key could be found. An exceptionally completed stage
+     * (or an exception thrown by this method) fails the load.
+     *
+     * @param key key for the value to load. Always non-{@code null}
+     * @return stage that completes with the loaded value
+     */
+    CompletionStage<V> load(K key);
+}
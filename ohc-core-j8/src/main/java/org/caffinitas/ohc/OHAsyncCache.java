@@ -0,0 +1,110 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * {@link CompletableFuture} based facade for an {@link OHCache}.
+ * <p>
+ * Operations run the corresponding synchronous {@link OHCache} method either on the calling thread or on the
+ * {@link Executor} passed to {@link #wrap(OHCache, Executor)}. Segment locks are only held for the duration of
+ * that synchronous call and never while waiting for a {@link AsyncCacheLoader loader}, so the facade can be
+ * used from virtual threads and does not need an {@link OHCacheBuilder#executorService(java.util.concurrent.ScheduledExecutorService)
+ * executor service} on the cache.
+ * </p>
+ *
+ * @param <K> type of the cache key
+ * @param <V> type of the cache value
+ */
+public interface OHAsyncCache<K, V> extends Closeable {
+    /**
+     * Creates a facade that runs cache operations on the calling thread.
+     */
+    static <K, V> OHAsyncCache<K, V> wrap(OHCache<K, V> cache) {
+        return new OHAsyncCacheImpl<>(cache, null);
+    }
+
+    /**
+     * Creates a facade that runs cache operations on {@code executor}.
+     */
+    static <K, V> OHAsyncCache<K, V> wrap(OHCache<K, V> cache, Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("executor");
+        }
+        return new OHAsyncCacheImpl<>(cache, executor);
+    }
+
+    /**
+     * See {@link OHCache#get(Object)}.
+     */
+    CompletableFuture<V> get(K key);
+
+    /**
+     * See {@link OHCache#put(Object, Object)}.
+     */
+    CompletableFuture<Boolean> put(K key, V value);
+
+    /**
+     * See {@link OHCache#put(Object, Object, long)}.
+     */
+    CompletableFuture<Boolean> put(K key, V value, long expireAt);
+
+    /**
+     * See {@link OHCache#remove(Object)}.
+     */
+    CompletableFuture<Boolean> remove(K key);
+
+    /**
+     * See {@link OHCache#getAll(Iterable)}.
+     */
+    CompletableFuture<Map<K, V>> getAll(Iterable<K> keys);
+
+    /**
+     * See {@link OHCache#putAllBatch(Map)}.
+     */
+    CompletableFuture<BatchResult> putAll(Map<? extends K, ? extends V> m);
+
+    /**
+     * See {@link OHCache#removeAllBatch(Iterable)}.
+     */
+    CompletableFuture<BatchResult> removeAll(Iterable<K> keys);
+
+    /**
+     * Returns the cached value for {@code key} or loads it using {@code loader} with the default time-to-live.
+     * Concurrent requests for the same key through this facade share a single load, so keys must implement
+     * {@link Object#equals(Object)} and {@link Object#hashCode()}.
+     * Cancelling the returned future does not cancel the load.
+     *
+     * @param key    key of the value to load
+     * @param loader loader implementation to use
+     * @return future that completes with the cached or loaded value or {@code null}, if the loader did not find a value
+     */
+    CompletableFuture<V> getWithLoader(K key, AsyncCacheLoader<K, V> loader);
+
+    /**
+     * Like {@link #getWithLoader(Object, AsyncCacheLoader)}, but a loaded value expires at {@code expireAt}.
+     */
+    CompletableFuture<V> getWithLoader(K key, AsyncCacheLoader<K, V> loader, long expireAt);
+
+    /**
+     * Returns the wrapped synchronous cache.
+     */
+    OHCache<K, V> synchronous();
+}
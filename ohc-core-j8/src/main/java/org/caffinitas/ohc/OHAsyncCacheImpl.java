@@ -0,0 +1,167 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+final class OHAsyncCacheImpl<K, V> implements OHAsyncCache<K, V> {
+    private final OHCache<K, V> cache;
+    private final Executor executor;
+
+    // in-flight getWithLoader() loads
+    private final ConcurrentMap<K, CompletableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    OHAsyncCacheImpl(OHCache<K, V> cache, Executor executor) {
+        if (cache == null) {
+            throw new NullPointerException("cache");
+        }
+        this.cache = cache;
+        this.executor = executor;
+    }
+
+    @Override
+    public CompletableFuture<V> get(K key) {
+        return supply(() -> cache.get(key));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> put(K key, V value) {
+        return supply(() -> cache.put(key, value));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> put(K key, V value, long expireAt) {
+        return supply(() -> cache.put(key, value, expireAt));
+    }
+
+    @Override
+    public CompletableFuture<Boolean> remove(K key) {
+        return supply(() -> cache.remove(key));
+    }
+
+    @Override
+    public CompletableFuture<Map<K, V>> getAll(Iterable<K> keys) {
+        return supply(() -> cache.getAll(keys));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult> putAll(Map<? extends K, ? extends V> m) {
+        return supply(() -> cache.putAllBatch(m));
+    }
+
+    @Override
+    public CompletableFuture<BatchResult> removeAll(Iterable<K> keys) {
+        return supply(() -> cache.removeAllBatch(keys));
+    }
+
+    @Override
+    public CompletableFuture<V> getWithLoader(K key, AsyncCacheLoader<K, V> loader) {
+        return getWithLoader(key, loader, OHCache.USE_DEFAULT_EXPIRE_AT);
+    }
+
+    @Override
+    public CompletableFuture<V> getWithLoader(K key, AsyncCacheLoader<K, V> loader, long expireAt) {
+        if (key == null || loader == null) {
+            throw new NullPointerException();
+        }
+
+        return get(key).thenCompose(value -> value != null
+                                             ? CompletableFuture.completedFuture(value)
+                                             : load(key, loader, expireAt));
+    }
+
+    private CompletableFuture<V> load(K key, AsyncCacheLoader<K, V> loader, long expireAt) {
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> inFlight = loads.putIfAbsent(key, load);
+        if (inFlight != null) {
+            return inFlight.thenApply(Function.identity());
+        }
+
+        CompletionStage<V> stage;
+        try {
+            // another load may have completed between the lookup and registering this load
+            V value = cache.get(key);
+            stage = value != null ? CompletableFuture.completedFuture(value) : loader.load(key);
+            if (stage == null) {
+                stage = failed(new NullPointerException("loader returned null"));
+            }
+        } catch (Throwable e) {
+            stage = failed(e);
+        }
+
+        // no segment lock is held while the loader is running
+        stage.whenComplete((value, failure) -> {
+            Throwable error = failure;
+            try {
+                if (error == null && value != null) {
+                    if (expireAt == OHCache.USE_DEFAULT_EXPIRE_AT) {
+                        cache.put(key, value);
+                    } else {
+                        cache.put(key, value, expireAt);
+                    }
+                }
+            } catch (Throwable e) {
+                error = e;
+            } finally {
+                loads.remove(key, load);
+            }
+
+            if (error != null) {
+                load.completeExceptionally(error);
+            } else {
+                load.complete(value);
+            }
+        });
+
+        return load.thenApply(Function.identity());
+    }
+
+    private <R> CompletableFuture<R> supply(Supplier<R> op) {
+        if (executor != null) {
+            return CompletableFuture.supplyAsync(op, executor);
+        }
+
+        try {
+            return CompletableFuture.completedFuture(op.get());
+        } catch (Throwable e) {
+            return failed(e);
+        }
+    }
+
+    private static <R> CompletableFuture<R> failed(Throwable e) {
+        CompletableFuture<R> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+
+    @Override
+    public OHCache<K, V> synchronous() {
+        return cache;
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+}
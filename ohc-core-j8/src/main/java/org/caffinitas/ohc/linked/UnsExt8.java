@@ -43,4 +43,9 @@ final class UnsExt8 extends UnsExt {
         h |= h << 32;
         return h;
     }
+
+    @Override
+    void loadFence() {
+        unsafe.loadFence();
+    }
 }
@@ -0,0 +1,264 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+public class OHAsyncCacheTest {
+    static final CacheSerializer<Integer> intSerializer = new CacheSerializer<Integer>() {
+        @Override
+        public void serialize(Integer i, ByteBuffer buf) {
+            buf.putInt(i);
+        }
+
+        @Override
+        public Integer deserialize(ByteBuffer buf) {
+            return buf.getInt();
+        }
+
+        @Override
+        public int serializedSize(Integer i) {
+            return 4;
+        }
+    };
+
+    static final CacheSerializer<String> stringSerializer = new CacheSerializer<String>() {
+        @Override
+        public void serialize(String s, ByteBuffer buf) {
+            byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+            buf.putInt(bytes.length);
+            buf.put(bytes);
+        }
+
+        @Override
+        public String deserialize(ByteBuffer buf) {
+            byte[] bytes = new byte[buf.getInt()];
+            buf.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public int serializedSize(String s) {
+            return 4 + s.getBytes(StandardCharsets.UTF_8).length;
+        }
+    };
+
+    private ExecutorService executor;
+
+    @BeforeMethod
+    public void init() {
+        executor = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        executor.shutdownNow();
+    }
+
+    @DataProvider(name = "executors")
+    public Object[][] executors() {
+        return new Object[][]{ { false }, { true } };
+    }
+
+    private OHAsyncCache<Integer, String> cache(boolean useExecutor) {
+        OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                                                       .keySerializer(intSerializer)
+                                                       .valueSerializer(stringSerializer)
+                                                       .capacity(16L * 1024 * 1024)
+                                                       .timeouts(true)
+                                                       .build();
+        return useExecutor ? OHAsyncCache.wrap(cache, executor) : OHAsyncCache.wrap(cache);
+    }
+
+    private static <V> V get(CompletableFuture<V> future) throws Exception {
+        return future.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test(dataProvider = "executors")
+    public void testGetPutRemove(boolean useExecutor) throws Exception {
+        try (OHAsyncCache<Integer, String> cache = cache(useExecutor)) {
+            assertNull(get(cache.get(1)));
+            assertTrue(get(cache.put(1, "one")));
+            assertEquals(get(cache.get(1)), "one");
+            assertEquals(cache.synchronous().get(1), "one");
+
+            assertTrue(get(cache.put(2, "two", System.currentTimeMillis() + 60000L)));
+            assertEquals(get(cache.get(2)), "two");
+
+            assertTrue(get(cache.remove(1)));
+            assertFalse(get(cache.remove(1)));
+            assertNull(get(cache.get(1)));
+        }
+    }
+
+    @Test(dataProvider = "executors")
+    public void testBulk(boolean useExecutor) throws Exception {
+        try (OHAsyncCache<Integer, String> cache = cache(useExecutor)) {
+            Map<Integer, String> m = new HashMap<>();
+            for (int i = 0; i < 100; i++) {
+                m.put(i, Integer.toString(i));
+            }
+            BatchResult put = get(cache.putAll(m));
+            assertEquals(put.getAdded(), 100L);
+            assertEquals(put.getReplaced(), 0L);
+
+            Map<Integer, String> found = get(cache.getAll(Arrays.asList(0, 50, 99, 100)));
+            assertEquals(found.size(), 3);
+            assertEquals(found.get(0), "0");
+            assertEquals(found.get(50), "50");
+            assertEquals(found.get(99), "99");
+
+            BatchResult removed = get(cache.removeAll(Arrays.asList(0, 1, 100)));
+            assertEquals(removed.getRemoved(), 2L);
+            assertEquals(cache.synchronous().size(), 98L);
+        }
+    }
+
+    @Test(dataProvider = "executors")
+    public void testLoadCoalescing(boolean useExecutor) throws Exception {
+        try (OHAsyncCache<Integer, String> cache = cache(useExecutor)) {
+            AtomicInteger loads = new AtomicInteger();
+            CompletableFuture<String> pending = new CompletableFuture<>();
+            AsyncCacheLoader<Integer, String> loader = key -> {
+                loads.incrementAndGet();
+                return pending;
+            };
+
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                futures.add(cache.getWithLoader(1, loader));
+            }
+            for (long timeout = System.currentTimeMillis() + 5000L; loads.get() == 0; ) {
+                assertTrue(System.currentTimeMillis() < timeout, "loader not called");
+                Thread.sleep(1L);
+            }
+            for (CompletableFuture<String> future : futures) {
+                assertFalse(future.isDone());
+            }
+
+            pending.complete("one");
+            for (CompletableFuture<String> future : futures) {
+                assertEquals(get(future), "one");
+            }
+            assertEquals(loads.get(), 1);
+            assertEquals(cache.synchronous().get(1), "one");
+
+            // served from the cache
+            assertEquals(get(cache.getWithLoader(1, loader)), "one");
+            assertEquals(loads.get(), 1);
+        }
+    }
+
+    @Test(dataProvider = "executors")
+    public void testLoadFailure(boolean useExecutor) throws Exception {
+        try (OHAsyncCache<Integer, String> cache = cache(useExecutor)) {
+            AtomicInteger loads = new AtomicInteger();
+            RuntimeException failure = new RuntimeException("foo");
+            AsyncCacheLoader<Integer, String> failingLoader = key -> {
+                loads.incrementAndGet();
+                CompletableFuture<String> f = new CompletableFuture<>();
+                f.completeExceptionally(failure);
+                return f;
+            };
+            assertFailure(cache.getWithLoader(1, failingLoader), failure);
+
+            AsyncCacheLoader<Integer, String> throwingLoader = key -> {
+                loads.incrementAndGet();
+                throw failure;
+            };
+            assertFailure(cache.getWithLoader(1, throwingLoader), failure);
+            assertEquals(loads.get(), 2);
+
+            // a failed load is not cached and does not block later loads
+            assertNull(cache.synchronous().get(1));
+            assertEquals(get(cache.getWithLoader(1, key -> CompletableFuture.completedFuture("one"))), "one");
+        }
+    }
+
+    @Test(dataProvider = "executors")
+    public void testLoadNull(boolean useExecutor) throws Exception {
+        try (OHAsyncCache<Integer, String> cache = cache(useExecutor)) {
+            // no value found
+            assertNull(get(cache.getWithLoader(1, key -> CompletableFuture.completedFuture(null))));
+            assertNull(cache.synchronous().get(1));
+
+            // the loader itself returned null instead of a stage
+            CompletableFuture<String> future = cache.getWithLoader(1, key -> null);
+            try {
+                get(future);
+                fail();
+            } catch (ExecutionException e) {
+                assertTrue(e.getCause() instanceof NullPointerException, e.toString());
+            }
+
+            // the failed load has been unregistered
+            assertEquals(get(cache.getWithLoader(1, key -> CompletableFuture.completedFuture("one"))), "one");
+        }
+    }
+
+    private static void assertFailure(CompletableFuture<String> future, Throwable expected) throws Exception {
+        try {
+            get(future);
+            fail();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            while (cause != expected && cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            assertSame(cause, expected);
+        }
+    }
+
+    @Test
+    public void testWrapRequiresExecutor() throws IOException {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                                                            .keySerializer(intSerializer)
+                                                            .valueSerializer(stringSerializer)
+                                                            .build()) {
+            try {
+                OHAsyncCache.wrap(cache, null);
+                fail();
+            } catch (NullPointerException e) {
+                // expected
+            }
+        }
+    }
+}
@@ -0,0 +1,36 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+/**
+ * Admission policy of {@link Eviction#W_TINY_LFU W-TinyLFU}, that decides whether a candidate from the eden
+ * generation replaces entries of the main generation.
+ */
+public enum Admission {
+    /**
+     * Compares the frequency of the candidate with the frequency of a single victim, regardless of their sizes.
+     */
+    FREQUENCY,
+    /**
+     * Compares the frequency of the candidate with the combined frequency of all victims needed to free the
+     * candidate's bytes. Optimizes the hit ratio for entries of different sizes.
+     */
+    SIZE_AWARE,
+    /**
+     * Like {@link #SIZE_AWARE}, but weights each frequency with the entry's size. Optimizes the byte hit ratio.
+     */
+    BYTE_HIT_RATIO
+}
@@ -0,0 +1,108 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import com.google.common.base.Objects;
+
+/**
+ * Summary of a bulk operation like {@link OHCache#putAllBatch(java.util.Map)} or {@link OHCache#removeAllBatch(Iterable)}.
+ */
+public final class BatchResult {
+    private final long added;
+    private final long replaced;
+    private final long rejected;
+    private final long evicted;
+    private final long removed;
+
+    public BatchResult(long added, long replaced, long rejected, long evicted, long removed) {
+        this.added = added;
+        this.replaced = replaced;
+        this.rejected = rejected;
+        this.evicted = evicted;
+        this.removed = removed;
+    }
+
+    /**
+     * Number of entries added for keys that did not exist.
+     */
+    public long getAdded() {
+        return added;
+    }
+
+    /**
+     * Number of entries that replaced an existing entry.
+     */
+    public long getReplaced() {
+        return replaced;
+    }
+
+    /**
+     * Number of entries that could not be added, because they are too large or there is not enough free capacity.
+     */
+    public long getRejected() {
+        return rejected;
+    }
+
+    /**
+     * Number of entries evicted to make room for the added entries.
+     */
+    public long getEvicted() {
+        return evicted;
+    }
+
+    /**
+     * Number of removed entries.
+     */
+    public long getRemoved() {
+        return removed;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+
+        BatchResult that = (BatchResult) o;
+
+        return added == that.added && replaced == that.replaced && rejected == that.rejected
+               && evicted == that.evicted && removed == that.removed;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (added ^ (added >>> 32));
+        result = 31 * result + (int) (replaced ^ (replaced >>> 32));
+        result = 31 * result + (int) (rejected ^ (rejected >>> 32));
+        result = 31 * result + (int) (evicted ^ (evicted >>> 32));
+        result = 31 * result + (int) (removed ^ (removed >>> 32));
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return Objects.toStringHelper(this)
+                .add("added", added)
+                .add("replaced", replaced)
+                .add("rejected", rejected)
+                .add("evicted", evicted)
+                .add("removed", removed)
+                .toString();
+    }
+}
@@ -0,0 +1,39 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Implementation to load the values for multiple cache entries at once using
+ * {@link OHCache#getAllWithLoader(Iterable, BulkCacheLoader) getAllWithLoader}.
+ *
+ * @param <K> type of the cache key
+ * @param <V> type of the cache value
+ */
+public interface BulkCacheLoader<K, V> {
+    /**
+     * Cache loaders implement this method and return the values found for the requested keys.
+     * Keys without a value can be omitted from the returned map or mapped to {@code null}.
+     * Keys that have not been requested are ignored.
+     *
+     * @param keys keys for the values to load. Never empty, never contains {@code null}
+     * @return values for the requested keys, {@code null} is handled like an empty map
+     * @throws Exception any exception fails the load of all requested keys
+     */
+    Map<K, V> loadAll(Set<K> keys) throws Exception;
+}
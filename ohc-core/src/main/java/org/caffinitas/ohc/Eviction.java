@@ -16,5 +16,5 @@
 package org.caffinitas.ohc;
 
 public enum Eviction {
-    LRU, W_TINY_LFU, NONE
+    LRU, W_TINY_LFU, NONE, CLOCK, S3_FIFO
 }
@@ -0,0 +1,36 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+/**
+ * Strategy used to lock a segment.
+ */
+public enum LockType {
+    /**
+     * Spins on a CAS and yields the CPU between attempts. Lowest latency with few threads per CPU,
+     * but burns CPU cycles under contention.
+     */
+    SPIN_YIELD,
+    /**
+     * Spins on a CAS for a bounded number of attempts, then parks the thread in a waiter queue until the
+     * lock is released.
+     */
+    SPIN_PARK,
+    /**
+     * Like {@link #SPIN_PARK}, but read-only operations acquire the lock in shared mode and can proceed concurrently.
+     */
+    READ_WRITE
+}
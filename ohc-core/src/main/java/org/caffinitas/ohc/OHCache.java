@@ -20,6 +20,7 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
 import java.util.Map;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
@@ -104,11 +105,22 @@ public interface OHCache<K, V> extends Closeable {
 
     /**
      * This is effectively a shortcut to add all entries in the given map {@code m}.
+     * Same as {@link #putAllBatch(Map)}, without the summary.
      *
      * @param m entries to be added
      */
     void putAll(Map<? extends K, ? extends V> m);
 
+    /**
+     * Adds all entries in the given map {@code m}.
+     * The entries are serialized before any segment is locked, grouped by segment and inserted using a single
+     * lock acquisition per segment and batch. The hash tables are grown in advance for the number of new entries.
+     *
+     * @param m entries to be added
+     * @return summary of the operation
+     */
+    BatchResult putAllBatch(Map<? extends K, ? extends V> m);
+
     /**
      * Remove a single entry for the given key.
      *
@@ -119,11 +131,21 @@ public interface OHCache<K, V> extends Closeable {
 
     /**
      * This is effectively a shortcut to remove the entries for all keys given in the iterable {@code keys}.
+     * Same as {@link #removeAllBatch(Iterable)}, without the summary.
      *
      * @param keys keys to be removed
      */
     void removeAll(Iterable<K> keys);
 
+    /**
+     * Removes the entries for all keys given in the iterable {@code keys}.
+     * The keys are grouped by segment and removed using a single lock acquisition per segment and batch.
+     *
+     * @param keys keys to be removed
+     * @return summary of the operation, only {@link BatchResult#getRemoved()} is set
+     */
+    BatchResult removeAllBatch(Iterable<K> keys);
+
     /**
      * Removes all entries from the cache.
      */
@@ -146,6 +168,24 @@ public interface OHCache<K, V> extends Closeable {
      */
     boolean containsKey(K key);
 
+    /**
+     * Get the values for the given keys.
+     * The keys are grouped by segment and each segment is locked only once, which is usually more efficient
+     * than calling {@link #get(Object)} for each key.
+     *
+     * @param keys keys of the entries to be retrieved. Must not contain {@code null}.
+     * @return map with the keys and values of all existing entries
+     */
+    Map<K, V> getAll(Iterable<K> keys);
+
+    /**
+     * Like {@link #getAll(Iterable)}, but adds the keys and values of all existing entries to {@code out}.
+     *
+     * @param keys keys of the entries to be retrieved. Must not contain {@code null}.
+     * @param out  map that receives the keys and values of all existing entries
+     */
+    void getAll(Collection<K> keys, Map<K, V> out);
+
     /**
      * Returns a closeable byte buffer.
      * You must close the returned {@link DirectValueAccess} instance after use.
@@ -198,6 +238,25 @@ public interface OHCache<K, V> extends Closeable {
      */
     Future<V> getWithLoaderAsync(K key, CacheLoader<K, V> loader, long expireAt);
 
+    /**
+     * Returns the values for all {@code keys} like {@link #getAll(Iterable)} and loads the values for missing keys
+     * using {@link BulkCacheLoader#loadAll(java.util.Set)}.
+     * <p>
+     * Missing keys that other threads are already loading are not loaded again. The remaining misses of concurrent
+     * callers are collected for up to {@link OHCacheBuilder#bulkLoadWindowMicros(long) bulkLoadWindowMicros} or
+     * {@link OHCacheBuilder#bulkLoadMaxBatchSize(int) bulkLoadMaxBatchSize} keys and loaded with a single call
+     * to the loader on the calling thread. Loaded values are added using one lock acquisition per segment.
+     * </p>
+     *
+     * @param keys   keys of the values to get
+     * @param loader loader implementation to use for missing keys
+     * @return the existing and loaded values, keys without a value are not contained
+     * @throws InterruptedException if the current thread was interrupted while waiting for a load
+     * @throws ExecutionException   thrown if the {@link BulkCacheLoader#loadAll(java.util.Set)} implementation
+     *                              responsible for one of the keys threw an exception
+     */
+    Map<K, V> getAllWithLoader(Iterable<K> keys, BulkCacheLoader<K, V> loader) throws InterruptedException, ExecutionException;
+
     /**
      * Effectively calls {@link #getWithLoaderAsync(Object, CacheLoader) getWithLoaderAsync(key, loader)}{@code .}{@link Future#get() get()}.
      *
@@ -19,6 +19,7 @@ import java.util.concurrent.ScheduledExecutorService;
 
 import org.caffinitas.ohc.chunked.OHCacheChunkedImpl;
 import org.caffinitas.ohc.linked.OHCacheLinkedImpl;
+import org.caffinitas.ohc.linked.OHLongCacheLinkedImpl;
 
 /**
  * Configures and builds OHC instance.
@@ -108,13 +109,14 @@ import org.caffinitas.ohc.linked.OHCacheLinkedImpl;
  *     </tr>
  *     <tr>
  *         <td>{@code timeoutsSlots}</td>
- *         <td>The number of timeouts slots for each segment - compare with hashed wheel timer.</td>
+ *         <td>The number of buckets of each level of the hierarchical timing wheel of each segment
+ *         (between 16 and 256).</td>
  *         <td>{@code 64}</td>
  *     </tr>
  *     <tr>
  *         <td>{@code timeoutsPrecision}</td>
- *         <td>The amount of time in milliseconds for each timeouts-slot.</td>
- *         <td>{@code 128}</td>
+ *         <td>The amount of time in milliseconds for each bucket of the lowest timing wheel level.</td>
+ *         <td>{@code 1024}</td>
  *     </tr>
  *     <tr>
  *         <td>{@code ticker}</td>
@@ -131,26 +133,178 @@ import org.caffinitas.ohc.linked.OHCacheLinkedImpl;
  *         <td>Choose the eviction algorithm to use. Available are:
  *         <ul>
  *             <li>{@link Eviction#LRU LRU}: Plain LRU - least used entry is subject to eviction</li>
- *             <li>{@link Eviction#W_TINY_LFU W-WinyLFU}: Enable use of Window Tiny-LFU. The size of the
+ *             <li>{@link Eviction#W_TINY_LFU W-TinyLFU}: Enable use of Window Tiny-LFU. The size of the
  *             frequency sketch ("admission filter") is set to the value of {@code hashTableSize}.
  *             See <a href="http://highscalability.com/blog/2016/1/25/design-of-a-modern-cache.html">this article</a>
  *             for a description.</li>
  *             <li>{@link Eviction#NONE None}: No entries will be evicted - this effectively provides a
  *             capacity-bounded off-heap map.</li>
+ *             <li>{@link Eviction#CLOCK CLOCK}: Second chance FIFO, a hit just sets an access bit of the entry.
+ *             Only supported by the <i>linked</i> implementation.</li>
+ *             <li>{@link Eviction#S3_FIFO S3-FIFO}: Small, main and ghost FIFO queues, a hit just increments an
+ *             access counter of the entry. See
+ *             <a href="https://dl.acm.org/doi/10.1145/3600006.3613147">this paper</a> for a description.
+ *             Only supported by the <i>linked</i> implementation.</li>
  *         </ul>
  *         </td>
  *         <td>{@code LRU}</td>
  *     </tr>
  *     <tr>
  *         <td>{@code frequencySketchSize}</td>
- *         <td>Size of the frequency sketch used by {@link Eviction#W_TINY_LFU W-WinyLFU}</td>
+ *         <td>Size of the frequency sketch used by {@link Eviction#W_TINY_LFU W-TinyLFU}</td>
  *         <td>Defaults to {@code hashTableSize}.</td>
  *     </tr>
  *     <tr>
  *         <td>{@code edenSize}</td>
- *         <td>Size of the eden generation used by {@link Eviction#W_TINY_LFU W-WinyLFU} relative to a segment's size</td>
+ *         <td>Size of the eden generation used by {@link Eviction#W_TINY_LFU W-TinyLFU} relative to a segment's size</td>
  *         <td>{@code 0.2}</td>
  *     </tr>
+ *     <tr>
+ *         <td>{@code incrementalRehash}</td>
+ *         <td>If set to {@code true}, the <i>linked</i> implementation grows a segment's hash table incrementally.
+ *         The old and the new hash table coexist while {@code incrementalRehashStep} buckets are migrated during
+ *         each get, put and remove operation on the segment, instead of migrating all buckets at once while
+ *         holding the segment lock.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code incrementalRehashStep}</td>
+ *         <td>Minimum number of hash buckets migrated per operation, if {@code incrementalRehash} is enabled.
+ *         More buckets are migrated, if necessary to complete the rehash before the hash table has to grow again.</td>
+ *         <td>{@code 64}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code optimisticReads}</td>
+ *         <td>If set to {@code true}, the <i>linked</i> implementation serves {@code get} and {@code containsKey}
+ *         without acquiring the segment lock. Readers validate against a per-segment sequence number and fall back
+ *         to the locked path if a writer was active. LRU updates of lock-free hits are deferred.
+ *         Ignored if {@code unlocked} is set.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code readBuffers}</td>
+ *         <td>If set to {@code true}, the <i>linked</i> implementation records accesses in striped, lossy read buffers
+ *         instead of updating the LRU or W-TinyLFU order on every hit. Buffers are applied in batches by writers
+ *         holding the segment lock or when a buffer is full. If a buffer is full and the segment lock is not
+ *         available, the access is dropped. Always enabled with {@code optimisticReads}.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code lockType}</td>
+ *         <td>Strategy to lock segments, see {@link LockType}.
+ *         Lock contention is reported via {@link OHCacheStats}.</td>
+ *         <td>{@link LockType#SPIN_YIELD}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code openAddressing}</td>
+ *         <td>If set to {@code true}, the <i>chunked</i> implementation uses an open addressing hash table with
+ *         linear probing instead of chaining entries of a hash bucket. Each slot carries some bits of the hash,
+ *         so lookups reject other keys without reading their entries. Best suited for small, fixed size entries.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code bulkLoadWindowMicros}</td>
+ *         <td>Time in microseconds {@link OHCache#getAllWithLoader(Iterable, BulkCacheLoader) getAllWithLoader}
+ *         collects misses of concurrent callers before passing them to the {@link BulkCacheLoader} at once.</td>
+ *         <td>{@code 0}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code bulkLoadMaxBatchSize}</td>
+ *         <td>Maximum number of keys passed to a single {@link BulkCacheLoader#loadAll(java.util.Set) loadAll} call.
+ *         A batch is loaded immediately when it reaches this size.</td>
+ *         <td>{@code 1024}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code refreshAfterWriteMillis}</td>
+ *         <td>Time in milliseconds after which an entry is reloaded in the background, when it is read via
+ *         {@link OHCache#getWithLoader(Object, CacheLoader) getWithLoader}. The read returns the current value.
+ *         Write times are recorded with a resolution of one second. Only supported by the <i>linked</i> implementation.
+ *         {@code 0} disables refreshes.</td>
+ *         <td>{@code 0}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code backgroundEviction}</td>
+ *         <td>If set to {@code true}, the <i>linked</i> implementation evicts entries in a periodic background task
+ *         instead of mostly while adding new entries. The task runs on the configured {@code executorService} or,
+ *         if none is configured, on its own daemon thread.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code backgroundEvictionIntervalMillis}</td>
+ *         <td>Interval in milliseconds in which the background eviction task checks the free capacity of the segments.</td>
+ *         <td>{@code 10}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code evictionLowWatermark}</td>
+ *         <td>Background eviction starts to evict entries of a segment when its free capacity is below this
+ *         fraction of the segment's capacity.</td>
+ *         <td>{@code 0.05}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code evictionHighWatermark}</td>
+ *         <td>Background eviction evicts entries of a segment until its free capacity reaches this
+ *         fraction of the segment's capacity.</td>
+ *         <td>{@code 0.1}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code deferredFree}</td>
+ *         <td>If set to {@code true}, the <i>linked</i> implementation frees evicted and removed entries in batches
+ *         on the configured {@code executorService} or, if none is configured, in the thread that completes a batch.
+ *         Memory of entries waiting to be freed is not reported as free capacity.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code deferredFreeBatchSize}</td>
+ *         <td>Number of entries per segment freed at once, if {@code deferredFree} is enabled.</td>
+ *         <td>{@code 256}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code timeoutsSweepIntervalMillis}</td>
+ *         <td>If set to a value {@code > 0}, the <i>linked</i> implementation periodically removes expired entries
+ *         in the background, using the given delay in <b>milliseconds</b> between two sweeps. The sweep runs on the
+ *         configured {@code executorService} or, if none is configured, on an own daemon thread.
+ *         Implies {@code timeouts}.</td>
+ *         <td>{@code 0}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code chunkCompactionBudget}</td>
+ *         <td>If set to a value {@code > 0}, the <i>chunked</i> implementation does not evict entries of the eldest chunk,
+ *         that have been read since they were written. Instead these entries are copied to the start of the recycled chunk,
+ *         up to the given number of bytes per recycled chunk.</td>
+ *         <td>{@code 0}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code adaptiveEdenSize}</td>
+ *         <td>If set to {@code true}, {@link Eviction#W_TINY_LFU W-TinyLFU} adapts the size of each segment's eden
+ *         generation by hill climbing on the segment's hit rate. {@code edenSize} is used as the initial size,
+ *         the eden generation is kept between 5% and 80% of a segment's capacity.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code admission}</td>
+ *         <td>Admission policy of {@link Eviction#W_TINY_LFU W-TinyLFU}. {@link Admission#FREQUENCY FREQUENCY}
+ *         compares the frequency of a candidate with the frequency of one victim. {@link Admission#SIZE_AWARE SIZE_AWARE}
+ *         compares it with the combined frequency of all victims needed to free the candidate's bytes,
+ *         {@link Admission#BYTE_HIT_RATIO BYTE_HIT_RATIO} additionally weights each frequency with the entry's size.</td>
+ *         <td>{@code FREQUENCY}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code compactEntryHeader}</td>
+ *         <td>If set to {@code true}, the <i>linked</i> implementation chooses the header of its entries from the enabled
+ *         features: the 8 bytes for the expiration timestamp are only present with {@code timeouts} or {@code defaultTTLmillis},
+ *         the 8 bytes for the generation, access counter and write time only with {@link Eviction#W_TINY_LFU W-TinyLFU},
+ *         {@link Eviction#CLOCK CLOCK}, {@link Eviction#S3_FIFO S3-FIFO} or {@code refreshAfterWriteMillis}.
+ *         The header shrinks from 64 to 48 bytes, if none of these is enabled. Putting an entry with an expiration
+ *         timestamp fails, if the expiration timestamp is not present.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
+ *     <tr>
+ *         <td>{@code bucketTags}</td>
+ *         <td>If set to {@code true}, each bucket of the <i>linked</i> implementation's hash table carries a tag word
+ *         with one bit set for some bits of the hash of each entry in the bucket, so most lookups of absent keys
+ *         are rejected without reading any entry. Doubles the size of the hash table.</td>
+ *         <td>{@code false}</td>
+ *     </tr>
  * </table>
  * <p>
  *     You may also use system properties prefixed with {@code org.caffinitas.org.} to other defaults.
@@ -183,6 +337,27 @@ public class OHCacheBuilder<K, V> {
     private Eviction eviction = Eviction.LRU;
     private int frequencySketchSize;
     private double edenSize = 0.2d;
+    private boolean incrementalRehash;
+    private int incrementalRehashStep = 64;
+    private boolean optimisticReads;
+    private boolean readBuffers;
+    private LockType lockType = LockType.SPIN_YIELD;
+    private boolean openAddressing;
+    private long bulkLoadWindowMicros;
+    private int bulkLoadMaxBatchSize = 1024;
+    private long refreshAfterWriteMillis;
+    private boolean backgroundEviction;
+    private long backgroundEvictionIntervalMillis = 10L;
+    private double evictionLowWatermark = 0.05d;
+    private double evictionHighWatermark = 0.1d;
+    private boolean deferredFree;
+    private int deferredFreeBatchSize = 256;
+    private long timeoutsSweepIntervalMillis;
+    private int chunkCompactionBudget;
+    private boolean adaptiveEdenSize;
+    private Admission admission = Admission.FREQUENCY;
+    private boolean compactEntryHeader;
+    private boolean bucketTags;
 
     private OHCacheBuilder() {
         int cpus = Runtime.getRuntime().availableProcessors();
@@ -206,6 +381,27 @@ public class OHCacheBuilder<K, V> {
         eviction = fromSystemProperties("eviction", eviction, Eviction.class);
         frequencySketchSize = fromSystemProperties("frequencySketchSize", frequencySketchSize);
         edenSize = fromSystemProperties("edenSize", edenSize);
+        incrementalRehash = fromSystemProperties("incrementalRehash", incrementalRehash);
+        incrementalRehashStep = fromSystemProperties("incrementalRehashStep", incrementalRehashStep);
+        optimisticReads = fromSystemProperties("optimisticReads", optimisticReads);
+        readBuffers = fromSystemProperties("readBuffers", readBuffers);
+        lockType = fromSystemProperties("lockType", lockType, LockType.class);
+        openAddressing = fromSystemProperties("openAddressing", openAddressing);
+        bulkLoadWindowMicros = fromSystemProperties("bulkLoadWindowMicros", bulkLoadWindowMicros);
+        bulkLoadMaxBatchSize = fromSystemProperties("bulkLoadMaxBatchSize", bulkLoadMaxBatchSize);
+        refreshAfterWriteMillis = fromSystemProperties("refreshAfterWriteMillis", refreshAfterWriteMillis);
+        backgroundEviction = fromSystemProperties("backgroundEviction", backgroundEviction);
+        backgroundEvictionIntervalMillis = fromSystemProperties("backgroundEvictionIntervalMillis", backgroundEvictionIntervalMillis);
+        evictionLowWatermark = fromSystemProperties("evictionLowWatermark", evictionLowWatermark);
+        evictionHighWatermark = fromSystemProperties("evictionHighWatermark", evictionHighWatermark);
+        deferredFree = fromSystemProperties("deferredFree", deferredFree);
+        deferredFreeBatchSize = fromSystemProperties("deferredFreeBatchSize", deferredFreeBatchSize);
+        timeoutsSweepIntervalMillis = fromSystemProperties("timeoutsSweepIntervalMillis", timeoutsSweepIntervalMillis);
+        chunkCompactionBudget = fromSystemProperties("chunkCompactionBudget", chunkCompactionBudget);
+        adaptiveEdenSize = fromSystemProperties("adaptiveEdenSize", adaptiveEdenSize);
+        admission = fromSystemProperties("admission", admission, Admission.class);
+        compactEntryHeader = fromSystemProperties("compactEntryHeader", compactEntryHeader);
+        bucketTags = fromSystemProperties("bucketTags", bucketTags);
     }
 
     public static final String SYSTEM_PROPERTY_PREFIX = "org.caffinitas.ohc.";
@@ -273,6 +469,16 @@ public class OHCacheBuilder<K, V> {
         return new OHCacheLinkedImpl<>(this);
     }
 
+    /**
+     * Builds a cache with primitive {@code long} keys. The configured key serializer is ignored.
+     * Only supported by the linked implementation, i.e. chunk size and fixed entry sizes must not be configured.
+     */
+    public OHLongCache<V> buildLongCache() {
+        if (fixedKeySize > 0 || fixedValueSize > 0 || chunkSize > 0)
+            throw new IllegalArgumentException("long key caches are not supported by the chunked implementation");
+        return new OHLongCacheLinkedImpl<>(this);
+    }
+
     public int getHashTableSize() {
         return hashTableSize;
     }
@@ -486,4 +692,215 @@ public class OHCacheBuilder<K, V> {
         this.edenSize = edenSize;
         return this;
     }
+
+    public boolean isIncrementalRehash() {
+        return incrementalRehash;
+    }
+
+    public OHCacheBuilder<K, V> incrementalRehash(boolean incrementalRehash) {
+        this.incrementalRehash = incrementalRehash;
+        return this;
+    }
+
+    public int getIncrementalRehashStep() {
+        return incrementalRehashStep;
+    }
+
+    public OHCacheBuilder<K, V> incrementalRehashStep(int incrementalRehashStep) {
+        if (incrementalRehashStep <= 0)
+            throw new IllegalArgumentException("incrementalRehashStep:" + incrementalRehashStep);
+        this.incrementalRehashStep = incrementalRehashStep;
+        return this;
+    }
+
+    public boolean isOptimisticReads() {
+        return optimisticReads;
+    }
+
+    public OHCacheBuilder<K, V> optimisticReads(boolean optimisticReads) {
+        this.optimisticReads = optimisticReads;
+        return this;
+    }
+
+    public boolean isReadBuffers() {
+        return readBuffers;
+    }
+
+    public OHCacheBuilder<K, V> readBuffers(boolean readBuffers) {
+        this.readBuffers = readBuffers;
+        return this;
+    }
+
+    public LockType getLockType() {
+        return lockType;
+    }
+
+    public OHCacheBuilder<K, V> lockType(LockType lockType) {
+        this.lockType = lockType;
+        return this;
+    }
+
+    public boolean isOpenAddressing() {
+        return openAddressing;
+    }
+
+    public OHCacheBuilder<K, V> openAddressing(boolean openAddressing) {
+        this.openAddressing = openAddressing;
+        return this;
+    }
+
+    public long getBulkLoadWindowMicros() {
+        return bulkLoadWindowMicros;
+    }
+
+    public OHCacheBuilder<K, V> bulkLoadWindowMicros(long bulkLoadWindowMicros) {
+        if (bulkLoadWindowMicros < 0L)
+            throw new IllegalArgumentException("bulkLoadWindowMicros:" + bulkLoadWindowMicros);
+        this.bulkLoadWindowMicros = bulkLoadWindowMicros;
+        return this;
+    }
+
+    public int getBulkLoadMaxBatchSize() {
+        return bulkLoadMaxBatchSize;
+    }
+
+    public OHCacheBuilder<K, V> bulkLoadMaxBatchSize(int bulkLoadMaxBatchSize) {
+        if (bulkLoadMaxBatchSize <= 0)
+            throw new IllegalArgumentException("bulkLoadMaxBatchSize:" + bulkLoadMaxBatchSize);
+        this.bulkLoadMaxBatchSize = bulkLoadMaxBatchSize;
+        return this;
+    }
+
+    public long getRefreshAfterWriteMillis() {
+        return refreshAfterWriteMillis;
+    }
+
+    public OHCacheBuilder<K, V> refreshAfterWriteMillis(long refreshAfterWriteMillis) {
+        if (refreshAfterWriteMillis < 0L)
+            throw new IllegalArgumentException("refreshAfterWriteMillis:" + refreshAfterWriteMillis);
+        this.refreshAfterWriteMillis = refreshAfterWriteMillis;
+        return this;
+    }
+
+    public boolean isBackgroundEviction() {
+        return backgroundEviction;
+    }
+
+    public OHCacheBuilder<K, V> backgroundEviction(boolean backgroundEviction) {
+        this.backgroundEviction = backgroundEviction;
+        return this;
+    }
+
+    public long getBackgroundEvictionIntervalMillis() {
+        return backgroundEvictionIntervalMillis;
+    }
+
+    public OHCacheBuilder<K, V> backgroundEvictionIntervalMillis(long backgroundEvictionIntervalMillis) {
+        if (backgroundEvictionIntervalMillis <= 0L)
+            throw new IllegalArgumentException("backgroundEvictionIntervalMillis:" + backgroundEvictionIntervalMillis);
+        this.backgroundEvictionIntervalMillis = backgroundEvictionIntervalMillis;
+        return this;
+    }
+
+    public double getEvictionLowWatermark() {
+        return evictionLowWatermark;
+    }
+
+    public OHCacheBuilder<K, V> evictionLowWatermark(double evictionLowWatermark) {
+        if (evictionLowWatermark < 0d || evictionLowWatermark >= 1d)
+            throw new IllegalArgumentException("evictionLowWatermark:" + evictionLowWatermark);
+        this.evictionLowWatermark = evictionLowWatermark;
+        return this;
+    }
+
+    public double getEvictionHighWatermark() {
+        return evictionHighWatermark;
+    }
+
+    public OHCacheBuilder<K, V> evictionHighWatermark(double evictionHighWatermark) {
+        if (evictionHighWatermark < 0d || evictionHighWatermark >= 1d)
+            throw new IllegalArgumentException("evictionHighWatermark:" + evictionHighWatermark);
+        this.evictionHighWatermark = evictionHighWatermark;
+        return this;
+    }
+
+    public boolean isDeferredFree() {
+        return deferredFree;
+    }
+
+    public OHCacheBuilder<K, V> deferredFree(boolean deferredFree) {
+        this.deferredFree = deferredFree;
+        return this;
+    }
+
+    public int getDeferredFreeBatchSize() {
+        return deferredFreeBatchSize;
+    }
+
+    public OHCacheBuilder<K, V> deferredFreeBatchSize(int deferredFreeBatchSize) {
+        if (deferredFreeBatchSize <= 0)
+            throw new IllegalArgumentException("deferredFreeBatchSize:" + deferredFreeBatchSize);
+        this.deferredFreeBatchSize = deferredFreeBatchSize;
+        return this;
+    }
+
+    public long getTimeoutsSweepIntervalMillis() {
+        return timeoutsSweepIntervalMillis;
+    }
+
+    public OHCacheBuilder<K, V> timeoutsSweepIntervalMillis(long timeoutsSweepIntervalMillis) {
+        if (timeoutsSweepIntervalMillis < 0L)
+            throw new IllegalArgumentException("timeoutsSweepIntervalMillis:" + timeoutsSweepIntervalMillis);
+        if (timeoutsSweepIntervalMillis > 0L)
+            this.timeouts = true;
+        this.timeoutsSweepIntervalMillis = timeoutsSweepIntervalMillis;
+        return this;
+    }
+
+    public int getChunkCompactionBudget() {
+        return chunkCompactionBudget;
+    }
+
+    public OHCacheBuilder<K, V> chunkCompactionBudget(int chunkCompactionBudget) {
+        if (chunkCompactionBudget < 0)
+            throw new IllegalArgumentException("chunkCompactionBudget:" + chunkCompactionBudget);
+        this.chunkCompactionBudget = chunkCompactionBudget;
+        return this;
+    }
+
+    public boolean isAdaptiveEdenSize() {
+        return adaptiveEdenSize;
+    }
+
+    public OHCacheBuilder<K, V> adaptiveEdenSize(boolean adaptiveEdenSize) {
+        this.adaptiveEdenSize = adaptiveEdenSize;
+        return this;
+    }
+
+    public Admission getAdmission() {
+        return admission;
+    }
+
+    public OHCacheBuilder<K, V> admission(Admission admission) {
+        this.admission = admission;
+        return this;
+    }
+
+    public boolean isCompactEntryHeader() {
+        return compactEntryHeader;
+    }
+
+    public OHCacheBuilder<K, V> compactEntryHeader(boolean compactEntryHeader) {
+        this.compactEntryHeader = compactEntryHeader;
+        return this;
+    }
+
+    public boolean isBucketTags() {
+        return bucketTags;
+    }
+
+    public OHCacheBuilder<K, V> bucketTags(boolean bucketTags) {
+        this.bucketTags = bucketTags;
+        return this;
+    }
 }
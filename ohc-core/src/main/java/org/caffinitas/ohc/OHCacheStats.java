@@ -35,24 +35,98 @@ public final class OHCacheStats {
     private final long removeCount;
     private final long totalAllocated;
     private final long lruCompactions;
+    private final long rehashesInProgress;
+    private final long rehashPendingBuckets;
+    private final long lockAcquisitions;
+    private final long lockSpins;
+    private final long lockParks;
+    private final long lockWaitNanos;
+    private final long readBufferDrained;
+    private final long readBufferDropped;
+    private final long slabReserved;
+    private final long slabAssigned;
+    private final long slabUsed;
+    private final long refreshCount;
+    private final long backgroundEvictionCount;
+    private final long pendingFreeBytes;
+    private final long sweepNanos;
+    private final long sweptBytes;
+    private final long edenCapacity;
+    private final long edenGrowCount;
+    private final long edenShrinkCount;
+    private final double[][] edenSizeHistory;
+    private final long entryOverhead;
+    private final long permanentFailures;
 
     public OHCacheStats(long hitCount, long missCount, long evictionCount, long expireCount, long[] segmentSizes, long size, long capacity, long free,
             long rehashCount, long putAddCount, long putReplaceCount, long putFailCount, long removeCount, long totalAllocated, long lruCompactions) {
-        this.hitCount = hitCount;
-        this.missCount = missCount;
-        this.evictionCount = evictionCount;
-        this.expireCount = expireCount;
-        this.segmentSizes = segmentSizes;
-        this.size = size;
-        this.capacity = capacity;
-        this.free = free;
-        this.rehashCount = rehashCount;
-        this.putAddCount = putAddCount;
-        this.putReplaceCount = putReplaceCount;
-        this.putFailCount = putFailCount;
-        this.removeCount = removeCount;
-        this.totalAllocated = totalAllocated;
-        this.lruCompactions = lruCompactions;
+        this(newBuilder(hitCount, missCount, evictionCount, expireCount, segmentSizes, size, capacity, free, rehashCount, putAddCount,
+                putReplaceCount, putFailCount, removeCount, totalAllocated, lruCompactions));
+    }
+
+    private OHCacheStats(Builder builder) {
+        this.hitCount = builder.hitCount;
+        this.missCount = builder.missCount;
+        this.evictionCount = builder.evictionCount;
+        this.expireCount = builder.expireCount;
+        this.segmentSizes = builder.segmentSizes;
+        this.size = builder.size;
+        this.capacity = builder.capacity;
+        this.free = builder.free;
+        this.rehashCount = builder.rehashCount;
+        this.putAddCount = builder.putAddCount;
+        this.putReplaceCount = builder.putReplaceCount;
+        this.putFailCount = builder.putFailCount;
+        this.removeCount = builder.removeCount;
+        this.totalAllocated = builder.totalAllocated;
+        this.lruCompactions = builder.lruCompactions;
+        this.rehashesInProgress = builder.rehashesInProgress;
+        this.rehashPendingBuckets = builder.rehashPendingBuckets;
+        this.lockAcquisitions = builder.lockAcquisitions;
+        this.lockSpins = builder.lockSpins;
+        this.lockParks = builder.lockParks;
+        this.lockWaitNanos = builder.lockWaitNanos;
+        this.readBufferDrained = builder.readBufferDrained;
+        this.readBufferDropped = builder.readBufferDropped;
+        this.slabReserved = builder.slabReserved;
+        this.slabAssigned = builder.slabAssigned;
+        this.slabUsed = builder.slabUsed;
+        this.refreshCount = builder.refreshCount;
+        this.backgroundEvictionCount = builder.backgroundEvictionCount;
+        this.pendingFreeBytes = builder.pendingFreeBytes;
+        this.sweepNanos = builder.sweepNanos;
+        this.sweptBytes = builder.sweptBytes;
+        this.edenCapacity = builder.edenCapacity;
+        this.edenGrowCount = builder.edenGrowCount;
+        this.edenShrinkCount = builder.edenShrinkCount;
+        this.edenSizeHistory = builder.edenSizeHistory;
+        this.entryOverhead = builder.entryOverhead;
+        this.permanentFailures = builder.permanentFailures;
+    }
+
+    /**
+     * Creates a builder for statistics, that are not covered by the constructor's arguments.
+     * Unset statistics are {@code 0}.
+     */
+    public static Builder newBuilder(long hitCount, long missCount, long evictionCount, long expireCount, long[] segmentSizes, long size, long capacity, long free,
+            long rehashCount, long putAddCount, long putReplaceCount, long putFailCount, long removeCount, long totalAllocated, long lruCompactions) {
+        Builder builder = new Builder();
+        builder.hitCount = hitCount;
+        builder.missCount = missCount;
+        builder.evictionCount = evictionCount;
+        builder.expireCount = expireCount;
+        builder.segmentSizes = segmentSizes;
+        builder.size = size;
+        builder.capacity = capacity;
+        builder.free = free;
+        builder.rehashCount = rehashCount;
+        builder.putAddCount = putAddCount;
+        builder.putReplaceCount = putReplaceCount;
+        builder.putFailCount = putFailCount;
+        builder.removeCount = removeCount;
+        builder.totalAllocated = totalAllocated;
+        builder.lruCompactions = lruCompactions;
+        return builder;
     }
 
     public long getCapacity() {
@@ -127,6 +201,192 @@ public final class OHCacheStats {
         return lruCompactions;
     }
 
+    /**
+     * Number of segments with an incremental rehash in progress.
+     */
+    public long getRehashesInProgress() {
+        return rehashesInProgress;
+    }
+
+    /**
+     * Number of hash buckets that still need to be migrated by incremental rehashes in progress.
+     */
+    public long getRehashPendingBuckets() {
+        return rehashPendingBuckets;
+    }
+
+    /**
+     * Number of segment lock acquisitions, exclusive and shared.
+     */
+    public long getLockAcquisitions() {
+        return lockAcquisitions;
+    }
+
+    /**
+     * Number of failed attempts to acquire a segment lock.
+     */
+    public long getLockSpins() {
+        return lockSpins;
+    }
+
+    /**
+     * Number of times a thread has been parked waiting for a segment lock.
+     */
+    public long getLockParks() {
+        return lockParks;
+    }
+
+    /**
+     * Total time threads waited for segment locks in nanoseconds.
+     */
+    public long getLockWaitNanos() {
+        return lockWaitNanos;
+    }
+
+    /**
+     * Number of buffered accesses applied to the eviction order.
+     */
+    public long getReadBufferDrained() {
+        return readBufferDrained;
+    }
+
+    /**
+     * Number of accesses not applied to the eviction order, because a read buffer was full.
+     */
+    public long getReadBufferDropped() {
+        return readBufferDropped;
+    }
+
+    /**
+     * Bytes reserved by the {@link org.caffinitas.ohc.alloc.SlabAllocator slab allocator}, {@code 0} if not used.
+     */
+    public long getSlabReserved() {
+        return slabReserved;
+    }
+
+    /**
+     * Bytes of slab pages assigned to a size class.
+     */
+    public long getSlabAssigned() {
+        return slabAssigned;
+    }
+
+    /**
+     * Bytes of slab blocks in use.
+     */
+    public long getSlabUsed() {
+        return slabUsed;
+    }
+
+    /**
+     * Ratio of slab bytes in use to reserved slab bytes.
+     */
+    public double getSlabUtilization() {
+        return slabReserved > 0L ? (double) slabUsed / slabReserved : 0d;
+    }
+
+    /**
+     * Ratio of free bytes in pages assigned to a size class to all assigned bytes. A high fragmentation means
+     * that free memory is held by size classes that are rarely used.
+     */
+    public double getSlabFragmentation() {
+        return slabAssigned > 0L ? (double) (slabAssigned - slabUsed) / slabAssigned : 0d;
+    }
+
+    /**
+     * Number of entries replaced by a refresh-after-write reload.
+     */
+    public long getRefreshCount() {
+        return refreshCount;
+    }
+
+    /**
+     * Number of entries evicted while adding new entries, included in {@link #getEvictionCount()}.
+     */
+    public long getInlineEvictionCount() {
+        return evictionCount - backgroundEvictionCount;
+    }
+
+    /**
+     * Number of entries evicted by the background eviction task, included in {@link #getEvictionCount()}.
+     */
+    public long getBackgroundEvictionCount() {
+        return backgroundEvictionCount;
+    }
+
+    /**
+     * Bytes of evicted and removed entries waiting to be freed, if deferred freeing is enabled.
+     * These bytes are not included in {@link #getFree()}.
+     */
+    public long getPendingFreeBytes() {
+        return pendingFreeBytes;
+    }
+
+    /**
+     * Time in nanoseconds spent by the background expiration sweeper.
+     */
+    public long getSweepNanos() {
+        return sweepNanos;
+    }
+
+    /**
+     * Bytes of expired entries removed by the background expiration sweeper. The entries are included in
+     * {@link #getExpireCount()}.
+     */
+    public long getSweptBytes() {
+        return sweptBytes;
+    }
+
+    /**
+     * Capacity of the eden generations of all segments, {@code 0} if not using
+     * {@link org.caffinitas.ohc.Eviction#W_TINY_LFU W-TinyLFU}.
+     */
+    public long getEdenCapacity() {
+        return edenCapacity;
+    }
+
+    /**
+     * Size of the eden generations relative to the capacity.
+     */
+    public double getEdenSize() {
+        return capacity > 0L ? (double) edenCapacity / capacity : 0d;
+    }
+
+    /**
+     * Number of times the adaptive eden size grew the eden generation of a segment.
+     */
+    public long getEdenGrowCount() {
+        return edenGrowCount;
+    }
+
+    /**
+     * Number of times the adaptive eden size shrank the eden generation of a segment.
+     */
+    public long getEdenShrinkCount() {
+        return edenShrinkCount;
+    }
+
+    /**
+     * Eden sizes of each segment after its most recent adjustments by the adaptive eden size, oldest first.
+     */
+    public double[][] getEdenSizeHistory() {
+        return edenSizeHistory;
+    }
+
+    /**
+     * Number of bytes of the header of each entry, in addition to the serialized key and value.
+     */
+    public long getEntryOverhead() {
+        return entryOverhead;
+    }
+
+    /**
+     * Number of keys remembered on-heap as permanently failed loads by the chunked implementation.
+     */
+    public long getPermanentFailures() {
+        return permanentFailures;
+    }
+
     @Override
     @SuppressWarnings("deprecation")
     public String toString() {
@@ -134,16 +394,27 @@ public final class OHCacheStats {
                 .add("hitCount", hitCount)
                 .add("missCount", missCount)
                 .add("evictionCount", evictionCount)
+                .add("eviction(inline/background)", Long.toString(getInlineEvictionCount()) + '/' + backgroundEvictionCount)
                 .add("size", size)
                 .add("capacity", capacity)
                 .add("free", free)
+                .add("pendingFreeBytes", pendingFreeBytes)
                 .add("rehashCount", rehashCount)
+                .add("rehash(inProgress/pendingBuckets)", Long.toString(rehashesInProgress) + '/' + rehashPendingBuckets)
                 .add("put(add/replace/fail)", Long.toString(putAddCount) + '/' + putReplaceCount + '/' + putFailCount)
                 .add("removeCount", removeCount)
                 .add("segmentSizes(#/min/max/avg)",
                         String.format("%d/%d/%d/%.2f", segmentSizes.length, getMinSegmentSize(), getMaxSegmentSize(), getAverageSegmentSize()))
                 .add("totalAllocated", totalAllocated)
                 .add("lruCompactions", lruCompactions)
+                .add("lock(acquisitions/spins/parks/waitNanos)", Long.toString(lockAcquisitions) + '/' + lockSpins + '/' + lockParks + '/' + lockWaitNanos)
+                .add("readBuffer(drained/dropped)", Long.toString(readBufferDrained) + '/' + readBufferDropped)
+                .add("slab(reserved/assigned/used)", Long.toString(slabReserved) + '/' + slabAssigned + '/' + slabUsed)
+                .add("refreshCount", refreshCount)
+                .add("sweep(nanos/bytes)", Long.toString(sweepNanos) + '/' + sweptBytes)
+                .add("eden(size/grow/shrink)", String.format("%.4f/%d/%d", getEdenSize(), edenGrowCount, edenShrinkCount))
+                .add("entryOverhead", entryOverhead)
+                .add("permanentFailures", permanentFailures)
                 .toString();
     }
 
@@ -242,4 +513,161 @@ public final class OHCacheStats {
         //        result = 31 * result + (int) (totalAllocated ^ (totalAllocated >>> 32));
         return result;
     }
+
+    public static final class Builder {
+        private long hitCount;
+        private long missCount;
+        private long evictionCount;
+        private long expireCount;
+        private long[] segmentSizes;
+        private long size;
+        private long capacity;
+        private long free;
+        private long rehashCount;
+        private long putAddCount;
+        private long putReplaceCount;
+        private long putFailCount;
+        private long removeCount;
+        private long totalAllocated;
+        private long lruCompactions;
+        private long rehashesInProgress;
+        private long rehashPendingBuckets;
+        private long lockAcquisitions;
+        private long lockSpins;
+        private long lockParks;
+        private long lockWaitNanos;
+        private long readBufferDrained;
+        private long readBufferDropped;
+        private long slabReserved;
+        private long slabAssigned;
+        private long slabUsed;
+        private long refreshCount;
+        private long backgroundEvictionCount;
+        private long pendingFreeBytes;
+        private long sweepNanos;
+        private long sweptBytes;
+        private long edenCapacity;
+        private long edenGrowCount;
+        private long edenShrinkCount;
+        private double[][] edenSizeHistory = new double[0][];
+        private long entryOverhead;
+        private long permanentFailures;
+
+        private Builder() {
+        }
+
+        public Builder rehashesInProgress(long rehashesInProgress) {
+            this.rehashesInProgress = rehashesInProgress;
+            return this;
+        }
+
+        public Builder rehashPendingBuckets(long rehashPendingBuckets) {
+            this.rehashPendingBuckets = rehashPendingBuckets;
+            return this;
+        }
+
+        public Builder lockAcquisitions(long lockAcquisitions) {
+            this.lockAcquisitions = lockAcquisitions;
+            return this;
+        }
+
+        public Builder lockSpins(long lockSpins) {
+            this.lockSpins = lockSpins;
+            return this;
+        }
+
+        public Builder lockParks(long lockParks) {
+            this.lockParks = lockParks;
+            return this;
+        }
+
+        public Builder lockWaitNanos(long lockWaitNanos) {
+            this.lockWaitNanos = lockWaitNanos;
+            return this;
+        }
+
+        public Builder readBufferDrained(long readBufferDrained) {
+            this.readBufferDrained = readBufferDrained;
+            return this;
+        }
+
+        public Builder readBufferDropped(long readBufferDropped) {
+            this.readBufferDropped = readBufferDropped;
+            return this;
+        }
+
+        public Builder slabReserved(long slabReserved) {
+            this.slabReserved = slabReserved;
+            return this;
+        }
+
+        public Builder slabAssigned(long slabAssigned) {
+            this.slabAssigned = slabAssigned;
+            return this;
+        }
+
+        public Builder slabUsed(long slabUsed) {
+            this.slabUsed = slabUsed;
+            return this;
+        }
+
+        public Builder refreshCount(long refreshCount) {
+            this.refreshCount = refreshCount;
+            return this;
+        }
+
+        public Builder backgroundEvictionCount(long backgroundEvictionCount) {
+            this.backgroundEvictionCount = backgroundEvictionCount;
+            return this;
+        }
+
+        public Builder pendingFreeBytes(long pendingFreeBytes) {
+            this.pendingFreeBytes = pendingFreeBytes;
+            return this;
+        }
+
+        public Builder sweepNanos(long sweepNanos) {
+            this.sweepNanos = sweepNanos;
+            return this;
+        }
+
+        public Builder sweptBytes(long sweptBytes) {
+            this.sweptBytes = sweptBytes;
+            return this;
+        }
+
+        public Builder edenCapacity(long edenCapacity) {
+            this.edenCapacity = edenCapacity;
+            return this;
+        }
+
+        public Builder edenGrowCount(long edenGrowCount) {
+            this.edenGrowCount = edenGrowCount;
+            return this;
+        }
+
+        public Builder edenShrinkCount(long edenShrinkCount) {
+            this.edenShrinkCount = edenShrinkCount;
+            return this;
+        }
+
+        public Builder edenSizeHistory(double[][] edenSizeHistory) {
+            this.edenSizeHistory = edenSizeHistory;
+            return this;
+        }
+
+        public Builder entryOverhead(long entryOverhead) {
+            this.entryOverhead = entryOverhead;
+            return this;
+        }
+
+        public Builder permanentFailures(long permanentFailures) {
+            this.permanentFailures = permanentFailures;
+            return this;
+        }
+
+        public OHCacheStats build() {
+            return new OHCacheStats(this);
+        }
+    }
 }
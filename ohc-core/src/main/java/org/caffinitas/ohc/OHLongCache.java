@@ -0,0 +1,118 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc;
+
+import java.io.Closeable;
+
+/**
+ * Cache with primitive {@code long} keys, built via {@link OHCacheBuilder#buildLongCache()}.
+ * <p>
+ * Keys are not serialized but stored as 8 bytes directly after the entry header and hashed with a cheap
+ * bit mixer instead of a byte-wise hash function. No key is boxed on any of the operations below.
+ * Eviction, expiry, capacity and statistics behave like the ones of {@link OHCache}.
+ * </p>
+ */
+public interface OHLongCache<V> extends Closeable {
+
+    /**
+     * Same as {@link #put(long, Object, long)} but uses the configured default TTL, if any.
+     *
+     * @param key      key of the entry to be added.
+     * @param value    value of the entry to be added. Must not be {@code null}.
+     * @return {@code true}, if the entry has been added, {@code false} otherwise
+     */
+    boolean put(long key, V value);
+
+    /**
+     * Adds the key/value.
+     * If the entry size of key/value exceeds the configured maximum entry length, any previously existing entry
+     * for the key is removed.
+     *
+     * @param key      key of the entry to be added.
+     * @param value    value of the entry to be added. Must not be {@code null}.
+     * @param expireAt timestamp in milliseconds since "epoch" (like {@link System#currentTimeMillis() System.currentTimeMillis()})
+     *                 when the entry shall expire. Pass {@link OHCache#USE_DEFAULT_EXPIRE_AT} for the configured default
+     *                 time-to-live or {@link OHCache#NEVER_EXPIRE} to let it never expire.
+     * @return {@code true}, if the entry has been added, {@code false} otherwise
+     */
+    boolean put(long key, V value, long expireAt);
+
+    /**
+     * Same as {@link #putIfAbsent(long, Object, long)} but uses the configured default TTL, if any.
+     *
+     * @param key      key of the entry to be added.
+     * @param value    value of the entry to be added. Must not be {@code null}.
+     * @return {@code true} on success or {@code false} if the key is already present.
+     */
+    boolean putIfAbsent(long key, V value);
+
+    /**
+     * Adds the key/value if the key is not present.
+     *
+     * @param key      key of the entry to be added.
+     * @param value    value of the entry to be added. Must not be {@code null}.
+     * @param expireAt timestamp in milliseconds since "epoch" when the entry shall expire, see {@link #put(long, Object, long)}
+     * @return {@code true} on success or {@code false} if the key is already present.
+     */
+    boolean putIfAbsent(long key, V value, long expireAt);
+
+    /**
+     * Get the value for a given key.
+     *
+     * @param key      key of the entry to be retrieved.
+     * @return either the non-{@code null} value or {@code null} if no entry for the requested key exists
+     */
+    V get(long key);
+
+    /**
+     * Checks whether an entry for a given key exists.
+     * Usually, this is more efficient than testing for {@code null} via {@link #get(long)}.
+     *
+     * @param key      key of the entry to be retrieved.
+     * @return either {@code true} if an entry for the given key exists or {@code false} if no entry for the requested key exists
+     */
+    boolean containsKey(long key);
+
+    /**
+     * Remove a single entry for the given key.
+     *
+     * @param key key of the entry to be removed.
+     * @return {@code true}, if the entry has been removed, {@code false} otherwise
+     */
+    boolean remove(long key);
+
+    /**
+     * Removes all entries from the cache.
+     */
+    void clear();
+
+    // statistics / information
+
+    void resetStatistics();
+
+    long size();
+
+    long capacity();
+
+    long freeCapacity();
+
+    OHCacheStats stats();
+
+    /**
+     * Modify the cache's capacity, see {@link OHCache#setCapacity(long)}.
+     */
+    void setCapacity(long capacity);
+}
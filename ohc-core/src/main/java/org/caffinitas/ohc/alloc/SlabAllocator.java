@@ -0,0 +1,397 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.alloc;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import sun.misc.Unsafe;
+
+/**
+ * Allocator that carves size-classed slabs out of large regions reserved from a backing allocator.
+ * <p>
+ * Regions are split into pages of {@value #PAGE_SIZE} bytes. A page is assigned to a size class on demand and
+ * split into blocks of that size. Freed blocks are kept in a per-thread cache and are moved in batches to and
+ * from the free list of the size class. Allocations bigger than {@value #MAX_SLAB_ALLOCATION} bytes are
+ * delegated to the backing allocator.
+ * </p>
+ * <p>
+ * Regions are never returned to the backing allocator - memory once used for a size class stays with that
+ * size class. {@link #getSlabReserved()}, {@link #getSlabAssigned()} and {@link #getSlabUsed()} show how well
+ * the reserved memory is utilized.
+ * </p>
+ */
+@SuppressWarnings("restriction")
+public final class SlabAllocator implements IAllocator {
+    static final int PAGE_SHIFT = 16;
+    static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    static final long DEFAULT_REGION_SIZE = 64L * PAGE_SIZE;
+    static final int MAX_SLAB_ALLOCATION = 16384;
+
+    private static final int GRANULARITY_SHIFT = 4;
+    private static final int[] CLASS_SIZES;
+    private static final byte[] CLASS_INDEX;
+
+    static {
+        int[] sizes = new int[64];
+        int n = 0;
+        // 16 byte steps up to 256 bytes, then steps of ~25%
+        for (int size = 16; size <= 256; size += 16) {
+            sizes[n++] = size;
+        }
+        for (int size = 256; size < MAX_SLAB_ALLOCATION; ) {
+            size = Math.min(MAX_SLAB_ALLOCATION, ((size + size / 4) + 15) & ~15);
+            sizes[n++] = size;
+        }
+        CLASS_SIZES = Arrays.copyOf(sizes, n);
+
+        CLASS_INDEX = new byte[(MAX_SLAB_ALLOCATION >> GRANULARITY_SHIFT) + 1];
+        for (int i = 0, c = 0; i < CLASS_INDEX.length; i++) {
+            while (CLASS_SIZES[c] < i << GRANULARITY_SHIFT) {
+                c++;
+            }
+            CLASS_INDEX[i] = (byte) c;
+        }
+    }
+
+    private static final Unsafe unsafe = UnsafeAllocator.unsafe;
+
+    private final IAllocator backing;
+    private final long regionSize;
+
+    // sorted by base address, copy-on-write while holding the lock on this instance
+    private volatile Region[] regions = new Region[0];
+    private Region currentRegion;
+    private volatile long reserved;
+    private volatile long assigned;
+
+    private final SizeClass[] sizeClasses;
+
+    private final Queue<ThreadCache> threadCaches = new ConcurrentLinkedQueue<>();
+    // used bytes of the caches of terminated threads, guarded by the lock on threadCaches
+    private long terminatedThreadsUsed;
+    private final ThreadLocal<ThreadCache> threadCache = new ThreadLocal<ThreadCache>() {
+        @Override
+        protected ThreadCache initialValue() {
+            // blocks in the caches of terminated threads would be lost otherwise
+            flushTerminatedThreadCaches();
+
+            ThreadCache tc = new ThreadCache(Thread.currentThread());
+            threadCaches.add(tc);
+            return tc;
+        }
+    };
+
+    public SlabAllocator(IAllocator backing) {
+        this(backing, DEFAULT_REGION_SIZE);
+    }
+
+    public SlabAllocator(IAllocator backing, long regionSize) {
+        if (regionSize < PAGE_SIZE || regionSize % PAGE_SIZE != 0)
+            throw new IllegalArgumentException("regionSize:" + regionSize);
+        this.backing = backing;
+        this.regionSize = regionSize;
+        this.sizeClasses = new SizeClass[CLASS_SIZES.length];
+        for (int i = 0; i < sizeClasses.length; i++) {
+            sizeClasses[i] = new SizeClass(i, CLASS_SIZES[i]);
+        }
+    }
+
+    @Override
+    public long allocate(long size) {
+        if (size <= 0L || size > MAX_SLAB_ALLOCATION) {
+            return backing.allocate(size);
+        }
+
+        int sizeClass = CLASS_INDEX[(int) (size + 15) >> GRANULARITY_SHIFT];
+        ThreadCache tc = threadCache.get();
+        long adr = tc.pop(sizeClass);
+        if (adr == 0L) {
+            adr = sizeClasses[sizeClass].refill(tc);
+            if (adr == 0L) {
+                // unable to reserve another region
+                return backing.allocate(size);
+            }
+        }
+        tc.allocatedBytes += CLASS_SIZES[sizeClass];
+        return adr;
+    }
+
+    @Override
+    public void free(long peer) {
+        Region region = regionFor(peer);
+        if (region == null) {
+            backing.free(peer);
+            return;
+        }
+
+        int sizeClass = region.pageClass[(int) ((peer - region.base) >>> PAGE_SHIFT)];
+        ThreadCache tc = threadCache.get();
+        tc.freedBytes += CLASS_SIZES[sizeClass];
+        tc.push(sizeClasses[sizeClass], peer);
+    }
+
+    @Override
+    public long getTotalAllocated() {
+        return backing.getTotalAllocated();
+    }
+
+    /**
+     * Bytes reserved from the backing allocator for slabs.
+     */
+    public long getSlabReserved() {
+        return reserved;
+    }
+
+    /**
+     * Bytes of the pages assigned to a size class.
+     */
+    public long getSlabAssigned() {
+        return assigned;
+    }
+
+    /**
+     * Bytes of the blocks currently allocated from slabs. Since blocks are rounded up to their size class,
+     * this is at least the number of requested bytes.
+     */
+    public long getSlabUsed() {
+        long r;
+        synchronized (threadCaches) {
+            r = terminatedThreadsUsed;
+        }
+        for (ThreadCache tc : threadCaches) {
+            r += tc.allocatedBytes - tc.freedBytes;
+        }
+        return r;
+    }
+
+    /**
+     * Releases all regions. Must only be called, if this allocator is not used anymore.
+     */
+    public void close() {
+        for (SizeClass sc : sizeClasses) {
+            sc.clear();
+        }
+        synchronized (threadCaches) {
+            threadCaches.clear();
+            terminatedThreadsUsed = 0L;
+        }
+        synchronized (this) {
+            for (Region region : regions) {
+                backing.free(region.base);
+            }
+            regions = new Region[0];
+            currentRegion = null;
+            reserved = 0L;
+            assigned = 0L;
+        }
+    }
+
+    static int sizeClassCount() {
+        return CLASS_SIZES.length;
+    }
+
+    static int sizeOfClass(int sizeClass) {
+        return CLASS_SIZES[sizeClass];
+    }
+
+    private Region regionFor(long adr) {
+        Region[] regs = regions;
+        int lo = 0;
+        int hi = regs.length - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            Region r = regs[mid];
+            if (adr < r.base) {
+                hi = mid - 1;
+            } else if (adr >= r.base + r.size) {
+                lo = mid + 1;
+            } else {
+                return r;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Assigns a page to the given size class.
+     *
+     * @return the address of the page or {@code 0L} if no region could be reserved
+     */
+    private synchronized long assignPage(int sizeClass) {
+        Region region = currentRegion;
+        if (region == null || region.nextPage == region.pageClass.length) {
+            region = reserveRegion();
+            if (region == null) {
+                return 0L;
+            }
+        }
+
+        int page = region.nextPage++;
+        region.pageClass[page] = (byte) sizeClass;
+        assigned += PAGE_SIZE;
+        return region.base + ((long) page << PAGE_SHIFT);
+    }
+
+    private Region reserveRegion() {
+        long base = backing.allocate(regionSize);
+        if (base == 0L) {
+            return null;
+        }
+
+        Region region = new Region(base, regionSize);
+        Region[] regs = Arrays.copyOf(regions, regions.length + 1);
+        int i = regs.length - 1;
+        for (; i > 0 && regs[i - 1].base > base; i--) {
+            regs[i] = regs[i - 1];
+        }
+        regs[i] = region;
+        regions = regs;
+        currentRegion = region;
+        reserved += regionSize;
+        return region;
+    }
+
+    private void flushTerminatedThreadCaches() {
+        synchronized (threadCaches) {
+            for (Iterator<ThreadCache> iter = threadCaches.iterator(); iter.hasNext(); ) {
+                ThreadCache tc = iter.next();
+                Thread thread = tc.thread.get();
+                if (thread == null || !thread.isAlive()) {
+                    for (int i = 0; i < sizeClasses.length; i++) {
+                        sizeClasses[i].flush(tc, tc.counts[i]);
+                    }
+                    terminatedThreadsUsed += tc.allocatedBytes - tc.freedBytes;
+                    iter.remove();
+                }
+            }
+        }
+    }
+
+    private static final class Region {
+        final long base;
+        final long size;
+        final byte[] pageClass;
+        int nextPage;
+
+        Region(long base, long size) {
+            this.base = base;
+            this.size = size;
+            this.pageClass = new byte[(int) (size >>> PAGE_SHIFT)];
+        }
+    }
+
+    private final class SizeClass {
+        final int index;
+        final int size;
+        final int maxCached;
+        final int batch;
+
+        // free blocks are linked using their first 8 bytes, guarded by the lock on this instance
+        private long freeHead;
+
+        SizeClass(int index, int size) {
+            this.index = index;
+            this.size = size;
+            this.maxCached = Math.max(4, Math.min(64, PAGE_SIZE / size));
+            this.batch = Math.max(1, maxCached / 2);
+        }
+
+        /**
+         * Moves a batch of blocks into the given thread cache.
+         *
+         * @return a block for the current allocation or {@code 0L}
+         */
+        synchronized long refill(ThreadCache tc) {
+            if (freeHead == 0L) {
+                long page = assignPage(index);
+                if (page == 0L) {
+                    return 0L;
+                }
+                // link all blocks of the new page
+                int blocks = PAGE_SIZE / size;
+                for (int i = blocks - 1; i >= 0; i--) {
+                    long adr = page + (long) i * size;
+                    unsafe.putLong(adr, freeHead);
+                    freeHead = adr;
+                }
+            }
+
+            long adr = freeHead;
+            freeHead = unsafe.getLong(adr);
+            for (int i = 1; i < batch && freeHead != 0L; i++) {
+                long cached = freeHead;
+                freeHead = unsafe.getLong(cached);
+                tc.blocks[index][tc.counts[index]++] = cached;
+            }
+            return adr;
+        }
+
+        /**
+         * Moves the most recently freed {@code n} blocks from the given thread cache to the free list.
+         */
+        synchronized void flush(ThreadCache tc, int n) {
+            long[] blocks = tc.blocks[index];
+            int count = tc.counts[index];
+            for (int i = count - n; i < count; i++) {
+                unsafe.putLong(blocks[i], freeHead);
+                freeHead = blocks[i];
+            }
+            tc.counts[index] = count - n;
+        }
+
+        synchronized void clear() {
+            freeHead = 0L;
+        }
+    }
+
+    private final class ThreadCache {
+        final WeakReference<Thread> thread;
+        final long[][] blocks = new long[sizeClasses.length][];
+        final int[] counts = new int[sizeClasses.length];
+
+        // only modified by the owning thread
+        long allocatedBytes;
+        long freedBytes;
+
+        ThreadCache(Thread thread) {
+            this.thread = new WeakReference<>(thread);
+            for (int i = 0; i < blocks.length; i++) {
+                blocks[i] = new long[sizeClasses[i].maxCached];
+            }
+        }
+
+        long pop(int sizeClass) {
+            int count = counts[sizeClass];
+            if (count == 0) {
+                return 0L;
+            }
+            counts[sizeClass] = --count;
+            return blocks[sizeClass][count];
+        }
+
+        void push(SizeClass sizeClass, long adr) {
+            int i = sizeClass.index;
+            if (counts[i] == blocks[i].length) {
+                sizeClass.flush(this, sizeClass.batch);
+            }
+            blocks[i][counts[i]++] = adr;
+        }
+    }
+}
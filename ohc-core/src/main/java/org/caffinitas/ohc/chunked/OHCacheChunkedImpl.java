@@ -19,15 +19,24 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.caffinitas.ohc.BatchResult;
+import org.caffinitas.ohc.BulkCacheLoader;
 import org.caffinitas.ohc.CacheLoader;
 import org.caffinitas.ohc.CacheSerializer;
 import org.caffinitas.ohc.CloseableIterator;
@@ -36,15 +45,28 @@ import org.caffinitas.ohc.Eviction;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
 import org.caffinitas.ohc.OHCacheStats;
+import org.caffinitas.ohc.PermanentLoadException;
+import org.caffinitas.ohc.TemporaryLoadException;
 import org.caffinitas.ohc.histo.EstimatedHistogram;
+import org.caffinitas.ohc.loader.BulkLoadCoalescer;
+import org.caffinitas.ohc.lock.SegmentLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(OHCacheChunkedImpl.class);
 
+    // maximum number of entries or keys processed at once by putAllBatch() and removeAllBatch()
+    private static final int BULK_BATCH_SIZE = 16384;
+    // maximum number of keys remembered as permanently failed, the oldest ones are forgotten first
+    static final int MAX_PERMANENT_FAILURES = 8192;
+
     private final CacheSerializer<K> keySerializer;
     private final CacheSerializer<V> valueSerializer;
 
@@ -61,6 +83,24 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
 
     private volatile long putFailCount;
 
+    private boolean closed;
+
+    private final ScheduledExecutorService executorService;
+
+    private final BulkLoadCoalescer<K, V> bulkLoads;
+
+    // in-flight getWithLoaderAsync() loads by serialized key
+    private final ConcurrentMap<KeyBuffer, SettableFuture<V>> loads = new ConcurrentHashMap<>();
+    // keys for which the loader threw a PermanentLoadException - until removed, the cache is cleared or
+    // MAX_PERMANENT_FAILURES newer permanent failures have been added, guarded by itself
+    private final Map<KeyBuffer, Boolean> permanentFailures = new LinkedHashMap<KeyBuffer, Boolean>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<KeyBuffer, Boolean> eldest) {
+            return size() > MAX_PERMANENT_FAILURES;
+        }
+    };
+    private volatile int permanentFailureCount;
+
     private final Hasher hasher;
 
     public OHCacheChunkedImpl(OHCacheBuilder<K, V> builder) {
@@ -136,6 +176,9 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
             throw new NullPointerException("valueSerializer == null");
         }
 
+        this.executorService = builder.getExecutorService();
+        this.bulkLoads = new BulkLoadCoalescer<>(builder.getBulkLoadWindowMicros(), builder.getBulkLoadMaxBatchSize());
+
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("OHC chunked instance with {} segments and capacity of {} created.", segments, capacity);
         }
@@ -182,6 +225,84 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
         return segment(keySource.hash()).getEntry(keySource, null) == Boolean.TRUE;
     }
 
+    @Override
+    public Map<K, V> getAll(Iterable<K> keys) {
+        Map<K, V> out = new HashMap<>();
+        getAll(keys instanceof Collection ? (Collection<K>) keys : copyOf(keys), out);
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void getAll(Collection<K> keys, Map<K, V> out) {
+        int n = keys.size();
+        if (n == 0) {
+            return;
+        }
+
+        // serialize and hash all keys, then order them by segment
+        Object[] keyObjects = new Object[n];
+        KeyBuffer[] keySources = new KeyBuffer[n];
+        long[] hashes = new long[n];
+        int i = 0;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            keyObjects[i] = key;
+            keySources[i] = keySource(key);
+            hashes[i] = keySources[i].hash();
+            i++;
+        }
+        Object[] sortedKeys = new Object[n];
+        KeyBuffer[] sortedKeySources = new KeyBuffer[n];
+        int[] segmentOffsets = sortBySegment(keySources, hashes, n, sortedKeySources);
+        sortBySegment(keyObjects, hashes, n, sortedKeys);
+
+        ByteBuffer[] values = new ByteBuffer[n];
+        for (int seg = 0; seg < maps.length; seg++) {
+            int off = segmentOffsets[seg];
+            int count = segmentOffsets[seg + 1] - off;
+            if (count > 0) {
+                maps[seg].getEntries(sortedKeySources, off, count, values);
+            }
+        }
+
+        for (i = 0; i < n; i++) {
+            if (values[i] != null) {
+                out.put((K) sortedKeys[i], valueSerializer.deserialize(values[i]));
+            }
+        }
+    }
+
+    /**
+     * Orders the first {@code n} elements by the segment of the corresponding hash using a counting sort.
+     *
+     * @return offsets of the elements of each segment in {@code sorted} - the element after the last segment is {@code n}
+     */
+    private int[] sortBySegment(Object[] elements, long[] hashes, int n, Object[] sorted) {
+        int[] segmentOffsets = new int[maps.length + 1];
+        for (int i = 0; i < n; i++) {
+            segmentOffsets[segmentIndex(hashes[i]) + 1]++;
+        }
+        for (int seg = 0; seg < maps.length; seg++) {
+            segmentOffsets[seg + 1] += segmentOffsets[seg];
+        }
+        int[] positions = Arrays.copyOf(segmentOffsets, maps.length);
+        for (int i = 0; i < n; i++) {
+            sorted[positions[segmentIndex(hashes[i])]++] = elements[i];
+        }
+        return segmentOffsets;
+    }
+
+    private static <K> Collection<K> copyOf(Iterable<K> keys) {
+        Collection<K> c = new ArrayList<>();
+        for (K key : keys) {
+            c.add(key);
+        }
+        return c;
+    }
+
     @Override
     public boolean put(K key, V value) {
         return putInternal(key, value, false, null, OHCache.NEVER_EXPIRE);
@@ -333,32 +454,173 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
 
         KeyBuffer key = keySource(k);
 
+        removePermanentFailure(key);
+
         return segment(key.hash()).removeEntry(key);
     }
 
     @Override
     public V getWithLoader(K key, CacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
-        throw unsupportedOp();
+        return getWithLoaderAsync(key, loader).get();
     }
 
     @Override
     public V getWithLoader(K key, CacheLoader<K, V> loader, long timeout, TimeUnit unit) throws InterruptedException, ExecutionException, TimeoutException {
-        throw unsupportedOp();
+        return getWithLoaderAsync(key, loader).get(timeout, unit);
     }
 
     @Override
     public Future<V> getWithLoaderAsync(final K key, final CacheLoader<K, V> loader) {
-        throw unsupportedOp();
+        return getWithLoaderAsync(key, loader, OHCache.NEVER_EXPIRE);
     }
 
+    @SuppressWarnings("unchecked")
     @Override
-    public Future<V> getWithLoaderAsync(K key, CacheLoader<K, V> loader, long expireAt) {
-        throw unsupportedOp();
+    public Future<V> getWithLoaderAsync(final K key, final CacheLoader<K, V> loader, long expireAt) {
+        if (key == null) {
+            throw new NullPointerException();
+        }
+        if (expireAt != OHCache.NEVER_EXPIRE && expireAt != OHCache.USE_DEFAULT_EXPIRE_AT) {
+            throw new IllegalArgumentException("chunked implementation does not support expiring entries");
+        }
+        if (executorService == null || executorService.isShutdown() || closed) {
+            throw new IllegalStateException("OHCache has no executor service - configure one via OHCacheBuilder.executorService()");
+        }
+
+        // Loads are tracked on-heap by the serialized key - the chunked implementation copies values out of
+        // the chunks, so neither the requests nor the load keep references to off-heap memory.
+        final KeyBuffer keySource = keySource(key);
+        OffHeapChunkedMap segment = segment(keySource.hash());
+
+        Object value = segment.getEntry(keySource, valueSerializer);
+        if (value != null) {
+            return Futures.immediateFuture((V) value);
+        }
+        if (isPermanentFailure(keySource)) {
+            return Futures.immediateFailedFuture(new PermanentLoadException());
+        }
+
+        final SettableFuture<V> load = SettableFuture.create();
+        SettableFuture<V> inFlight = loads.putIfAbsent(keySource, load);
+        if (inFlight != null) {
+            // this request IS NOT the initial requestor for the key
+            return waitForLoad(inFlight);
+        }
+
+        // this request IS the initial requestor for the key
+
+        // a load may have completed between the lookup and registering this load
+        value = segment.getEntry(keySource, valueSerializer);
+        if (value != null || isPermanentFailure(keySource)) {
+            loads.remove(keySource);
+            if (value != null) {
+                load.set((V) value);
+            } else {
+                load.setException(new PermanentLoadException());
+            }
+            return load;
+        }
+
+        try {
+            executorService.execute(new Runnable() {
+                @Override
+                public void run() {
+                    V value;
+                    try {
+                        value = loader.load(key);
+
+                        if (value != null && !put(key, value)) {
+                            throw new RuntimeException("max entry size exceeded or not enough free capacity");
+                        }
+                    } catch (PermanentLoadException e) {
+                        addPermanentFailure(keySource);
+                        loads.remove(keySource);
+                        load.setException(e);
+                        return;
+                    } catch (Throwable e) {
+                        loads.remove(keySource);
+                        load.setException(e);
+                        return;
+                    }
+                    loads.remove(keySource);
+                    load.set(value);
+                }
+            });
+        } catch (Throwable e) {
+            loads.remove(keySource);
+            load.setException(e);
+        }
+
+        return load;
+    }
+
+    private boolean isPermanentFailure(KeyBuffer key) {
+        if (permanentFailureCount == 0) {
+            return false;
+        }
+        synchronized (permanentFailures) {
+            return permanentFailures.containsKey(key);
+        }
+    }
+
+    private void addPermanentFailure(KeyBuffer key) {
+        synchronized (permanentFailures) {
+            permanentFailures.put(key, Boolean.TRUE);
+            permanentFailureCount = permanentFailures.size();
+        }
+    }
+
+    private void removePermanentFailure(KeyBuffer key) {
+        if (permanentFailureCount == 0) {
+            return;
+        }
+        synchronized (permanentFailures) {
+            permanentFailures.remove(key);
+            permanentFailureCount = permanentFailures.size();
+        }
+    }
+
+    private void clearPermanentFailures() {
+        synchronized (permanentFailures) {
+            permanentFailures.clear();
+            permanentFailureCount = 0;
+        }
+    }
+
+    /**
+     * Returns a future for a request that coalesced with the in-flight {@code load}.
+     * It is completed by the loader thread and cancelling it does not cancel the load.
+     */
+    private Future<V> waitForLoad(final SettableFuture<V> load) {
+        final SettableFuture<V> future = SettableFuture.create();
+        load.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.set(Uninterruptibles.getUninterruptibly(load));
+                } catch (ExecutionException e) {
+                    future.setException(e.getCause() instanceof PermanentLoadException
+                                        ? new PermanentLoadException()
+                                        : new TemporaryLoadException());
+                } catch (Throwable e) {
+                    future.setException(new TemporaryLoadException());
+                }
+            }
+        }, MoreExecutors.directExecutor());
+        return future;
+    }
+
+    @Override
+    public Map<K, V> getAllWithLoader(Iterable<K> keys, BulkCacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
+        return bulkLoads.getAll(this, keys, loader);
     }
 
     private OffHeapChunkedMap segment(long hash) {
-        int seg = (int) ((hash & segmentMask) >>> segmentShift);
-        return maps[seg];
+        return maps[segmentIndex(hash)];
+    }
+
+    private int segmentIndex(long hash) {
+        return (int) ((hash & segmentMask) >>> segmentShift);
     }
 
     private KeyBuffer keySource(K o) {
@@ -402,6 +664,8 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
 
     @Override
     public void clear() {
+        clearPermanentFailures();
+
         for (OffHeapChunkedMap map : maps) {
             map.clear();
         }
@@ -418,6 +682,8 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
 
     @Override
     public void close() {
+        closed = true;
+
         clear();
 
         for (OffHeapChunkedMap map : maps) {
@@ -445,11 +711,27 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
     @Override
     public OHCacheStats stats() {
         long rehashes = 0L;
+        long lockAcquisitions = 0L;
+        long lockSpins = 0L;
+        long lockParks = 0L;
+        long lockWaitNanos = 0L;
         for (OffHeapChunkedMap map : maps) {
             rehashes += map.rehashes();
+            SegmentLock segmentLock = map.segmentLock();
+            lockAcquisitions += segmentLock.acquisitions();
+            lockSpins += segmentLock.spins();
+            lockParks += segmentLock.parks();
+            lockWaitNanos += segmentLock.waitNanos();
         }
-        return new OHCacheStats(hitCount(), missCount(), evictedEntries(), expiredEntries(), perSegmentSizes(), size(), capacity(), freeCapacity(), rehashes,
-                putAddCount(), putReplaceCount(), putFailCount, removeCount(), Uns.getTotalAllocated(), 0L);
+        return OHCacheStats.newBuilder(hitCount(), missCount(), evictedEntries(), expiredEntries(), perSegmentSizes(), size(), capacity(),
+                freeCapacity(), rehashes, putAddCount(), putReplaceCount(), putFailCount, removeCount(), Uns.getTotalAllocated(), 0L)
+                .lockAcquisitions(lockAcquisitions)
+                .lockSpins(lockSpins)
+                .lockParks(lockParks)
+                .lockWaitNanos(lockWaitNanos)
+                .entryOverhead(Util.entryOffData(isFixedSize()))
+                .permanentFailures(permanentFailureCount)
+                .build();
     }
 
     private long putAddCount() {
@@ -628,18 +910,171 @@ public final class OHCacheChunkedImpl<K, V> implements OHCache<K, V> {
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        // could be improved by grouping puts by segment - but increases heap pressure and complexity - decide later
-        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
-            put(entry.getKey(), entry.getValue());
+        putAllBatch(m);
+    }
+
+    @Override
+    public BatchResult putAllBatch(Map<? extends K, ? extends V> m) {
+        long added = 0L;
+        long replaced = 0L;
+        long rejected = 0L;
+        long evicted = 0L;
+
+        int batchSize = Math.max(1, Math.min(m.size(), BULK_BATCH_SIZE));
+        ByteBuffer[] hashEntries = new ByteBuffer[batchSize];
+        ByteBuffer[] sorted = new ByteBuffer[batchSize];
+        long[] hashes = new long[batchSize];
+        int[] results = new int[batchSize];
+
+        if (m.size() > BULK_BATCH_SIZE) {
+            // grow the hash tables once for all entries instead of for each batch
+            long perSegment = (m.size() + maps.length - 1) / maps.length;
+            for (OffHeapChunkedMap map : maps) {
+                map.presizeFor(perSegment);
+            }
+        }
+
+        Iterator<? extends Map.Entry<? extends K, ? extends V>> iter = m.entrySet().iterator();
+        while (iter.hasNext()) {
+            // serialize the next batch of entries without holding any segment lock
+            int n = 0;
+            while (n < batchSize && iter.hasNext()) {
+                Map.Entry<? extends K, ? extends V> entry = iter.next();
+                K k = entry.getKey();
+                V v = entry.getValue();
+                if (k == null || v == null) {
+                    throw new NullPointerException();
+                }
+
+                ByteBuffer hashEntry = serializeEntry(k, v);
+                if (hashEntry == null) {
+                    // entry too large to be inserted
+                    rejected++;
+                    putFailCount++;
+
+                    remove(k);
+
+                    continue;
+                }
+
+                hashEntries[n] = hashEntry;
+                hashes[n++] = hashEntry.getLong(Util.ENTRY_OFF_HASH);
+            }
+
+            int[] segmentOffsets = sortBySegment(hashEntries, hashes, n, sorted);
+            for (int seg = 0; seg < maps.length; seg++) {
+                int off = segmentOffsets[seg];
+                int count = segmentOffsets[seg + 1] - off;
+                if (count > 0) {
+                    evicted += maps[seg].putEntries(sorted, off, count, results);
+                }
+            }
+
+            for (int i = 0; i < n; i++) {
+                switch (results[i]) {
+                    case OffHeapChunkedMap.PUT_ADDED:
+                        added++;
+                        break;
+                    case OffHeapChunkedMap.PUT_REPLACED:
+                        replaced++;
+                        break;
+                    default:
+                        rejected++;
+                        putFailCount++;
+                        break;
+                }
+            }
         }
+
+        return new BatchResult(added, replaced, rejected, evicted, 0L);
+    }
+
+    /**
+     * Serializes a new hash entry for {@link #putAllBatch(Map)}.
+     *
+     * @return the initialized hash entry or {@code null}, if the entry is too large
+     */
+    private ByteBuffer serializeEntry(K k, V v) {
+        int keyLen;
+        int valueLen;
+        ByteBuffer hashEntry;
+        if (isFixedSize()) {
+            keyLen = fixedKeySize;
+            valueLen = fixedValueSize;
+            hashEntry = ByteBuffer.allocate(Util.allocLen(keyLen, valueLen, true));
+
+            hashEntry.position(Util.entryOffData(true));
+            keySerializer.serialize(k, hashEntry);
+            fillUntil(hashEntry, Util.entryOffData(true) + keyLen);
+            valueSerializer.serialize(v, hashEntry);
+            fillUntil(hashEntry, Util.entryOffData(true) + keyLen + valueLen);
+        } else {
+            hashEntry = ByteBuffer.allocate(Util.entryOffData(false) + keySize(k) + valueSize(v));
+
+            hashEntry.position(Util.entryOffData(false));
+            keySerializer.serialize(k, hashEntry);
+            keyLen = hashEntry.position() - Util.entryOffData(false);
+            valueSerializer.serialize(v, hashEntry);
+            valueLen = hashEntry.position() - keyLen - Util.entryOffData(false);
+
+            if (maxEntrySize > 0L && hashEntry.position() > maxEntrySize) {
+                return null;
+            }
+        }
+        int bytes = hashEntry.position();
+
+        hashEntry.position(Util.entryOffData(isFixedSize()));
+        hashEntry.limit(Util.entryOffData(isFixedSize()) + keyLen);
+        long hash = hasher.hash(hashEntry);
+
+        hashEntry.position(0);
+        hashEntry.limit(bytes);
+
+        // initialize hash entry
+        initEntry(hash, keyLen, valueLen, hashEntry);
+
+        return hashEntry;
     }
 
     @Override
     public void removeAll(Iterable<K> iterable) {
-        // could be improved by grouping removes by segment - but increases heap pressure and complexity - decide later
-        for (K o : iterable) {
-            remove(o);
+        removeAllBatch(iterable);
+    }
+
+    @Override
+    public BatchResult removeAllBatch(Iterable<K> iterable) {
+        long removed = 0L;
+
+        int batchSize = iterable instanceof Collection ? Math.max(1, Math.min(((Collection<K>) iterable).size(), BULK_BATCH_SIZE)) : BULK_BATCH_SIZE;
+        KeyBuffer[] keySources = new KeyBuffer[batchSize];
+        KeyBuffer[] sortedKeySources = new KeyBuffer[batchSize];
+        long[] hashes = new long[batchSize];
+
+        Iterator<K> iter = iterable.iterator();
+        while (iter.hasNext()) {
+            int n = 0;
+            while (n < batchSize && iter.hasNext()) {
+                K k = iter.next();
+                if (k == null) {
+                    throw new NullPointerException();
+                }
+                keySources[n] = keySource(k);
+                hashes[n] = keySources[n].hash();
+                removePermanentFailure(keySources[n]);
+                n++;
+            }
+
+            int[] segmentOffsets = sortBySegment(keySources, hashes, n, sortedKeySources);
+            for (int seg = 0; seg < maps.length; seg++) {
+                int off = segmentOffsets[seg];
+                int count = segmentOffsets[seg + 1] - off;
+                if (count > 0) {
+                    removed += maps[seg].removeEntries(sortedKeySources, off, count);
+                }
+            }
         }
+
+        return new BatchResult(0L, 0L, 0L, 0L, removed);
     }
 
     @Override
@@ -17,12 +17,13 @@ package org.caffinitas.ohc.chunked;
 
 import java.nio.ByteBuffer;
 import java.util.Iterator;
-import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import org.caffinitas.ohc.CacheSerializer;
 import org.caffinitas.ohc.OHCacheBuilder;
 import org.caffinitas.ohc.Ticker;
 import org.caffinitas.ohc.histo.EstimatedHistogram;
+import org.caffinitas.ohc.lock.SegmentLock;
 
 import com.google.common.collect.AbstractIterator;
 import com.google.common.primitives.Ints;
@@ -33,10 +34,19 @@ import sun.nio.ch.DirectBuffer;
 final class OffHeapChunkedMap {
     // maximum hash table size
     private static final int TWO_POWER_30 = 1 << 30;
+    // maximum open addressing hash table size, limited by the 2GB maximum of a ByteBuffer
+    private static final int TWO_POWER_27 = 1 << 27;
+
+    // results of putEntries()
+    static final int PUT_FAILED = 0;
+    static final int PUT_ADDED = 1;
+    static final int PUT_REPLACED = 2;
 
     private final int fixedKeySize;
     private final int fixedValueSize;
 
+    private final boolean openAddressing;
+
     private long size;
 
     private long hitCount;
@@ -51,10 +61,13 @@ final class OffHeapChunkedMap {
     private long evictedEntries;
     private long expiredEntries;
 
-    // Replacement for Unsafe.monitorEnter/monitorExit. Uses the thread-ID to indicate a lock
-    // using a CAS operation on the primitive instance field.
+    private final SegmentLock segmentLock;
     private final boolean unlocked;
-    private static final AtomicLongFieldUpdater<OffHeapChunkedMap> lockFieldUpdater = AtomicLongFieldUpdater.newUpdater(OffHeapChunkedMap.class, "lock");
+
+    // hit and miss counters of getEntry() using the shared lock, one cache line per stripe
+    private static final int SHARED_STRIPES = 16;
+    private static final int SHARED_PAD = 8;
+    private final AtomicLongArray sharedCounters;
 
     private final boolean throwOOME;
 
@@ -79,12 +92,19 @@ final class OffHeapChunkedMap {
 
     private final ByteBuffer memory;
 
+    // Clean and compact: maximum number of bytes of read entries copied when a chunk is recycled, 0 if disabled.
+    // Hash entries are at least 16 bytes long, so one access bit per 16 bytes of memory identifies an entry.
+    private final int compactionBudget;
+    private final long[] accessBits;
+
     OffHeapChunkedMap(OHCacheBuilder<?, ?> builder, long freeCapacity, long chunkSize) {
         this.throwOOME = builder.isThrowOOME();
 
         this.ticker = builder.getTicker();
 
         this.unlocked = builder.isUnlocked();
+        this.segmentLock = SegmentLock.create(builder.getLockType());
+        this.sharedCounters = segmentLock.isShared() && !unlocked ? new AtomicLongArray(SHARED_STRIPES * SHARED_PAD) : null;
 
         float lf = builder.getLoadFactor();
         if (lf <= .0d) {
@@ -99,6 +119,8 @@ final class OffHeapChunkedMap {
         this.fixedKeySize = builder.getFixedKeySize();
         this.fixedValueSize = builder.getFixedValueSize();
 
+        this.openAddressing = builder.isOpenAddressing();
+
         this.chunkDataSize = Ints.checkedCast(chunkSize);
         this.chunkFullSize = Ints.checkedCast(chunkSize + Util.CHUNK_OFF_DATA);
         this.chunkCount = (int) (freeCapacity / chunkSize);
@@ -107,6 +129,9 @@ final class OffHeapChunkedMap {
         int allocSize = Ints.checkedCast((long) chunkCount * (long) chunkFullSize);
         memory = Uns.allocate(allocSize, throwOOME);
 
+        this.compactionBudget = builder.getChunkCompactionBudget();
+        this.accessBits = compactionBudget > 0 ? new long[(allocSize >>> 4 >>> 6) + 1] : null;
+
         for (int i = 0; i < chunkCount; i++) {
             resetChunk(i);
         }
@@ -120,7 +145,7 @@ final class OffHeapChunkedMap {
         if (hts < 256) {
             hts = 256;
         }
-        int msz = Ints.checkedCast(Util.roundUpToPowerOf2(hts, TWO_POWER_30));
+        int msz = Ints.checkedCast(Util.roundUpToPowerOf2(hts, maxTableSize()));
         table = createTable(msz, throwOOME);
         if (table == null) {
             throw new RuntimeException("unable to allocate off-heap memory for segment");
@@ -134,11 +159,36 @@ final class OffHeapChunkedMap {
     }
 
     long hitCount() {
-        return hitCount;
+        return hitCount + sharedCount(0);
     }
 
     long missCount() {
-        return missCount;
+        return missCount + sharedCount(1);
+    }
+
+    private long sharedCount(int counter) {
+        long r = 0L;
+        if (sharedCounters != null) {
+            for (int i = 0; i < SHARED_STRIPES; i++) {
+                r += sharedCounters.get(i * SHARED_PAD + counter);
+            }
+        }
+        return r;
+    }
+
+    private void sharedCountIncrement(int counter) {
+        sharedCountAdd(counter, 1L);
+    }
+
+    private void sharedCountAdd(int counter, long delta) {
+        long t = Thread.currentThread().getId();
+        int h = (int) (t ^ (t >>> 32)) * 0x9e3779b9;
+        int stripe = (h ^ (h >>> 16)) & (SHARED_STRIPES - 1);
+        sharedCounters.addAndGet(stripe * SHARED_PAD + counter, delta);
+    }
+
+    SegmentLock segmentLock() {
+        return segmentLock;
     }
 
     long putAddCount() {
@@ -162,6 +212,12 @@ final class OffHeapChunkedMap {
         putAddCount = 0L;
         putReplaceCount = 0L;
         removeCount = 0L;
+        segmentLock.resetStatistics();
+        if (sharedCounters != null) {
+            for (int i = 0; i < SHARED_STRIPES * SHARED_PAD; i++) {
+                sharedCounters.set(i, 0L);
+            }
+        }
     }
 
     long rehashes() {
@@ -197,171 +253,263 @@ final class OffHeapChunkedMap {
     }
 
     Object getEntry(KeyBuffer key, CacheSerializer<?> valueSerializer) {
-        int hashEntryOffset;
-        ByteBuffer serBuffer = null;
+        ByteBuffer serBuffer;
 
-        boolean wasFirst = lock();
+        // getEntry() does not modify the segment except the chunk's last-used timestamp
+        boolean wasFirst = lockShared();
         try {
-            for (hashEntryOffset = table.getFirst(key.hash()); hashEntryOffset != 0L; hashEntryOffset = getNext(hashEntryOffset)) {
-                if (notSameKey(key, hashEntryOffset)) {
-                    continue;
-                }
+            int hashEntryOffset = table.getEntry(key);
 
-                // return existing entry
-
-                if (isEntryRemoved(hashEntryOffset)) {
-                    // there can be a _new_ entry superseding the removed one
-                    continue;
+            if (hashEntryOffset == 0) {
+                // not found
+                if (sharedCounters != null) {
+                    sharedCountIncrement(1);
+                } else {
+                    missCount++;
                 }
+                return null;
+            }
 
+            // return existing entry
+
+            if (sharedCounters != null) {
+                sharedCountIncrement(0);
+            } else {
                 hitCount++;
+            }
+
+            if (valueSerializer == null) {
+                return Boolean.TRUE;
+            }
 
-                if (valueSerializer == null) {
-                    return Boolean.TRUE;
+            touch(hashEntryOffset);
+
+            int keyLen = getKeyLen(hashEntryOffset);
+            int valueLen = getValueLen(hashEntryOffset);
+            int hashEntryValueOffset = hashEntryOffset + Util.entryOffData(isFixedSize()) + keyLen;
+            serBuffer = ByteBuffer.allocate(valueLen);
+
+            Uns.copyMemory(((DirectBuffer) memory).address(), hashEntryValueOffset, serBuffer.array(), 0, valueLen);
+            serBuffer.limit(valueLen);
+        } finally {
+            unlockShared(wasFirst);
+        }
+
+        return valueSerializer.deserialize(serBuffer);
+    }
+
+    /**
+     * Looks up the entries for {@code count} keys starting at {@code off}, taking the segment lock only once.
+     * All bucket heads are loaded before the first chain is walked, so that the cache misses of the lookups
+     * overlap. The serialized values are copied to {@code values} - {@code null} for keys without an entry.
+     */
+    void getEntries(KeyBuffer[] keys, int off, int count, ByteBuffer[] values) {
+        int end = off + count;
+        long[] heads = new long[count];
+        int hits = 0;
+
+        // getEntries() does not modify the segment except the chunk's last-used timestamp
+        boolean wasFirst = lockShared();
+        try {
+            for (int i = 0; i < count; i++) {
+                heads[i] = table.head(keys[off + i].hash());
+            }
+
+            for (int i = off; i < end; i++) {
+                int hashEntryOffset = table.getEntry(keys[i], heads[i - off]);
+
+                if (hashEntryOffset == 0) {
+                    values[i] = null;
+                    continue;
                 }
 
+                hits++;
                 touch(hashEntryOffset);
 
                 int keyLen = getKeyLen(hashEntryOffset);
                 int valueLen = getValueLen(hashEntryOffset);
                 int hashEntryValueOffset = hashEntryOffset + Util.entryOffData(isFixedSize()) + keyLen;
-                serBuffer = ByteBuffer.allocate(valueLen);
-
+                ByteBuffer serBuffer = ByteBuffer.allocate(valueLen);
                 Uns.copyMemory(((DirectBuffer) memory).address(), hashEntryValueOffset, serBuffer.array(), 0, valueLen);
                 serBuffer.limit(valueLen);
-
-                break;
+                values[i] = serBuffer;
             }
 
-            if (hashEntryOffset == 0) {
-                // not found
-                missCount++;
-                return null;
+            if (sharedCounters != null) {
+                sharedCountAdd(0, hits);
+                sharedCountAdd(1, count - hits);
+            } else {
+                hitCount += hits;
+                missCount += count - hits;
             }
         } finally {
-            unlock(wasFirst);
+            unlockShared(wasFirst);
         }
-
-        return valueSerializer.deserialize(serBuffer);
     }
 
     boolean putEntry(ByteBuffer newHashEntry, long hash, int keyLen, int entryBytes, boolean ifAbsent, int oldValueLen) {
         boolean wasFirst = lock();
         try {
-            int hashEntryOffset;
-            int prevEntryOffset = 0;
-            for (hashEntryOffset = table.getFirst(hash); hashEntryOffset != 0L; prevEntryOffset = hashEntryOffset, hashEntryOffset = getNext(hashEntryOffset)) {
-                if (notSameKey(newHashEntry, hash, keyLen, hashEntryOffset)) {
-                    continue;
-                }
-
-                // replace existing entry
+            return putEntryLocked(newHashEntry, hash, keyLen, entryBytes, ifAbsent, oldValueLen) != PUT_FAILED;
+        } finally {
+            unlock(wasFirst);
+        }
+    }
 
-                if (!isEntryRemoved(hashEntryOffset)) {
-                    if (ifAbsent) {
-                        return false;
-                    }
+    /**
+     * Adds or replaces the {@code count} initialized hash entries starting at {@code off}, taking the segment lock
+     * only once. The hash table is grown in advance for the number of entries.
+     * The result for each hash entry ({@link #PUT_FAILED}, {@link #PUT_ADDED} or {@link #PUT_REPLACED}) is
+     * stored in {@code results}.
+     *
+     * @return number of evicted entries
+     */
+    long putEntries(ByteBuffer[] newHashEntries, int off, int count, int[] results) {
+        int end = off + count;
+        boolean wasFirst = lock();
+        try {
+            long evictedBefore = evictedEntries;
 
-                    int valueOffset = Util.entryOffData(isFixedSize()) + keyLen;
-                    int hashEntryValueOffset = hashEntryOffset + valueOffset;
-                    if (oldValueLen != 0) {
-                        // code for replace() operation
-                        int valueLen = getValueLen(hashEntryOffset);
-                        if (valueLen != oldValueLen || !compare(hashEntryValueOffset, newHashEntry, entryBytes, oldValueLen)) {
-                            return false;
-                        }
-                    }
+            presize(size + count);
 
-                    if (getValueReservedLen(hashEntryOffset) >= getValueLen(newHashEntry)) {
-                        // just overwrite the old value if it fits
+            for (int i = off; i < end; i++) {
+                ByteBuffer newHashEntry = newHashEntries[i];
+                results[i] = putEntryLocked(newHashEntry, getHash(newHashEntry), getKeyLen(newHashEntry), newHashEntry.limit(), false, 0);
+            }
 
-                        if (!isFixedSize()) {
-                            setValueLen(hashEntryOffset, getValueLen(newHashEntry));
-                        }
+            return evictedEntries - evictedBefore;
+        } finally {
+            unlock(wasFirst);
+        }
+    }
 
-                        Uns.copyMemory(newHashEntry.array(), valueOffset, ((DirectBuffer) memory).address(), hashEntryValueOffset, entryBytes - valueOffset);
+    private int putEntryLocked(ByteBuffer newHashEntry, long hash, int keyLen, int entryBytes, boolean ifAbsent, int oldValueLen) {
+        int hashEntryOffset = table.getEntry(newHashEntry, hash, keyLen);
+        if (hashEntryOffset != 0) {
+            // replace existing entry
 
-                        putReplaceCount++;
+            if (!isEntryRemoved(hashEntryOffset)) {
+                if (ifAbsent) {
+                    return PUT_FAILED;
+                }
 
-                        return true;
+                int valueOffset = Util.entryOffData(isFixedSize()) + keyLen;
+                int hashEntryValueOffset = hashEntryOffset + valueOffset;
+                if (oldValueLen != 0) {
+                    // code for replace() operation
+                    int valueLen = getValueLen(hashEntryOffset);
+                    if (valueLen != oldValueLen || !compare(hashEntryValueOffset, newHashEntry, entryBytes, oldValueLen)) {
+                        return PUT_FAILED;
                     }
                 }
 
-                removeInternal(hashEntryOffset, prevEntryOffset);
+                if (getValueReservedLen(hashEntryOffset) >= getValueLen(newHashEntry)) {
+                    // just overwrite the old value if it fits
 
-                break;
+                    if (!isFixedSize()) {
+                        setValueLen(hashEntryOffset, getValueLen(newHashEntry));
+                    }
+
+                    Uns.copyMemory(newHashEntry.array(), valueOffset, ((DirectBuffer) memory).address(), hashEntryValueOffset, entryBytes - valueOffset);
+
+                    putReplaceCount++;
+
+                    return PUT_REPLACED;
+                }
             }
 
-            if (writeChunkFree < entryBytes) {
-                if (chunksUsed >= chunkCount) {
-                    // find oldest chunk
-                    long minTS = Long.MAX_VALUE;
-                    int eldestChunk = 0;
-                    for (int i = 0; i < chunkCount; i++) {
-                        long ts = lastUsed(i);
-                        if (ts < minTS) {
-                            eldestChunk = i;
-                            minTS = ts;
-                        }
+            removeInternal(hashEntryOffset);
+        }
+
+        if (writeChunkFree < entryBytes) {
+            if (chunksUsed >= chunkCount) {
+                // find oldest chunk
+                long minTS = Long.MAX_VALUE;
+                int eldestChunk = 0;
+                for (int i = 0; i < chunkCount; i++) {
+                    long ts = lastUsed(i);
+                    if (ts < minTS) {
+                        eldestChunk = i;
+                        minTS = ts;
                     }
+                }
 
-                    int entries = entriesInChunk(eldestChunk);
-                    int removed = 0;
-                    for (int nextOff, i = 0, off = chunkOffset(eldestChunk) + Util.CHUNK_OFF_DATA; i < entries; i++, off = nextOff) {
-                        nextOff = nextHashEntryOffset(off);
-                        if (!isEntryRemoved(off)) {
-                            // removed elements have a value length of -1
-                            removeInternal(off, -1);
+                int entries = entriesInChunk(eldestChunk);
+                int bytes = bytesInChunk(eldestChunk);
+                initWriteChunk(eldestChunk);
+
+                // clean and compact: entries read since they have been written are copied to the start of
+                // the recycled chunk, as long as the budget allows and the new entry still fits
+                int budget = Math.min(compactionBudget, chunkDataSize - entryBytes);
+                int removed = 0;
+                int compacted = 0;
+                for (int nextOff, i = 0, off = chunkOffset(eldestChunk) + Util.CHUNK_OFF_DATA; i < entries; i++, off = nextOff) {
+                    nextOff = nextHashEntryOffset(off);
+                    if (!isEntryRemoved(off)) {
+                        // removed elements have a value length of -1
+                        int allocLen = nextOff - off;
+                        if (budget >= allocLen && accessed(off)) {
+                            moveToWriteChunk(off, allocLen);
+                            budget -= allocLen;
+                            compacted++;
+                        } else {
+                            removeInternal(off);
                             removed++;
                         }
                     }
-
-                    // record statistics
-                    evictedEntries += entries;
-                    size -= removed;
-                    freeCapacity += bytesInChunk(eldestChunk);
-                    initWriteChunk(eldestChunk);
-                } else {
-                    // Initially not all chunks have been used.
-                    // So use all "virgin" chunks first before starting eviction.
-                    initWriteChunk(writeChunk + 1);
-                    chunksUsed++;
                 }
-            }
 
-            if (hashEntryOffset == 0L) {
-                if (size >= threshold) {
-                    rehash();
-                }
+                // record statistics
+                evictedEntries += entries - compacted;
+                size -= removed;
+                freeCapacity += bytes - (chunkDataSize - writeChunkFree);
+            } else {
+                // Initially not all chunks have been used.
+                // So use all "virgin" chunks first before starting eviction.
+                initWriteChunk(writeChunk + 1);
+                chunksUsed++;
+            }
+        }
 
-                size++;
+        if (hashEntryOffset == 0L) {
+            if (size >= threshold) {
+                rehash();
             }
 
-            if (hashEntryOffset == 0L) {
-                putAddCount++;
-            } else {
-                putReplaceCount++;
+            if (table.isFull(size)) {
+                // hash table could not be grown
+                return PUT_FAILED;
             }
 
-            // just overwrite the old value if it fits
-            hashEntryOffset = chunkOffset(writeChunk) + writeChunkOffset;
+            size++;
+        }
 
-            Uns.copyMemory(newHashEntry.array(), newHashEntry.position(), ((DirectBuffer) memory).address(), hashEntryOffset,
-                    entryBytes - newHashEntry.position());
+        int result;
+        if (hashEntryOffset == 0L) {
+            putAddCount++;
+            result = PUT_ADDED;
+        } else {
+            putReplaceCount++;
+            result = PUT_REPLACED;
+        }
 
-            writeChunkOffset += entryBytes;
-            writeChunkFree -= entryBytes;
+        // just overwrite the old value if it fits
+        hashEntryOffset = chunkOffset(writeChunk) + writeChunkOffset;
 
-            freeCapacity -= entryBytes;
+        Uns.copyMemory(newHashEntry.array(), newHashEntry.position(), ((DirectBuffer) memory).address(), hashEntryOffset,
+                entryBytes - newHashEntry.position());
 
-            entryAdded(writeChunk, entryBytes);
+        writeChunkOffset += entryBytes;
+        writeChunkFree -= entryBytes;
 
-            table.addAsHead(hash, hashEntryOffset);
+        freeCapacity -= entryBytes;
 
-            return true;
-        } finally {
-            unlock(wasFirst);
-        }
+        entryAdded(writeChunk, entryBytes);
+        clearAccessed(hashEntryOffset);
+
+        table.add(hash, hashEntryOffset);
+
+        return result;
     }
 
     void clear() {
@@ -386,32 +534,46 @@ final class OffHeapChunkedMap {
         resetChunk(newWriteChunk);
     }
 
-    boolean removeEntry(KeyBuffer key) {
-        boolean wasFirst = lock();
-        try {
-            int prevEntryOffset = 0;
-            for (int hashEntryOffset = table.getFirst(key.hash()); hashEntryOffset != 0; prevEntryOffset = hashEntryOffset, hashEntryOffset = getNext(
-                    hashEntryOffset)) {
-                if (notSameKey(key, hashEntryOffset)) {
-                    continue;
-                }
+    /**
+     * Moves a hash entry of the recycled write chunk to the current write position, which is never
+     * behind the hash entry.
+     */
+    private void moveToWriteChunk(int hashEntryOffset, int allocLen) {
+        long hash = getHash(hashEntryOffset);
+        table.remove(hash, hashEntryOffset);
 
-                if (isEntryRemoved(hashEntryOffset)) {
-                    // there can be a _new_ entry superseding the removed one
-                    continue;
-                }
+        int newHashEntryOffset = chunkOffset(writeChunk) + writeChunkOffset;
+        if (newHashEntryOffset != hashEntryOffset) {
+            Uns.copyMemory(((DirectBuffer) memory).address(), hashEntryOffset, newHashEntryOffset, allocLen);
+        }
 
-                // remove existing entry
+        writeChunkOffset += allocLen;
+        writeChunkFree -= allocLen;
+        entryAdded(writeChunk, allocLen);
 
-                removeInternal(hashEntryOffset, prevEntryOffset);
+        // the entry has to be read again to survive the next recycling of this chunk
+        clearAccessed(hashEntryOffset);
+        clearAccessed(newHashEntryOffset);
 
-                size--;
-                removeCount++;
+        table.add(hash, newHashEntryOffset);
+    }
 
-                return true;
+    boolean removeEntry(KeyBuffer key) {
+        boolean wasFirst = lock();
+        try {
+            int hashEntryOffset = table.getEntry(key);
+            if (hashEntryOffset == 0) {
+                return false;
             }
 
-            return false;
+            // remove existing entry
+
+            removeInternal(hashEntryOffset);
+
+            size--;
+            removeCount++;
+
+            return true;
         } finally {
             unlock(wasFirst);
         }
@@ -435,30 +597,87 @@ final class OffHeapChunkedMap {
         return serKeyLen != newKeyLen || !compare(hashEntryOffset + Util.entryOffData(isFixedSize()), hashEntry, Util.entryOffData(isFixedSize()), serKeyLen);
     }
 
+    /**
+     * Removes the entries for the {@code count} keys starting at {@code off}, taking the segment lock only once.
+     *
+     * @return number of removed entries
+     */
+    int removeEntries(KeyBuffer[] keys, int off, int count) {
+        int end = off + count;
+        int removed = 0;
+        boolean wasFirst = lock();
+        try {
+            for (int i = off; i < end; i++) {
+                int hashEntryOffset = table.getEntry(keys[i]);
+                if (hashEntryOffset == 0) {
+                    continue;
+                }
+
+                // remove existing entry
+
+                removeInternal(hashEntryOffset);
+
+                size--;
+                removeCount++;
+                removed++;
+            }
+
+            return removed;
+        } finally {
+            unlock(wasFirst);
+        }
+    }
+
     private void rehash() {
         Table tab = table;
         int tableSize = tab.size();
-        if (tableSize > TWO_POWER_30) {
+        if (tableSize >= maxTableSize()) {
             // already at max hash table size
             return;
         }
 
-        Table newTable = createTable(tableSize * 2, throwOOME);
-        if (newTable == null) {
-            return;
+        growTable(tab, tableSize * 2);
+    }
+
+    /**
+     * Grows the hash table for {@code newEntries} additional entries.
+     */
+    void presizeFor(long newEntries) {
+        boolean wasFirst = lock();
+        try {
+            presize(size + newEntries);
+        } finally {
+            unlock(wasFirst);
         }
-        int next;
+    }
 
-        for (int part = 0; part < tableSize; part++) {
-            for (int hashEntryOffset = tab.getFirst(part); hashEntryOffset != 0L; hashEntryOffset = next) {
-                next = getNext(hashEntryOffset);
+    /**
+     * Grows the hash table in a single step, so that it can hold {@code expectedSize} entries without
+     * exceeding the load factor.
+     */
+    private void presize(long expectedSize) {
+        if (expectedSize < threshold) {
+            return;
+        }
 
-                setNext(hashEntryOffset, 0);
+        Table tab = table;
+        long tableSize = tab.size();
+        while (tableSize < maxTableSize() && (long) (tableSize * loadFactor) <= expectedSize) {
+            tableSize *= 2;
+        }
+        if (tableSize > tab.size()) {
+            growTable(tab, (int) tableSize);
+        }
+    }
 
-                newTable.addAsHead(getHash(hashEntryOffset), hashEntryOffset);
-            }
+    private void growTable(Table tab, int newTableSize) {
+        Table newTable = createTable(newTableSize, throwOOME);
+        if (newTable == null) {
+            return;
         }
 
+        tab.transferTo(newTable);
+
         threshold = (long) (newTable.size() * loadFactor);
         table.release();
         table = newTable;
@@ -478,20 +697,25 @@ final class OffHeapChunkedMap {
         }
     }
 
+    private int maxTableSize() {
+        return openAddressing ? TWO_POWER_27 : TWO_POWER_30;
+    }
+
     private Table createTable(int hashTableSize, boolean throwOOME) {
-        int msz = Table.BUCKET_ENTRY_LEN * hashTableSize;
+        int msz = (openAddressing ? OpenAddressingTable.SLOT_LEN : ChainedTable.BUCKET_ENTRY_LEN) * hashTableSize;
         ByteBuffer table = Uns.allocate(msz, throwOOME);
-        return table == null ? null : new Table(table, hashTableSize);
+        if (table == null) {
+            return null;
+        }
+        return openAddressing ? new OpenAddressingTable(table, hashTableSize) : new ChainedTable(table, hashTableSize);
     }
 
-    private final class Table {
+    private abstract class Table {
         final int mask;
         final ByteBuffer table;
         private boolean released;
 
-        static final int BUCKET_ENTRY_LEN = 4;
-
-        private Table(ByteBuffer table, int hashTableSize) {
+        Table(ByteBuffer table, int hashTableSize) {
             this.table = table;
             this.mask = hashTableSize - 1;
             clear();
@@ -522,6 +746,63 @@ final class OffHeapChunkedMap {
             super.finalize();
         }
 
+        int bucketIndexForHash(long hash) {
+            return (int) (hash & mask);
+        }
+
+        int size() {
+            return mask + 1;
+        }
+
+        /**
+         * Reads the hash bucket for {@code hash}. Passing the result to {@link #getEntry(KeyBuffer, long)} allows
+         * loading the buckets for multiple keys before looking at any of them.
+         */
+        abstract long head(long hash);
+
+        /**
+         * Returns the offset of the (not removed) entry for {@code key} or {@code 0}, starting at the
+         * bucket returned by {@link #head(long)}.
+         */
+        abstract int getEntry(KeyBuffer key, long head);
+
+        int getEntry(KeyBuffer key) {
+            return getEntry(key, head(key.hash()));
+        }
+
+        /**
+         * Returns the offset of the entry with the same key as the serialized {@code hashEntry} or {@code 0}.
+         */
+        abstract int getEntry(ByteBuffer hashEntry, long hash, int keyLen);
+
+        abstract void add(long hash, int hashEntryOffset);
+
+        abstract void remove(long hash, int hashEntryOffset);
+
+        /**
+         * Adds all entries to {@code newTable}.
+         */
+        abstract void transferTo(Table newTable);
+
+        /**
+         * Whether an entry can be added to a table containing {@code size} entries.
+         */
+        abstract boolean isFull(long size);
+
+        abstract void updateBucketHistogram(EstimatedHistogram h);
+    }
+
+    /**
+     * Hash buckets contain the offset of the first entry. Entries of a bucket are chained using
+     * {@link Util#ENTRY_OFF_NEXT}.
+     */
+    private final class ChainedTable extends Table {
+        static final int BUCKET_ENTRY_LEN = 4;
+
+        ChainedTable(ByteBuffer table, int hashTableSize) {
+            super(table, hashTableSize);
+        }
+
         int getFirst(long hash) {
             return table.getInt(bucketOffset(hash));
         }
@@ -534,38 +815,77 @@ final class OffHeapChunkedMap {
             return bucketIndexForHash(hash) * BUCKET_ENTRY_LEN;
         }
 
-        private int bucketIndexForHash(long hash) {
-            return (int) (hash & mask);
+        @Override
+        long head(long hash) {
+            return getFirst(hash);
+        }
+
+        @Override
+        int getEntry(KeyBuffer key, long head) {
+            for (int hashEntryOffset = (int) head; hashEntryOffset != 0; hashEntryOffset = getNext(hashEntryOffset)) {
+                // there can be a _new_ entry superseding a removed one
+                if (!notSameKey(key, hashEntryOffset) && !isEntryRemoved(hashEntryOffset)) {
+                    return hashEntryOffset;
+                }
+            }
+            return 0;
         }
 
-        void removeLink(long hash, int hashEntryOffset, int prevEntryOffset) {
+        @Override
+        int getEntry(ByteBuffer hashEntry, long hash, int keyLen) {
+            for (int hashEntryOffset = getFirst(hash); hashEntryOffset != 0; hashEntryOffset = getNext(hashEntryOffset)) {
+                if (!notSameKey(hashEntry, hash, keyLen, hashEntryOffset)) {
+                    return hashEntryOffset;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        void remove(long hash, int hashEntryOffset) {
             int next = getNext(hashEntryOffset);
 
             int head = getFirst(hash);
             if (head == hashEntryOffset) {
                 setFirst(hash, next);
-            } else if (prevEntryOffset != 0) {
-                if (prevEntryOffset == -1) {
-                    for (int offset = head; offset != 0L; prevEntryOffset = offset, offset = getNext(offset)) {
-                        if (offset == hashEntryOffset) {
-                            break;
-                        }
+            } else {
+                int prevEntryOffset = 0;
+                for (int offset = head; offset != 0; prevEntryOffset = offset, offset = getNext(offset)) {
+                    if (offset == hashEntryOffset) {
+                        setNext(prevEntryOffset, next);
+                        break;
                     }
                 }
-                setNext(prevEntryOffset, next);
             }
         }
 
-        void addAsHead(long hash, int hashEntryOffset) {
+        @Override
+        void add(long hash, int hashEntryOffset) {
             int head = getFirst(hash);
             setNext(hashEntryOffset, head);
             setFirst(hash, hashEntryOffset);
         }
 
-        int size() {
-            return mask + 1;
+        @Override
+        void transferTo(Table newTable) {
+            int next;
+            for (int part = 0; part < size(); part++) {
+                for (int hashEntryOffset = getFirst(part); hashEntryOffset != 0L; hashEntryOffset = next) {
+                    next = getNext(hashEntryOffset);
+
+                    setNext(hashEntryOffset, 0);
+
+                    newTable.add(getHash(hashEntryOffset), hashEntryOffset);
+                }
+            }
+        }
+
+        @Override
+        boolean isFull(long size) {
+            return false;
         }
 
+        @Override
         void updateBucketHistogram(EstimatedHistogram h) {
             for (int i = 0; i < size(); i++) {
                 int len = 0;
@@ -577,10 +897,144 @@ final class OffHeapChunkedMap {
         }
     }
 
-    private void removeInternal(int hashEntryOffset, int prevEntryOffset) {
+    /**
+     * Open addressing with linear probing. Each slot holds the entry offset in its lower and the lower 32 bits of
+     * the entry's hash in its upper 32 bits, so that probing rejects other keys and the table can be grown without
+     * touching any entry. Empty slots are {@code 0}, removal shifts following entries back instead of
+     * leaving tombstones.
+     */
+    private final class OpenAddressingTable extends Table {
+        static final int SLOT_LEN = 8;
+
+        OpenAddressingTable(ByteBuffer table, int hashTableSize) {
+            super(table, hashTableSize);
+        }
+
+        private long slot(int index) {
+            return table.getLong(index * SLOT_LEN);
+        }
+
+        private void setSlot(int index, long slot) {
+            table.putLong(index * SLOT_LEN, slot);
+        }
+
+        private int next(int index) {
+            return (index + 1) & mask;
+        }
+
+        @Override
+        long head(long hash) {
+            return slot(bucketIndexForHash(hash));
+        }
+
+        @Override
+        int getEntry(KeyBuffer key, long head) {
+            long hash = key.hash();
+            int tag = (int) hash;
+            int index = bucketIndexForHash(hash);
+            for (long slot = head; slot != 0L; slot = slot(index = next(index))) {
+                if ((int) (slot >>> 32) == tag) {
+                    int hashEntryOffset = (int) slot;
+                    // there can be a _new_ entry superseding a removed one
+                    if (!notSameKey(key, hashEntryOffset) && !isEntryRemoved(hashEntryOffset)) {
+                        return hashEntryOffset;
+                    }
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        int getEntry(ByteBuffer hashEntry, long hash, int keyLen) {
+            int tag = (int) hash;
+            int index = bucketIndexForHash(hash);
+            for (long slot; (slot = slot(index)) != 0L; index = next(index)) {
+                if ((int) (slot >>> 32) == tag && !notSameKey(hashEntry, hash, keyLen, (int) slot)) {
+                    return (int) slot;
+                }
+            }
+            return 0;
+        }
+
+        @Override
+        void add(long hash, int hashEntryOffset) {
+            int index = bucketIndexForHash(hash);
+            while (slot(index) != 0L) {
+                index = next(index);
+            }
+            setSlot(index, (hash << 32) | (hashEntryOffset & 0xffffffffL));
+        }
+
+        @Override
+        void remove(long hash, int hashEntryOffset) {
+            int index = bucketIndexForHash(hash);
+            for (long slot; (slot = slot(index)) != 0L; index = next(index)) {
+                if ((int) slot == hashEntryOffset) {
+                    removeSlot(index);
+                    return;
+                }
+            }
+        }
+
+        private void removeSlot(int free) {
+            for (int index = next(free); ; index = next(index)) {
+                long slot = slot(index);
+                if (slot == 0L) {
+                    break;
+                }
+
+                // move the entry into the free slot unless its home bucket lies cyclically in (free, index]
+                int home = bucketIndexForHash(slot >>> 32);
+                boolean stays;
+                if (free <= index) {
+                    stays = free < home && home <= index;
+                } else {
+                    stays = free < home || home <= index;
+                }
+                if (!stays) {
+                    setSlot(free, slot);
+                    free = index;
+                }
+            }
+            setSlot(free, 0L);
+        }
+
+        @Override
+        void transferTo(Table newTable) {
+            for (int index = 0; index < size(); index++) {
+                long slot = slot(index);
+                if (slot != 0L) {
+                    newTable.add(slot >>> 32, (int) slot);
+                }
+            }
+        }
+
+        @Override
+        boolean isFull(long size) {
+            // keep at least one empty slot to terminate probing
+            return size >= mask;
+        }
+
+        @Override
+        void updateBucketHistogram(EstimatedHistogram h) {
+            // number of entries per home bucket - comparable to the chain lengths of ChainedTable
+            int[] counts = new int[size()];
+            for (int index = 0; index < size(); index++) {
+                long slot = slot(index);
+                if (slot != 0L) {
+                    counts[bucketIndexForHash(slot >>> 32)]++;
+                }
+            }
+            for (int count : counts) {
+                h.add(count + 1);
+            }
+        }
+    }
+
+    private void removeInternal(int hashEntryOffset) {
         long hash = getHash(hashEntryOffset);
 
-        table.removeLink(hash, hashEntryOffset, prevEntryOffset);
+        table.remove(hash, hashEntryOffset);
 
         setEntryRemoved(hashEntryOffset);
     }
@@ -727,6 +1181,13 @@ final class OffHeapChunkedMap {
         }
     }
 
+    private int getKeyLen(ByteBuffer hashEntry) {
+        if (fixedKeySize > 0) {
+            return fixedKeySize;
+        }
+        return hashEntry.getInt(Util.ENTRY_OFF_KEY_LENGTH);
+    }
+
     private int getValueLen(ByteBuffer hashEntry) {
         if (fixedValueSize > 0) {
             return fixedValueSize;
@@ -809,6 +1270,24 @@ final class OffHeapChunkedMap {
 
     private void touch(int hashEntryOffset) {
         touchChunk(chunkNum(hashEntryOffset));
+
+        // racy, lost updates just cause an entry to be evicted instead of compacted
+        if (accessBits != null) {
+            int bit = hashEntryOffset >>> 4;
+            accessBits[bit >>> 6] |= 1L << bit;
+        }
+    }
+
+    private boolean accessed(int hashEntryOffset) {
+        int bit = hashEntryOffset >>> 4;
+        return accessBits != null && (accessBits[bit >>> 6] & (1L << bit)) != 0L;
+    }
+
+    private void clearAccessed(int hashEntryOffset) {
+        if (accessBits != null) {
+            int bit = hashEntryOffset >>> 4;
+            accessBits[bit >>> 6] &= ~(1L << bit);
+        }
     }
 
     private int chunkNum(int hashEntryOffset) {
@@ -851,34 +1330,26 @@ final class OffHeapChunkedMap {
     }
 
     private boolean lock() {
-        if (unlocked) {
-            return false;
-        }
-
-        long t = Thread.currentThread().getId();
+        return !unlocked && segmentLock.lock();
+    }
 
-        if (t == lockFieldUpdater.get(this)) {
-            return false;
+    private void unlock(boolean wasFirst) {
+        if (unlocked || !wasFirst) {
+            return;
         }
-        while (true) {
-            if (lockFieldUpdater.compareAndSet(this, 0L, t)) {
-                return true;
-            }
 
-            // yield control to other thread.
-            // Note: we cannot use LockSupport.parkNanos() as that does not
-            // provide nanosecond resolution on Windows.
-            Thread.yield();
-        }
+        segmentLock.unlock(true);
     }
 
-    private void unlock(boolean wasFirst) {
+    private boolean lockShared() {
+        return !unlocked && segmentLock.lockShared();
+    }
+
+    private void unlockShared(boolean wasFirst) {
         if (unlocked || !wasFirst) {
             return;
         }
 
-        long t = Thread.currentThread().getId();
-        boolean r = lockFieldUpdater.compareAndSet(this, t, 0L);
-        assert r;
+        segmentLock.unlockShared(true);
     }
 }
@@ -177,6 +177,11 @@ final class Uns {
         unsafe.copyMemory(null, address + offset, arr, Unsafe.ARRAY_BYTE_BASE_OFFSET + off, len);
     }
 
+    static void copyMemory(long address, long srcOffset, long dstOffset, long len) {
+        // overlapping regions are supported
+        unsafe.copyMemory(null, address + srcOffset, null, address + dstOffset, len);
+    }
+
     static long getTotalAllocated() {
         return allocator.getTotalAllocated();
     }
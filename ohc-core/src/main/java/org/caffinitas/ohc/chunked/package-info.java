@@ -49,7 +49,9 @@
  * reduces the memory footprint by 8 bytes per entry.
  * </p>
  * <p>
- * Serialization, direct access and get-with-loader functions are not supported in this implementation.
+ * Serialization and direct access functions are not supported in this implementation.
+ * Get-with-loader functions are supported, loads are tracked on-heap and values are copied into the chunks
+ * when the load completes.
  * </p>
  * <p>
  * <em>NOTE</em> The CRC hash algorithm requires JRE 8 or newer.
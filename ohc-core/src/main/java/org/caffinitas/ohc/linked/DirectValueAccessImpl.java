@@ -20,15 +20,17 @@ import java.nio.ByteBuffer;
 import org.caffinitas.ohc.DirectValueAccess;
 
 class DirectValueAccessImpl implements DirectValueAccess {
+    private final OffHeapLinkedMap segment;
     private final long hashEntryAdr;
     private boolean closed;
     private final ByteBuffer buffer;
 
-    DirectValueAccessImpl(long hashEntryAdr, boolean readOnly) {
+    DirectValueAccessImpl(OffHeapLinkedMap segment, long hashEntryAdr, boolean readOnly) {
+        this.segment = segment;
         long keyLen = HashEntries.getKeyLen(hashEntryAdr);
         long valueLen = HashEntries.getValueLen(hashEntryAdr);
         this.hashEntryAdr = hashEntryAdr;
-        this.buffer = Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_DATA + Util.roundUpTo8(keyLen), valueLen, readOnly);
+        this.buffer = Uns.directBufferFor(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr) + Util.roundUpTo8(keyLen), valueLen, readOnly);
     }
 
     @Override
@@ -48,7 +50,7 @@ class DirectValueAccessImpl implements DirectValueAccess {
         if (!closed) {
             Uns.invalidateDirectBuffer(buffer);
             closed = true;
-            HashEntries.dereference(hashEntryAdr);
+            segment.dereferenceReader(hashEntryAdr);
         }
     }
 }
@@ -82,6 +82,14 @@ final class FrequencySketch {
      * @param maximumSize the maximum size of the cache
      */
     FrequencySketch(long maximumSize) {
+        this(maximumSize, new Random());
+    }
+
+    /**
+     * @param maximumSize the maximum size of the cache
+     * @param random      source of the random numbers for ties, tests pass a seeded instance to get reproducible evictions
+     */
+    FrequencySketch(long maximumSize, Random random) {
         if (maximumSize <= 0)
             throw new IllegalArgumentException("maximumSize must be greater than 0");
         int maximum = (int) Math.min(maximumSize, Integer.MAX_VALUE >>> 1);
@@ -92,6 +100,8 @@ final class FrequencySketch {
         tableMask = Math.max(0, tableLength - 1);
         sampleSize = maximum <= 0 ? Integer.MAX_VALUE : 10 * maximum;
         size = 0;
+        this.random = random;
+        this.seed = random.nextLong();
     }
 
     void release() {
@@ -191,8 +201,8 @@ final class FrequencySketch {
 
     // Following is a faster than using j.u.Random all the time.
 
-    private Random random = new Random();
-    private long seed = random.nextLong();
+    private final Random random;
+    private long seed;
     private int reseed;
 
     boolean tieAdmit() {
@@ -19,15 +19,25 @@ package org.caffinitas.ohc.linked;
  * Encapsulates access to hash entries.
  */
 final class HashEntries {
+    /**
+     * Initializes the header of a hash entry, the optional header fields must have been set
+     * via {@link #setHeaderFields(long, int)} after allocation.
+     */
     static void init(long hash, int keyLen, int valueLen, long hashEntryAdr, int sentinel, long expireAt) {
-        Uns.putLong(hashEntryAdr, Util.ENTRY_OFF_EXPIRE_AT, expireAt);
+        int headerFields = getHeaderFields(hashEntryAdr);
         Uns.putLong(hashEntryAdr, Util.ENTRY_OFF_HASH, hash);
         setNext(hashEntryAdr, 0L);
         Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_KEY_LENGTH, keyLen);
         Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_VALUE_LENGTH, valueLen);
         Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_REFCOUNT, 1);
-        Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_GENERATION, Util.GEN_EDEN);
-        Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_SENTINEL, sentinel);
+        Uns.putByte(hashEntryAdr, Util.ENTRY_OFF_SENTINEL, (byte) sentinel);
+        if ((headerFields & Util.FIELD_GENERATION) != 0) {
+            // also clears the access counter
+            Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_GENERATION, Util.GEN_EDEN);
+        }
+        if ((headerFields & Util.FIELD_EXPIRE_AT) != 0) {
+            Uns.putLong(hashEntryAdr, Util.expireAtOffset(headerFields), expireAt);
+        }
     }
 
     static boolean compare(long hashEntryAdr, long offset, long otherHashEntryAdr, long otherOffset, long len) {
@@ -89,12 +99,12 @@ final class HashEntries {
     }
 
     static int getSentinel(long hashEntryAdr) {
-        return hashEntryAdr != 0L ? Uns.getInt(hashEntryAdr, Util.ENTRY_OFF_SENTINEL) : 0;
+        return hashEntryAdr != 0L ? Uns.getByte(hashEntryAdr, Util.ENTRY_OFF_SENTINEL) : 0;
     }
 
     static void setSentinel(long hashEntryAdr, int sentinelState) {
         if (hashEntryAdr != 0L)
-            Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_SENTINEL, sentinelState);
+            Uns.putByte(hashEntryAdr, Util.ENTRY_OFF_SENTINEL, (byte) sentinelState);
     }
 
     static void setNext(long hashEntryAdr, long nextAdr) {
@@ -112,30 +122,75 @@ final class HashEntries {
         return Uns.getInt(hashEntryAdr, Util.ENTRY_OFF_VALUE_LENGTH);
     }
 
+    static int getHeaderFields(long hashEntryAdr) {
+        return Uns.getByte(hashEntryAdr, Util.ENTRY_OFF_HEADER_FIELDS);
+    }
+
+    static void setHeaderFields(long hashEntryAdr, int headerFields) {
+        Uns.putByte(hashEntryAdr, Util.ENTRY_OFF_HEADER_FIELDS, (byte) headerFields);
+    }
+
+    static long getDataOffset(long hashEntryAdr) {
+        return Util.dataOffset(getHeaderFields(hashEntryAdr));
+    }
+
     static long getExpireAt(long hashEntryAdr) {
-        return Uns.getLong(hashEntryAdr, Util.ENTRY_OFF_EXPIRE_AT);
+        int headerFields = getHeaderFields(hashEntryAdr);
+        return (headerFields & Util.FIELD_EXPIRE_AT) != 0
+               ? Uns.getLong(hashEntryAdr, Util.expireAtOffset(headerFields))
+               : 0L;
     }
 
     static void setExpireAt(long hashEntryAdr, long expireAt) {
-        Uns.putLong(hashEntryAdr, Util.ENTRY_OFF_EXPIRE_AT, expireAt);
+        int headerFields = getHeaderFields(hashEntryAdr);
+        if ((headerFields & Util.FIELD_EXPIRE_AT) != 0) {
+            Uns.putLong(hashEntryAdr, Util.expireAtOffset(headerFields), expireAt);
+        }
     }
 
+    // generation, access and write time require FIELD_GENERATION, which the eviction algorithms using these enable
+
     static int getGeneration(long hashEntryAdr) {
-        return Uns.getInt(hashEntryAdr, Util.ENTRY_OFF_GENERATION);
+        return Uns.getByte(hashEntryAdr, Util.ENTRY_OFF_GENERATION);
     }
 
     static void setGeneration(long hashEntryAdr, int generation) {
-        Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_GENERATION, generation);
+        Uns.putByte(hashEntryAdr, Util.ENTRY_OFF_GENERATION, (byte) generation);
+    }
+
+    static int getAccess(long hashEntryAdr) {
+        return Uns.getByte(hashEntryAdr, Util.ENTRY_OFF_ACCESS);
+    }
+
+    static void setAccess(long hashEntryAdr, int access) {
+        Uns.putByte(hashEntryAdr, Util.ENTRY_OFF_ACCESS, (byte) access);
+    }
+
+    static int getWriteTime(long hashEntryAdr) {
+        return Uns.getInt(hashEntryAdr, Util.ENTRY_OFF_WRITE_TIME);
+    }
+
+    static void setWriteTime(long hashEntryAdr, int writeTime) {
+        Uns.putInt(hashEntryAdr, Util.ENTRY_OFF_WRITE_TIME, writeTime);
     }
 
     static long getAllocLen(long hashEntryAdr) {
-        return Util.allocLen(getKeyLen(hashEntryAdr), getValueLen(hashEntryAdr));
+        return Util.allocLen(getHeaderFields(hashEntryAdr), getKeyLen(hashEntryAdr), getValueLen(hashEntryAdr));
     }
 
     static void reference(long hashEntryAdr) {
         Uns.increment(hashEntryAdr, Util.ENTRY_OFF_REFCOUNT);
     }
 
+    /**
+     * Decrements the reference counter without freeing the hash entry.
+     *
+     * @return {@code true}, if the hash entry is no longer referenced and must be freed by the caller
+     */
+    static boolean dereferenceNoFree(long hashEntryAdr) {
+        return hashEntryAdr != 0L && Uns.decrement(hashEntryAdr, Util.ENTRY_OFF_REFCOUNT);
+    }
+
     static boolean dereference(long hashEntryAdr) {
         if (hashEntryAdr != 0L && Uns.decrement(hashEntryAdr, Util.ENTRY_OFF_REFCOUNT)) {
             Uns.free(hashEntryAdr);
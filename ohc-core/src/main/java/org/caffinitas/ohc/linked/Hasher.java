@@ -45,15 +45,22 @@ abstract class Hasher {
         return Hasher.class.getName() + '$' + hashAlgorithm.name().substring(0, 1) + hashAlgorithm.name().substring(1).toLowerCase() + "Hash";
     }
 
-    abstract long hash(byte[] array);
+    long hash(byte[] array) {
+        return hash(array, array.length);
+    }
+
+    /**
+     * Hashes the first {@code length} bytes of {@code array}.
+     */
+    abstract long hash(byte[] array, int length);
 
     abstract long hash(long address, long offset, int length);
 
     static final class Crc32Hash extends Hasher {
         @Override
-        long hash(byte[] array) {
+        long hash(byte[] array, int length) {
             CRC32 crc = new CRC32();
-            crc.update(array);
+            crc.update(array, 0, length);
             long h = crc.getValue();
             h |= h << 32;
             return h;
@@ -68,9 +75,9 @@ abstract class Hasher {
     static final class Murmur3Hash extends Hasher {
         @SuppressWarnings("fallthrough")
         @Override
-        long hash(byte[] array) {
+        long hash(byte[] array, int length) {
             int o = 0;
-            int r = array.length;
+            int r = length;
 
             long h1 = 0L;
             long h2 = 0L;
@@ -143,8 +150,8 @@ abstract class Hasher {
 
             // makeHash()
 
-            h1 ^= array.length;
-            h2 ^= array.length;
+            h1 ^= length;
+            h2 ^= length;
 
             h1 += h2;
             h2 += h1;
@@ -317,8 +324,31 @@ abstract class Hasher {
         }
 
         @Override
-        long hash(byte[] array) {
-            return xx.hash64().hash(array, 0, array.length, 0);
+        long hash(byte[] array, int length) {
+            return xx.hash64().hash(array, 0, length, 0);
+        }
+    }
+
+    /**
+     * Hash for 8 byte keys written in native byte order, as used by {@link OHLongCacheLinkedImpl}.
+     * The key is mixed with Murmur3's 64 bit finalizer, which is a bijection - so two keys with the same hash
+     * are always equal. Keys of other lengths fall back to {@link Murmur3Hash}.
+     */
+    static final class LongHash extends Hasher {
+        private final Murmur3Hash fallback = new Murmur3Hash();
+
+        static long mix(long key) {
+            return Murmur3Hash.fmix64(key);
+        }
+
+        @Override
+        long hash(byte[] array, int length) {
+            return length == 8 ? mix(Uns.getLongFromByteArray(array, 0)) : fallback.hash(array, length);
+        }
+
+        @Override
+        long hash(long address, long offset, int length) {
+            return length == 8 ? mix(Uns.getLong(address, offset)) : fallback.hash(address, offset, length);
         }
     }
 }
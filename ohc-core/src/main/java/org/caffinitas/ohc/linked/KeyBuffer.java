@@ -16,14 +16,50 @@
 package org.caffinitas.ohc.linked;
 
 import java.nio.ByteBuffer;
-import java.util.Arrays;
 
 final class KeyBuffer {
-    final byte[] buffer;
+    // largest key a thread's scratch buffer keeps around between operations
+    static final int MAX_SCRATCH_SIZE = 8192;
+
+    private static final ThreadLocal<KeyBuffer> SCRATCH = new ThreadLocal<KeyBuffer>() {
+        @Override
+        protected KeyBuffer initialValue() {
+            return new KeyBuffer(64);
+        }
+    };
+
+    byte[] buffer;
+    private ByteBuffer byteBuffer;
+    private int size;
     private long hash;
 
     KeyBuffer(int size) {
         buffer = new byte[size];
+        this.size = size;
+    }
+
+    /**
+     * Returns the calling thread's reusable key buffer, prepared for a key of {@code size} bytes.
+     * The returned instance is only valid until the next call to this method on the same thread and must
+     * therefore not be retained beyond a single cache operation. Keys larger than {@link #MAX_SCRATCH_SIZE}
+     * get a new instance.
+     */
+    static KeyBuffer scratch(int size) {
+        if (size > MAX_SCRATCH_SIZE) {
+            return new KeyBuffer(size);
+        }
+
+        KeyBuffer keyBuffer = SCRATCH.get();
+        if (keyBuffer.buffer.length < size) {
+            keyBuffer.buffer = new byte[Math.max(size, Math.min(keyBuffer.buffer.length * 2, MAX_SCRATCH_SIZE))];
+            keyBuffer.byteBuffer = null;
+        }
+        keyBuffer.size = size;
+        return keyBuffer;
+    }
+
+    int size() {
+        return size;
     }
 
     long hash() {
@@ -31,7 +67,7 @@ final class KeyBuffer {
     }
 
     KeyBuffer finish(Hasher hasher) {
-        hash = hasher.hash(buffer);
+        hash = hasher.hash(buffer, size);
 
         return this;
     }
@@ -47,7 +83,15 @@ final class KeyBuffer {
 
         KeyBuffer keyBuffer = (KeyBuffer) o;
 
-        return buffer.length == keyBuffer.buffer.length && Arrays.equals(keyBuffer.buffer, buffer);
+        if (size != keyBuffer.size) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            if (buffer[i] != keyBuffer.buffer[i]) {
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -66,8 +110,8 @@ final class KeyBuffer {
     @Override
     public String toString() {
         byte[] b = buffer;
-        StringBuilder sb = new StringBuilder(b.length * 3);
-        for (int ii = 0; ii < b.length; ii++) {
+        StringBuilder sb = new StringBuilder(size * 3);
+        for (int ii = 0; ii < size; ii++) {
             if (ii % 8 == 0 && ii != 0) {
                 sb.append('\n');
             }
@@ -78,7 +122,13 @@ final class KeyBuffer {
     }
 
     ByteBuffer byteBuffer() {
-        return ByteBuffer.wrap(buffer);
+        ByteBuffer bb = byteBuffer;
+        if (bb == null) {
+            byteBuffer = bb = ByteBuffer.wrap(buffer);
+        }
+        bb.clear();
+        bb.limit(size);
+        return bb;
     }
 
     boolean sameKey(long hashEntryAdr) {
@@ -87,13 +137,13 @@ final class KeyBuffer {
         }
 
         long serKeyLen = HashEntries.getKeyLen(hashEntryAdr);
-        return serKeyLen == buffer.length && compareKey(hashEntryAdr);
+        return serKeyLen == size && compareKey(hashEntryAdr);
     }
 
     private boolean compareKey(long hashEntryAdr) {
-        int blkOff = (int) Util.ENTRY_OFF_DATA;
+        int blkOff = (int) HashEntries.getDataOffset(hashEntryAdr);
         int p = 0;
-        int endIdx = buffer.length - 1;
+        int endIdx = size - 1;
         for (; p <= endIdx - 8; p += 8, blkOff += 8) {
             if (Uns.getLong(hashEntryAdr, blkOff) != Uns.getLongFromByteArray(buffer, p)) {
                 return false;
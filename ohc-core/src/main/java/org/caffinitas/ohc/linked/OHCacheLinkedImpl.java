@@ -21,16 +21,30 @@ import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.SeekableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Set;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.caffinitas.ohc.BatchResult;
+import org.caffinitas.ohc.BulkCacheLoader;
 import org.caffinitas.ohc.CacheLoader;
 import org.caffinitas.ohc.CacheSerializer;
 import org.caffinitas.ohc.CloseableIterator;
@@ -41,20 +55,35 @@ import org.caffinitas.ohc.OHCacheStats;
 import org.caffinitas.ohc.PermanentLoadException;
 import org.caffinitas.ohc.TemporaryLoadException;
 import org.caffinitas.ohc.Ticker;
+import org.caffinitas.ohc.alloc.IAllocator;
+import org.caffinitas.ohc.alloc.SlabAllocator;
 import org.caffinitas.ohc.histo.EstimatedHistogram;
+import org.caffinitas.ohc.loader.BulkLoadCoalescer;
+import org.caffinitas.ohc.lock.SegmentLock;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.google.common.collect.AbstractIterator;
 import com.google.common.primitives.Ints;
 import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.MoreExecutors;
 import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.Uninterruptibles;
 
 public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
     private static final Logger LOGGER = LoggerFactory.getLogger(OHCacheLinkedImpl.class);
 
     private static final int CURRENT_FILE_VERSION = 2;
 
+    // maximum number of entries or keys processed at once by putAllBatch() and removeAllBatch()
+    private static final int BULK_BATCH_SIZE = 16384;
+
+    // maximum number of entries evicted by the background eviction while holding a segment lock
+    private static final int BACKGROUND_EVICTION_BATCH_SIZE = 32;
+
+    // maximum number of timeouts examined by the expiration sweeper while holding a segment lock
+    private static final int SWEEP_BATCH_SIZE = 256;
+
     private final CacheSerializer<K> keySerializer;
     private final CacheSerializer<V> valueSerializer;
 
@@ -64,6 +93,8 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
     private final long maxEntrySize;
     private final long defaultTTL;
+    // optional header fields of the hash entries, Util.FIELD_* bits
+    private final int headerFields;
 
     private long capacity;
 
@@ -73,12 +104,50 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
     private final ScheduledExecutorService executorService;
 
+    private final BulkLoadCoalescer<K, V> bulkLoads;
+
+    // in-flight getWithLoaderAsync() loads by the address of their sentinel hash entry
+    private final ConcurrentMap<Long, SettableFuture<V>> loads = new ConcurrentHashMap<>();
+
+    private final long refreshAfterWrite;
+    // addresses of the hash entries being refreshed, each referenced until its refresh has finished
+    private final Set<Long> refreshes = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+    private final double evictionLowWatermark;
+    private final double evictionHighWatermark;
+    // periodic background eviction task, null if background eviction is disabled
+    private final ScheduledFuture<?> backgroundEviction;
+    // periodic expiration sweep task, null if the expiration sweeper is disabled
+    private final ScheduledFuture<?> sweep;
+    private volatile long sweepNanos;
+    // runs the background eviction and sweep tasks, if no executor service has been configured
+    private final ScheduledExecutorService maintenanceExecutor;
+    // held by a running background eviction or sweep task
+    private final Object maintenanceLock = new Object();
+    private volatile boolean maintenanceStopped;
+
     private final boolean throwOOME;
     private final Hasher hasher;
 
     private final Ticker ticker;
 
     public OHCacheLinkedImpl(OHCacheBuilder<K, V> builder) {
+        this(builder, (Random) null);
+    }
+
+    /**
+     * @param tieRandom seeds the random numbers of the W-TinyLFU admission for frequency ties, tests pass a seeded
+     *                  instance to get reproducible evictions - {@code null} for random seeds
+     */
+    OHCacheLinkedImpl(OHCacheBuilder<K, V> builder, Random tieRandom) {
+        this(builder, builder.getKeySerializer(), Hasher.create(builder.getHashAlgorighm()), tieRandom);
+    }
+
+    OHCacheLinkedImpl(OHCacheBuilder<K, V> builder, CacheSerializer<K> keySerializer, Hasher hasher) {
+        this(builder, keySerializer, hasher, null);
+    }
+
+    private OHCacheLinkedImpl(OHCacheBuilder<K, V> builder, CacheSerializer<K> keySerializer, Hasher hasher, Random tieRandom) {
         long capacity = builder.getCapacity();
         if (capacity <= 0L) {
             throw new IllegalArgumentException("capacity:" + capacity);
@@ -86,12 +155,21 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
         this.capacity = capacity;
 
+        // checked before the segments are allocated, which would not be released
+        this.evictionLowWatermark = builder.getEvictionLowWatermark();
+        this.evictionHighWatermark = builder.getEvictionHighWatermark();
+        if (builder.isBackgroundEviction() && evictionHighWatermark < evictionLowWatermark) {
+            throw new IllegalArgumentException("evictionHighWatermark " + evictionHighWatermark + " < evictionLowWatermark " + evictionLowWatermark);
+        }
+
         this.ticker = builder.getTicker();
 
         this.defaultTTL = builder.getDefaultTTLmillis();
+        this.refreshAfterWrite = builder.getRefreshAfterWriteMillis();
+        this.headerFields = headerFields(builder);
 
         this.throwOOME = builder.isThrowOOME();
-        this.hasher = Hasher.create(builder.getHashAlgorighm());
+        this.hasher = hasher;
 
         // build segments
         int segments = builder.getSegmentCount();
@@ -102,7 +180,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         maps = new OffHeapLinkedMap[segments];
         for (int i = 0; i < segments; i++) {
             try {
-                maps[i] = makeMap(builder, capacity / segments);
+                maps[i] = makeMap(builder, capacity / segments, tieRandom);
             } catch (RuntimeException e) {
                 for (; i >= 0; i--) {
                     if (maps[i] != null) {
@@ -127,7 +205,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         }
         this.maxEntrySize = maxEntrySize;
 
-        this.keySerializer = builder.getKeySerializer();
+        this.keySerializer = keySerializer;
         if (keySerializer == null) {
             throw new NullPointerException("keySerializer == null");
         }
@@ -137,20 +215,92 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         }
 
         this.executorService = builder.getExecutorService();
+        this.bulkLoads = new BulkLoadCoalescer<>(builder.getBulkLoadWindowMicros(), builder.getBulkLoadMaxBatchSize());
+
+        long sweepInterval = builder.isTimeouts() ? builder.getTimeoutsSweepIntervalMillis() : 0L;
+
+        ScheduledExecutorService executor = executorService;
+        if (executor == null && (builder.isBackgroundEviction() || sweepInterval > 0L)) {
+            executor = maintenanceExecutor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread t = new Thread(r, "OHC maintenance");
+                    t.setDaemon(true);
+                    return t;
+                }
+            });
+        } else {
+            maintenanceExecutor = null;
+        }
+
+        if (builder.isBackgroundEviction()) {
+            long interval = builder.getBackgroundEvictionIntervalMillis();
+            this.backgroundEviction = executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    evictInBackground();
+                }
+            }, interval, interval, TimeUnit.MILLISECONDS);
+        } else {
+            this.backgroundEviction = null;
+        }
+
+        if (sweepInterval > 0L) {
+            this.sweep = executor.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    sweepExpired();
+                }
+            }, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+        } else {
+            this.sweep = null;
+        }
 
         if (LOGGER.isDebugEnabled()) {
             LOGGER.debug("OHC linked instance with {} segments and capacity of {} created.", segments, capacity);
         }
     }
 
-    private OffHeapLinkedMap makeMap(OHCacheBuilder<K, V> builder, long perMapCapacity) {
+    /**
+     * Chooses the optional header fields of the hash entries. Without {@code compactEntryHeader}, all entries
+     * have all fields. Otherwise the generation field, which also holds the access counter and the write time,
+     * is only present, if the eviction algorithm or refresh-after-write need it, and the expireAt field only,
+     * if entries can expire.
+     */
+    private static int headerFields(OHCacheBuilder<?, ?> builder) {
+        if (!builder.isCompactEntryHeader()) {
+            return Util.FIELDS_ALL;
+        }
+
+        int headerFields = 0;
+        switch (builder.getEviction()) {
+            case W_TINY_LFU:
+            case CLOCK:
+            case S3_FIFO:
+                headerFields |= Util.FIELD_GENERATION;
+                break;
+        }
+        if (builder.getRefreshAfterWriteMillis() > 0L) {
+            headerFields |= Util.FIELD_GENERATION;
+        }
+        if (builder.isTimeouts() || builder.getDefaultTTLmillis() > 0L) {
+            headerFields |= Util.FIELD_EXPIRE_AT;
+        }
+        return headerFields;
+    }
+
+    private OffHeapLinkedMap makeMap(OHCacheBuilder<K, V> builder, long perMapCapacity, Random tieRandom) {
         switch (builder.getEviction()) {
             case LRU:
                 return new OffHeapLinkedLRUMap(builder, perMapCapacity);
             case W_TINY_LFU:
-                return new OffHeapLinkedWTinyLFUMap(builder, perMapCapacity);
+                return new OffHeapLinkedWTinyLFUMap(builder, perMapCapacity, tieRandom != null ? new Random(tieRandom.nextLong()) : new Random());
             case NONE:
                 return new OffHeapLinkedPermMap(builder, perMapCapacity);
+            case CLOCK:
+                return new OffHeapLinkedClockMap(builder, perMapCapacity);
+            case S3_FIFO:
+                return new OffHeapLinkedS3FifoMap(builder, perMapCapacity);
             default:
                 throw new IllegalArgumentException("Unsupported eviction: " + builder.getEviction());
         }
@@ -178,7 +328,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             return null;
         }
 
-        return new DirectValueAccessImpl(hashEntryAdr, true);
+        return new DirectValueAccessImpl(segment(keySource.hash()), hashEntryAdr, true);
     }
 
     @Override
@@ -187,11 +337,34 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             throw new NullPointerException();
         }
 
-        long hashEntryAdr = 0L;
+        return get(keySource(key));
+    }
 
-        KeyBuffer keySource = keySource(key);
+    V get(long key) {
+        return get(longKeySource(key));
+    }
+
+    private V get(KeyBuffer keySource) {
+        OffHeapLinkedMap segment = segment(keySource.hash());
+
+        if (segment.optimisticReads) {
+            int stripe = segment.enterOptimisticRead();
+            try {
+                long hashEntryAdr = segment.getEntryOptimistic(keySource, stripe, true);
+                if (hashEntryAdr == 0L) {
+                    return null;
+                }
+                if (hashEntryAdr != -1L) {
+                    return valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdr));
+                }
+            } finally {
+                segment.exitOptimisticRead(stripe);
+            }
+        }
+
+        long hashEntryAdr = 0L;
         try {
-            hashEntryAdr = segment(keySource.hash()).getEntry(keySource, true, true);
+            hashEntryAdr = segment.getEntry(keySource, true, true);
 
             if (hashEntryAdr == 0L) {
                 return null;
@@ -199,7 +372,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
             return valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdr));
         } finally {
-            HashEntries.dereference(hashEntryAdr);
+            dereference(hashEntryAdr);
         }
     }
 
@@ -209,8 +382,170 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             throw new NullPointerException();
         }
 
-        KeyBuffer keySource = keySource(key);
-        return segment(keySource.hash()).getEntry(keySource, false, true) != 0L;
+        return containsKey(keySource(key));
+    }
+
+    boolean containsKey(long key) {
+        return containsKey(longKeySource(key));
+    }
+
+    private boolean containsKey(KeyBuffer keySource) {
+        OffHeapLinkedMap segment = segment(keySource.hash());
+
+        if (segment.optimisticReads) {
+            int stripe = segment.enterOptimisticRead();
+            try {
+                long hashEntryAdr = segment.getEntryOptimistic(keySource, stripe, true);
+                if (hashEntryAdr != -1L) {
+                    return hashEntryAdr != 0L;
+                }
+            } finally {
+                segment.exitOptimisticRead(stripe);
+            }
+        }
+
+        return segment.getEntry(keySource, false, true) != 0L;
+    }
+
+    @Override
+    public Map<K, V> getAll(Iterable<K> keys) {
+        Map<K, V> out = new HashMap<>();
+        getAll(keys instanceof Collection ? (Collection<K>) keys : copyOf(keys), out);
+        return out;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public void getAll(Collection<K> keys, Map<K, V> out) {
+        int n = keys.size();
+        if (n == 0) {
+            return;
+        }
+
+        // serialize and hash all keys, then order them by segment
+        Object[] keyObjects = new Object[n];
+        KeyBuffer[] keySources = new KeyBuffer[n];
+        int i = 0;
+        for (K key : keys) {
+            if (key == null) {
+                throw new NullPointerException();
+            }
+            keyObjects[i] = key;
+            keySources[i++] = newKeySource(key);
+        }
+        Object[] sortedKeys = new Object[n];
+        KeyBuffer[] sortedKeySources = new KeyBuffer[n];
+        int[] segmentOffsets = sortBySegment(keySources, keyObjects, n, sortedKeySources, sortedKeys);
+
+        long[] hashEntryAdrs = new long[n];
+        for (int seg = 0; seg < maps.length; seg++) {
+            int off = segmentOffsets[seg];
+            int count = segmentOffsets[seg + 1] - off;
+            if (count == 0) {
+                continue;
+            }
+
+            OffHeapLinkedMap segment = maps[seg];
+            if (segment.optimisticReads) {
+                count = getAllOptimistic(segment, sortedKeys, sortedKeySources, off, count, out);
+                if (count == 0) {
+                    continue;
+                }
+            }
+
+            segment.getEntries(sortedKeySources, off, count, hashEntryAdrs);
+            int end = off + count;
+            try {
+                for (i = off; i < end; i++) {
+                    if (hashEntryAdrs[i] != 0L) {
+                        out.put((K) sortedKeys[i], valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdrs[i])));
+                    }
+                }
+            } finally {
+                for (i = off; i < end; i++) {
+                    dereference(hashEntryAdrs[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Looks up the given keys of a segment without locking it. Keys that require the segment lock are moved
+     * to the front of the range.
+     *
+     * @return number of keys that require the segment lock
+     */
+    @SuppressWarnings("unchecked")
+    private int getAllOptimistic(OffHeapLinkedMap segment, Object[] keys, KeyBuffer[] keySources, int off, int count, Map<K, V> out) {
+        int remaining = 0;
+        int stripe = segment.enterOptimisticRead();
+        try {
+            for (int i = off; i < off + count; i++) {
+                long hashEntryAdr = segment.getEntryOptimistic(keySources[i], stripe, true);
+                if (hashEntryAdr == -1L) {
+                    keys[off + remaining] = keys[i];
+                    keySources[off + remaining] = keySources[i];
+                    remaining++;
+                } else if (hashEntryAdr != 0L) {
+                    out.put((K) keys[i], valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdr)));
+                }
+            }
+        } finally {
+            segment.exitOptimisticRead(stripe);
+        }
+        return remaining;
+    }
+
+    /**
+     * Orders the first {@code n} keys by segment using a counting sort.
+     *
+     * @return offsets of the keys of each segment in the sorted arrays - the element after the last segment is {@code n}
+     */
+    private int[] sortBySegment(KeyBuffer[] keySources, Object[] keys, int n, KeyBuffer[] sortedKeySources, Object[] sortedKeys) {
+        int[] segmentOffsets = new int[maps.length + 1];
+        for (int i = 0; i < n; i++) {
+            segmentOffsets[segmentIndex(keySources[i].hash()) + 1]++;
+        }
+        for (int seg = 0; seg < maps.length; seg++) {
+            segmentOffsets[seg + 1] += segmentOffsets[seg];
+        }
+        int[] positions = Arrays.copyOf(segmentOffsets, maps.length);
+        for (int i = 0; i < n; i++) {
+            int p = positions[segmentIndex(keySources[i].hash())]++;
+            sortedKeySources[p] = keySources[i];
+            if (keys != null) {
+                sortedKeys[p] = keys[i];
+            }
+        }
+        return segmentOffsets;
+    }
+
+    /**
+     * Orders the first {@code n} hash entries by segment using a counting sort.
+     *
+     * @return offsets of the hash entries of each segment in {@code sorted} - the element after the last segment is {@code n}
+     */
+    private int[] sortBySegment(long[] hashEntryAdrs, int n, long[] sorted) {
+        int[] segmentOffsets = new int[maps.length + 1];
+        for (int i = 0; i < n; i++) {
+            segmentOffsets[segmentIndex(HashEntries.getHash(hashEntryAdrs[i])) + 1]++;
+        }
+        for (int seg = 0; seg < maps.length; seg++) {
+            segmentOffsets[seg + 1] += segmentOffsets[seg];
+        }
+        int[] positions = Arrays.copyOf(segmentOffsets, maps.length);
+        for (int i = 0; i < n; i++) {
+            sorted[positions[segmentIndex(HashEntries.getHash(hashEntryAdrs[i]))]++] = hashEntryAdrs[i];
+        }
+        return segmentOffsets;
+    }
+
+    private static <K> Collection<K> copyOf(Iterable<K> keys) {
+        Collection<K> c = new ArrayList<>();
+        for (K key : keys) {
+            c.add(key);
+        }
+        return c;
     }
 
     @Override
@@ -248,10 +583,27 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             throw new NullPointerException();
         }
 
-        int keyLen = keySize(k);
+        return putInternal(k, 0L, keySize(k), v, ifAbsent, old, expireAt);
+    }
+
+    boolean put(long key, V v, boolean ifAbsent, long expireAt) {
+        if (v == null) {
+            throw new NullPointerException();
+        }
+
+        return putInternal(null, key, 8, v, ifAbsent, null, expireAt);
+    }
+
+    /**
+     * Adds an entry either for the key object {@code k} or, if {@code k} is {@code null}, for the primitive
+     * {@code longKey}, which is written to the entry as is.
+     */
+    private boolean putInternal(K k, long longKey, int keyLen, V v, boolean ifAbsent, V old, long expireAt) {
+        checkExpireAt(expireAt);
+
         int valueLen = valueSize(v);
 
-        long bytes = Util.allocLen(keyLen, valueLen);
+        long bytes = Util.allocLen(headerFields, keyLen, valueLen);
 
         long oldValueAdr = 0L;
         long oldValueLen = 0L;
@@ -267,16 +619,20 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             }
 
             long hashEntryAdr;
-            if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = Uns.allocate(bytes, throwOOME)) == 0L) {
+            if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = allocateEntry(bytes)) == 0L) {
                 // entry too large to be inserted or OS is not able to provide enough memory
                 putFailCount++;
 
-                remove(k);
+                if (k != null) {
+                    remove(k);
+                } else {
+                    remove(longKey);
+                }
 
                 return false;
             }
 
-            long hash = serializeForPut(k, v, keyLen, valueLen, hashEntryAdr);
+            long hash = k != null ? serializeForPut(k, v, keyLen, valueLen, hashEntryAdr) : serializeForPut(longKey, v, valueLen, hashEntryAdr);
 
             if (expireAt == USE_DEFAULT_EXPIRE_AT) {
                 expireAt = defaultExpireAt();
@@ -296,6 +652,21 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         }
     }
 
+    private long allocateEntry(long bytes) {
+        long hashEntryAdr = Uns.allocate(bytes, throwOOME);
+        if (hashEntryAdr != 0L) {
+            // the offset of the key and value depends on the optional header fields
+            HashEntries.setHeaderFields(hashEntryAdr, headerFields);
+        }
+        return hashEntryAdr;
+    }
+
+    private void checkExpireAt(long expireAt) {
+        if ((headerFields & Util.FIELD_EXPIRE_AT) == 0 && expireAt > 0L && expireAt != NEVER_EXPIRE) {
+            throw new IllegalArgumentException("expiring entries require timeouts or defaultTTLmillis with compactEntryHeader");
+        }
+    }
+
     private int keySize(K k) {
         int sz = keySerializer.serializedSize(k);
         if (sz <= 0) {
@@ -327,7 +698,18 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             freeAndThrow(e, hashEntryAdr);
         }
 
-        return hasher.hash(hashEntryAdr, Util.ENTRY_OFF_DATA, keyLen);
+        return hasher.hash(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr), keyLen);
+    }
+
+    private long serializeForPut(long key, V v, long valueLen, long hashEntryAdr) {
+        Uns.putLong(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr), key);
+        try {
+            valueSerializer.serialize(v, Uns.valueBuffer(hashEntryAdr, 8L, valueLen));
+        } catch (Throwable e) {
+            freeAndThrow(e, hashEntryAdr);
+        }
+
+        return hasher.hash(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr), 8);
     }
 
     private static void freeAndThrow(Throwable e, long hashEntryAdr) {
@@ -351,6 +733,11 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return segment(keySource.hash()).removeEntry(keySource);
     }
 
+    boolean remove(long key) {
+        KeyBuffer keySource = longKeySource(key);
+        return segment(keySource.hash()).removeEntry(keySource);
+    }
+
     @Override
     public V getWithLoader(K key, CacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
         return getWithLoaderAsync(key, loader).get();
@@ -374,8 +761,9 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         if (executorService == null || executorService.isShutdown() || closed) {
             throw new IllegalStateException("OHCache has no executor service - configure one via OHCacheBuilder.executorService()");
         }
+        checkExpireAt(expireAt);
 
-        final KeyBuffer keySource = keySource(key);
+        final KeyBuffer keySource = newKeySource(key);
         final OffHeapLinkedMap segment = segment(keySource.hash());
         long hashEntryAdr = segment.getEntry(keySource, true, true);
 
@@ -384,9 +772,9 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
             final int keyLen = keySize(key);
 
-            long bytes = Util.allocLen(keyLen, 0L);
+            long bytes = Util.allocLen(headerFields, keyLen, 0L);
 
-            if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = Uns.allocate(bytes, throwOOME)) == 0L) {
+            if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = allocateEntry(bytes)) == 0L) {
                 // entry too large to be inserted or OS is not able to provide enough memory
                 putFailCount++;
 
@@ -401,21 +789,27 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
                 freeAndThrow(e, hashEntryAdr);
             }
 
-            final long hash = hasher.hash(hashEntryAdr, Util.ENTRY_OFF_DATA, keyLen);
+            final long hash = hasher.hash(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr), keyLen);
 
             // initialize hash entry
             HashEntries.init(hash, keyLen, 0, hashEntryAdr, Util.SENTINEL_LOADING, 0L);
+            // the loader keeps its own reference, so the sentinel is not freed, if it is removed or evicted during the load
+            HashEntries.reference(hashEntryAdr);
+
+            // register the load before the sentinel becomes visible to other requestors
+            final SettableFuture<V> load = SettableFuture.create();
+            loads.put(hashEntryAdr, load);
 
             if (segment.putEntry(hashEntryAdr, hash, keyLen, bytes, true, 0L, 0L, 0L)) {
                 // this request IS the initial requestor for the key
 
                 final long sentinelHashEntryAdr = hashEntryAdr;
-                return executorService.submit(new Callable<V>() {
+                final Callable<V> loadTask = new Callable<V>() {
                     @Override
                     public V call() throws Exception {
                         Exception failure = null;
                         V value = null;
-                        boolean derefSentinel = false;
+                        boolean replaced = false;
 
                         try {
                             value = loader.load(key);
@@ -434,10 +828,10 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
                             int valueLen = valueSize(value);
 
-                            long bytes = Util.allocLen(keyLen, valueLen);
+                            long bytes = Util.allocLen(headerFields, keyLen, valueLen);
 
                             long hashEntryAdr;
-                            if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = Uns.allocate(bytes, throwOOME)) == 0L) {
+                            if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = allocateEntry(bytes)) == 0L) {
                                 throw new RuntimeException("max entry size exceeded or malloc() failed");
                             }
 
@@ -449,24 +843,33 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
                             // initialize hash entry
                             HashEntries.init(hash, keyLen, valueLen, hashEntryAdr, Util.SENTINEL_NOT_PRESENT, entryExpireAt);
 
-                            if (!segment.replaceSentinelEntry(hash, sentinelHashEntryAdr, hashEntryAdr, bytes, entryExpireAt)) {
+                            try {
+                                replaced = segment.replaceSentinelEntry(hash, sentinelHashEntryAdr, hashEntryAdr, bytes, entryExpireAt);
+                            } finally {
+                                if (!replaced) {
+                                    Uns.free(hashEntryAdr);
+                                }
+                            }
+                            if (!replaced) {
                                 throw new RuntimeException("not enough free capacity");
                             }
-                            derefSentinel = true;
 
                             HashEntries.setSentinel(sentinelHashEntryAdr, Util.SENTINEL_SUCCESS);
-                            HashEntries.dereference(sentinelHashEntryAdr);
                         } catch (PermanentLoadException e) {
                             HashEntries.setSentinel(sentinelHashEntryAdr, Util.SENTINEL_PERMANENT_FAILURE);
                             throw e;
                         } catch (Throwable e) {
                             failure = e instanceof Exception ? (Exception) e : new RuntimeException(e);
                             HashEntries.setSentinel(sentinelHashEntryAdr, Util.SENTINEL_TEMPORARY_FAILURE);
-                            if (derefSentinel) {
-                                HashEntries.dereference(sentinelHashEntryAdr);
-                            } else {
+                            if (!replaced) {
                                 segment.removeEntry(sentinelHashEntryAdr);
                             }
+                        } finally {
+                            // Unregister the load before the sentinel can be freed - otherwise the address could be
+                            // reused for the sentinel of another key and that load would be unregistered.
+                            loads.remove(sentinelHashEntryAdr, load);
+                            // drop the reference of the loader - the map's reference has been retired, if the sentinel has been replaced or removed
+                            segment.dereference(sentinelHashEntryAdr);
                         }
 
                         if (failure != null) {
@@ -475,12 +878,45 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
                         return value;
                     }
-                });
+                };
+
+                try {
+                    executorService.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            V value;
+                            try {
+                                value = loadTask.call();
+                            } catch (Throwable e) {
+                                load.setException(e);
+                                return;
+                            }
+                            load.set(value);
+                        }
+                    });
+                } catch (Throwable e) {
+                    HashEntries.setSentinel(sentinelHashEntryAdr, Util.SENTINEL_TEMPORARY_FAILURE);
+                    segment.removeEntry(sentinelHashEntryAdr);
+                    loads.remove(sentinelHashEntryAdr, load);
+                    segment.dereference(sentinelHashEntryAdr);
+                    load.setException(e);
+                }
+
+                return load;
             } else {
                 // this request IS NOT the initial requestor for the key, so it must
                 // free the unneeded but allocated sentinel
 
+                loads.remove(hashEntryAdr, load);
                 Uns.free(hashEntryAdr);
+
+                // another request put its sentinel or the loaded value in the meantime - look it up,
+                // hashEntryAdr must not be used after free()
+                hashEntryAdr = segment.getEntry(keySource, true, true);
+                if (hashEntryAdr == 0L) {
+                    // removed again in the meantime
+                    return getWithLoaderAsync(key, loader, expireAt);
+                }
             }
 
             // fall through
@@ -494,137 +930,179 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         switch (sentinelStatus) {
             case Util.SENTINEL_NOT_PRESENT:
                 try {
-                    return Futures.immediateFuture(valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdr)));
+                    V value = valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdr));
+                    if (refreshAfterWrite > 0L && segment.refreshDue(hashEntryAdr, refreshAfterWrite)) {
+                        refresh(key, keySource.size(), loader, expireAt, segment, hashEntryAdr);
+                    }
+                    return Futures.immediateFuture(value);
                 } finally {
-                    HashEntries.dereference(hashEntryAdr);
+                    dereference(hashEntryAdr);
                 }
             case Util.SENTINEL_PERMANENT_FAILURE:
-                HashEntries.dereference(hashEntryAdr);
+                dereference(hashEntryAdr);
                 return Futures.immediateFailedFuture(new PermanentLoadException());
         }
 
         // handle sentinel
 
+        // The sentinel cannot be freed (and its address reused) while this request holds a reference to it,
+        // so the address identifies the load.
+        final SettableFuture<V> load = loads.get(hashEntryAdr);
+        dereference(hashEntryAdr);
+
+        if (load == null) {
+            // the load has completed between looking up the sentinel and the in-flight load
+            switch (sentinelStatus) {
+                case Util.SENTINEL_TEMPORARY_FAILURE:
+                    return Futures.immediateFailedFuture(new TemporaryLoadException());
+                default:
+                    // the loaded value (if any) is in the cache now
+                    return getWithLoaderAsync(key, loader, expireAt);
+            }
+        }
+
+        // The loader completes the future of this request directly - no polling.
+        // Cancelling the returned future does not cancel the load.
         final SettableFuture<V> future = SettableFuture.create();
+        load.addListener(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.set(Uninterruptibles.getUninterruptibly(load));
+                } catch (ExecutionException e) {
+                    future.setException(e.getCause() instanceof PermanentLoadException
+                                        ? new PermanentLoadException()
+                                        : new TemporaryLoadException());
+                } catch (Throwable e) {
+                    future.setException(new TemporaryLoadException());
+                }
+            }
+        }, MoreExecutors.directExecutor());
 
-        final long sentinelHashEntryAdr = hashEntryAdr;
+        return future;
+    }
 
-        // TODO / DOCUMENT: executorService shutdown with ongoing requests with referenced sentinel-entries --> off-heap memory leak
-        // Reason:
-        // The jobs started for adjacent getWithLoader*() calls are not running (and waiting) continuously.
-        // Instead these are scheduled regularly and poll the referenced sentinel hash-entry.
-        // The sentinel hash-entry is dereferenced within the following job for adjacent getWithLoader*() calls.
-        // So - if the following job is no longer called, the sentinel hash-entry will never be dereferenced and
-        // therefore never be deallocated.
-        // Workaround is to close the OHCache instance, then wait some time and shutdown the scheduled executor service
-        // when there are no more scheduled jobs.
+    /**
+     * Reloads the value of the given hash entry in the background. At most one refresh per hash entry is
+     * in flight, readers continue to get the current value until the reloaded value replaces it.
+     */
+    private void refresh(final K key, final int keyLen, final CacheLoader<K, V> loader, final long expireAt,
+                         final OffHeapLinkedMap segment, final long oldHashEntryAdr) {
+        if (!refreshes.add(oldHashEntryAdr)) {
+            return;
+        }
 
-        // The following job basically "spins" on the sentinel field of the sentinel hash-entry without
-        // any lock on the segment.
-        // It has two "exit" criterias:
+        // the hash entry is referenced until the refresh has finished, so its address cannot be reused
+        HashEntries.reference(oldHashEntryAdr);
 
-        executorService.schedule(new Runnable() {
+        Runnable refreshTask = new Runnable() {
             @Override
             public void run() {
-                if (future.isCancelled() || closed) {
-                    HashEntries.dereference(sentinelHashEntryAdr);
-                    return;
-                }
+                try {
+                    V value = loader.load(key);
 
-                int sentinelStatus = HashEntries.getSentinel(sentinelHashEntryAdr);
-                switch (sentinelStatus) {
-                    // SENTINEL_NOT_PRESENT is an impossible status on the sentinel hash-entry
-                    case Util.SENTINEL_SUCCESS:
-                        break;
-                    case Util.SENTINEL_LOADING:
-                        reschedule(0L);
-                        return;
-                    case Util.SENTINEL_PERMANENT_FAILURE:
-                        failure(0L, new PermanentLoadException());
-                        return;
-                    case Util.SENTINEL_TEMPORARY_FAILURE:
-                        failure(0L, new TemporaryLoadException());
+                    long entryExpireAt = expireAt;
+                    if (value == null || (entryExpireAt > 0L && entryExpireAt <= ticker.currentTimeMillis())) {
+                        // no value for the key anymore or already expired
+                        segment.removeEntry(oldHashEntryAdr);
                         return;
-                    default:
-                        failure(0L, new AssertionError("illegal sentinel value " + sentinelStatus));
-                        return;
-                }
+                    }
 
-                long hashEntryAdr = segment.getEntry(keySource, true, true);
+                    int valueLen = valueSize(value);
 
-                if (hashEntryAdr == 0L) {
-                    // two possibilities that the entry does not exist:
-                    // - entry has been evicted (very very unlikely, so ignore this option)
-                    // - loader indicated temporary failure (very very likely)
-                    future.setException(new TemporaryLoadException());
-                }
+                    long bytes = Util.allocLen(headerFields, keyLen, valueLen);
 
-                if (hashEntryAdr == sentinelHashEntryAdr) {
-                    // oops, still the sentinel entry
-                    reschedule(0L);
-                    return;
-                }
+                    long hashEntryAdr;
+                    if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = allocateEntry(bytes)) == 0L) {
+                        throw new RuntimeException("max entry size exceeded or malloc() failed");
+                    }
 
-                sentinelStatus = HashEntries.getSentinel(hashEntryAdr);
-                switch (sentinelStatus) {
-                    case Util.SENTINEL_NOT_PRESENT:
-                        try {
-                            future.set(valueSerializer.deserialize(Uns.valueBufferR(hashEntryAdr)));
-                            HashEntries.dereference(hashEntryAdr);
-                            HashEntries.dereference(sentinelHashEntryAdr);
-                        } catch (Throwable e) {
-                            failure(hashEntryAdr, e);
-                        }
-                        break;
-                    case Util.SENTINEL_SUCCESS:
-                    case Util.SENTINEL_LOADING:
-                        HashEntries.dereference(hashEntryAdr);
-                        reschedule(hashEntryAdr);
-                        break;
-                    case Util.SENTINEL_PERMANENT_FAILURE:
-                        failure(hashEntryAdr, new PermanentLoadException());
-                        break;
-                    case Util.SENTINEL_TEMPORARY_FAILURE:
-                        failure(hashEntryAdr, new TemporaryLoadException());
-                        break;
-                    default:
-                        failure(hashEntryAdr, new AssertionError("illegal sentinel value " + sentinelStatus));
-                        break;
-                }
-            }
+                    long hash = serializeForPut(key, value, keyLen, valueLen, hashEntryAdr);
+                    if (entryExpireAt == USE_DEFAULT_EXPIRE_AT) {
+                        entryExpireAt = defaultExpireAt();
+                    }
 
-            private void failure(long hashEntryAdr, Throwable e) {
-                if (hashEntryAdr != 0L) {
-                    HashEntries.dereference(hashEntryAdr);
-                }
-                HashEntries.dereference(sentinelHashEntryAdr);
-                future.setException(e);
-            }
+                    // initialize hash entry
+                    HashEntries.init(hash, keyLen, valueLen, hashEntryAdr, Util.SENTINEL_NOT_PRESENT, entryExpireAt);
 
-            private void reschedule(long hashEntryAdr) {
-                try {
-                    executorService.schedule(this, 10, TimeUnit.MILLISECONDS);
-                } catch (Throwable t) {
-                    failure(hashEntryAdr, t);
+                    if (!segment.replaceEntry(hash, oldHashEntryAdr, hashEntryAdr, bytes, entryExpireAt)) {
+                        // the entry has been removed or replaced in the meantime
+                        Uns.free(hashEntryAdr);
+                    }
+                } catch (Throwable e) {
+                    // keep the current value, the next read retries the refresh
+                    LOGGER.warn("Failed to refresh cache entry", e);
+                } finally {
+                    refreshes.remove(oldHashEntryAdr);
+                    dereference(oldHashEntryAdr);
                 }
             }
-        }, 10, TimeUnit.MILLISECONDS);
+        };
 
-        return future;
+        try {
+            executorService.execute(refreshTask);
+        } catch (Throwable e) {
+            refreshes.remove(oldHashEntryAdr);
+            dereference(oldHashEntryAdr);
+        }
+    }
+
+    @Override
+    public Map<K, V> getAllWithLoader(Iterable<K> keys, BulkCacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
+        return bulkLoads.getAll(this, keys, loader);
     }
 
     private OffHeapLinkedMap segment(long hash) {
-        int seg = (int) ((hash & segmentMask) >>> segmentShift);
-        return maps[seg];
+        return maps[segmentIndex(hash)];
+    }
+
+    /**
+     * Drops the reference of a reader to a hash entry, see {@link OffHeapLinkedMap#dereferenceReader(long)}.
+     */
+    private void dereference(long hashEntryAdr) {
+        if (hashEntryAdr != 0L) {
+            segment(HashEntries.getHash(hashEntryAdr)).dereferenceReader(hashEntryAdr);
+        }
+    }
+
+    private int segmentIndex(long hash) {
+        return (int) ((hash & segmentMask) >>> segmentShift);
     }
 
+    /**
+     * Serializes the key into the calling thread's reusable {@link KeyBuffer#scratch(int) scratch buffer}.
+     * The result must not be used after the current operation.
+     */
     private KeyBuffer keySource(K o) {
         int size = keySize(o);
 
-        KeyBuffer keyBuffer = new KeyBuffer(size);
+        return serializeKey(o, KeyBuffer.scratch(size), size);
+    }
+
+    /**
+     * Serializes the key into a new {@link KeyBuffer}, for callers that need to hold several keys at once
+     * or pass the key to another thread.
+     */
+    private KeyBuffer newKeySource(K o) {
+        int size = keySize(o);
+
+        return serializeKey(o, new KeyBuffer(size), size);
+    }
+
+    /**
+     * Writes the primitive key into the calling thread's scratch buffer in native byte order - the same
+     * layout {@link #serializeForPut(long, Object, long, long)} uses for the entry.
+     */
+    private KeyBuffer longKeySource(long key) {
+        KeyBuffer keyBuffer = KeyBuffer.scratch(8);
+        Uns.putLongToByteArray(keyBuffer.buffer, 0, key);
+        return keyBuffer.finish(hasher);
+    }
+
+    private KeyBuffer serializeKey(K o, KeyBuffer keyBuffer, int size) {
         ByteBuffer bb = keyBuffer.byteBuffer();
         keySerializer.serialize(o, bb);
-        assert (bb.position() == bb.capacity()) && (bb.capacity() == size);
+        assert (bb.position() == bb.limit()) && (bb.limit() == size);
         return keyBuffer.finish(hasher);
     }
 
@@ -657,9 +1135,94 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         }
     }
 
+    /**
+     * Evicts entries of each segment, whose free capacity is below the low watermark, until its free capacity
+     * reaches the high watermark. The segment lock is only held for batches of
+     * {@link #BACKGROUND_EVICTION_BATCH_SIZE} entries, so that puts are not blocked for long.
+     */
+    private void evictInBackground() {
+        synchronized (maintenanceLock) {
+            try {
+                long segmentCapacity = capacity / maps.length;
+                long lowWatermark = (long) (segmentCapacity * evictionLowWatermark);
+                long highWatermark = (long) (segmentCapacity * evictionHighWatermark);
+
+                for (OffHeapLinkedMap map : maps) {
+                    // hash entries queued to be freed are still allocated
+                    if (map.freeCapacity() - map.pendingFreeBytes() >= lowWatermark) {
+                        continue;
+                    }
+
+                    while (!maintenanceStopped && map.freeCapacity() - map.pendingFreeBytes() < highWatermark) {
+                        if (map.evictEntries(highWatermark, BACKGROUND_EVICTION_BATCH_SIZE) == 0) {
+                            break;
+                        }
+                    }
+
+                    if (maintenanceStopped) {
+                        return;
+                    }
+                }
+            } catch (Throwable e) {
+                // must not propagate, that would cancel the periodic task
+                LOGGER.warn("Background eviction failed", e);
+            }
+        }
+    }
+
+    /**
+     * Removes expired entries of all segments. The segment lock is only held while examining
+     * {@link #SWEEP_BATCH_SIZE} timeouts, so that puts are not blocked for long.
+     */
+    private void sweepExpired() {
+        synchronized (maintenanceLock) {
+            long start = System.nanoTime();
+            try {
+                for (OffHeapLinkedMap map : maps) {
+                    boolean completed;
+                    do {
+                        completed = map.sweepExpired(SWEEP_BATCH_SIZE);
+                    } while (!completed && !maintenanceStopped);
+
+                    if (maintenanceStopped) {
+                        return;
+                    }
+                }
+            } catch (Throwable e) {
+                // must not propagate, that would cancel the periodic task
+                LOGGER.warn("Expiration sweep failed", e);
+            } finally {
+                sweepNanos += System.nanoTime() - start;
+            }
+        }
+    }
+
+    private void stopMaintenance() {
+        if (backgroundEviction == null && sweep == null) {
+            return;
+        }
+
+        maintenanceStopped = true;
+        if (backgroundEviction != null) {
+            backgroundEviction.cancel(false);
+        }
+        if (sweep != null) {
+            sweep.cancel(false);
+        }
+        if (maintenanceExecutor != null) {
+            maintenanceExecutor.shutdown();
+        }
+
+        // wait for a running background eviction or sweep, it stops after its current batch
+        synchronized (maintenanceLock) {
+            LOGGER.debug("Background maintenance stopped");
+        }
+    }
+
     @Override
     public void close() {
         closed = true;
+        stopMaintenance();
         if (executorService != null) {
             try {
                 Thread.sleep(500);
@@ -691,16 +1254,71 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             map.resetStatistics();
         }
         putFailCount = 0;
+        sweepNanos = 0L;
     }
 
     @Override
     public OHCacheStats stats() {
         long rehashes = 0L;
-        for (OffHeapLinkedMap map : maps) {
+        long rehashesInProgress = 0L;
+        long rehashPendingBuckets = 0L;
+        long lockAcquisitions = 0L;
+        long lockSpins = 0L;
+        long lockParks = 0L;
+        long lockWaitNanos = 0L;
+        long readBufferDrained = 0L;
+        long readBufferDropped = 0L;
+        long edenCapacity = 0L;
+        long edenGrowCount = 0L;
+        long edenShrinkCount = 0L;
+        double[][] edenSizeHistory = new double[maps.length][];
+        IAllocator allocator = Uns.getAllocator();
+        SlabAllocator slabAllocator = allocator instanceof SlabAllocator ? (SlabAllocator) allocator : null;
+        for (int i = 0; i < maps.length; i++) {
+            OffHeapLinkedMap map = maps[i];
             rehashes += map.rehashes();
-        }
-        return new OHCacheStats(hitCount(), missCount(), evictedEntries(), expiredEntries(), perSegmentSizes(), size(), capacity(), freeCapacity(), rehashes,
-                putAddCount(), putReplaceCount(), putFailCount, removeCount(), Uns.getTotalAllocated(), 0L);
+            SegmentLock segmentLock = map.segmentLock();
+            lockAcquisitions += segmentLock.acquisitions();
+            lockSpins += segmentLock.spins();
+            lockParks += segmentLock.parks();
+            lockWaitNanos += segmentLock.waitNanos();
+            readBufferDrained += map.readBufferDrained();
+            readBufferDropped += map.readBufferDropped();
+            if (map.rehashInProgress()) {
+                rehashesInProgress++;
+                rehashPendingBuckets += map.rehashPendingBuckets();
+            }
+            edenCapacity += map.edenCapacity();
+            edenGrowCount += map.edenGrowCount();
+            edenShrinkCount += map.edenShrinkCount();
+            edenSizeHistory[i] = map.edenSizeHistory();
+        }
+        OHCacheStats.Builder builder = OHCacheStats.newBuilder(hitCount(), missCount(), evictedEntries(), expiredEntries(), perSegmentSizes(), size(),
+                capacity(), freeCapacity(), rehashes, putAddCount(), putReplaceCount(), putFailCount, removeCount(), Uns.getTotalAllocated(), 0L)
+                .rehashesInProgress(rehashesInProgress)
+                .rehashPendingBuckets(rehashPendingBuckets)
+                .lockAcquisitions(lockAcquisitions)
+                .lockSpins(lockSpins)
+                .lockParks(lockParks)
+                .lockWaitNanos(lockWaitNanos)
+                .readBufferDrained(readBufferDrained)
+                .readBufferDropped(readBufferDropped)
+                .refreshCount(refreshCount())
+                .backgroundEvictionCount(backgroundEvictedEntries())
+                .pendingFreeBytes(pendingFreeBytes())
+                .sweepNanos(sweepNanos)
+                .sweptBytes(sweptBytes())
+                .edenCapacity(edenCapacity)
+                .edenGrowCount(edenGrowCount)
+                .edenShrinkCount(edenShrinkCount)
+                .edenSizeHistory(edenSizeHistory)
+                .entryOverhead(Util.dataOffset(headerFields));
+        if (slabAllocator != null) {
+            builder.slabReserved(slabAllocator.getSlabReserved())
+                   .slabAssigned(slabAllocator.getSlabAssigned())
+                   .slabUsed(slabAllocator.getSlabUsed());
+        }
+        return builder.build();
     }
 
     private long putAddCount() {
@@ -719,6 +1337,14 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return putReplaceCount;
     }
 
+    private long refreshCount() {
+        long refreshCount = 0L;
+        for (OffHeapLinkedMap map : maps) {
+            refreshCount += map.refreshCount();
+        }
+        return refreshCount;
+    }
+
     private long removeCount() {
         long removeCount = 0L;
         for (OffHeapLinkedMap map : maps) {
@@ -752,11 +1378,28 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
     public long freeCapacity() {
         long freeCapacity = 0L;
         for (OffHeapLinkedMap map : maps) {
-            freeCapacity += map.freeCapacity();
+            // memory of entries waiting to be freed is still in use
+            freeCapacity += map.freeCapacity() - map.pendingFreeBytes();
         }
         return freeCapacity;
     }
 
+    private long pendingFreeBytes() {
+        long pendingFreeBytes = 0L;
+        for (OffHeapLinkedMap map : maps) {
+            pendingFreeBytes += map.pendingFreeBytes();
+        }
+        return pendingFreeBytes;
+    }
+
+    private long sweptBytes() {
+        long sweptBytes = 0L;
+        for (OffHeapLinkedMap map : maps) {
+            sweptBytes += map.sweptBytes();
+        }
+        return sweptBytes;
+    }
+
     private long evictedEntries() {
         long evictedEntries = 0L;
         for (OffHeapLinkedMap map : maps) {
@@ -765,6 +1408,14 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return evictedEntries;
     }
 
+    private long backgroundEvictedEntries() {
+        long backgroundEvictedEntries = 0L;
+        for (OffHeapLinkedMap map : maps) {
+            backgroundEvictedEntries += map.backgroundEvictedEntries();
+        }
+        return backgroundEvictedEntries;
+    }
+
     private long expiredEntries() {
         long expiredEntries = 0L;
         for (OffHeapLinkedMap map : maps) {
@@ -931,7 +1582,8 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
                         eod = true;
                         throw new EOFException();
                     }
-                    HashEntries.init(0L, keyLen, 0, bufAdr, Util.SENTINEL_NOT_PRESENT, defaultExpireAt());
+                    HashEntries.setHeaderFields(bufAdr, 0);
+                    HashEntries.init(0L, keyLen, 0, bufAdr, Util.SENTINEL_NOT_PRESENT, 0L);
                     next = keySerializer.deserialize(Uns.directBufferFor(bufAdr + Util.ENTRY_OFF_DATA, 0, keyLen, true));
                 } catch (IOException e) {
                     throw new RuntimeException(e);
@@ -980,9 +1632,9 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         int keyLen = Uns.getIntFromByteArray(hashKeyValueLen, (int) (Util.ENTRY_OFF_KEY_LENGTH - Util.ENTRY_OFF_HASH));
 
         long kvLen = Util.roundUpTo8(keyLen) + valueLen;
-        long totalLen = kvLen + Util.ENTRY_OFF_DATA;
+        long totalLen = kvLen + Util.dataOffset(headerFields);
         long hashEntryAdr;
-        if ((maxEntrySize > 0L && totalLen > maxEntrySize) || (hashEntryAdr = Uns.allocate(totalLen, throwOOME)) == 0L) {
+        if ((maxEntrySize > 0L && totalLen > maxEntrySize) || (hashEntryAdr = allocateEntry(totalLen)) == 0L) {
             if (channel instanceof SeekableByteChannel) {
                 SeekableByteChannel sc = (SeekableByteChannel) channel;
                 sc.position(sc.position() + kvLen);
@@ -1107,7 +1759,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             } finally {
                 for (long hashEntryAdr : hotPerMap) {
                     if (hashEntryAdr != 0L) {
-                        HashEntries.dereference(hashEntryAdr);
+                        dereference(hashEntryAdr);
                     }
                 }
             }
@@ -1116,34 +1768,45 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return cnt;
     }
 
-    private static boolean serializeEntry(WritableByteChannel channel, long hashEntryAdr) throws IOException {
+    private boolean serializeEntry(WritableByteChannel channel, long hashEntryAdr) throws IOException {
         try {
             int keyLen = HashEntries.getKeyLen(hashEntryAdr);
             int valueLen = HashEntries.getValueLen(hashEntryAdr);
 
-            long totalLen = Util.SERIALIZED_ENTRY_SIZE + Util.roundUpTo8(keyLen) + valueLen;
+            long kvLen = Util.roundUpTo8(keyLen) + valueLen;
 
-            // write hash, keyLen, valueLen + key + value
-            Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_HASH, totalLen, true));
+            // write hash, keyLen, valueLen + key + value - the optional header fields are not serialized
+            long dataOffset = HashEntries.getDataOffset(hashEntryAdr);
+            if (dataOffset == Util.ENTRY_OFF_DATA) {
+                Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_HASH, Util.SERIALIZED_ENTRY_SIZE + kvLen, true));
+            } else {
+                Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_HASH, Util.SERIALIZED_ENTRY_SIZE, true));
+                Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, dataOffset, kvLen, true));
+            }
 
             return true;
         } finally {
-            HashEntries.dereference(hashEntryAdr);
+            dereference(hashEntryAdr);
         }
     }
 
-    private static boolean serializeKey(WritableByteChannel channel, long hashEntryAdr) throws IOException {
+    private boolean serializeKey(WritableByteChannel channel, long hashEntryAdr) throws IOException {
         try {
             long keyLen = HashEntries.getKeyLen(hashEntryAdr);
 
-            long totalLen = Util.SERIALIZED_KEY_LEN_SIZE + keyLen;
-
-            // write keyLen + key
-            Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_KEY_LENGTH, totalLen, true));
+            long dataOffset = HashEntries.getDataOffset(hashEntryAdr);
+            if (dataOffset == Util.ENTRY_OFF_KEY_LENGTH + Util.SERIALIZED_KEY_LEN_SIZE) {
+                // write keyLen + key
+                Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_KEY_LENGTH, Util.SERIALIZED_KEY_LEN_SIZE + keyLen, true));
+            } else {
+                // optional header fields between keyLen and key
+                Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_KEY_LENGTH, Util.SERIALIZED_KEY_LEN_SIZE, true));
+                Util.writeFully(channel, Uns.directBufferFor(hashEntryAdr, dataOffset, keyLen, true));
+            }
 
             return true;
         } finally {
-            HashEntries.dereference(hashEntryAdr);
+            dereference(hashEntryAdr);
         }
     }
 
@@ -1153,18 +1816,140 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
-        // could be improved by grouping puts by segment - but increases heap pressure and complexity - decide later
-        for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
-            put(entry.getKey(), entry.getValue());
+        putAllBatch(m);
+    }
+
+    @Override
+    public BatchResult putAllBatch(Map<? extends K, ? extends V> m) {
+        long added = 0L;
+        long replaced = 0L;
+        long rejected = 0L;
+        long evicted = 0L;
+
+        int batchSize = Math.max(1, Math.min(m.size(), BULK_BATCH_SIZE));
+        long[] hashEntryAdrs = new long[batchSize];
+        long[] sorted = new long[batchSize];
+        int[] results = new int[batchSize];
+        long expireAt = defaultExpireAt();
+
+        if (m.size() > BULK_BATCH_SIZE) {
+            // grow the hash tables once for all entries instead of for each batch
+            long perSegment = (m.size() + maps.length - 1) / maps.length;
+            for (OffHeapLinkedMap map : maps) {
+                map.presizeFor(perSegment);
+            }
+        }
+
+        Iterator<? extends Map.Entry<? extends K, ? extends V>> iter = m.entrySet().iterator();
+        while (iter.hasNext()) {
+            // serialize the next batch of entries without holding any segment lock
+            int n = 0;
+            boolean staged = false;
+            try {
+                while (n < batchSize && iter.hasNext()) {
+                    Map.Entry<? extends K, ? extends V> entry = iter.next();
+                    K k = entry.getKey();
+                    V v = entry.getValue();
+                    if (k == null || v == null) {
+                        throw new NullPointerException();
+                    }
+
+                    int keyLen = keySize(k);
+                    int valueLen = valueSize(v);
+                    long bytes = Util.allocLen(headerFields, keyLen, valueLen);
+
+                    long hashEntryAdr;
+                    if ((maxEntrySize > 0L && bytes > maxEntrySize) || (hashEntryAdr = allocateEntry(bytes)) == 0L) {
+                        // entry too large to be inserted or OS is not able to provide enough memory
+                        putFailCount++;
+                        rejected++;
+
+                        remove(k);
+
+                        continue;
+                    }
+
+                    long hash = serializeForPut(k, v, keyLen, valueLen, hashEntryAdr);
+                    HashEntries.init(hash, keyLen, valueLen, hashEntryAdr, Util.SENTINEL_NOT_PRESENT, expireAt);
+                    hashEntryAdrs[n++] = hashEntryAdr;
+                }
+                staged = true;
+            } finally {
+                if (!staged) {
+                    for (int i = 0; i < n; i++) {
+                        Uns.free(hashEntryAdrs[i]);
+                    }
+                }
+            }
+
+            int[] segmentOffsets = sortBySegment(hashEntryAdrs, n, sorted);
+            // hash entries of segments not reached because of an exception are freed as well
+            Arrays.fill(results, 0, n, OffHeapLinkedMap.PUT_FAILED);
+            try {
+                for (int seg = 0; seg < maps.length; seg++) {
+                    int off = segmentOffsets[seg];
+                    int count = segmentOffsets[seg + 1] - off;
+                    if (count > 0) {
+                        evicted += maps[seg].putEntries(sorted, off, count, results);
+                    }
+                }
+            } finally {
+                for (int i = 0; i < n; i++) {
+                    switch (results[i]) {
+                        case OffHeapLinkedMap.PUT_ADDED:
+                            added++;
+                            break;
+                        case OffHeapLinkedMap.PUT_REPLACED:
+                            replaced++;
+                            break;
+                        default:
+                            Uns.free(sorted[i]);
+                            putFailCount++;
+                            rejected++;
+                            break;
+                    }
+                }
+            }
         }
+
+        return new BatchResult(added, replaced, rejected, evicted, 0L);
     }
 
     @Override
     public void removeAll(Iterable<K> iterable) {
-        // could be improved by grouping removes by segment - but increases heap pressure and complexity - decide later
-        for (K o : iterable) {
-            remove(o);
+        removeAllBatch(iterable);
+    }
+
+    @Override
+    public BatchResult removeAllBatch(Iterable<K> iterable) {
+        long removed = 0L;
+
+        int batchSize = iterable instanceof Collection ? Math.max(1, Math.min(((Collection<K>) iterable).size(), BULK_BATCH_SIZE)) : BULK_BATCH_SIZE;
+        KeyBuffer[] keySources = new KeyBuffer[batchSize];
+        KeyBuffer[] sortedKeySources = new KeyBuffer[batchSize];
+
+        Iterator<K> iter = iterable.iterator();
+        while (iter.hasNext()) {
+            int n = 0;
+            while (n < batchSize && iter.hasNext()) {
+                K k = iter.next();
+                if (k == null) {
+                    throw new NullPointerException();
+                }
+                keySources[n++] = newKeySource(k);
+            }
+
+            int[] segmentOffsets = sortBySegment(keySources, null, n, sortedKeySources, null);
+            for (int seg = 0; seg < maps.length; seg++) {
+                int off = segmentOffsets[seg];
+                int count = segmentOffsets[seg + 1] - off;
+                if (count > 0) {
+                    removed += maps[seg].removeEntries(sortedKeySources, off, count);
+                }
+            }
         }
+
+        return new BatchResult(0L, 0L, 0L, 0L, removed);
     }
 
     @Override
@@ -1181,7 +1966,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return new AbstractHotKeyIterator<K>(n) {
             @Override
             K buildResult(long hashEntryAdr) {
-                return keySerializer.deserialize(Uns.directBufferFor(hashEntryAdr + Util.ENTRY_OFF_DATA, 0, HashEntries.getKeyLen(hashEntryAdr), true));
+                return keySerializer.deserialize(Uns.directBufferFor(hashEntryAdr + HashEntries.getDataOffset(hashEntryAdr), 0, HashEntries.getKeyLen(hashEntryAdr), true));
             }
         };
     }
@@ -1191,7 +1976,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return new AbstractHotKeyIterator<ByteBuffer>(n) {
             @Override
             ByteBuffer buildResult(long hashEntryAdr) {
-                return Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_DATA, HashEntries.getKeyLen(hashEntryAdr), true);
+                return Uns.directBufferFor(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr), HashEntries.getKeyLen(hashEntryAdr), true);
             }
         };
     }
@@ -1211,7 +1996,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
         return new AbstractKeyIterator<ByteBuffer>() {
             @Override
             ByteBuffer buildResult(long hashEntryAdr) {
-                return Uns.directBufferFor(hashEntryAdr, Util.ENTRY_OFF_DATA, HashEntries.getKeyLen(hashEntryAdr), true);
+                return Uns.directBufferFor(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr), HashEntries.getKeyLen(hashEntryAdr), true);
             }
         };
     }
@@ -1234,7 +2019,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
         private void derefLast() {
             if (lastHashEntryAdr != 0L) {
-                HashEntries.dereference(lastHashEntryAdr);
+                dereference(lastHashEntryAdr);
                 lastHashEntryAdr = 0L;
                 lastSegment = null;
             }
@@ -1246,7 +2031,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
             while (listIndex < hashEntryAdrs.size()) {
                 long hashEntryAdr = hashEntryAdrs.getLong(listIndex++);
-                HashEntries.dereference(hashEntryAdr);
+                dereference(hashEntryAdr);
             }
         }
 
@@ -1343,7 +2128,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
 
         private void derefLast() {
             if (lastHashEntryAdr != 0L) {
-                HashEntries.dereference(lastHashEntryAdr);
+                dereference(lastHashEntryAdr);
                 lastHashEntryAdr = 0L;
             }
         }
@@ -1355,7 +2140,7 @@ public final class OHCacheLinkedImpl<K, V> implements OHCache<K, V> {
             while (hotPerMap != null && subIndex < hotPerMap.length) {
                 long hashEntryAdr = hotPerMap[subIndex++];
                 if (hashEntryAdr != 0L) {
-                    HashEntries.dereference(hashEntryAdr);
+                    dereference(hashEntryAdr);
                 }
             }
         }
@@ -0,0 +1,143 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import org.caffinitas.ohc.CacheSerializer;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.caffinitas.ohc.OHLongCache;
+
+/**
+ * {@link OHLongCache} on top of the linked implementation. Keys are written to the entry in native byte order
+ * and hashed using {@link Hasher.LongHash}.
+ */
+public final class OHLongCacheLinkedImpl<V> implements OHLongCache<V> {
+
+    /**
+     * Only used for the few code paths that still deal with key objects, e.g. iterating keys.
+     * Uses the same native byte order as the primitive code paths.
+     */
+    static final CacheSerializer<Long> LONG_KEY_SERIALIZER = new CacheSerializer<Long>() {
+        @Override
+        public void serialize(Long key, ByteBuffer buf) {
+            long k = key;
+            buf.putLong(buf.order() == ByteOrder.nativeOrder() ? k : Long.reverseBytes(k));
+        }
+
+        @Override
+        public Long deserialize(ByteBuffer buf) {
+            long k = buf.getLong();
+            return buf.order() == ByteOrder.nativeOrder() ? k : Long.reverseBytes(k);
+        }
+
+        @Override
+        public int serializedSize(Long key) {
+            return 8;
+        }
+    };
+
+    private final OHCacheLinkedImpl<Long, V> cache;
+
+    @SuppressWarnings("unchecked")
+    public OHLongCacheLinkedImpl(OHCacheBuilder<?, V> builder) {
+        this.cache = new OHCacheLinkedImpl<>((OHCacheBuilder<Long, V>) builder, LONG_KEY_SERIALIZER, new Hasher.LongHash());
+    }
+
+    @Override
+    public boolean put(long key, V value) {
+        return cache.put(key, value, false, OHCache.USE_DEFAULT_EXPIRE_AT);
+    }
+
+    @Override
+    public boolean put(long key, V value, long expireAt) {
+        return cache.put(key, value, false, expireAt);
+    }
+
+    @Override
+    public boolean putIfAbsent(long key, V value) {
+        return cache.put(key, value, true, OHCache.USE_DEFAULT_EXPIRE_AT);
+    }
+
+    @Override
+    public boolean putIfAbsent(long key, V value, long expireAt) {
+        return cache.put(key, value, true, expireAt);
+    }
+
+    @Override
+    public V get(long key) {
+        return cache.get(key);
+    }
+
+    @Override
+    public boolean containsKey(long key) {
+        return cache.containsKey(key);
+    }
+
+    @Override
+    public boolean remove(long key) {
+        return cache.remove(key);
+    }
+
+    @Override
+    public void clear() {
+        cache.clear();
+    }
+
+    @Override
+    public void resetStatistics() {
+        cache.resetStatistics();
+    }
+
+    @Override
+    public long size() {
+        return cache.size();
+    }
+
+    @Override
+    public long capacity() {
+        return cache.capacity();
+    }
+
+    @Override
+    public long freeCapacity() {
+        return cache.freeCapacity();
+    }
+
+    @Override
+    public OHCacheStats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public void setCapacity(long capacity) {
+        cache.setCapacity(capacity);
+    }
+
+    @Override
+    public void close() throws IOException {
+        cache.close();
+    }
+
+    @Override
+    public String toString() {
+        return getClass().getSimpleName() + '(' + cache + ')';
+    }
+}
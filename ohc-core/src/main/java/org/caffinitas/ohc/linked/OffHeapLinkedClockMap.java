@@ -0,0 +1,210 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import org.caffinitas.ohc.OHCacheBuilder;
+
+/**
+ * CLOCK eviction. The entries form a circular list in insertion order, using the LRU pointers of the hash entries.
+ * A hit just sets the entry's access bit. The clock hand points to the oldest entry, entries with the access bit
+ * set get a second chance: the bit is cleared and the hand advances.
+ */
+final class OffHeapLinkedClockMap extends OffHeapLinkedMap {
+    private long hand;
+
+    private long freeCapacity;
+    private long capacity;
+
+    OffHeapLinkedClockMap(OHCacheBuilder<?, ?> builder, long freeCapacity) {
+        super(builder);
+
+        this.freeCapacity = freeCapacity;
+        this.capacity = freeCapacity;
+    }
+
+    @Override
+    void addToLruAndUpdateCapacity(long hashEntryAdr) {
+        long h = hand;
+        if (h == 0L) {
+            HashEntries.setLRUNext(hashEntryAdr, hashEntryAdr);
+            HashEntries.setLRUPrev(hashEntryAdr, hashEntryAdr);
+            hand = hashEntryAdr;
+        } else {
+            // insert just before the hand, so the new entry is the last one visited
+            long prev = HashEntries.getLRUPrev(h);
+            HashEntries.setLRUNext(hashEntryAdr, h);
+            HashEntries.setLRUPrev(hashEntryAdr, prev);
+            HashEntries.setLRUNext(prev, hashEntryAdr);
+            HashEntries.setLRUPrev(h, hashEntryAdr);
+        }
+
+        freeCapacity -= HashEntries.getAllocLen(hashEntryAdr);
+    }
+
+    @Override
+    void removeFromLruAndUpdateCapacity(long hashEntryAdr) {
+        long next = HashEntries.getLRUNext(hashEntryAdr);
+        if (next == hashEntryAdr) {
+            hand = 0L;
+        } else {
+            long prev = HashEntries.getLRUPrev(hashEntryAdr);
+            HashEntries.setLRUPrev(next, prev);
+            HashEntries.setLRUNext(prev, next);
+            if (hand == hashEntryAdr) {
+                hand = next;
+            }
+        }
+
+        freeCapacity += HashEntries.getAllocLen(hashEntryAdr);
+    }
+
+    @Override
+    void replaceInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes) {
+        long next = HashEntries.getLRUNext(hashEntryAdr);
+        if (next == hashEntryAdr) {
+            HashEntries.setLRUNext(newHashEntryAdr, newHashEntryAdr);
+            HashEntries.setLRUPrev(newHashEntryAdr, newHashEntryAdr);
+        } else {
+            long prev = HashEntries.getLRUPrev(hashEntryAdr);
+            HashEntries.setLRUNext(newHashEntryAdr, next);
+            HashEntries.setLRUPrev(newHashEntryAdr, prev);
+            HashEntries.setLRUPrev(next, newHashEntryAdr);
+            HashEntries.setLRUNext(prev, newHashEntryAdr);
+        }
+        if (hand == hashEntryAdr) {
+            hand = newHashEntryAdr;
+        }
+        HashEntries.setAccess(newHashEntryAdr, HashEntries.getAccess(hashEntryAdr));
+
+        freeCapacity -= bytes;
+    }
+
+    @Override
+    void clearLruAndCapacity() {
+        hand = 0L;
+
+        freeCapacity = capacity;
+    }
+
+    @Override
+    void touch(long hashEntryAdr) {
+        // only write, if necessary, to not dirty the cache line
+        if (HashEntries.getAccess(hashEntryAdr) == 0) {
+            HashEntries.setAccess(hashEntryAdr, 1);
+        }
+    }
+
+    @Override
+    long freeCapacity() {
+        return freeCapacity;
+    }
+
+    @Override
+    void updateFreeCapacity(long diff) {
+        boolean wasFirst = lock();
+        try {
+            freeCapacity += diff;
+            capacity += diff;
+        } finally {
+            unlock(wasFirst);
+        }
+    }
+
+    @Override
+    LongArrayList ensureFreeSpaceForNewEntry(long bytes) {
+        if (freeCapacity < bytes) {
+            removeExpired();
+        }
+
+        LongArrayList derefList = null;
+        while (freeCapacity < bytes) {
+            long eldestHashAdr = removeEldest();
+            if (eldestHashAdr == 0L) {
+                break;
+            }
+            if (derefList == null) {
+                derefList = new LongArrayList();
+            }
+            derefList.add(eldestHashAdr);
+        }
+        return derefList;
+    }
+
+    @Override
+    LongArrayList evictEldest(long targetFreeCapacity, int maxEntries) {
+        LongArrayList derefList = null;
+        for (int i = 0; i < maxEntries && freeCapacity < targetFreeCapacity; i++) {
+            long eldestHashAdr = removeEldest();
+            if (eldestHashAdr == 0L) {
+                break;
+            }
+            if (derefList == null) {
+                derefList = new LongArrayList();
+            }
+            derefList.add(eldestHashAdr);
+        }
+        return derefList;
+    }
+
+    @Override
+    boolean hasFreeSpaceForNewEntry(long bytes) {
+        return freeCapacity >= bytes;
+    }
+
+    private long removeEldest() {
+        long hashEntryAdr = hand;
+        if (hashEntryAdr == 0L) {
+            return 0L;
+        }
+
+        // terminates after one revolution at the latest, since all access bits have been cleared then
+        while (HashEntries.getAccess(hashEntryAdr) != 0) {
+            HashEntries.setAccess(hashEntryAdr, 0);
+            hashEntryAdr = HashEntries.getLRUNext(hashEntryAdr);
+        }
+        hand = hashEntryAdr;
+
+        removeInternal(hashEntryAdr, -1L, true);
+        size--;
+        evictedEntries++;
+
+        return hashEntryAdr;
+    }
+
+    @Override
+    long[] hotN(int n) {
+        boolean wasFirst = lock();
+        try {
+            drainReadBuffer();
+
+            long[] r = new long[n];
+            int i = 0;
+            if (hand != 0L && n > 0) {
+                // most recently added entries first
+                long newest = HashEntries.getLRUPrev(hand);
+                long hashEntryAdr = newest;
+                do {
+                    r[i++] = hashEntryAdr;
+                    HashEntries.reference(hashEntryAdr);
+                    hashEntryAdr = HashEntries.getLRUPrev(hashEntryAdr);
+                } while (hashEntryAdr != newest && i < n);
+            }
+            return r;
+        } finally {
+            unlock(wasFirst);
+        }
+    }
+}
@@ -71,7 +71,7 @@ class OffHeapLinkedLRUMap extends OffHeapLinkedMap {
     }
 
     @Override
-    void replaceSentinelInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes) {
+    void replaceInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes) {
         // TODO also handle the case, that the sentinel has been evicted
 
         long next = HashEntries.getLRUNext(hashEntryAdr);
@@ -94,7 +94,6 @@ class OffHeapLinkedLRUMap extends OffHeapLinkedMap {
             HashEntries.setLRUNext(prev, newHashEntryAdr);
         }
 
-        // note: only need to add bytes since this method only replaces a sentinel with the real value
         freeCapacity -= bytes;
     }
 
@@ -176,6 +175,22 @@ class OffHeapLinkedLRUMap extends OffHeapLinkedMap {
         return derefList;
     }
 
+    @Override
+    LongArrayList evictEldest(long targetFreeCapacity, int maxEntries) {
+        LongArrayList derefList = null;
+        for (int i = 0; i < maxEntries && freeCapacity < targetFreeCapacity; i++) {
+            long eldestHashAdr = removeEldest();
+            if (eldestHashAdr == 0L) {
+                break;
+            }
+            if (derefList == null) {
+                derefList = new LongArrayList();
+            }
+            derefList.add(eldestHashAdr);
+        }
+        return derefList;
+    }
+
     @Override
     boolean hasFreeSpaceForNewEntry(long bytes) {
         return freeCapacity >= bytes;
@@ -198,6 +213,8 @@ class OffHeapLinkedLRUMap extends OffHeapLinkedMap {
     long[] hotN(int n) {
         boolean wasFirst = lock();
         try {
+            drainReadBuffer();
+
             long[] r = new long[n];
             int i = 0;
             for (long hashEntryAdr = lruHead; hashEntryAdr != 0L && i < n; hashEntryAdr = HashEntries.getLRUNext(hashEntryAdr)) {
@@ -20,6 +20,7 @@ import java.util.concurrent.atomic.AtomicLongFieldUpdater;
 import org.caffinitas.ohc.OHCacheBuilder;
 import org.caffinitas.ohc.Ticker;
 import org.caffinitas.ohc.histo.EstimatedHistogram;
+import org.caffinitas.ohc.lock.SegmentLock;
 
 import com.google.common.primitives.Ints;
 
@@ -27,35 +28,89 @@ abstract class OffHeapLinkedMap {
     // maximum hash table size
     private static final int MAX_TABLE_SIZE = 1 << 30;
 
+    // results of putEntries()
+    static final int PUT_FAILED = 0;
+    static final int PUT_ADDED = 1;
+    static final int PUT_REPLACED = 2;
+
     long size;
     Table table;
 
+    // Incremental rehash: while oldTable is not null, buckets in oldTable below rehashIndex have
+    // already been migrated to table, all other buckets still live in oldTable.
+    private Table oldTable;
+    private int rehashIndex;
+    private final boolean incrementalRehash;
+    private final int incrementalRehashStep;
+    // whether the buckets of the hash tables carry tag words, see Table.getFirstCandidate()
+    private final boolean bucketTags;
+
     private long hitCount;
     private long missCount;
     private long putAddCount;
     private long putReplaceCount;
     private long removeCount;
+    private long refreshCount;
 
     private long threshold;
     private final float loadFactor;
 
     private long rehashes;
     long evictedEntries;
+    private long backgroundEvictedEntries;
     private long expiredEntries;
+    // bytes of expired hash entries removed by the expiration sweeper
+    private long sweptBytes;
 
-    // Replacement for Unsafe.monitorEnter/monitorExit. Uses the thread-ID to indicate a lock
-    // using a CAS operation on the primitive instance field.
+    private final SegmentLock segmentLock;
     private final boolean unlocked;
-    private static final AtomicLongFieldUpdater<OffHeapLinkedMap> lockFieldUpdater = AtomicLongFieldUpdater.newUpdater(OffHeapLinkedMap.class, "lock");
+    // whether getEntry() can use the shared lock, requires accesses to be recorded in readBuffer
+    private final boolean sharedReads;
+
+    // Accesses recorded for touch() and hit/miss counters of lookups not holding the lock exclusively.
+    private final ReadBuffer readBuffer;
+    private final ReadBuffer.DrainHandler readBufferDrainHandler = new ReadBuffer.DrainHandler() {
+        @Override
+        public boolean accessed(long hashEntryAdr, long hash) {
+            for (long adr = tableFor(hash).getFirst(hash); adr != 0L; adr = HashEntries.getNext(adr)) {
+                if (adr == hashEntryAdr) {
+                    touch(adr);
+                    return true;
+                }
+            }
+            return false;
+        }
+    };
+
+    // Optimistic reads: the stamp is odd while a thread holds the lock, see getEntryOptimistic().
+    // Unlinked hash entries and replaced tables are retired via readers.
+    final boolean optimisticReads;
+    private volatile long stamp;
+    private static final AtomicLongFieldUpdater<OffHeapLinkedMap> stampFieldUpdater = AtomicLongFieldUpdater.newUpdater(OffHeapLinkedMap.class, "stamp");
+    private final OptimisticReaders readers;
+
+    // deferred freeing of removed hash entries, null if hash entries are freed immediately
+    private final ReclaimQueue reclaimQueue;
 
     private final boolean throwOOME;
 
     private final Ticker ticker;
 
-    private final Timeouts timeouts;
-    private final Timeouts.TimeoutHandler timeoutsExpireHandler = new Timeouts.TimeoutHandler() {
+    // whether the write time of hash entries is maintained, required for refresh-after-write
+    private final boolean writeTimes;
+
+    private final TimerWheel timeouts;
+    private final TimerWheel.TimeoutHandler timeoutsExpireHandler = new TimerWheel.TimeoutHandler() {
+        @Override
+        public void expired(long hashEntryAdr) {
+            removeEntry(hashEntryAdr, false);
+        }
+    };
+    private final TimerWheel.TimeoutHandler timeoutsSweepHandler = new TimerWheel.TimeoutHandler() {
         @Override
         public void expired(long hashEntryAdr) {
+            sweptBytes += HashEntries.getAllocLen(hashEntryAdr);
+            expiredEntries++;
             removeEntry(hashEntryAdr, false);
         }
     };
@@ -64,11 +119,26 @@ abstract class OffHeapLinkedMap {
         this.throwOOME = builder.isThrowOOME();
 
         this.ticker = builder.getTicker();
+        this.writeTimes = builder.getRefreshAfterWriteMillis() > 0L;
 
-        // 64 hash slots, each for 128ms
-        this.timeouts = builder.isTimeouts() ? new Timeouts(ticker, builder.getTimeoutsSlots(), builder.getTimeoutsPrecision()) : null;
+        // 4 levels of 64 buckets, the lowest level with 1024ms per bucket
+        this.timeouts = builder.isTimeouts() ? new TimerWheel(ticker, builder.getTimeoutsSlots(), builder.getTimeoutsPrecision()) : null;
 
         this.unlocked = builder.isUnlocked();
+        this.segmentLock = SegmentLock.create(builder.getLockType());
+
+        this.optimisticReads = builder.isOptimisticReads() && !unlocked;
+        int stripes = ReadBuffer.stripeCount();
+        this.readBuffer = (builder.isReadBuffers() || optimisticReads) && !unlocked ? new ReadBuffer(stripes) : null;
+        this.reclaimQueue = builder.isDeferredFree() ? new ReclaimQueue(Math.max(builder.getDeferredFreeBatchSize(), 1), builder.getExecutorService()) : null;
+
+        this.readers = optimisticReads ? new OptimisticReaders(stripes, reclaimQueue) : null;
+        this.sharedReads = segmentLock.isShared() && readBuffer != null;
+
+        this.incrementalRehash = builder.isIncrementalRehash();
+        this.incrementalRehashStep = Math.max(builder.getIncrementalRehashStep(), 1);
+
+        this.bucketTags = builder.isBucketTags();
 
         int hts = builder.getHashTableSize();
         if (hts <= 0) {
@@ -78,7 +148,7 @@ abstract class OffHeapLinkedMap {
             hts = 256;
         }
         int msz = Ints.checkedCast(Util.roundUpToPowerOf2(hts, MAX_TABLE_SIZE));
-        table = Table.create(msz, throwOOME);
+        table = Table.create(msz, bucketTags, throwOOME);
         if (table == null) {
             throw new RuntimeException("unable to allocate off-heap memory for segment");
         }
@@ -95,9 +165,19 @@ abstract class OffHeapLinkedMap {
         boolean wasFirst = lock();
         try {
             try {
+                if (readers != null) {
+                    readers.releaseAll();
+                }
+                if (oldTable != null) {
+                    oldTable.release();
+                    oldTable = null;
+                }
                 table.release();
                 table = null;
             } finally {
+                if (reclaimQueue != null) {
+                    reclaimQueue.drain();
+                }
                 if (timeouts != null) {
                     timeouts.release();
                 }
@@ -112,11 +192,11 @@ abstract class OffHeapLinkedMap {
     }
 
     long hitCount() {
-        return hitCount;
+        return readBuffer != null ? hitCount + readBuffer.hitCount() : hitCount;
     }
 
     long missCount() {
-        return missCount;
+        return readBuffer != null ? missCount + readBuffer.missCount() : missCount;
     }
 
     long putAddCount() {
@@ -131,40 +211,118 @@ abstract class OffHeapLinkedMap {
         return removeCount;
     }
 
+    long refreshCount() {
+        return refreshCount;
+    }
+
     void resetStatistics() {
         rehashes = 0L;
         evictedEntries = 0L;
+        backgroundEvictedEntries = 0L;
+        sweptBytes = 0L;
         hitCount = 0L;
         missCount = 0L;
         putAddCount = 0L;
         putReplaceCount = 0L;
         removeCount = 0L;
+        refreshCount = 0L;
+        segmentLock.resetStatistics();
+        if (readBuffer != null) {
+            readBuffer.resetStatistics();
+        }
     }
 
     long rehashes() {
         return rehashes;
     }
 
+    long readBufferDrained() {
+        return readBuffer != null ? readBuffer.drainedCount() : 0L;
+    }
+
+    long readBufferDropped() {
+        return readBuffer != null ? readBuffer.droppedCount() : 0L;
+    }
+
+    SegmentLock segmentLock() {
+        return segmentLock;
+    }
+
+    boolean rehashInProgress() {
+        return oldTable != null;
+    }
+
+    long rehashPendingBuckets() {
+        Table old = oldTable;
+        return old != null ? old.size() - rehashIndex : 0L;
+    }
+
     abstract long freeCapacity();
 
     abstract void updateFreeCapacity(long diff);
 
+    /**
+     * Bytes of removed hash entries, that are queued to be freed.
+     */
+    long pendingFreeBytes() {
+        return reclaimQueue != null ? reclaimQueue.pendingBytes() : 0L;
+    }
+
     long evictedEntries() {
         return evictedEntries;
     }
 
+    long backgroundEvictedEntries() {
+        return backgroundEvictedEntries;
+    }
+
     long expiredEntries() {
         return expiredEntries;
     }
 
+    long sweptBytes() {
+        return sweptBytes;
+    }
+
+    /**
+     * Capacity of the eden generation, {@code 0} if the eviction algorithm has no eden generation.
+     */
+    long edenCapacity() {
+        return 0L;
+    }
+
+    long edenGrowCount() {
+        return 0L;
+    }
+
+    long edenShrinkCount() {
+        return 0L;
+    }
+
+    /**
+     * Eden sizes after the most recent adjustments of the adaptive eden size, oldest first.
+     */
+    double[] edenSizeHistory() {
+        return new double[0];
+    }
+
     int usedTimeouts() {
         return timeouts != null ? timeouts.used() : 0;
     }
 
     long getEntry(KeyBuffer key, boolean reference, boolean updateLRU) {
+        if (sharedReads) {
+            long hashEntryAdr = getEntryShared(key, reference, updateLRU);
+            if (hashEntryAdr != -1L) {
+                return hashEntryAdr;
+            }
+        }
+
         boolean wasFirst = lock();
         try {
-            for (long hashEntryAdr = table.getFirst(key.hash()); hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+            rehashStep();
+
+            for (long hashEntryAdr = tableFor(key.hash()).getFirstCandidate(key.hash()); hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
                 if (!key.sameKey(hashEntryAdr)) {
                     continue;
                 }
@@ -180,7 +338,7 @@ abstract class OffHeapLinkedMap {
                 }
 
                 if (updateLRU) {
-                    touch(hashEntryAdr);
+                    recordAccessLocked(hashEntryAdr, key.hash());
                 }
 
                 if (reference) {
@@ -196,6 +354,325 @@ abstract class OffHeapLinkedMap {
             return 0L;
         } finally {
             unlock(wasFirst);
+            reclaim();
+        }
+    }
+
+    /**
+     * Looks up the entries for {@code count} keys starting at {@code off}, taking the segment lock only once.
+     * All bucket heads are loaded before the first chain is walked, so that the cache misses of the lookups
+     * overlap. Found hash entries are referenced, their addresses are stored in {@code hashEntryAdrs} -
+     * {@code 0L} for keys without an entry.
+     */
+    void getEntries(KeyBuffer[] keys, int off, int count, long[] hashEntryAdrs) {
+        if (sharedReads) {
+            getEntriesShared(keys, off, count, hashEntryAdrs);
+            return;
+        }
+
+        int end = off + count;
+        boolean wasFirst = lock();
+        try {
+            rehashStep();
+
+            for (int i = off; i < end; i++) {
+                hashEntryAdrs[i] = tableFor(keys[i].hash()).getFirstCandidate(keys[i].hash());
+            }
+
+            boolean removed = false;
+            for (int i = off; i < end; i++) {
+                KeyBuffer key = keys[i];
+                // bucket heads loaded above may refer to a removed entry
+                long hashEntryAdr = removed ? tableFor(key.hash()).getFirstCandidate(key.hash()) : hashEntryAdrs[i];
+                for (; hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+                    if (key.sameKey(hashEntryAdr)) {
+                        break;
+                    }
+                }
+
+                if (hashEntryAdr != 0L) {
+                    long expireAt = HashEntries.getExpireAt(hashEntryAdr);
+                    if (expireAt > 0L && expireAt <= ticker.currentTimeMillis()) {
+                        // entry is expired, remove it
+                        expiredEntries++;
+                        removeEntry(hashEntryAdr);
+                        removed = true;
+                        hashEntryAdr = 0L;
+                    }
+                }
+
+                if (hashEntryAdr != 0L) {
+                    recordAccessLocked(hashEntryAdr, key.hash());
+                    HashEntries.reference(hashEntryAdr);
+                    hitCount++;
+                } else {
+                    missCount++;
+                }
+                hashEntryAdrs[i] = hashEntryAdr;
+            }
+        } finally {
+            unlock(wasFirst);
+            reclaim();
+        }
+    }
+
+    /**
+     * Like {@link #getEntries(KeyBuffer[], int, int, long[])} holding the segment lock in shared mode.
+     * Expired entries are reported as missing and left to the next lookup using the exclusive lock.
+     */
+    private void getEntriesShared(KeyBuffer[] keys, int off, int count, long[] hashEntryAdrs) {
+        int stripe = readBuffer.stripe();
+        int end = off + count;
+        long bufferFullAdr = 0L;
+        long bufferFullHash = 0L;
+        boolean wasFirst = segmentLock.lockShared();
+        try {
+            for (int i = off; i < end; i++) {
+                hashEntryAdrs[i] = tableFor(keys[i].hash()).getFirstCandidate(keys[i].hash());
+            }
+
+            for (int i = off; i < end; i++) {
+                KeyBuffer key = keys[i];
+                long hashEntryAdr = hashEntryAdrs[i];
+                for (; hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+                    if (key.sameKey(hashEntryAdr)) {
+                        break;
+                    }
+                }
+
+                if (hashEntryAdr != 0L) {
+                    long expireAt = HashEntries.getExpireAt(hashEntryAdr);
+                    if (expireAt > 0L && expireAt <= ticker.currentTimeMillis()) {
+                        hashEntryAdr = 0L;
+                    }
+                }
+
+                if (hashEntryAdr != 0L) {
+                    if (!readBuffer.record(stripe, hashEntryAdr, key.hash())) {
+                        // only the last access that did not fit into the read buffer is retried
+                        if (bufferFullAdr != 0L) {
+                            readBuffer.dropped(stripe);
+                        }
+                        bufferFullAdr = hashEntryAdr;
+                        bufferFullHash = key.hash();
+                    }
+                    HashEntries.reference(hashEntryAdr);
+                    readBuffer.hit(stripe);
+                } else {
+                    readBuffer.miss(stripe);
+                }
+                hashEntryAdrs[i] = hashEntryAdr;
+            }
+        } finally {
+            segmentLock.unlockShared(wasFirst);
+            if (bufferFullAdr != 0L) {
+                readBufferFull(stripe, bufferFullAdr, bufferFullHash);
+            }
+        }
+    }
+
+    /**
+     * Looks up an entry holding the segment lock in shared mode. Accesses are recorded in the read buffer.
+     *
+     * @return address of the hash entry, {@code 0L} if there is no entry for the key or {@code -1L} if the
+     * lookup requires the exclusive lock
+     */
+    private long getEntryShared(KeyBuffer key, boolean reference, boolean updateLRU) {
+        int stripe = readBuffer.stripe();
+        long hash = key.hash();
+        long hashEntryAdr = 0L;
+        boolean bufferFull = false;
+        boolean wasFirst = segmentLock.lockShared();
+        try {
+            for (hashEntryAdr = tableFor(hash).getFirstCandidate(hash); hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+                if (!key.sameKey(hashEntryAdr)) {
+                    continue;
+                }
+
+                long expireAt = HashEntries.getExpireAt(hashEntryAdr);
+                if (expireAt > 0L && expireAt <= ticker.currentTimeMillis()) {
+                    // expired entries are removed using the exclusive lock
+                    return -1L;
+                }
+
+                if (updateLRU) {
+                    bufferFull = !readBuffer.record(stripe, hashEntryAdr, hash);
+                }
+
+                if (reference) {
+                    HashEntries.reference(hashEntryAdr);
+                }
+
+                readBuffer.hit(stripe);
+                return hashEntryAdr;
+            }
+
+            readBuffer.miss(stripe);
+            return 0L;
+        } finally {
+            segmentLock.unlockShared(wasFirst);
+            if (bufferFull) {
+                readBufferFull(stripe, hashEntryAdr, hash);
+            }
+        }
+    }
+
+    /**
+     * Looks up an entry without acquiring the segment lock. Must be called between
+     * {@link #enterOptimisticRead()} and {@link #exitOptimisticRead(int)} - the returned hash entry
+     * is not referenced and must only be accessed before {@link #exitOptimisticRead(int)}.
+     *
+     * @return address of the hash entry, {@code 0L} if there is no entry for the key or {@code -1L} if the
+     * lookup could not be completed without the lock and the caller has to use {@link #getEntry(KeyBuffer, boolean, boolean)}
+     */
+    long getEntryOptimistic(KeyBuffer key, int stripe, boolean updateLRU) {
+        long stamp = this.stamp;
+        if ((stamp & 1L) != 0L) {
+            // writer active
+            return -1L;
+        }
+
+        long hash = key.hash();
+        int steps = 0;
+        for (long hashEntryAdr = tableFor(hash).getFirstCandidate(hash); hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+            if ((++steps & 63) == 0 && !validateStamp(stamp)) {
+                // bucket chains may be modified concurrently and must not be walked infinitely
+                return -1L;
+            }
+
+            if (!key.sameKey(hashEntryAdr)) {
+                continue;
+            }
+
+            // Hash entries are immutable and retired hash entries are not released before exitOptimisticRead(),
+            // so a matching entry does not need to be validated.
+
+            if (HashEntries.getSentinel(hashEntryAdr) != Util.SENTINEL_NOT_PRESENT) {
+                return -1L;
+            }
+
+            long expireAt = HashEntries.getExpireAt(hashEntryAdr);
+            if (expireAt > 0L && expireAt <= ticker.currentTimeMillis()) {
+                // expired entries are removed using the locked code path
+                return -1L;
+            }
+
+            if (updateLRU && !readBuffer.record(stripe, hashEntryAdr, hash)) {
+                readBufferFull(stripe, hashEntryAdr, hash);
+            }
+
+            readBuffer.hit(stripe);
+            return hashEntryAdr;
+        }
+
+        // a miss is only valid, if no writer modified the segment in the meantime
+        if (!validateStamp(stamp)) {
+            return -1L;
+        }
+
+        readBuffer.miss(stripe);
+        return 0L;
+    }
+
+    private boolean validateStamp(long stamp) {
+        Uns.loadFence();
+        return this.stamp == stamp;
+    }
+
+    int enterOptimisticRead() {
+        return readers.enter();
+    }
+
+    void exitOptimisticRead(int stripe) {
+        if (readers.exit(stripe)) {
+            readers.reclaim();
+        }
+    }
+
+    /**
+     * Applies the accesses recorded in the read buffer. Must be called while holding the segment lock.
+     */
+    void drainReadBuffer() {
+        if (readBuffer != null) {
+            readBuffer.drain(readBufferDrainHandler);
+        }
+    }
+
+    /**
+     * Records an access while holding the segment lock. Without a read buffer, the entry is touched immediately.
+     */
+    private void recordAccessLocked(long hashEntryAdr, long hash) {
+        if (readBuffer == null) {
+            touch(hashEntryAdr);
+            return;
+        }
+
+        if (!readBuffer.record(readBuffer.stripe(), hashEntryAdr, hash)) {
+            readBuffer.drain(readBufferDrainHandler);
+            touch(hashEntryAdr);
+        }
+    }
+
+    /**
+     * Called if an access could not be recorded because the read buffer stripe is full while not holding
+     * the segment lock. The read buffer is drained, if the segment lock is immediately available,
+     * otherwise the access is dropped.
+     */
+    private void readBufferFull(int stripe, long hashEntryAdr, long hash) {
+        if (tryLock()) {
+            try {
+                readBuffer.drain(readBufferDrainHandler);
+                if (readBuffer.record(stripe, hashEntryAdr, hash)) {
+                    return;
+                }
+            } finally {
+                unlock(true);
+            }
+        }
+        readBuffer.dropped(stripe);
+    }
+
+    /**
+     * Dereferences a hash entry after it has been removed from the hash table. With optimistic reads
+     * the hash entry is retired and dereferenced after concurrent lock-free readers have finished.
+     * With deferred freeing, an unreferenced hash entry is queued to be freed in a batch.
+     */
+    private void dereferenceRemoved(long hashEntryAdr) {
+        if (readers != null) {
+            readers.retire(hashEntryAdr);
+        } else {
+            dereferenceReader(hashEntryAdr);
+        }
+    }
+
+    /**
+     * Drops the reference of a reader, obtained via {@link #getEntry(KeyBuffer, boolean, boolean)}. The reference of
+     * the map has already been retired, if the hash entry has been removed, so the last reference is dropped
+     * immediately - with deferred freeing, the hash entry is queued to be freed.
+     */
+    void dereferenceReader(long hashEntryAdr) {
+        if (reclaimQueue != null) {
+            if (HashEntries.dereferenceNoFree(hashEntryAdr)) {
+                reclaimQueue.add(hashEntryAdr);
+            }
+        } else {
+            HashEntries.dereference(hashEntryAdr);
+        }
+    }
+
+    /**
+     * Drops a reference to a hash entry that is not owned by the map, like the reference of a loader to its
+     * sentinel. Like {@link #dereferenceRemoved(long)}, the reference is dropped after concurrent lock-free
+     * readers have finished.
+     */
+    void dereference(long hashEntryAdr) {
+        dereferenceRemoved(hashEntryAdr);
+        reclaim();
+    }
+
+    private void reclaim() {
+        if (readers != null) {
+            readers.reclaim();
         }
     }
 
@@ -204,10 +681,13 @@ abstract class OffHeapLinkedMap {
         LongArrayList derefList = null;
         boolean wasFirst = lock();
         try {
+            rehashStep();
+            drainReadBuffer();
+
             long oldHashEntryAdr = 0L;
             long hashEntryAdr;
             long prevEntryAdr = 0L;
-            for (hashEntryAdr = table.getFirst(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+            for (hashEntryAdr = tableFor(hash).getFirstCandidate(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
                 if (notSameKey(newHashEntryAdr, hash, keyLen, hashEntryAdr)) {
                     continue;
                 }
@@ -227,7 +707,7 @@ abstract class OffHeapLinkedMap {
                         // code for replace() operation
                         long valueLen = HashEntries.getValueLen(hashEntryAdr);
                         if (valueLen != oldValueLen
-                                || !Uns.memoryCompare(hashEntryAdr, Util.ENTRY_OFF_DATA + Util.roundUpTo8(keyLen), oldValueAddr, 0L, oldValueLen)) {
+                                || !Uns.memoryCompare(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr) + Util.roundUpTo8(keyLen), oldValueAddr, 0L, oldValueLen)) {
                             return false;
                         }
                     }
@@ -241,8 +721,9 @@ abstract class OffHeapLinkedMap {
                 break;
             }
 
-            derefList = ensureFreeSpaceForNewEntry(bytes);
-            if (!hasFreeSpaceForNewEntry(bytes)) {
+            long required = requiredCapacity(bytes);
+            derefList = ensureFreeSpaceForNewEntry(required);
+            if (!hasFreeSpaceForNewEntry(required)) {
                 // need to decrement size since old entry has already been removed
                 if (oldHashEntryAdr != 0L) {
                     size--;
@@ -270,13 +751,101 @@ abstract class OffHeapLinkedMap {
         } finally {
             unlock(wasFirst);
             if (removeHashEntryAdr != 0L) {
-                HashEntries.dereference(removeHashEntryAdr);
+                dereferenceRemoved(removeHashEntryAdr);
             }
             if (derefList != null) {
                 for (int i = 0; i < derefList.size(); i++) {
-                    HashEntries.dereference(derefList.getLong(i));
+                    dereferenceRemoved(derefList.getLong(i));
                 }
             }
+            reclaim();
+        }
+    }
+
+    /**
+     * Adds or replaces the {@code count} initialized hash entries starting at {@code off}, taking the segment lock
+     * only once. The hash table is grown in advance for the number of entries.
+     * The result for each hash entry ({@link #PUT_FAILED}, {@link #PUT_ADDED} or {@link #PUT_REPLACED}) is
+     * stored in {@code results}. Hash entries that could not be added must be freed by the caller - this includes
+     * the hash entries not processed, if an exception is thrown.
+     *
+     * @return number of evicted entries
+     */
+    long putEntries(long[] newHashEntryAdrs, int off, int count, int[] results) {
+        int end = off + count;
+        int next = off;
+        long evicted = 0L;
+        LongArrayList derefList = new LongArrayList();
+        boolean wasFirst = lock();
+        try {
+            drainReadBuffer();
+
+            presize(size + count);
+
+            for (; next < end; next++) {
+                int i = next;
+                rehashStep();
+
+                long newHashEntryAdr = newHashEntryAdrs[i];
+                long hash = HashEntries.getHash(newHashEntryAdr);
+                long keyLen = HashEntries.getKeyLen(newHashEntryAdr);
+                long bytes = HashEntries.getAllocLen(newHashEntryAdr);
+
+                long hashEntryAdr;
+                long prevEntryAdr = 0L;
+                for (hashEntryAdr = tableFor(hash).getFirstCandidate(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+                    if (notSameKey(newHashEntryAdr, hash, keyLen, hashEntryAdr)) {
+                        continue;
+                    }
+
+                    removeInternal(hashEntryAdr, prevEntryAdr, true);
+                    derefList.add(hashEntryAdr);
+                    // counted again, when the new entry has been added
+                    size--;
+                    break;
+                }
+
+                long required = requiredCapacity(bytes);
+                LongArrayList evictedList = ensureFreeSpaceForNewEntry(required);
+                if (evictedList != null) {
+                    for (int e = 0; e < evictedList.size(); e++) {
+                        derefList.add(evictedList.getLong(e));
+                    }
+                    evicted += evictedList.size();
+                }
+                if (!hasFreeSpaceForNewEntry(required)) {
+                    results[i] = PUT_FAILED;
+                    continue;
+                }
+
+                if (hashEntryAdr == 0L && size >= threshold) {
+                    rehash();
+                }
+
+                add(newHashEntryAdr, hash, HashEntries.getExpireAt(newHashEntryAdr));
+                size++;
+
+                if (hashEntryAdr == 0L) {
+                    putAddCount++;
+                    results[i] = PUT_ADDED;
+                } else {
+                    putReplaceCount++;
+                    results[i] = PUT_REPLACED;
+                }
+            }
+
+            return evicted;
+        } finally {
+            // the hash entry that caused an exception and the following ones have not been added
+            for (int i = next; i < end; i++) {
+                results[i] = PUT_FAILED;
+            }
+
+            unlock(wasFirst);
+            for (int i = 0; i < derefList.size(); i++) {
+                dereferenceRemoved(derefList.getLong(i));
+            }
+            reclaim();
         }
     }
 
@@ -286,11 +855,76 @@ abstract class OffHeapLinkedMap {
         }
 
         long serKeyLen = HashEntries.getKeyLen(hashEntryAdr);
-        return serKeyLen != newKeyLen || !Uns.memoryCompare(hashEntryAdr, Util.ENTRY_OFF_DATA, newHashEntryAdr, Util.ENTRY_OFF_DATA, serKeyLen);
+        return serKeyLen != newKeyLen || !Uns.memoryCompare(hashEntryAdr, HashEntries.getDataOffset(hashEntryAdr),
+                                                        newHashEntryAdr, HashEntries.getDataOffset(newHashEntryAdr), serKeyLen);
     }
 
     abstract LongArrayList ensureFreeSpaceForNewEntry(long bytes);
 
+    /**
+     * Free capacity required to add a hash entry of {@code bytes} bytes. Removed hash entries queued to be freed
+     * are still allocated, so their bytes are charged against the free capacity until they have been freed.
+     * The queue is drained, if the free capacity would not suffice otherwise. Called with the segment lock held.
+     */
+    private long requiredCapacity(long bytes) {
+        if (reclaimQueue == null) {
+            return bytes;
+        }
+
+        long pending = reclaimQueue.pendingBytes();
+        if (pending > 0L && freeCapacity() - pending < bytes) {
+            reclaimQueue.drain();
+            pending = reclaimQueue.pendingBytes();
+        }
+        return bytes + pending;
+    }
+
+    /**
+     * Evicts up to {@code maxEntries} entries in eviction order while the free capacity is below
+     * {@code targetFreeCapacity}. Called with the segment lock held.
+     *
+     * @return evicted hash entries to dereference or {@code null}
+     */
+    abstract LongArrayList evictEldest(long targetFreeCapacity, int maxEntries);
+
+    /**
+     * Evicts a batch of up to {@code maxEntries} entries for the background eviction, holding the segment lock
+     * only for that batch. Expired entries are removed first.
+     *
+     * @return number of evicted entries
+     */
+    int evictEntries(long targetFreeCapacity, int maxEntries) {
+        LongArrayList derefList = null;
+        boolean wasFirst = lock();
+        try {
+            // apply recorded accesses, recently read entries must not be evicted
+            drainReadBuffer();
+
+            // queued hash entries are freed before any entry is evicted for them
+            long required = requiredCapacity(targetFreeCapacity);
+
+            if (freeCapacity() < required) {
+                removeExpired();
+            }
+
+            derefList = evictEldest(required, maxEntries);
+            if (derefList == null) {
+                return 0;
+            }
+
+            backgroundEvictedEntries += derefList.size();
+            return derefList.size();
+        } finally {
+            unlock(wasFirst);
+            if (derefList != null) {
+                for (int i = 0; i < derefList.size(); i++) {
+                    dereferenceRemoved(derefList.getLong(i));
+                }
+            }
+            reclaim();
+        }
+    }
+
     abstract boolean hasFreeSpaceForNewEntry(long bytes);
 
     void removeExpired() {
@@ -299,9 +933,31 @@ abstract class OffHeapLinkedMap {
         }
     }
 
+    /**
+     * Removes expired entries for the expiration sweeper, examining at most {@code maxEntries} timeouts
+     * while holding the segment lock.
+     *
+     * @return {@code true}, if the sweep of this segment has completed
+     */
+    boolean sweepExpired(int maxEntries) {
+        if (timeouts == null) {
+            return true;
+        }
+
+        boolean wasFirst = lock();
+        try {
+            return timeouts.sweepExpired(timeoutsSweepHandler, maxEntries);
+        } finally {
+            unlock(wasFirst);
+            reclaim();
+        }
+    }
+
     void clear() {
         boolean wasFirst = lock();
         try {
+            finishRehash();
+
             size = 0L;
 
             long next;
@@ -316,7 +972,7 @@ abstract class OffHeapLinkedMap {
                         }
                     }
 
-                    HashEntries.dereference(hashEntryAdr);
+                    dereferenceRemoved(hashEntryAdr);
                 }
             }
 
@@ -325,11 +981,19 @@ abstract class OffHeapLinkedMap {
             table.clear();
         } finally {
             unlock(wasFirst);
+            reclaim();
         }
     }
 
     void removeEntry(long removeHashEntryAdr) {
-        removeEntry(removeHashEntryAdr, true);
+        boolean wasFirst = lock();
+        try {
+            rehashStep();
+
+            removeEntry(removeHashEntryAdr, true);
+        } finally {
+            unlock(wasFirst);
+        }
     }
 
     private void removeEntry(long removeHashEntryAdr, boolean removeFromTimeouts) {
@@ -337,7 +1001,7 @@ abstract class OffHeapLinkedMap {
         try {
             long hash = HashEntries.getHash(removeHashEntryAdr);
             long prevEntryAdr = 0L;
-            for (long hashEntryAdr = table.getFirst(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+            for (long hashEntryAdr = tableFor(hash).getFirst(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
                 if (hashEntryAdr != removeHashEntryAdr) {
                     continue;
                 }
@@ -354,8 +1018,9 @@ abstract class OffHeapLinkedMap {
         } finally {
             unlock(wasFirst);
             if (removeHashEntryAdr != 0L) {
-                HashEntries.dereference(removeHashEntryAdr);
+                dereferenceRemoved(removeHashEntryAdr);
             }
+            reclaim();
         }
     }
 
@@ -363,8 +1028,11 @@ abstract class OffHeapLinkedMap {
         long removeHashEntryAdr = 0L;
         boolean wasFirst = lock();
         try {
+            rehashStep();
+            drainReadBuffer();
+
             long prevEntryAdr = 0L;
-            for (long hashEntryAdr = table.getFirst(key.hash()); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries
+            for (long hashEntryAdr = tableFor(key.hash()).getFirstCandidate(key.hash()); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries
                     .getNext(hashEntryAdr)) {
                 if (!key.sameKey(hashEntryAdr)) {
                     continue;
@@ -385,12 +1053,63 @@ abstract class OffHeapLinkedMap {
         } finally {
             unlock(wasFirst);
             if (removeHashEntryAdr != 0L) {
-                HashEntries.dereference(removeHashEntryAdr);
+                dereferenceRemoved(removeHashEntryAdr);
+            }
+            reclaim();
+        }
+    }
+
+    /**
+     * Removes the entries for the {@code count} keys starting at {@code off}, taking the segment lock only once.
+     *
+     * @return number of removed entries
+     */
+    int removeEntries(KeyBuffer[] keys, int off, int count) {
+        int end = off + count;
+        int removed = 0;
+        LongArrayList derefList = new LongArrayList();
+        boolean wasFirst = lock();
+        try {
+            drainReadBuffer();
+
+            for (int i = off; i < end; i++) {
+                rehashStep();
+
+                KeyBuffer key = keys[i];
+                long prevEntryAdr = 0L;
+                for (long hashEntryAdr = tableFor(key.hash()).getFirstCandidate(key.hash()); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries
+                        .getNext(hashEntryAdr)) {
+                    if (!key.sameKey(hashEntryAdr)) {
+                        continue;
+                    }
+
+                    // remove existing entry
+
+                    derefList.add(hashEntryAdr);
+                    removeInternal(hashEntryAdr, prevEntryAdr, true);
+
+                    size--;
+                    removeCount++;
+                    removed++;
+
+                    break;
+                }
+            }
+
+            return removed;
+        } finally {
+            unlock(wasFirst);
+            for (int i = 0; i < derefList.size(); i++) {
+                dereferenceRemoved(derefList.getLong(i));
             }
+            reclaim();
         }
     }
 
     private void rehash() {
+        // a previous incremental rehash must be completed before the table can grow again
+        finishRehash();
+
         Table tab = table;
         int tableSize = tab.size();
         if (tableSize > MAX_TABLE_SIZE) {
@@ -398,26 +1117,120 @@ abstract class OffHeapLinkedMap {
             return;
         }
 
-        Table newTable = Table.create(tableSize * 2, throwOOME);
+        growTable(tab, tableSize * 2);
+    }
+
+    /**
+     * Grows the hash table for {@code newEntries} additional entries.
+     */
+    void presizeFor(long newEntries) {
+        boolean wasFirst = lock();
+        try {
+            presize(size + newEntries);
+        } finally {
+            unlock(wasFirst);
+        }
+    }
+
+    /**
+     * Grows the hash table in a single step, so that it can hold {@code expectedSize} entries without
+     * exceeding the load factor.
+     */
+    private void presize(long expectedSize) {
+        if (expectedSize < threshold) {
+            return;
+        }
+
+        // a previous incremental rehash must be completed before the table can grow again
+        finishRehash();
+
+        Table tab = table;
+        long tableSize = tab.size();
+        while (tableSize < MAX_TABLE_SIZE && (long) (tableSize * loadFactor) <= expectedSize) {
+            tableSize *= 2;
+        }
+        if (tableSize > tab.size()) {
+            growTable(tab, (int) tableSize);
+        }
+    }
+
+    private void growTable(Table tab, int newTableSize) {
+        Table newTable = Table.create(newTableSize, bucketTags, throwOOME);
         if (newTable == null) {
             return;
         }
+
+        threshold = (long) (newTable.size() * loadFactor);
+        oldTable = tab;
+        rehashIndex = 0;
+        table = newTable;
+
+        if (!incrementalRehash) {
+            finishRehash();
+        }
+    }
+
+    /**
+     * Migrates the next buckets of an ongoing incremental rehash. At least {@code incrementalRehashStep} buckets
+     * are migrated, but enough to migrate all pending buckets before {@code size} reaches the next threshold -
+     * otherwise {@link #rehash()} would have to migrate the remaining buckets at once.
+     * Must only be called before a bucket chain is being walked, since it changes the table
+     * returned by {@link #tableFor(long)}.
+     */
+    private void rehashStep() {
+        if (oldTable != null) {
+            long pending = oldTable.size() - rehashIndex;
+            long remainingInserts = threshold - size;
+            long buckets = remainingInserts > 0L ? (pending + remainingInserts - 1) / remainingInserts : pending;
+            migrateBuckets((int) Math.max(incrementalRehashStep, buckets));
+        }
+    }
+
+    private void finishRehash() {
+        if (oldTable != null) {
+            migrateBuckets(Integer.MAX_VALUE);
+        }
+    }
+
+    private void migrateBuckets(int buckets) {
+        Table tab = oldTable;
+        int tableSize = tab.size();
+        int end = (int) Math.min((long) rehashIndex + buckets, tableSize);
         long next;
 
-        for (int part = 0; part < tableSize; part++) {
+        for (int part = rehashIndex; part < end; part++) {
             for (long hashEntryAdr = tab.getFirst(part); hashEntryAdr != 0L; hashEntryAdr = next) {
                 next = HashEntries.getNext(hashEntryAdr);
 
                 HashEntries.setNext(hashEntryAdr, 0L);
 
-                newTable.addAsHead(HashEntries.getHash(hashEntryAdr), hashEntryAdr);
+                table.addAsHead(HashEntries.getHash(hashEntryAdr), hashEntryAdr);
             }
         }
+        rehashIndex = end;
 
-        threshold = (long) (newTable.size() * loadFactor);
-        table.release();
-        table = newTable;
-        rehashes++;
+        if (end == tableSize) {
+            if (readers != null) {
+                readers.retire(tab);
+            } else {
+                tab.release();
+            }
+            oldTable = null;
+            rehashIndex = 0;
+            rehashes++;
+        }
+    }
+
+    /**
+     * Returns the table that contains the bucket for the given hash. During an incremental rehash this is
+     * the old table for all buckets that have not been migrated yet.
+     */
+    private Table tableFor(long hash) {
+        Table old = oldTable;
+        if (old != null && old.bucketIndexForHash(hash) >= rehashIndex) {
+            return old;
+        }
+        return table;
     }
 
     abstract long[] hotN(int n);
@@ -433,6 +1246,8 @@ abstract class OffHeapLinkedMap {
     void updateBucketHistogram(EstimatedHistogram hist) {
         boolean wasFirst = lock();
         try {
+            finishRehash();
+
             table.updateBucketHistogram(hist);
         } finally {
             unlock(wasFirst);
@@ -442,6 +1257,9 @@ abstract class OffHeapLinkedMap {
     void getEntryAddresses(int mapSegmentIndex, int nSegments, LongArrayList hashEntryAdrs) {
         boolean wasFirst = lock();
         try {
+            // iteration relies on a single table
+            finishRehash();
+
             long t = ticker.currentTimeMillis();
             for (; nSegments-- > 0 && mapSegmentIndex < table.size(); mapSegmentIndex++) {
                 for (long hashEntryAdr = table.getFirst(mapSegmentIndex); hashEntryAdr != 0L; hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
@@ -465,24 +1283,32 @@ abstract class OffHeapLinkedMap {
     static final class Table {
         final int mask;
         final long address;
+        // Each bucket is followed by a tag word, if set. The tag word has one bit set for each entry in the
+        // bucket chain, chosen by some bits of the entry's hash. It is the same cache line as the bucket's
+        // first entry address.
+        private final boolean tags;
+        private final long bucketLen;
         private boolean released;
 
-        static Table create(int hashTableSize, boolean throwOOME) {
-            int msz = Ints.checkedCast(Util.BUCKET_ENTRY_LEN * hashTableSize);
+        static Table create(int hashTableSize, boolean tags, boolean throwOOME) {
+            long bucketLen = tags ? Util.BUCKET_ENTRY_LEN + Util.BUCKET_TAGS_LEN : Util.BUCKET_ENTRY_LEN;
+            int msz = Ints.checkedCast(bucketLen * hashTableSize);
             long address = Uns.allocate(msz, throwOOME);
-            return address != 0L ? new Table(address, hashTableSize) : null;
+            return address != 0L ? new Table(address, hashTableSize, tags, bucketLen) : null;
         }
 
-        private Table(long address, int hashTableSize) {
+        private Table(long address, int hashTableSize, boolean tags, long bucketLen) {
             this.address = address;
             this.mask = hashTableSize - 1;
+            this.tags = tags;
+            this.bucketLen = bucketLen;
             clear();
         }
 
         void clear() {
             // It's important to initialize the hash table memory.
             // (uninitialized memory will cause problems - endless loops, JVM crashes, damaged data, etc)
-            Uns.setMemory(address, 0L, Util.BUCKET_ENTRY_LEN * size(), (byte) 0);
+            Uns.setMemory(address, 0L, bucketLen * size(), (byte) 0);
         }
 
         void release() {
@@ -502,15 +1328,53 @@ abstract class OffHeapLinkedMap {
             return Uns.getLong(address, bucketOffset(hash));
         }
 
+        /**
+         * Returns the first entry of the bucket chain for a lookup of {@code hash}, like {@link #getFirst(long)}.
+         * Returns {@code 0L} without reading any entry, if the bucket's tag word shows that the chain does not
+         * contain an entry with this hash.
+         */
+        long getFirstCandidate(long hash) {
+            long off = bucketOffset(hash);
+            if (tags && (Uns.getLong(address, off + Util.BUCKET_ENTRY_LEN) & tag(hash)) == 0L) {
+                return 0L;
+            }
+            return Uns.getLong(address, off);
+        }
+
         void setFirst(long hash, long hashEntryAdr) {
             Uns.putLong(address, bucketOffset(hash), hashEntryAdr);
         }
 
         private long bucketOffset(long hash) {
-            return bucketIndexForHash(hash) * Util.BUCKET_ENTRY_LEN;
+            return bucketIndexForHash(hash) * bucketLen;
+        }
+
+        /**
+         * The bits of the hash below 32 that select the bucket are the same for all entries of a bucket,
+         * so take the tag from the upper bits of both halves. Hash algorithms with 32 bit hashes only
+         * provide the lower half.
+         */
+        private static long tag(long hash) {
+            return 1L << ((int) (hash ^ (hash >>> 32)) >>> 26);
         }
 
-        private int bucketIndexForHash(long hash) {
+        private void addTag(long hash) {
+            long off = bucketOffset(hash) + Util.BUCKET_ENTRY_LEN;
+            Uns.putLong(address, off, Uns.getLong(address, off) | tag(hash));
+        }
+
+        /**
+         * Recomputes the tag word of the bucket after an entry has been unlinked.
+         */
+        private void updateTags(long hash) {
+            long t = 0L;
+            for (long adr = getFirst(hash); adr != 0L; adr = HashEntries.getNext(adr)) {
+                t |= tag(HashEntries.getHash(adr));
+            }
+            Uns.putLong(address, bucketOffset(hash) + Util.BUCKET_ENTRY_LEN, t);
+        }
+
+        int bucketIndexForHash(long hash) {
             return (int) (hash & mask);
         }
 
@@ -518,9 +1382,14 @@ abstract class OffHeapLinkedMap {
             long next = HashEntries.getNext(hashEntryAdr);
 
             removeLinkInternal(hash, hashEntryAdr, prevEntryAdr, next);
+
+            if (tags) {
+                updateTags(hash);
+            }
         }
 
-        void replaceSentinelLink(long hash, long hashEntryAdr, long prevEntryAdr, long newHashEntryAdr) {
+        void replaceLink(long hash, long hashEntryAdr, long prevEntryAdr, long newHashEntryAdr) {
+            // the new entry has the same hash, the tag word does not change
             HashEntries.setNext(newHashEntryAdr, HashEntries.getNext(hashEntryAdr));
 
             removeLinkInternal(hash, hashEntryAdr, prevEntryAdr, newHashEntryAdr);
@@ -546,6 +1415,10 @@ abstract class OffHeapLinkedMap {
             long head = getFirst(hash);
             HashEntries.setNext(hashEntryAdr, head);
             setFirst(hash, hashEntryAdr);
+
+            if (tags) {
+                addTag(hash);
+            }
         }
 
         int size() {
@@ -566,7 +1439,7 @@ abstract class OffHeapLinkedMap {
     void removeInternal(long hashEntryAdr, long prevEntryAdr, boolean removeFromTimeouts) {
         long hash = HashEntries.getHash(hashEntryAdr);
 
-        table.removeLink(hash, hashEntryAdr, prevEntryAdr);
+        tableFor(hash).removeLink(hash, hashEntryAdr, prevEntryAdr);
 
         if (removeFromTimeouts && timeouts != null) {
             long expireAt = HashEntries.getExpireAt(hashEntryAdr);
@@ -578,21 +1451,106 @@ abstract class OffHeapLinkedMap {
         removeFromLruAndUpdateCapacity(hashEntryAdr);
     }
 
+    /**
+     * Replaces the sentinel at {@code oldHashEntryAdr} with the loaded hash entry. The reference of the map to the
+     * sentinel is retired, the reference of the loader is left untouched.
+     *
+     * @return {@code false}, if the sentinel is no longer in the map or there is not enough free capacity -
+     * the new hash entry has not been linked and must be freed by the caller
+     */
     boolean replaceSentinelEntry(long hash, long oldHashEntryAdr, long newHashEntryAdr, long bytes, long expireAt) {
         LongArrayList derefList = null;
+        boolean replaced = false;
 
         boolean wasFirst = lock();
         try {
+            if (expireAt > 0L && timeouts == null) {
+                throw new IllegalStateException("entry TTLs not enabled on this cache instance");
+            }
+
+            long required = requiredCapacity(bytes);
+            derefList = ensureFreeSpaceForNewEntry(required);
+            if (!hasFreeSpaceForNewEntry(required)) {
+                return false;
+            }
+
             long prevEntryAdr = 0L;
-            for (long hashEntryAdr = table.getFirst(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+            Table tab = tableFor(hash);
+            for (long hashEntryAdr = tab.getFirst(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
                 if (hashEntryAdr != oldHashEntryAdr) {
                     continue;
                 }
 
-                // remove existing entry
+                // replace the sentinel
+
+                if (writeTimes) {
+                    HashEntries.setWriteTime(newHashEntryAdr, writeTime());
+                }
+
+                tab.replaceLink(hash, oldHashEntryAdr, prevEntryAdr, newHashEntryAdr);
+
+                if (expireAt > 0L) {
+                    timeouts.add(newHashEntryAdr, expireAt);
+                }
+
+                // note: only need to add bytes since a sentinel is replaced with the real value
+                replaceInLruAndUpdateCapacity(oldHashEntryAdr, newHashEntryAdr, bytes);
+
+                replaced = true;
+                return true;
+            }
+
+            return false;
+        } finally {
+            unlock(wasFirst);
+
+            if (replaced) {
+                dereferenceRemoved(oldHashEntryAdr);
+            }
+            if (derefList != null) {
+                for (int i = 0; i < derefList.size(); i++) {
+                    dereferenceRemoved(derefList.getLong(i));
+                }
+            }
+            reclaim();
+        }
+    }
+
+    /**
+     * Replaces the hash entry at {@code oldHashEntryAdr} with the new hash entry for the same key, which takes
+     * over the position of the old hash entry in the hash bucket and in the eviction order.
+     * Used to store the value of a refresh-after-write reload.
+     *
+     * @return {@code false}, if the old hash entry is no longer in the map - the new hash entry must be freed by the caller
+     */
+    boolean replaceEntry(long hash, long oldHashEntryAdr, long newHashEntryAdr, long bytes, long expireAt) {
+        long removeHashEntryAdr = 0L;
+        LongArrayList derefList = null;
+
+        boolean wasFirst = lock();
+        try {
+            rehashStep();
+            drainReadBuffer();
+
+            long prevEntryAdr = 0L;
+            Table tab = tableFor(hash);
+            for (long hashEntryAdr = tab.getFirst(hash); hashEntryAdr != 0L; prevEntryAdr = hashEntryAdr, hashEntryAdr = HashEntries.getNext(hashEntryAdr)) {
+                if (hashEntryAdr != oldHashEntryAdr) {
+                    continue;
+                }
+
+                if (writeTimes) {
+                    HashEntries.setWriteTime(newHashEntryAdr, writeTime());
+                }
 
-                table.replaceSentinelLink(hash, oldHashEntryAdr, prevEntryAdr, newHashEntryAdr);
+                tab.replaceLink(hash, oldHashEntryAdr, prevEntryAdr, newHashEntryAdr);
 
+                if (timeouts != null) {
+                    long oldExpireAt = HashEntries.getExpireAt(oldHashEntryAdr);
+                    if (oldExpireAt > 0L) {
+                        timeouts.remove(oldHashEntryAdr, oldExpireAt);
+                    }
+                }
                 if (expireAt > 0L) {
                     if (timeouts != null) {
                         timeouts.add(newHashEntryAdr, expireAt);
@@ -601,12 +1559,12 @@ abstract class OffHeapLinkedMap {
                     }
                 }
 
-                derefList = ensureFreeSpaceForNewEntry(bytes);
-                if (!hasFreeSpaceForNewEntry(bytes)) {
-                    return false;
-                }
+                replaceInLruAndUpdateCapacity(oldHashEntryAdr, newHashEntryAdr, bytes - HashEntries.getAllocLen(oldHashEntryAdr));
+                removeHashEntryAdr = oldHashEntryAdr;
+                refreshCount++;
 
-                replaceSentinelInLruAndUpdateCapacity(oldHashEntryAdr, newHashEntryAdr, bytes);
+                // the new value may be larger than the old one
+                derefList = ensureFreeSpaceForNewEntry(requiredCapacity(0L));
 
                 return true;
             }
@@ -614,26 +1572,47 @@ abstract class OffHeapLinkedMap {
             return false;
         } finally {
             unlock(wasFirst);
-
+            if (removeHashEntryAdr != 0L) {
+                dereferenceRemoved(removeHashEntryAdr);
+            }
             if (derefList != null) {
                 for (int i = 0; i < derefList.size(); i++) {
-                    HashEntries.dereference(derefList.getLong(i));
+                    dereferenceRemoved(derefList.getLong(i));
                 }
             }
+            reclaim();
         }
     }
 
+    /**
+     * Whether the hash entry has been written at least {@code refreshAfterWrite} milliseconds ago.
+     */
+    boolean refreshDue(long hashEntryAdr, long refreshAfterWrite) {
+        long writtenAt = (HashEntries.getWriteTime(hashEntryAdr) & 0xffffffffL) * 1000L;
+        return ticker.currentTimeMillis() - writtenAt >= refreshAfterWrite;
+    }
+
+    // current time in seconds as an unsigned int, rounded up so that refreshes are never early
+    private int writeTime() {
+        return (int) ((ticker.currentTimeMillis() + 999L) / 1000L);
+    }
+
     private void add(long hashEntryAdr, long hash, long expireAt) {
-        table.addAsHead(hash, hashEntryAdr);
+        // fail before the hash entry is linked
+        if (expireAt > 0L && timeouts == null) {
+            throw new IllegalStateException("entry TTLs not enabled on this cache instance");
+        }
+
+        if (writeTimes) {
+            HashEntries.setWriteTime(hashEntryAdr, writeTime());
+        }
+
+        tableFor(hash).addAsHead(hash, hashEntryAdr);
 
         addToLruAndUpdateCapacity(hashEntryAdr);
 
         if (expireAt > 0L) {
-            if (timeouts != null) {
-                timeouts.add(hashEntryAdr, expireAt);
-            } else {
-                throw new IllegalStateException("entry TTLs not enabled on this cache instance");
-            }
+            timeouts.add(hashEntryAdr, expireAt);
         }
     }
 
@@ -641,7 +1620,11 @@ abstract class OffHeapLinkedMap {
 
     abstract void removeFromLruAndUpdateCapacity(long hashEntryAdr);
 
-    abstract void replaceSentinelInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes);
+    /**
+     * Lets the new hash entry take over the position of the given hash entry in the eviction order and
+     * reduces the free capacity by {@code bytes}.
+     */
+    abstract void replaceInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes);
 
     abstract void clearLruAndCapacity();
 
@@ -652,21 +1635,22 @@ abstract class OffHeapLinkedMap {
             return false;
         }
 
-        long t = Thread.currentThread().getId();
+        boolean wasFirst = segmentLock.lock();
+        if (wasFirst && optimisticReads) {
+            stampFieldUpdater.incrementAndGet(this);
+        }
+        return wasFirst;
+    }
 
-        if (t == lockFieldUpdater.get(this)) {
+    private boolean tryLock() {
+        if (unlocked || !segmentLock.tryLock()) {
             return false;
         }
-        while (true) {
-            if (lockFieldUpdater.compareAndSet(this, 0L, t)) {
-                return true;
-            }
 
-            // yield control to other thread.
-            // Note: we cannot use LockSupport.parkNanos() as that does not
-            // provide nanosecond resolution on Windows.
-            Thread.yield();
+        if (optimisticReads) {
+            stampFieldUpdater.incrementAndGet(this);
         }
+        return true;
     }
 
     void unlock(boolean wasFirst) {
@@ -674,9 +1658,11 @@ abstract class OffHeapLinkedMap {
             return;
         }
 
-        long t = Thread.currentThread().getId();
-        boolean r = lockFieldUpdater.compareAndSet(this, t, 0L);
-        assert r;
+        if (optimisticReads) {
+            stampFieldUpdater.incrementAndGet(this);
+        }
+
+        segmentLock.unlock(true);
     }
 
     @Override
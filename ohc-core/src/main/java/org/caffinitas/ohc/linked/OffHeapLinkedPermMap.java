@@ -26,4 +26,9 @@ final class OffHeapLinkedPermMap extends OffHeapLinkedLRUMap {
     LongArrayList ensureFreeSpaceForNewEntry(long bytes) {
         return null;
     }
+
+    @Override
+    LongArrayList evictEldest(long targetFreeCapacity, int maxEntries) {
+        return null;
+    }
 }
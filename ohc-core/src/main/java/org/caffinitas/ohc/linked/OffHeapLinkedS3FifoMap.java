@@ -0,0 +1,336 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.util.Arrays;
+
+import org.caffinitas.ohc.OHCacheBuilder;
+
+/**
+ * S3-FIFO eviction, see <a href="https://dl.acm.org/doi/10.1145/3600006.3613147">FIFO queues are all you need
+ * for cache eviction</a>. New entries are added to a small FIFO queue, entries that have been read while in the
+ * small queue are moved to the main FIFO queue, all others are evicted and remembered in a ghost queue. New entries
+ * found in the ghost queue are added to the main queue directly. Entries at the tail of the main queue are
+ * reinserted as long as their access counter, which is decremented on each reinsertion, is not zero.
+ * A hit just increments the entry's access counter.
+ */
+final class OffHeapLinkedS3FifoMap extends OffHeapLinkedMap {
+    // share of the small queue of a segment's capacity
+    private static final double SMALL_QUEUE_SIZE = 0.1d;
+    private static final int MAX_ACCESS = 3;
+
+    private long smallHead;
+    private long smallTail;
+    private long smallUsed;
+    private long smallCapacity;
+
+    private long mainHead;
+    private long mainTail;
+    private long mainEntries;
+
+    private long freeCapacity;
+    private long capacity;
+
+    // Ghost queue of the hashes of entries evicted from the small queue. Approximated by an array indexed by hash,
+    // each element contains the upper 32 bits of the hash and the ghost's sequence number. A ghost expires
+    // after as many entries have been evicted from the small queue as there are entries in the main queue,
+    // older ghosts are overwritten on collisions.
+    private long[] ghosts;
+    private int ghostSequence;
+
+    OffHeapLinkedS3FifoMap(OHCacheBuilder<?, ?> builder, long freeCapacity) {
+        super(builder);
+
+        this.freeCapacity = freeCapacity;
+        this.capacity = freeCapacity;
+        this.smallCapacity = (long) (SMALL_QUEUE_SIZE * freeCapacity);
+
+        this.ghosts = new long[(int) Util.roundUpToPowerOf2(Math.max(table.size(), 64), 1 << 30)];
+    }
+
+    private void addGhost(long hash) {
+        if (size > ghosts.length && ghosts.length < 1 << 30) {
+            // the index bit added by growing is not part of a ghost, so keep each ghost at both possible indexes
+            long[] old = ghosts;
+            ghosts = Arrays.copyOf(old, old.length << 1);
+            System.arraycopy(old, 0, ghosts, old.length, old.length);
+        }
+
+        ghosts[(int) hash & (ghosts.length - 1)] = (hash & 0xffffffff00000000L) | (ghostSequence++ & 0xffffffffL);
+    }
+
+    private boolean removeGhost(long hash) {
+        int idx = (int) hash & (ghosts.length - 1);
+        long ghost = ghosts[idx];
+        if (ghost == 0L || (ghost & 0xffffffff00000000L) != (hash & 0xffffffff00000000L)) {
+            return false;
+        }
+        ghosts[idx] = 0L;
+        return ghostSequence - (int) ghost <= mainEntries;
+    }
+
+    @Override
+    void addToLruAndUpdateCapacity(long hashEntryAdr) {
+        int gen = removeGhost(HashEntries.getHash(hashEntryAdr)) ? Util.GEN_MAIN : Util.GEN_SMALL;
+        HashEntries.setGeneration(hashEntryAdr, gen);
+        addToQueue(gen, hashEntryAdr);
+
+        freeCapacity -= HashEntries.getAllocLen(hashEntryAdr);
+    }
+
+    @Override
+    void removeFromLruAndUpdateCapacity(long hashEntryAdr) {
+        removeFromQueue(HashEntries.getGeneration(hashEntryAdr), hashEntryAdr);
+
+        freeCapacity += HashEntries.getAllocLen(hashEntryAdr);
+    }
+
+    private void addToQueue(int gen, long hashEntryAdr) {
+        long h = head(gen);
+        HashEntries.setLRUNext(hashEntryAdr, h);
+        if (h != 0L) {
+            HashEntries.setLRUPrev(h, hashEntryAdr);
+        }
+        HashEntries.setLRUPrev(hashEntryAdr, 0L);
+        head(gen, hashEntryAdr);
+
+        if (tail(gen) == 0L) {
+            tail(gen, hashEntryAdr);
+        }
+
+        if (gen == Util.GEN_SMALL) {
+            smallUsed += HashEntries.getAllocLen(hashEntryAdr);
+        } else {
+            mainEntries++;
+        }
+    }
+
+    private void removeFromQueue(int gen, long hashEntryAdr) {
+        long next = HashEntries.getLRUNext(hashEntryAdr);
+        long prev = HashEntries.getLRUPrev(hashEntryAdr);
+
+        if (head(gen) == hashEntryAdr) {
+            head(gen, next);
+        }
+        if (tail(gen) == hashEntryAdr) {
+            tail(gen, prev);
+        }
+
+        if (next != 0L) {
+            HashEntries.setLRUPrev(next, prev);
+        }
+        if (prev != 0L) {
+            HashEntries.setLRUNext(prev, next);
+        }
+
+        if (gen == Util.GEN_SMALL) {
+            smallUsed -= HashEntries.getAllocLen(hashEntryAdr);
+        } else {
+            mainEntries--;
+        }
+    }
+
+    @Override
+    void replaceInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes) {
+        int gen = HashEntries.getGeneration(hashEntryAdr);
+
+        HashEntries.setGeneration(newHashEntryAdr, gen);
+        HashEntries.setAccess(newHashEntryAdr, HashEntries.getAccess(hashEntryAdr));
+
+        long next = HashEntries.getLRUNext(hashEntryAdr);
+        long prev = HashEntries.getLRUPrev(hashEntryAdr);
+
+        HashEntries.setLRUNext(newHashEntryAdr, next);
+        HashEntries.setLRUPrev(newHashEntryAdr, prev);
+
+        if (head(gen) == hashEntryAdr) {
+            head(gen, newHashEntryAdr);
+        }
+        if (tail(gen) == hashEntryAdr) {
+            tail(gen, newHashEntryAdr);
+        }
+
+        if (next != 0L) {
+            HashEntries.setLRUPrev(next, newHashEntryAdr);
+        }
+        if (prev != 0L) {
+            HashEntries.setLRUNext(prev, newHashEntryAdr);
+        }
+
+        if (gen == Util.GEN_SMALL) {
+            smallUsed += bytes;
+        }
+        freeCapacity -= bytes;
+    }
+
+    @Override
+    void clearLruAndCapacity() {
+        smallHead = smallTail = mainHead = mainTail = 0L;
+        smallUsed = 0L;
+        mainEntries = 0L;
+
+        freeCapacity = capacity;
+    }
+
+    @Override
+    void touch(long hashEntryAdr) {
+        int access = HashEntries.getAccess(hashEntryAdr);
+        if (access < MAX_ACCESS) {
+            HashEntries.setAccess(hashEntryAdr, access + 1);
+        }
+    }
+
+    @Override
+    long freeCapacity() {
+        return freeCapacity;
+    }
+
+    @Override
+    void updateFreeCapacity(long diff) {
+        boolean wasFirst = lock();
+        try {
+            freeCapacity += diff;
+            capacity += diff;
+            smallCapacity = (long) (SMALL_QUEUE_SIZE * capacity);
+        } finally {
+            unlock(wasFirst);
+        }
+    }
+
+    @Override
+    LongArrayList ensureFreeSpaceForNewEntry(long bytes) {
+        if (freeCapacity < bytes) {
+            removeExpired();
+        }
+
+        LongArrayList derefList = null;
+        while (freeCapacity < bytes) {
+            long eldestHashAdr = removeEldest();
+            if (eldestHashAdr == 0L) {
+                break;
+            }
+            if (derefList == null) {
+                derefList = new LongArrayList();
+            }
+            derefList.add(eldestHashAdr);
+        }
+        return derefList;
+    }
+
+    @Override
+    LongArrayList evictEldest(long targetFreeCapacity, int maxEntries) {
+        LongArrayList derefList = null;
+        for (int i = 0; i < maxEntries && freeCapacity < targetFreeCapacity; i++) {
+            long eldestHashAdr = removeEldest();
+            if (eldestHashAdr == 0L) {
+                break;
+            }
+            if (derefList == null) {
+                derefList = new LongArrayList();
+            }
+            derefList.add(eldestHashAdr);
+        }
+        return derefList;
+    }
+
+    @Override
+    boolean hasFreeSpaceForNewEntry(long bytes) {
+        return freeCapacity >= bytes;
+    }
+
+    private long removeEldest() {
+        while (true) {
+            long hashEntryAdr;
+            if (smallTail != 0L && (smallUsed > smallCapacity || mainTail == 0L)) {
+                hashEntryAdr = smallTail;
+                if (HashEntries.getAccess(hashEntryAdr) > 0) {
+                    // read while in the small queue, promote to the main queue
+                    removeFromQueue(Util.GEN_SMALL, hashEntryAdr);
+                    HashEntries.setGeneration(hashEntryAdr, Util.GEN_MAIN);
+                    HashEntries.setAccess(hashEntryAdr, 0);
+                    addToQueue(Util.GEN_MAIN, hashEntryAdr);
+                    continue;
+                }
+                addGhost(HashEntries.getHash(hashEntryAdr));
+            } else {
+                hashEntryAdr = mainTail;
+                if (hashEntryAdr == 0L) {
+                    return 0L;
+                }
+                int access = HashEntries.getAccess(hashEntryAdr);
+                if (access > 0) {
+                    // terminates, since the access counter is decremented on each reinsertion
+                    removeFromQueue(Util.GEN_MAIN, hashEntryAdr);
+                    HashEntries.setAccess(hashEntryAdr, access - 1);
+                    addToQueue(Util.GEN_MAIN, hashEntryAdr);
+                    continue;
+                }
+            }
+
+            removeInternal(hashEntryAdr, -1L, true);
+            size--;
+            evictedEntries++;
+
+            return hashEntryAdr;
+        }
+    }
+
+    @Override
+    long[] hotN(int n) {
+        boolean wasFirst = lock();
+        try {
+            drainReadBuffer();
+
+            long[] r = new long[n];
+            int i = 0;
+            for (long hashEntryAdr = mainHead; hashEntryAdr != 0L && i < n; hashEntryAdr = HashEntries.getLRUNext(hashEntryAdr)) {
+                r[i++] = hashEntryAdr;
+                HashEntries.reference(hashEntryAdr);
+            }
+            for (long hashEntryAdr = smallHead; hashEntryAdr != 0L && i < n; hashEntryAdr = HashEntries.getLRUNext(hashEntryAdr)) {
+                r[i++] = hashEntryAdr;
+                HashEntries.reference(hashEntryAdr);
+            }
+            return r;
+        } finally {
+            unlock(wasFirst);
+        }
+    }
+
+    private long head(int gen) {
+        return gen == Util.GEN_SMALL ? smallHead : mainHead;
+    }
+
+    private void head(int gen, long hashEntryAdr) {
+        if (gen == Util.GEN_SMALL) {
+            smallHead = hashEntryAdr;
+        } else {
+            mainHead = hashEntryAdr;
+        }
+    }
+
+    private long tail(int gen) {
+        return gen == Util.GEN_SMALL ? smallTail : mainTail;
+    }
+
+    private void tail(int gen, long hashEntryAdr) {
+        if (gen == Util.GEN_SMALL) {
+            smallTail = hashEntryAdr;
+        } else {
+            mainTail = hashEntryAdr;
+        }
+    }
+}
@@ -15,9 +15,21 @@
  */
 package org.caffinitas.ohc.linked;
 
+import java.util.Random;
+
+import org.caffinitas.ohc.Admission;
 import org.caffinitas.ohc.OHCacheBuilder;
 
 final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
+    // hill climbing parameters of the adaptive eden size, see climb()
+    private static final double HILL_CLIMBER_RESTART_THRESHOLD = 0.05d;
+    private static final double HILL_CLIMBER_STEP_PERCENT = 0.0625d;
+    private static final double HILL_CLIMBER_STEP_DECAY_RATE = 0.98d;
+    private static final long HILL_CLIMBER_MIN_SAMPLE = 1024L;
+    private static final double MIN_EDEN_SIZE = 0.05d;
+    private static final double MAX_EDEN_SIZE = 0.8d;
+    static final int EDEN_SIZE_HISTORY = 16;
+
     private long edenLruHead;
     private long edenLruTail;
     private long edenFreeCapacity;
@@ -34,13 +46,27 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
 
     private final double edenSize;
 
-    OffHeapLinkedWTinyLFUMap(OHCacheBuilder<?, ?> builder, long freeCapacity) {
+    private final Admission admission;
+
+    private final boolean adaptiveEdenSize;
+    private long sampleHitCount;
+    private long sampleMissCount;
+    private double previousHitRate;
+    // fraction of the segment's capacity, negative to shrink the eden generation
+    private double stepSize = -HILL_CLIMBER_STEP_PERCENT;
+    private long edenGrowCount;
+    private long edenShrinkCount;
+    private final double[] edenSizeHistory = new double[EDEN_SIZE_HISTORY];
+
+    OffHeapLinkedWTinyLFUMap(OHCacheBuilder<?, ?> builder, long freeCapacity, Random tieRandom) {
         super(builder);
 
         edenSize = builder.getEdenSize();
         if (edenSize <= 0d) {
             throw new IllegalArgumentException("Illegal edenSize, must be > 0");
         }
+        adaptiveEdenSize = builder.isAdaptiveEdenSize();
+        admission = builder.getAdmission();
 
         updateFreeCapacity(freeCapacity);
 
@@ -49,7 +75,7 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
             freqSketchSize = table.size();
         }
 
-        frequencySketch = new FrequencySketch(freqSketchSize);
+        frequencySketch = new FrequencySketch(freqSketchSize, tieRandom);
     }
 
     @Override
@@ -71,7 +97,8 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
 
     @Override
     void updateFreeCapacity(long diff) {
-        long edenPart = (long) (edenSize * diff);
+        double split = currentEdenSize();
+        long edenPart = (long) (split * diff);
         long mainPart = diff - edenPart;
 
         edenFreeCapacity += edenPart;
@@ -81,19 +108,126 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
 
         // capacity of probation area needs to be as big as eden because when a new entry is added, it might be
         // necessary to check all entries in the whole eden generation whether these are admitted for main generation.
-        probationCapacity = (long) (edenSize * mainCapacity);
+        probationCapacity = (long) (split * mainCapacity);
+    }
+
+    private double currentEdenSize() {
+        long capacity = edenCapacity + mainCapacity;
+        return adaptiveEdenSize && capacity > 0L ? (double) edenCapacity / capacity : edenSize;
+    }
+
+    /**
+     * Adapts the size of the eden generation by hill climbing, like Caffeine does. The hit rate of each sample
+     * of requests is compared with the hit rate of the previous sample. If the hit rate improved, capacity is
+     * moved in the same direction as before, otherwise in the opposite direction. The step size decays while
+     * the hit rate is stable and restarts when the hit rate changes significantly, for example when the
+     * workload shifts between recency and frequency biased phases.
+     */
+    private void climb() {
+        long hits = hitCount();
+        long misses = missCount();
+        if (hits < sampleHitCount || misses < sampleMissCount) {
+            // statistics have been reset
+            sampleHitCount = hits;
+            sampleMissCount = misses;
+            return;
+        }
+
+        long sampleHits = hits - sampleHitCount;
+        long sampleRequests = sampleHits + misses - sampleMissCount;
+        if (sampleRequests < Math.max(10L * size, HILL_CLIMBER_MIN_SAMPLE)) {
+            return;
+        }
+        sampleHitCount = hits;
+        sampleMissCount = misses;
+
+        double hitRate = (double) sampleHits / sampleRequests;
+        double hitRateChange = hitRate - previousHitRate;
+        double amount = hitRateChange >= 0d ? stepSize : -stepSize;
+        stepSize = Math.abs(hitRateChange) >= HILL_CLIMBER_RESTART_THRESHOLD
+                   ? (amount >= 0d ? HILL_CLIMBER_STEP_PERCENT : -HILL_CLIMBER_STEP_PERCENT)
+                   : HILL_CLIMBER_STEP_DECAY_RATE * amount;
+        previousHitRate = hitRate;
+
+        long capacity = edenCapacity + mainCapacity;
+        long newEdenCapacity = edenCapacity + (long) (amount * capacity);
+        newEdenCapacity = Math.max(newEdenCapacity, (long) (MIN_EDEN_SIZE * capacity));
+        newEdenCapacity = Math.min(newEdenCapacity, (long) (MAX_EDEN_SIZE * capacity));
+        long diff = newEdenCapacity - edenCapacity;
+        if (diff == 0L) {
+            return;
+        }
+
+        // free capacities may become negative, entries are moved or evicted when new entries are added
+        edenCapacity += diff;
+        edenFreeCapacity += diff;
+        mainCapacity -= diff;
+        mainFreeCapacity -= diff;
+        probationCapacity = (long) (currentEdenSize() * mainCapacity);
+
+        long adjustments = edenGrowCount + edenShrinkCount;
+        edenSizeHistory[(int) (adjustments % EDEN_SIZE_HISTORY)] = currentEdenSize();
+        if (diff > 0L) {
+            edenGrowCount++;
+        } else {
+            edenShrinkCount++;
+        }
+    }
+
+    @Override
+    void resetStatistics() {
+        super.resetStatistics();
+        edenGrowCount = 0L;
+        edenShrinkCount = 0L;
+    }
+
+    @Override
+    long edenCapacity() {
+        return edenCapacity;
+    }
+
+    @Override
+    long edenGrowCount() {
+        return edenGrowCount;
+    }
+
+    @Override
+    long edenShrinkCount() {
+        return edenShrinkCount;
+    }
+
+    @Override
+    double[] edenSizeHistory() {
+        long adjustments = edenGrowCount + edenShrinkCount;
+        int n = (int) Math.min(adjustments, EDEN_SIZE_HISTORY);
+        double[] r = new double[n];
+        for (int i = 0; i < n; i++) {
+            r[i] = edenSizeHistory[(int) ((adjustments - n + i) % EDEN_SIZE_HISTORY)];
+        }
+        return r;
     }
 
     @Override
     LongArrayList ensureFreeSpaceForNewEntry(long bytes) {
+        LongArrayList derefList = null;
+        if (adaptiveEdenSize) {
+            climb();
+
+            // main generation has been shrunk by the adaptive eden size, evict from the probation area
+            // since admitting candidates from eden only exchanges one entry for another
+            while (mainFreeCapacity < 0L && mainLruTail != 0L) {
+                derefList = evictEntry(derefList, mainLruTail);
+            }
+        }
+
         // enough free capacity in eden generation?
         if (edenFreeCapacity >= bytes) {
-            return null;
+            return derefList;
         }
 
         // eden generation too small for entry?
         if (edenCapacity < bytes) {
-            return null;
+            return derefList;
         }
 
         // need to make room in eden
@@ -101,25 +235,43 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
         long candidateAdr = edenLruTail;
         long nextCandidateAdr;
 
-        if (bytes > edenFreeCapacity) {
-            // main generation has enough free capacity for candidate from eden, just move candidate to main generation and return
-            // (note: this happens when the cache is initially empty and new entries get added)
-            if (mainLruTail == 0L || mainFreeCapacity >= bytes) {
-                moveCandidateFromEdenToMain(candidateAdr);
-                return null;
-            }
+        // main generation has enough free capacity for candidates from eden, just move candidates to main generation
+        // (note: this happens when the cache is initially empty and new entries get added, or after the eden
+        // generation has been shrunk by the adaptive eden size)
+        while (candidateAdr != 0L && bytes > edenFreeCapacity
+               && (mainLruTail == 0L || mainFreeCapacity >= HashEntries.getAllocLen(candidateAdr))) {
+            nextCandidateAdr = HashEntries.getLRUPrev(candidateAdr);
+            moveCandidateFromEdenToMain(candidateAdr);
+            candidateAdr = nextCandidateAdr;
+        }
+        if (bytes <= edenFreeCapacity) {
+            return derefList;
         }
 
         // status: main generation has not enough room - need to check entries in eden generation against entries in
         // probation area.
 
+        derefList = admission == Admission.FREQUENCY
+                    ? admitByFrequency(derefList, bytes, candidateAdr)
+                    : admitSizeAware(derefList, bytes, candidateAdr);
+
+        // no more entries in the probation area to compare with, evict the remaining candidates
+        while (bytes > edenFreeCapacity && edenLruTail != 0L) {
+            derefList = evictEntry(derefList, edenLruTail);
+        }
+
+        return derefList;
+    }
+
+    private LongArrayList admitByFrequency(LongArrayList derefList, long bytes, long candidateAdr) {
+        long nextCandidateAdr;
+
         long victimAdr = mainLruTail;
         long nextVictimAdr;
 
         // TODO following code compares one entry in eden with one entry in probation (starting at the tail).
         // It feels that it is ok to do it like that - but not sure.
 
-        LongArrayList derefList = null;
         long probationUsed = probationUsed();
         for (; bytes > edenFreeCapacity && probationUsed > 0L; candidateAdr = nextCandidateAdr, victimAdr = nextVictimAdr) {
             if (candidateAdr == 0L) {
@@ -143,6 +295,15 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
                 derefList = evictEntry(derefList, victimAdr);
 
                 moveCandidateFromEdenToMain(candidateAdr);
+
+                // a candidate bigger than the victim must not make the main generation exceed its capacity
+                if (mainFreeCapacity < 0L) {
+                    while (mainFreeCapacity < 0L && mainLruTail != candidateAdr) {
+                        derefList = evictEntry(derefList, mainLruTail);
+                    }
+                    nextVictimAdr = mainLruTail;
+                    probationUsed = probationUsed();
+                }
             } else {
                 // candidate not admitted, evict it
 
@@ -153,11 +314,96 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
         return derefList;
     }
 
+    @Override
+    LongArrayList evictEldest(long targetFreeCapacity, int maxEntries) {
+        LongArrayList derefList = null;
+        for (int i = 0; i < maxEntries && freeCapacity() < targetFreeCapacity; i++) {
+            // the tail of the main generation is the coldest entry of the probation area,
+            // so new entries can still be admitted from eden without evicting
+            long victimAdr = mainLruTail != 0L ? mainLruTail : edenLruTail;
+            if (victimAdr == 0L) {
+                break;
+            }
+            derefList = evictEntry(derefList, victimAdr);
+        }
+        return derefList;
+    }
+
     @Override
     boolean hasFreeSpaceForNewEntry(long bytes) {
         return edenFreeCapacity >= bytes;
     }
 
+    /**
+     * Size aware admission. A candidate from eden replaces as many entries from the tail of the probation area
+     * as are needed to free the candidate's bytes, if the candidate's expected hits per byte are higher than
+     * those of the victims. For candidates of about the size of the victims, this compares the candidate's
+     * frequency with the combined frequency of the victims, so admitting a big entry does not evict a lot of
+     * small, hot entries. A small candidate may replace a big victim, the remaining bytes are used by the
+     * following candidates. {@link Admission#BYTE_HIT_RATIO} weights each hit with the entry's size.
+     */
+    private LongArrayList admitSizeAware(LongArrayList derefList, long bytes, long candidateAdr) {
+        long nextCandidateAdr;
+
+        long probationUsed = probationUsed();
+        for (; bytes > edenFreeCapacity && probationUsed > 0L; candidateAdr = nextCandidateAdr) {
+            if (candidateAdr == 0L) {
+                throw new AssertionError();
+            }
+
+            nextCandidateAdr = HashEntries.getLRUPrev(candidateAdr);
+
+            long candidateLen = HashEntries.getAllocLen(candidateAdr);
+            int candidateFreq = frequencySketch.frequency(HashEntries.getHash(candidateAdr));
+
+            // collect victims from the tail of the probation area until these free enough bytes for the candidate
+            long needed = candidateLen - mainFreeCapacity;
+            long victimBytes = 0L;
+            long victimsFreq = 0L;
+            long victimsByteFreq = 0L;
+            int victims = 0;
+            for (long victimAdr = mainLruTail;
+                 victimAdr != 0L && victimBytes < needed && victimBytes < probationUsed;
+                 victimAdr = HashEntries.getLRUPrev(victimAdr)) {
+                long victimLen = HashEntries.getAllocLen(victimAdr);
+                int victimFreq = frequencySketch.frequency(HashEntries.getHash(victimAdr));
+                victimBytes += victimLen;
+                victimsFreq += victimFreq;
+                victimsByteFreq += victimFreq * victimLen;
+                victims++;
+            }
+
+            // compare hits per byte:  candidateFreq / candidateLen  vs.  victimsFreq / victimBytes
+            // or bytes hit:           candidateFreq * candidateLen  vs.  victimsByteFreq
+            long candidateWeight;
+            long victimsWeight;
+            if (admission == Admission.BYTE_HIT_RATIO) {
+                candidateWeight = candidateFreq * candidateLen;
+                victimsWeight = victimsByteFreq;
+            } else {
+                candidateWeight = candidateFreq * victimBytes;
+                victimsWeight = victimsFreq * candidateLen;
+            }
+
+            if (needed <= 0L || (victimBytes >= needed && admit(candidateWeight, victimsWeight, candidateFreq))) {
+                // evict victims from main generation & move candidate to main generation
+
+                for (; victims > 0; victims--) {
+                    derefList = evictEntry(derefList, mainLruTail);
+                }
+                probationUsed -= victimBytes;
+
+                moveCandidateFromEdenToMain(candidateAdr);
+            } else {
+                // candidate not admitted, evict it
+
+                derefList = evictEntry(derefList, candidateAdr);
+            }
+        }
+
+        return derefList;
+    }
+
     private LongArrayList evictEntry(LongArrayList derefList, long targetAdr) {
         removeInternal(targetAdr, -1L, true);
         size--;
@@ -190,6 +436,17 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
         return -mainFreeCapacity + probationCapacity;
     }
 
+    private boolean admit(long candidateWeight, long victimsWeight, int candidateFreq) {
+        if (candidateWeight > victimsWeight) {
+            return true;
+        } else if (candidateFreq <= 5) {
+            // same protection against attacks as in admit(int, int)
+            return false;
+        }
+
+        return frequencySketch.tieAdmit();
+    }
+
     private boolean admit(int candidateFreq, int victimFreq) {
         if (candidateFreq > victimFreq) {
             return true;
@@ -259,6 +516,8 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
     long[] hotN(int n) {
         boolean wasFirst = lock();
         try {
+            drainReadBuffer();
+
             long[] r = new long[n];
             int i = 0;
             for (long hashEntryAdr = mainLruHead; hashEntryAdr != 0L && i < n; hashEntryAdr = HashEntries.getLRUNext(hashEntryAdr)) {
@@ -276,7 +535,7 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
     }
 
     @Override
-    void replaceSentinelInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes) {
+    void replaceInLruAndUpdateCapacity(long hashEntryAdr, long newHashEntryAdr, long bytes) {
         // TODO also handle the case, that the sentinel has been evicted
 
         int gen = HashEntries.getGeneration(hashEntryAdr);
@@ -303,7 +562,6 @@ final class OffHeapLinkedWTinyLFUMap extends OffHeapLinkedMap {
             HashEntries.setLRUNext(prev, newHashEntryAdr);
         }
 
-        // note: only need to add bytes since this method only replaces a sentinel with the real value
         adjustFreeCapacity(gen, -bytes);
     }
 
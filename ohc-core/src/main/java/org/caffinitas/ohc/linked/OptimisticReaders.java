@@ -0,0 +1,154 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Reader registration and deferred reclamation for lock-free reads of an {@link OffHeapLinkedMap} segment.
+ * <p>
+ * Optimistic readers register in one of the stripes while they access off-heap memory without holding the
+ * segment lock. Writers do not release hash entries unlinked from the hash table (or replaced hash tables)
+ * directly but <i>retire</i> them. Retired memory is released after each stripe has been observed without
+ * active readers - readers that registered afterwards cannot reach retired memory.
+ * </p>
+ */
+final class OptimisticReaders {
+    // one cache line per stripe
+    private static final int PAD = 8;
+    private static final int ACTIVE = 0;
+    private static final int READS = 1;
+    // while memory is retired, every 64th read of a stripe reclaims it - read-mostly segments would keep it until the next write otherwise
+    private static final long RECLAIM_READS_MASK = 63L;
+
+    private final int stripeMask;
+    private final AtomicLongArray cells;
+    // released hash entries are queued to be freed, if deferred freeing is configured
+    private final ReclaimQueue reclaimQueue;
+
+    private volatile boolean pending;
+    // retired, but grace period not yet started
+    private final LongArrayList retiredEntries = new LongArrayList();
+    private final List<OffHeapLinkedMap.Table> retiredTables = new ArrayList<>();
+    // retired, grace period started - waitingStripes are the stripes not yet observed without readers
+    private final LongArrayList waitingEntries = new LongArrayList();
+    private final List<OffHeapLinkedMap.Table> waitingTables = new ArrayList<>();
+    private long waitingStripes;
+
+    OptimisticReaders(int stripes, ReclaimQueue reclaimQueue) {
+        this.stripeMask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * PAD);
+        this.reclaimQueue = reclaimQueue;
+    }
+
+    int enter() {
+        int stripe = ReadBuffer.threadStripe() & stripeMask;
+        cells.incrementAndGet(stripe * PAD + ACTIVE);
+        return stripe;
+    }
+
+    /**
+     * @return {@code true}, if the reader shall call {@link #reclaim()}
+     */
+    boolean exit(int stripe) {
+        cells.decrementAndGet(stripe * PAD + ACTIVE);
+        return pending && (cells.incrementAndGet(stripe * PAD + READS) & RECLAIM_READS_MASK) == 0L;
+    }
+
+    synchronized void retire(long hashEntryAdr) {
+        retiredEntries.add(hashEntryAdr);
+        pending = true;
+    }
+
+    synchronized void retire(OffHeapLinkedMap.Table table) {
+        retiredTables.add(table);
+        pending = true;
+    }
+
+    /**
+     * Releases retired memory for which the grace period has completed and starts a new grace period
+     * for memory retired since. Must be called after an entry or a table has been retired.
+     */
+    void reclaim() {
+        if (!pending) {
+            return;
+        }
+
+        synchronized (this) {
+            if (waitingEntries.size() == 0 && waitingTables.isEmpty()) {
+                startGracePeriod();
+            }
+
+            for (long mask = waitingStripes; mask != 0L; mask &= mask - 1) {
+                int stripe = Long.numberOfTrailingZeros(mask);
+                if (cells.get(stripe * PAD + ACTIVE) == 0L) {
+                    waitingStripes &= ~(1L << stripe);
+                }
+            }
+            if (waitingStripes != 0L) {
+                return;
+            }
+
+            releaseWaiting();
+
+            startGracePeriod();
+            pending = waitingEntries.size() != 0 || !waitingTables.isEmpty();
+        }
+    }
+
+    boolean isPending() {
+        return pending;
+    }
+
+    /**
+     * Releases all retired memory regardless of active readers, used when the segment is released.
+     */
+    synchronized void releaseAll() {
+        releaseWaiting();
+        startGracePeriod();
+        releaseWaiting();
+        pending = false;
+    }
+
+    private void startGracePeriod() {
+        for (int i = 0; i < retiredEntries.size(); i++) {
+            waitingEntries.add(retiredEntries.getLong(i));
+        }
+        retiredEntries.clear();
+        waitingTables.addAll(retiredTables);
+        retiredTables.clear();
+
+        waitingStripes = (1L << (stripeMask + 1)) - 1L;
+    }
+
+    private void releaseWaiting() {
+        for (int i = 0; i < waitingEntries.size(); i++) {
+            long hashEntryAdr = waitingEntries.getLong(i);
+            if (reclaimQueue == null) {
+                HashEntries.dereference(hashEntryAdr);
+            } else if (HashEntries.dereferenceNoFree(hashEntryAdr)) {
+                reclaimQueue.add(hashEntryAdr);
+            }
+        }
+        waitingEntries.clear();
+        for (OffHeapLinkedMap.Table table : waitingTables) {
+            table.release();
+        }
+        waitingTables.clear();
+    }
+}
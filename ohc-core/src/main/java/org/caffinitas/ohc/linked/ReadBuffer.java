@@ -0,0 +1,173 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Striped, lossy buffer of entry accesses that have not been applied to the eviction order yet, plus
+ * striped hit and miss counters for lookups that do not hold the segment lock exclusively.
+ * <p>
+ * Accesses are recorded without holding the segment lock. If a stripe is full, the access is not recorded.
+ * The buffer is drained while holding the segment lock. Since a recorded hash entry may have been removed
+ * in the meantime, the drain function must verify that the entry is still contained in the hash table
+ * before touching it.
+ * </p>
+ */
+final class ReadBuffer {
+    static final int STRIPE_SIZE = 16;
+    static final int MAX_STRIPES = 32;
+
+    // one cache line per stripe
+    private static final int PAD = 8;
+    private static final int WRITE = 0;
+    private static final int READ = 1;
+    private static final int HITS = 2;
+    private static final int MISSES = 3;
+    private static final int DROPPED = 4;
+
+    private final int stripeMask;
+    private final AtomicLongArray counters;
+    // pairs of hash entry address and hash
+    private final AtomicLongArray slots;
+
+    // only modified while holding the segment lock
+    private long drained;
+
+    interface DrainHandler {
+        /**
+         * @return whether the hash entry was still contained in the hash table
+         */
+        boolean accessed(long hashEntryAdr, long hash);
+    }
+
+    ReadBuffer(int stripes) {
+        this.stripeMask = stripes - 1;
+        this.counters = new AtomicLongArray(stripes * PAD);
+        this.slots = new AtomicLongArray(stripes * STRIPE_SIZE * 2);
+    }
+
+    static int stripeCount() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        return (int) Util.roundUpToPowerOf2(Math.min(cpus, MAX_STRIPES), MAX_STRIPES);
+    }
+
+    /**
+     * Stripe of the current thread. Depends only on the thread, so a thread always uses the same stripe.
+     */
+    static int threadStripe() {
+        long id = Thread.currentThread().getId();
+        int h = (int) (id ^ (id >>> 32)) * 0x9e3779b9;
+        return h ^ (h >>> 16);
+    }
+
+    int stripe() {
+        return threadStripe() & stripeMask;
+    }
+
+    /**
+     * Records an access to the given hash entry.
+     *
+     * @return {@code false} if the stripe is full
+     */
+    boolean record(int stripe, long hashEntryAdr, long hash) {
+        int c = stripe * PAD;
+        long write = counters.get(c + WRITE);
+        if (write - counters.get(c + READ) >= STRIPE_SIZE
+            || !counters.compareAndSet(c + WRITE, write, write + 1)) {
+            return false;
+        }
+
+        int slot = (stripe * STRIPE_SIZE + (int) (write & (STRIPE_SIZE - 1))) * 2;
+        slots.lazySet(slot + 1, hash);
+        slots.lazySet(slot, hashEntryAdr);
+        return true;
+    }
+
+    /**
+     * Passes all recorded accesses to the given handler. Must be called while holding the segment lock.
+     */
+    void drain(DrainHandler handler) {
+        for (int stripe = 0; stripe <= stripeMask; stripe++) {
+            int c = stripe * PAD;
+            long read = counters.get(c + READ);
+            long write = counters.get(c + WRITE);
+            if (read == write) {
+                continue;
+            }
+            for (; read < write; read++) {
+                int slot = (stripe * STRIPE_SIZE + (int) (read & (STRIPE_SIZE - 1))) * 2;
+                long hashEntryAdr = slots.get(slot);
+                if (hashEntryAdr == 0L) {
+                    // slot reserved, but access not written yet
+                    counters.incrementAndGet(c + DROPPED);
+                    continue;
+                }
+                long hash = slots.get(slot + 1);
+                slots.set(slot, 0L);
+                if (handler.accessed(hashEntryAdr, hash)) {
+                    drained++;
+                }
+            }
+            counters.lazySet(c + READ, read);
+        }
+    }
+
+    void dropped(int stripe) {
+        counters.incrementAndGet(stripe * PAD + DROPPED);
+    }
+
+    void hit(int stripe) {
+        counters.incrementAndGet(stripe * PAD + HITS);
+    }
+
+    void miss(int stripe) {
+        counters.incrementAndGet(stripe * PAD + MISSES);
+    }
+
+    long hitCount() {
+        return sum(HITS);
+    }
+
+    long missCount() {
+        return sum(MISSES);
+    }
+
+    long droppedCount() {
+        return sum(DROPPED);
+    }
+
+    long drainedCount() {
+        return drained;
+    }
+
+    void resetStatistics() {
+        drained = 0L;
+        for (int i = 0; i <= stripeMask; i++) {
+            counters.set(i * PAD + HITS, 0L);
+            counters.set(i * PAD + MISSES, 0L);
+            counters.set(i * PAD + DROPPED, 0L);
+        }
+    }
+
+    private long sum(int counter) {
+        long r = 0L;
+        for (int i = 0; i <= stripeMask; i++) {
+            r += counters.get(i * PAD + counter);
+        }
+        return r;
+    }
+}
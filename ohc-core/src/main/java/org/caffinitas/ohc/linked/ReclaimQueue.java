@@ -0,0 +1,114 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unreferenced hash entries removed from an {@link OffHeapLinkedMap} segment, waiting to be freed.
+ * <p>
+ * Instead of calling {@code free()} for each evicted or removed hash entry, hash entries are freed in batches.
+ * A full batch is freed on the executor, if one is configured, otherwise by the thread that filled the batch.
+ * If the executor falls behind, the thread that fills a batch frees the queued hash entries itself.
+ * Queued hash entries are still allocated and therefore counted as {@link #pendingBytes() pending bytes}.
+ * </p>
+ */
+final class ReclaimQueue {
+    // queued hash entries, in batches, after which the filling thread frees the queue itself
+    private static final int MAX_PENDING_BATCHES = 4;
+
+    private final int batchSize;
+    private final Executor executor;
+
+    private LongArrayList queue = new LongArrayList();
+    private volatile long pendingBytes;
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final Runnable drainTask = new Runnable() {
+        @Override
+        public void run() {
+            drainScheduled.set(false);
+            drain();
+        }
+    };
+
+    ReclaimQueue(int batchSize, Executor executor) {
+        this.batchSize = batchSize;
+        this.executor = executor;
+    }
+
+    long pendingBytes() {
+        return pendingBytes;
+    }
+
+    /**
+     * Queues an unreferenced hash entry to be freed.
+     */
+    void add(long hashEntryAdr) {
+        long bytes = HashEntries.getAllocLen(hashEntryAdr);
+        int size;
+        synchronized (this) {
+            queue.add(hashEntryAdr);
+            pendingBytes += bytes;
+            size = queue.size();
+        }
+
+        if (size < batchSize) {
+            return;
+        }
+
+        if (executor != null && size < batchSize * MAX_PENDING_BATCHES) {
+            if (drainScheduled.compareAndSet(false, true)) {
+                try {
+                    executor.execute(drainTask);
+                } catch (RejectedExecutionException e) {
+                    drainScheduled.set(false);
+                    drain();
+                }
+            }
+            return;
+        }
+
+        drain();
+    }
+
+    /**
+     * Frees all queued hash entries.
+     */
+    void drain() {
+        LongArrayList batch;
+        synchronized (this) {
+            if (queue.size() == 0) {
+                return;
+            }
+            batch = queue;
+            queue = new LongArrayList(batchSize);
+        }
+
+        long bytes = 0L;
+        for (int i = 0; i < batch.size(); i++) {
+            long hashEntryAdr = batch.getLong(i);
+            bytes += HashEntries.getAllocLen(hashEntryAdr);
+            Uns.free(hashEntryAdr);
+        }
+
+        synchronized (this) {
+            pendingBytes -= bytes;
+        }
+    }
+}
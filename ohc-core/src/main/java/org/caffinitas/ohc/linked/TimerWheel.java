@@ -0,0 +1,370 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.util.Arrays;
+
+import org.caffinitas.ohc.Ticker;
+
+/**
+ * Manages cache entry time-to-live in off-heap memory using a hierarchical timing wheel.
+ * <p>
+ * The wheel consists of {@value #LEVELS} levels of {@code buckets} buckets each. A bucket of the lowest level
+ * spans {@code tick} milliseconds, a bucket of each higher level spans all buckets of the level below. With the
+ * defaults of 64 buckets and a tick of 1024ms, the levels cover about a minute, an hour, three days and half a year.
+ * A timeout is placed in the lowest level that covers its remaining time-to-live. When time advances, the passed
+ * buckets of each level are processed: due timeouts are queued for removal, all others cascade down into a
+ * lower level. Timeouts beyond the highest level wrap around and are placed again when their bucket is processed.
+ * </p>
+ * <p>
+ * Timeouts are stored in an off-heap open addressing table with linear probing, keyed by the address of the
+ * cache's entry. Each timeout is linked into the doubly linked list of its bucket, so adding and removing a timeout
+ * is O(1) and expiration only touches the timeouts in passed buckets and in the current bucket of the lowest level,
+ * if that contains a due timeout. The table is only resized when it grows.
+ * </p>
+ */
+final class TimerWheel {
+    static final int LEVELS = 4;
+
+    // Each node consists of:
+    // 1. 8 bytes: pointer to hashEntryAdr, 0 for an empty node
+    // 2. 8 bytes: expireAt
+    // 3. 4 bytes: index of the next node in the bucket or NIL
+    // 4. 4 bytes: index of the previous node in the bucket or, for the first node, -1 - bucket
+    private static final long NODE_OFF_ADR = 0;
+    private static final long NODE_OFF_EXPIRE_AT = 8;
+    private static final long NODE_OFF_NEXT = 16;
+    private static final long NODE_OFF_PREV = 20;
+    private static final long NODE_SIZE = 24;
+
+    private static final int NIL = -1;
+
+    private static final int MIN_CAPACITY = 64;
+    private static final int MAX_CAPACITY = 1 << 30;
+
+    private final Ticker ticker;
+
+    private final int tickShift;
+    private final int bucketBits;
+    private final int bucketMask;
+
+    // first node of each bucket, followed by the list of due timeouts
+    private final int[] heads;
+    // lower bound of the expireAt values in each bucket, used to skip the current bucket
+    private final long[] minExpireAt;
+    private final int dueBucket;
+
+    // time of the last advance
+    private long time;
+
+    private long nodes;
+    private int capacity;
+    private int capacityShift;
+    private int threshold;
+    private int used;
+
+    TimerWheel(Ticker ticker, int buckets, long tick) {
+        if (buckets == 0)
+            buckets = 64;
+        if (tick == 0)
+            tick = 1024;
+
+        if (buckets < 1)
+            throw new IllegalArgumentException("timeouts-slots <= 0");
+        if (tick < 1)
+            throw new IllegalArgumentException("precision <= 0");
+
+        this.ticker = ticker;
+
+        int bucketCount = (int) Util.roundUpToPowerOf2(Math.max(buckets, 16), 256);
+        this.bucketBits = Integer.numberOfTrailingZeros(bucketCount);
+        this.bucketMask = bucketCount - 1;
+        this.tickShift = Long.numberOfTrailingZeros(Util.roundUpToPowerOf2(tick, 1 << 30));
+
+        this.dueBucket = LEVELS * bucketCount;
+        this.heads = new int[dueBucket + 1];
+        Arrays.fill(heads, NIL);
+        this.minExpireAt = new long[dueBucket];
+        Arrays.fill(minExpireAt, Long.MAX_VALUE);
+
+        this.time = ticker.currentTimeMillis();
+    }
+
+    /**
+     * Add a cache entry.
+     *
+     * @param hashEntryAdr address of the cache entry
+     * @param expireAt     absolute expiration timestamp
+     */
+    void add(long hashEntryAdr, long expireAt) {
+        if (used >= threshold)
+            resize(capacity == 0 ? MIN_CAPACITY : capacity * 2);
+
+        int node = slot(hashEntryAdr);
+        for (long adr; (adr = Uns.getLong(nodes, node * NODE_SIZE + NODE_OFF_ADR)) != 0L; node = (node + 1) & (capacity - 1)) {
+            if (adr == hashEntryAdr) {
+                unlink(node);
+                used--;
+                break;
+            }
+        }
+
+        Uns.putLong(nodes, node * NODE_SIZE + NODE_OFF_ADR, hashEntryAdr);
+        Uns.putLong(nodes, node * NODE_SIZE + NODE_OFF_EXPIRE_AT, expireAt);
+        link(node, bucket(expireAt), expireAt);
+        used++;
+    }
+
+    /**
+     * Remove a cache entry.
+     *
+     * @param hashEntryAdr address of the cache entry
+     * @param expireAt     absolute expiration timestamp
+     */
+    void remove(long hashEntryAdr, long expireAt) {
+        int node = find(hashEntryAdr);
+        if (node != NIL) {
+            unlink(node);
+            delete(node);
+        }
+    }
+
+    int used() {
+        return used;
+    }
+
+    /**
+     * Remove expired entries.
+     *
+     * @param expireHandler implementation that will be called for each expired entry.
+     */
+    int removeExpired(TimeoutHandler expireHandler) {
+        advance(ticker.currentTimeMillis());
+
+        return expireDue(expireHandler, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Remove expired entries incrementally, calling the handler for at most {@code maxEntries} entries per call.
+     * Cascading timeouts down the levels is not bounded, each timeout cascades at most {@value #LEVELS} times.
+     *
+     * @param expireHandler implementation that will be called for each expired entry.
+     * @param maxEntries    maximum number of entries to remove
+     * @return {@code true}, if all due entries have been removed
+     */
+    boolean sweepExpired(TimeoutHandler expireHandler, int maxEntries) {
+        advance(ticker.currentTimeMillis());
+
+        expireDue(expireHandler, maxEntries);
+        return heads[dueBucket] == NIL;
+    }
+
+    /**
+     * Releases all allocated off-heap memory.
+     */
+    void release() {
+        Uns.free(nodes);
+        nodes = 0L;
+        capacity = 0;
+        threshold = 0;
+        used = 0;
+        Arrays.fill(heads, NIL);
+        Arrays.fill(minExpireAt, Long.MAX_VALUE);
+    }
+
+    interface TimeoutHandler {
+        /**
+         * Called by {@link #removeExpired(TimeoutHandler)} and {@link #sweepExpired(TimeoutHandler, int)}
+         * for each expired entry.
+         * The implementation must <b>not</b> call {@link #remove(long, long)} since
+         * removal of the entry in this structure has already taken place.
+         *
+         * @param hashEntryAdr cache entry address that has expired
+         */
+        void expired(long hashEntryAdr);
+    }
+
+    private int expireDue(TimeoutHandler expireHandler, int maxEntries) {
+        int expired = 0;
+        for (int node; expired < maxEntries && (node = heads[dueBucket]) != NIL; expired++) {
+            long hashEntryAdr = Uns.getLong(nodes, node * NODE_SIZE + NODE_OFF_ADR);
+            unlink(node);
+            delete(node);
+
+            expireHandler.expired(hashEntryAdr);
+        }
+        return expired;
+    }
+
+    private void advance(long now) {
+        long previous = time;
+        if (now > previous) {
+            time = now;
+
+            for (int level = 0; level < LEVELS; level++) {
+                int shift = tickShift + level * bucketBits;
+                long previousTicks = previous >>> shift;
+                long currentTicks = now >>> shift;
+                if (currentTicks == previousTicks)
+                    break;
+
+                // process the passed buckets including the current one
+                int steps = (int) Math.min(currentTicks - previousTicks + 1, bucketMask + 1);
+                for (int i = 0; i < steps; i++)
+                    processBucket((level << bucketBits) | (int) ((previousTicks + i) & bucketMask));
+            }
+        }
+
+        // the current bucket of the lowest level is only processed, if it contains a due timeout
+        int current = (int) ((time >>> tickShift) & bucketMask);
+        if (minExpireAt[current] <= time)
+            processBucket(current);
+    }
+
+    private void processBucket(int bucket) {
+        int node = heads[bucket];
+        heads[bucket] = NIL;
+        minExpireAt[bucket] = Long.MAX_VALUE;
+
+        while (node != NIL) {
+            int next = Uns.getInt(nodes, node * NODE_SIZE + NODE_OFF_NEXT);
+            long expireAt = Uns.getLong(nodes, node * NODE_SIZE + NODE_OFF_EXPIRE_AT);
+            link(node, expireAt <= time ? dueBucket : bucket(expireAt), expireAt);
+            node = next;
+        }
+    }
+
+    private int bucket(long expireAt) {
+        // timeouts already due are placed in the current bucket of the lowest level
+        long t = Math.max(expireAt, time);
+        long duration = t - time;
+
+        int level = 0;
+        while (level < LEVELS - 1 && duration >= 1L << (tickShift + (level + 1) * bucketBits))
+            level++;
+
+        int shift = tickShift + level * bucketBits;
+        return (level << bucketBits) | (int) ((t >>> shift) & bucketMask);
+    }
+
+    private void link(int node, int bucket, long expireAt) {
+        int first = heads[bucket];
+        Uns.putInt(nodes, node * NODE_SIZE + NODE_OFF_NEXT, first);
+        Uns.putInt(nodes, node * NODE_SIZE + NODE_OFF_PREV, -1 - bucket);
+        if (first != NIL)
+            Uns.putInt(nodes, first * NODE_SIZE + NODE_OFF_PREV, node);
+        heads[bucket] = node;
+
+        if (bucket != dueBucket && expireAt < minExpireAt[bucket])
+            minExpireAt[bucket] = expireAt;
+    }
+
+    private void unlink(int node) {
+        int next = Uns.getInt(nodes, node * NODE_SIZE + NODE_OFF_NEXT);
+        int prev = Uns.getInt(nodes, node * NODE_SIZE + NODE_OFF_PREV);
+        if (prev >= 0)
+            Uns.putInt(nodes, prev * NODE_SIZE + NODE_OFF_NEXT, next);
+        else
+            heads[-1 - prev] = next;
+        if (next != NIL)
+            Uns.putInt(nodes, next * NODE_SIZE + NODE_OFF_PREV, prev);
+    }
+
+    private int slot(long hashEntryAdr) {
+        return (int) ((hashEntryAdr * 0x9e3779b97f4a7c15L) >>> capacityShift);
+    }
+
+    private int find(long hashEntryAdr) {
+        if (used == 0)
+            return NIL;
+
+        for (int node = slot(hashEntryAdr); ; node = (node + 1) & (capacity - 1)) {
+            long adr = Uns.getLong(nodes, node * NODE_SIZE + NODE_OFF_ADR);
+            if (adr == hashEntryAdr)
+                return node;
+            if (adr == 0L)
+                return NIL;
+        }
+    }
+
+    /**
+     * Removes an unlinked node from the table, moving following nodes of the probe sequence into the gap.
+     */
+    private void delete(int node) {
+        int mask = capacity - 1;
+        int gap = node;
+        for (int i = (node + 1) & mask; ; i = (i + 1) & mask) {
+            long adr = Uns.getLong(nodes, i * NODE_SIZE + NODE_OFF_ADR);
+            if (adr == 0L)
+                break;
+
+            // the node can be moved, if its home slot is not between the gap and itself
+            int home = slot(adr);
+            if (((i - home) & mask) >= ((i - gap) & mask)) {
+                move(i, gap);
+                gap = i;
+            }
+        }
+
+        Uns.putLong(nodes, gap * NODE_SIZE + NODE_OFF_ADR, 0L);
+        used--;
+    }
+
+    private void move(int from, int to) {
+        Uns.copyMemory(nodes, from * NODE_SIZE, nodes, to * NODE_SIZE, NODE_SIZE);
+
+        int next = Uns.getInt(nodes, to * NODE_SIZE + NODE_OFF_NEXT);
+        int prev = Uns.getInt(nodes, to * NODE_SIZE + NODE_OFF_PREV);
+        if (prev >= 0)
+            Uns.putInt(nodes, prev * NODE_SIZE + NODE_OFF_NEXT, to);
+        else
+            heads[-1 - prev] = to;
+        if (next != NIL)
+            Uns.putInt(nodes, next * NODE_SIZE + NODE_OFF_PREV, to);
+    }
+
+    private void resize(int newCapacity) {
+        if (newCapacity > MAX_CAPACITY)
+            throw new IllegalStateException("too many timeouts");
+
+        long oldNodes = nodes;
+        int[] oldHeads = heads.clone();
+
+        nodes = Uns.allocate(newCapacity * NODE_SIZE, true);
+        Uns.setMemory(nodes, 0, newCapacity * NODE_SIZE, (byte) 0);
+        capacity = newCapacity;
+        capacityShift = 64 - Integer.numberOfTrailingZeros(newCapacity);
+        threshold = (int) (newCapacity * .75f);
+
+        // re-insert the nodes of each bucket, keeping their buckets
+        Arrays.fill(heads, NIL);
+        for (int bucket = 0; bucket < oldHeads.length; bucket++) {
+            for (int old = oldHeads[bucket]; old != NIL; old = Uns.getInt(oldNodes, old * NODE_SIZE + NODE_OFF_NEXT)) {
+                long adr = Uns.getLong(oldNodes, old * NODE_SIZE + NODE_OFF_ADR);
+                long expireAt = Uns.getLong(oldNodes, old * NODE_SIZE + NODE_OFF_EXPIRE_AT);
+
+                int node = slot(adr);
+                while (Uns.getLong(nodes, node * NODE_SIZE + NODE_OFF_ADR) != 0L)
+                    node = (node + 1) & (capacity - 1);
+                Uns.putLong(nodes, node * NODE_SIZE + NODE_OFF_ADR, adr);
+                Uns.putLong(nodes, node * NODE_SIZE + NODE_OFF_EXPIRE_AT, expireAt);
+                link(node, bucket, expireAt);
+            }
+        }
+
+        Uns.free(oldNodes);
+    }
+}
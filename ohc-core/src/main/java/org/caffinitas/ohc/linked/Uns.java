@@ -28,6 +28,7 @@ import java.util.concurrent.ConcurrentMap;
 import org.caffinitas.ohc.OHCacheBuilder;
 import org.caffinitas.ohc.alloc.IAllocator;
 import org.caffinitas.ohc.alloc.JNANativeAllocator;
+import org.caffinitas.ohc.alloc.SlabAllocator;
 import org.caffinitas.ohc.alloc.UnsafeAllocator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -173,6 +174,10 @@ final class Uns {
                     alloc = new UnsafeAllocator();
                     LOGGER.info("OHC using sun.misc.Unsafe memory allocation");
                     break;
+                case "slab":
+                    alloc = new SlabAllocator(new JNANativeAllocator());
+                    LOGGER.info("OHC using slab allocator backed by JNA OS native malloc/free");
+                    break;
                 case "jna":
                 default:
                     alloc = new JNANativeAllocator();
@@ -195,6 +200,13 @@ final class Uns {
         return unsafe.getLong(array, (long) Unsafe.ARRAY_BYTE_BASE_OFFSET + offset);
     }
 
+    static void putLongToByteArray(byte[] array, int offset, long value) {
+        if (offset < 0 || offset + 8 > array.length) {
+            throw new ArrayIndexOutOfBoundsException();
+        }
+        unsafe.putLong(array, (long) Unsafe.ARRAY_BYTE_BASE_OFFSET + offset, value);
+    }
+
     static int getIntFromByteArray(byte[] array, int offset) {
         if (offset < 0 || offset + 4 > array.length) {
             throw new ArrayIndexOutOfBoundsException();
@@ -266,6 +278,10 @@ final class Uns {
         ext.getAndAddInt(address, offset, 1);
     }
 
+    static void loadFence() {
+        ext.loadFence();
+    }
+
     static void copyMemory(byte[] arr, int off, long address, long offset, long len) {
         validate(address, offset, len);
         unsafe.copyMemory(arr, Unsafe.ARRAY_BYTE_BASE_OFFSET + off, null, address + offset, len);
@@ -330,6 +346,10 @@ final class Uns {
         return allocator.getTotalAllocated();
     }
 
+    static IAllocator getAllocator() {
+        return allocator;
+    }
+
     static long allocate(long bytes) {
         return allocate(bytes, false);
     }
@@ -413,19 +433,19 @@ final class Uns {
 
     static ByteBuffer keyBufferR(long hashEntryAdr) {
         long keyLen = HashEntries.getKeyLen(hashEntryAdr);
-        return Uns.directBufferFor(hashEntryAdr + Util.ENTRY_OFF_DATA, 0, keyLen, true);
+        return Uns.directBufferFor(hashEntryAdr + HashEntries.getDataOffset(hashEntryAdr), 0, keyLen, true);
     }
 
     static ByteBuffer keyBuffer(long hashEntryAdr, long keyLen) {
-        return Uns.directBufferFor(hashEntryAdr + Util.ENTRY_OFF_DATA, 0, keyLen, false);
+        return Uns.directBufferFor(hashEntryAdr + HashEntries.getDataOffset(hashEntryAdr), 0, keyLen, false);
     }
 
     static ByteBuffer valueBufferR(long hashEntryAdr) {
         long valueLen = HashEntries.getValueLen(hashEntryAdr);
-        return Uns.directBufferFor(hashEntryAdr + Util.ENTRY_OFF_DATA + Util.roundUpTo8(HashEntries.getKeyLen(hashEntryAdr)), 0, valueLen, true);
+        return Uns.directBufferFor(hashEntryAdr + HashEntries.getDataOffset(hashEntryAdr) + Util.roundUpTo8(HashEntries.getKeyLen(hashEntryAdr)), 0, valueLen, true);
     }
 
     static ByteBuffer valueBuffer(long hashEntryAdr, long keyLen, long valueLen) {
-        return Uns.directBufferFor(hashEntryAdr + Util.ENTRY_OFF_DATA + Util.roundUpTo8(keyLen), 0, valueLen, false);
+        return Uns.directBufferFor(hashEntryAdr + HashEntries.getDataOffset(hashEntryAdr) + Util.roundUpTo8(keyLen), 0, valueLen, false);
     }
 }
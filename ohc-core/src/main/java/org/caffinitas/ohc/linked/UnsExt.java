@@ -30,4 +30,6 @@ abstract class UnsExt {
     abstract int getAndAddInt(long address, long offset, int value);
 
     abstract long crc32(long address, long offset, long len);
+
+    abstract void loadFence();
 }
@@ -21,6 +21,8 @@ import sun.misc.Unsafe;
 
 @SuppressWarnings("restriction")
 final class UnsExt7 extends UnsExt {
+    private volatile int fence;
+
     UnsExt7(Unsafe unsafe) {
         super(unsafe);
     }
@@ -54,4 +56,10 @@ final class UnsExt7 extends UnsExt {
         h |= h << 32;
         return h;
     }
+
+    @Override
+    void loadFence() {
+        // Java 7 has no Unsafe.loadFence() - a volatile store acts as a full fence
+        fence = 0;
+    }
 }
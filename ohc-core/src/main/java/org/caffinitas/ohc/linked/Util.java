@@ -32,38 +32,56 @@ final class Util {
     static final long ENTRY_OFF_NEXT = 16;
     // offset of entry reference counter (4 bytes, int)
     static final long ENTRY_OFF_REFCOUNT = 24;
-    // offset of entry sentinel (4 bytes, int)
+    // offset of entry sentinel (1 byte)
     static final long ENTRY_OFF_SENTINEL = 28;
-    // slot in which the entry resides (8 bytes, long)
-    static final long ENTRY_OFF_EXPIRE_AT = 32;
-    // LRU generation (4 bytes, int, only 2 distinct values)
-    static final long ENTRY_OFF_GENERATION = 40;
-    // bytes 44..47 unused
+    // optional header fields present in the entry, FIELD_* bits (1 byte, followed by 2 unused bytes)
+    static final long ENTRY_OFF_HEADER_FIELDS = 29;
     // offset of serialized hash value (8 bytes, long)
-    static final long ENTRY_OFF_HASH = 48;
+    static final long ENTRY_OFF_HASH = 32;
     // offset of serialized value length (4 bytes, int)
-    static final long ENTRY_OFF_VALUE_LENGTH = 56;
+    static final long ENTRY_OFF_VALUE_LENGTH = 40;
     // offset of serialized hash key length (4 bytes, int)
-    static final long ENTRY_OFF_KEY_LENGTH = 60;
-    // offset of data in first block
-    static final long ENTRY_OFF_DATA = 64;
+    static final long ENTRY_OFF_KEY_LENGTH = 44;
+    // offset of data in first block without optional header fields
+    static final long ENTRY_OFF_DATA = 48;
+
+    // Optional header fields, each 8 bytes, between the key length and the data
+
+    // LRU generation (1 byte, only 2 distinct values), present with FIELD_GENERATION
+    static final long ENTRY_OFF_GENERATION = 48;
+    // access bit or counter of CLOCK and S3-FIFO (1 byte, followed by 2 unused bytes), present with FIELD_GENERATION
+    static final long ENTRY_OFF_ACCESS = 49;
+    // write time in seconds, only maintained for refresh-after-write (4 bytes, int), present with FIELD_GENERATION
+    static final long ENTRY_OFF_WRITE_TIME = 52;
+    // expiration timestamp (8 bytes, long), present with FIELD_EXPIRE_AT - follows the generation field, if present
+    static final long ENTRY_OFF_EXPIRE_AT = 48;
+
+    // bits of the optional header fields, stored at ENTRY_OFF_HEADER_FIELDS
+    static final int FIELD_GENERATION = 1;
+    static final int FIELD_EXPIRE_AT = 2;
+    static final int FIELDS_ALL = FIELD_GENERATION | FIELD_EXPIRE_AT;
 
     static final int SERIALIZED_ENTRY_SIZE = (int) (ENTRY_OFF_DATA - ENTRY_OFF_HASH);
     static final int SERIALIZED_KEY_LEN_SIZE = (int) (ENTRY_OFF_DATA - ENTRY_OFF_KEY_LENGTH);
 
     // Note: keep ENTRY_OFF_HASH, ENTRY_OFF_VALUE_LENGTH, ENTRY_OFF_KEY_LENGTH in exact that order
-    // and together and at the end of the header because
-    // org.caffinitas.ohc.linked.OHCacheImpl.(de)serializeEntry relies on it!
+    // and together because org.caffinitas.ohc.linked.OHCacheImpl.(de)serializeEntry relies on it!
 
     // Window Tiny-LFU generations
 
     static final int GEN_EDEN = 0;
     static final int GEN_MAIN = 1;
 
+    // S3-FIFO queues
+
+    static final int GEN_SMALL = GEN_EDEN;
+
     // Hash bucket-table
 
     // total memory required for a hash-partition
     static final long BUCKET_ENTRY_LEN = 8;
+    // optional tag word following each hash-partition
+    static final long BUCKET_TAGS_LEN = 8;
 
     // Compressed entries header
 
@@ -95,8 +113,16 @@ final class Util {
         return val;
     }
 
-    static long allocLen(long keyLen, long valueLen) {
-        return ENTRY_OFF_DATA + roundUpTo8(keyLen) + valueLen;
+    static long dataOffset(int headerFields) {
+        return ENTRY_OFF_DATA + 8 * Integer.bitCount(headerFields);
+    }
+
+    static long expireAtOffset(int headerFields) {
+        return ENTRY_OFF_EXPIRE_AT + 8 * (headerFields & FIELD_GENERATION);
+    }
+
+    static long allocLen(int headerFields, long keyLen, long valueLen) {
+        return dataOffset(headerFields) + roundUpTo8(keyLen) + valueLen;
     }
 
     static void writeFully(WritableByteChannel channel, ByteBuffer buffer) throws IOException {
@@ -0,0 +1,205 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.loader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.caffinitas.ohc.BulkCacheLoader;
+import org.caffinitas.ohc.OHCache;
+
+import com.google.common.util.concurrent.SettableFuture;
+
+/**
+ * Implements {@link OHCache#getAllWithLoader(Iterable, BulkCacheLoader)} for the cache implementations.
+ * <p>
+ * Misses are merged with the keys other threads are already loading. The remaining keys are collected
+ * in a batch per loader, which is dispatched by the thread that opened it after {@code windowMicros} or
+ * as soon as it contains {@code maxBatchSize} keys. Loads run on the dispatching thread, the loaded values
+ * are added using {@link OHCache#putAll(Map)}, so each segment is locked once per batch.
+ * </p>
+ */
+public final class BulkLoadCoalescer<K, V> {
+    private final long windowNanos;
+    private final int maxBatchSize;
+
+    // all fields below are guarded by 'this'
+
+    // keys being loaded or waiting in a batch
+    private final Map<K, SettableFuture<V>> inFlight = new HashMap<>();
+    // open batch per loader
+    private final Map<BulkCacheLoader<K, V>, Batch<K, V>> open = new IdentityHashMap<>();
+
+    public BulkLoadCoalescer(long windowMicros, int maxBatchSize) {
+        if (windowMicros < 0L) {
+            throw new IllegalArgumentException("windowMicros:" + windowMicros);
+        }
+        if (maxBatchSize <= 0) {
+            throw new IllegalArgumentException("maxBatchSize:" + maxBatchSize);
+        }
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    public Map<K, V> getAll(OHCache<K, V> cache, Iterable<K> keys, BulkCacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
+        if (loader == null) {
+            throw new NullPointerException();
+        }
+
+        Map<K, V> result = cache.getAll(keys);
+
+        List<K> misses = new ArrayList<>();
+        for (K key : keys) {
+            if (!result.containsKey(key)) {
+                misses.add(key);
+            }
+        }
+        if (misses.isEmpty()) {
+            return result;
+        }
+
+        Map<K, SettableFuture<V>> futures = new HashMap<>();
+        List<Batch<K, V>> full = new ArrayList<>();
+        Batch<K, V> opened = null;
+        synchronized (this) {
+            for (K key : misses) {
+                SettableFuture<V> future = inFlight.get(key);
+                if (future == null) {
+                    Batch<K, V> batch = open.get(loader);
+                    if (batch == null) {
+                        batch = new Batch<>(cache, loader);
+                        open.put(loader, batch);
+                        opened = batch;
+                    }
+
+                    future = SettableFuture.create();
+                    inFlight.put(key, future);
+                    batch.futures.put(key, future);
+
+                    if (batch.futures.size() >= maxBatchSize) {
+                        seal(batch);
+                        full.add(batch);
+                    }
+                }
+                futures.put(key, future);
+            }
+        }
+
+        for (Batch<K, V> batch : full) {
+            dispatch(batch);
+        }
+
+        if (opened != null) {
+            // the thread that opened a batch dispatches it, unless it has already been filled
+            if (awaitSealedOrSeal(opened)) {
+                dispatch(opened);
+            }
+        }
+
+        for (Map.Entry<K, SettableFuture<V>> entry : futures.entrySet()) {
+            V value = entry.getValue().get();
+            if (value != null) {
+                result.put(entry.getKey(), value);
+            }
+        }
+
+        return result;
+    }
+
+    private void seal(Batch<K, V> batch) {
+        batch.sealed = true;
+        open.remove(batch.loader);
+        notifyAll();
+    }
+
+    /**
+     * Waits until the batch is sealed by another thread or the window elapsed.
+     * Other threads wait for the keys in the batch, so an interrupt only ends the window early.
+     *
+     * @return {@code true}, if the current thread sealed the batch and must dispatch it
+     */
+    private synchronized boolean awaitSealedOrSeal(Batch<K, V> batch) {
+        long deadline = System.nanoTime() + windowNanos;
+        long remaining = windowNanos;
+        while (!batch.sealed && remaining > 0L) {
+            try {
+                TimeUnit.NANOSECONDS.timedWait(this, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            remaining = deadline - System.nanoTime();
+        }
+        if (batch.sealed) {
+            return false;
+        }
+        seal(batch);
+        return true;
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        Map<K, SettableFuture<V>> futures = batch.futures;
+        Map<K, V> loaded = null;
+        Throwable failure = null;
+        try {
+            loaded = batch.loader.loadAll(Collections.unmodifiableSet(futures.keySet()));
+
+            if (loaded != null && !loaded.isEmpty()) {
+                Map<K, V> put = new HashMap<>();
+                for (K key : futures.keySet()) {
+                    V value = loaded.get(key);
+                    if (value != null) {
+                        put.put(key, value);
+                    }
+                }
+                batch.cache.putAll(put);
+            }
+        } catch (Throwable e) {
+            failure = e;
+        }
+
+        synchronized (this) {
+            inFlight.keySet().removeAll(futures.keySet());
+        }
+
+        for (Map.Entry<K, SettableFuture<V>> entry : futures.entrySet()) {
+            if (failure != null) {
+                entry.getValue().setException(failure);
+            } else {
+                entry.getValue().set(loaded != null ? loaded.get(entry.getKey()) : null);
+            }
+        }
+    }
+
+    private static final class Batch<K, V> {
+        final OHCache<K, V> cache;
+        final BulkCacheLoader<K, V> loader;
+        final Map<K, SettableFuture<V>> futures = new LinkedHashMap<>();
+        boolean sealed;
+
+        Batch(OHCache<K, V> cache, BulkCacheLoader<K, V> loader) {
+            this.cache = cache;
+            this.loader = loader;
+        }
+    }
+}
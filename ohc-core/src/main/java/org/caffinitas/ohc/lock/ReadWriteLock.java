@@ -0,0 +1,175 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.lock;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Exclusive locking as in {@link SpinParkLock}, readers register in striped counters. A writer acquires the
+ * exclusive lock, which prevents new readers, and then waits until all registered readers have left.
+ */
+final class ReadWriteLock extends SpinParkLock {
+    private static final int MAX_STRIPES = 32;
+
+    // one cache line per stripe
+    private static final int PAD = 8;
+    private static final int READERS = 0;
+    private static final int ACQUISITIONS = 1;
+
+    private final int stripeMask;
+    private final AtomicLongArray cells;
+
+    ReadWriteLock() {
+        int cpus = Runtime.getRuntime().availableProcessors();
+        int stripes = Integer.highestOneBit(Math.min(Math.max(cpus, 1), MAX_STRIPES) * 2 - 1);
+        this.stripeMask = stripes - 1;
+        this.cells = new AtomicLongArray(stripes * PAD);
+    }
+
+    @Override
+    public boolean isShared() {
+        return true;
+    }
+
+    @Override
+    public boolean lockShared() {
+        long t = Thread.currentThread().getId();
+
+        if (isOwner(t)) {
+            // current thread holds the exclusive lock
+            return false;
+        }
+
+        int cell = stripe(t) * PAD;
+        if (!tryLockShared(cell)) {
+            lockSharedContended(cell);
+        }
+        cells.incrementAndGet(cell + ACQUISITIONS);
+        return true;
+    }
+
+    private boolean tryLockShared(int cell) {
+        if (isLocked()) {
+            return false;
+        }
+        cells.incrementAndGet(cell + READERS);
+        if (!isLocked()) {
+            return true;
+        }
+        // a writer got the lock in the meantime
+        cells.decrementAndGet(cell + READERS);
+        return false;
+    }
+
+    private void lockSharedContended(int cell) {
+        long start = System.nanoTime();
+        long spins = 0L;
+        long parks = 0L;
+        boolean queued = false;
+        Thread current = Thread.currentThread();
+        try {
+            while (true) {
+                if (tryLockShared(cell)) {
+                    return;
+                }
+                spins++;
+
+                if (spins < MAX_SPINS) {
+                    continue;
+                }
+
+                if (!queued) {
+                    waiters.add(current);
+                    queued = true;
+                    continue;
+                }
+
+                LockSupport.park(this);
+                parks++;
+            }
+        } finally {
+            if (queued) {
+                waiters.remove(current);
+                // other readers may be waiting, too
+                unparkWaiter();
+            }
+            contended(spins, parks, start);
+        }
+    }
+
+    @Override
+    public void unlockShared(boolean wasFirst) {
+        if (!wasFirst) {
+            return;
+        }
+
+        // a writer waiting for the readers to leave does not park
+        long t = Thread.currentThread().getId();
+        cells.decrementAndGet(stripe(t) * PAD + READERS);
+    }
+
+    @Override
+    void awaitExclusive() {
+        long start = 0L;
+        long spins = 0L;
+        for (int i = 0; i <= stripeMask; i++) {
+            while (cells.get(i * PAD + READERS) != 0L) {
+                if (start == 0L) {
+                    start = System.nanoTime();
+                }
+                // readers hold the lock for a short time only
+                Thread.yield();
+                spins++;
+            }
+        }
+        if (start != 0L) {
+            contended(spins, 0L, start);
+        }
+    }
+
+    @Override
+    boolean tryAwaitExclusive() {
+        for (int i = 0; i <= stripeMask; i++) {
+            if (cells.get(i * PAD + READERS) != 0L) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public long acquisitions() {
+        long r = super.acquisitions();
+        for (int i = 0; i <= stripeMask; i++) {
+            r += cells.get(i * PAD + ACQUISITIONS);
+        }
+        return r;
+    }
+
+    @Override
+    public void resetStatistics() {
+        super.resetStatistics();
+        for (int i = 0; i <= stripeMask; i++) {
+            cells.set(i * PAD + ACQUISITIONS, 0L);
+        }
+    }
+
+    private int stripe(long t) {
+        int h = (int) (t ^ (t >>> 32)) * 0x9e3779b9;
+        return (h ^ (h >>> 16)) & stripeMask;
+    }
+}
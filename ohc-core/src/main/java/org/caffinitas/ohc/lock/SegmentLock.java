@@ -0,0 +1,131 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.lock;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+import org.caffinitas.ohc.LockType;
+
+/**
+ * Lock of a single segment. Exclusive acquisitions are re-entrant: {@link #lock()} returns {@code false},
+ * if the current thread already holds the lock, and {@link #unlock(boolean)} only releases the lock,
+ * if {@code true} is passed.
+ * <p>
+ * Implementations also maintain contention statistics.
+ * </p>
+ */
+public abstract class SegmentLock {
+    private volatile long spins;
+    private volatile long parks;
+    private volatile long waitNanos;
+    private static final AtomicLongFieldUpdater<SegmentLock> spinsUpdater = AtomicLongFieldUpdater.newUpdater(SegmentLock.class, "spins");
+    private static final AtomicLongFieldUpdater<SegmentLock> parksUpdater = AtomicLongFieldUpdater.newUpdater(SegmentLock.class, "parks");
+    private static final AtomicLongFieldUpdater<SegmentLock> waitNanosUpdater = AtomicLongFieldUpdater.newUpdater(SegmentLock.class, "waitNanos");
+
+    // only modified while holding the lock exclusively
+    long acquisitions;
+
+    public static SegmentLock create(LockType lockType) {
+        switch (lockType) {
+            case SPIN_YIELD:
+                return new SpinYieldLock();
+            case SPIN_PARK:
+                return new SpinParkLock();
+            case READ_WRITE:
+                return new ReadWriteLock();
+            default:
+                throw new IllegalArgumentException("Unsupported lock type: " + lockType);
+        }
+    }
+
+    /**
+     * Acquires the lock exclusively.
+     *
+     * @return {@code true} if the lock has been acquired, {@code false} if the current thread already held the lock
+     */
+    public abstract boolean lock();
+
+    /**
+     * Acquires the lock exclusively, if it is immediately available.
+     *
+     * @return {@code true} if the lock has been acquired, {@code false} if the lock is held by any thread - including the current one
+     */
+    public abstract boolean tryLock();
+
+    public abstract void unlock(boolean wasFirst);
+
+    /**
+     * Whether {@link #lockShared()} allows concurrent readers.
+     */
+    public boolean isShared() {
+        return false;
+    }
+
+    /**
+     * Acquires the lock for a read-only operation. Implementations that do not support shared
+     * access acquire the lock exclusively.
+     */
+    public boolean lockShared() {
+        return lock();
+    }
+
+    public void unlockShared(boolean wasFirst) {
+        unlock(wasFirst);
+    }
+
+    public long acquisitions() {
+        return acquisitions;
+    }
+
+    /**
+     * Number of failed attempts to acquire the lock.
+     */
+    public long spins() {
+        return spins;
+    }
+
+    /**
+     * Number of times a thread has been parked waiting for the lock.
+     */
+    public long parks() {
+        return parks;
+    }
+
+    /**
+     * Total time threads waited for the lock in nanoseconds.
+     */
+    public long waitNanos() {
+        return waitNanos;
+    }
+
+    public void resetStatistics() {
+        acquisitions = 0L;
+        spins = 0L;
+        parks = 0L;
+        waitNanos = 0L;
+    }
+
+    /**
+     * Records the statistics of a contended acquisition.
+     */
+    final void contended(long spins, long parks, long startNanos) {
+        spinsUpdater.addAndGet(this, spins);
+        if (parks > 0L) {
+            parksUpdater.addAndGet(this, parks);
+        }
+        waitNanosUpdater.addAndGet(this, System.nanoTime() - startNanos);
+    }
+}
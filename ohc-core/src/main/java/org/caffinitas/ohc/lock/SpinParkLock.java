@@ -0,0 +1,144 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.lock;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Spins on a CAS for a bounded number of attempts, then parks the thread until the lock is released.
+ * The lock is not fair - a thread acquiring the lock may overtake parked threads.
+ */
+class SpinParkLock extends SegmentLock {
+    static final int MAX_SPINS = 64;
+
+    // thread-ID of the exclusive owner
+    private volatile long owner;
+    private static final AtomicLongFieldUpdater<SpinParkLock> ownerFieldUpdater = AtomicLongFieldUpdater.newUpdater(SpinParkLock.class, "owner");
+
+    final Queue<Thread> waiters = new ConcurrentLinkedQueue<>();
+
+    @Override
+    public boolean lock() {
+        long t = Thread.currentThread().getId();
+
+        if (t == owner) {
+            return false;
+        }
+        if (!ownerFieldUpdater.compareAndSet(this, 0L, t)) {
+            lockContended(t);
+        }
+        acquisitions++;
+        awaitExclusive();
+        return true;
+    }
+
+    @Override
+    public boolean tryLock() {
+        long t = Thread.currentThread().getId();
+
+        if (owner != 0L || !ownerFieldUpdater.compareAndSet(this, 0L, t)) {
+            return false;
+        }
+        if (!tryAwaitExclusive()) {
+            owner = 0L;
+            unparkWaiter();
+            return false;
+        }
+        acquisitions++;
+        return true;
+    }
+
+    private void lockContended(long t) {
+        long start = System.nanoTime();
+        long spins = 0L;
+        long parks = 0L;
+        boolean queued = false;
+        Thread current = Thread.currentThread();
+        try {
+            while (true) {
+                if (owner == 0L && ownerFieldUpdater.compareAndSet(this, 0L, t)) {
+                    return;
+                }
+                spins++;
+
+                if (spins < MAX_SPINS) {
+                    continue;
+                }
+
+                if (!queued) {
+                    // enqueue before the next attempt, the releasing thread checks the queue after releasing the lock
+                    waiters.add(current);
+                    queued = true;
+                    continue;
+                }
+
+                LockSupport.park(this);
+                parks++;
+            }
+        } finally {
+            if (queued) {
+                waiters.remove(current);
+            }
+            contended(spins, parks, start);
+        }
+    }
+
+    /**
+     * Called after the lock has been acquired exclusively.
+     */
+    void awaitExclusive() {
+    }
+
+    /**
+     * Called after the lock has been acquired exclusively by {@link #tryLock()}.
+     *
+     * @return whether the lock can be held exclusively without waiting
+     */
+    boolean tryAwaitExclusive() {
+        return true;
+    }
+
+    boolean isOwner(long t) {
+        return owner == t;
+    }
+
+    boolean isLocked() {
+        return owner != 0L;
+    }
+
+    @Override
+    public void unlock(boolean wasFirst) {
+        if (!wasFirst) {
+            return;
+        }
+
+        long t = Thread.currentThread().getId();
+        boolean r = ownerFieldUpdater.compareAndSet(this, t, 0L);
+        assert r;
+
+        unparkWaiter();
+    }
+
+    final void unparkWaiter() {
+        Thread waiter = waiters.peek();
+        if (waiter != null) {
+            LockSupport.unpark(waiter);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.lock;
+
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * Spins on a CAS and yields control to other threads between attempts.
+ */
+final class SpinYieldLock extends SegmentLock {
+    // Replacement for Unsafe.monitorEnter/monitorExit. Uses the thread-ID to indicate a lock
+    // using a CAS operation on the primitive instance field.
+    private volatile long lock;
+    private static final AtomicLongFieldUpdater<SpinYieldLock> lockFieldUpdater = AtomicLongFieldUpdater.newUpdater(SpinYieldLock.class, "lock");
+
+    @Override
+    public boolean lock() {
+        long t = Thread.currentThread().getId();
+
+        if (t == lockFieldUpdater.get(this)) {
+            return false;
+        }
+        if (!lockFieldUpdater.compareAndSet(this, 0L, t)) {
+            long start = System.nanoTime();
+            long spins = 0L;
+            do {
+                // yield control to other thread.
+                // Note: we cannot use LockSupport.parkNanos() as that does not
+                // provide nanosecond resolution on Windows.
+                Thread.yield();
+                spins++;
+            } while (!lockFieldUpdater.compareAndSet(this, 0L, t));
+            contended(spins, 0L, start);
+        }
+        acquisitions++;
+        return true;
+    }
+
+    @Override
+    public boolean tryLock() {
+        long t = Thread.currentThread().getId();
+
+        if (lockFieldUpdater.compareAndSet(this, 0L, t)) {
+            acquisitions++;
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void unlock(boolean wasFirst) {
+        if (!wasFirst) {
+            return;
+        }
+
+        long t = Thread.currentThread().getId();
+        boolean r = lockFieldUpdater.compareAndSet(this, t, 0L);
+        assert r;
+    }
+}
@@ -0,0 +1,229 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.alloc;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.annotations.Test;
+import sun.misc.Unsafe;
+
+public class SlabAllocatorTest {
+    static final Unsafe unsafe;
+
+    static {
+        try {
+            Field field = Unsafe.class.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = (Unsafe) field.get(null);
+        } catch (Exception e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    static final class CountingAllocator implements IAllocator {
+        final IAllocator delegate = new UnsafeAllocator();
+        final AtomicInteger allocations = new AtomicInteger();
+        final AtomicInteger frees = new AtomicInteger();
+
+        public long allocate(long size) {
+            allocations.incrementAndGet();
+            return delegate.allocate(size);
+        }
+
+        public void free(long peer) {
+            frees.incrementAndGet();
+            delegate.free(peer);
+        }
+
+        public long getTotalAllocated() {
+            return delegate.getTotalAllocated();
+        }
+    }
+
+    static int classSizeFor(int size) {
+        for (int i = 0; ; i++) {
+            if (SlabAllocator.sizeOfClass(i) >= size) {
+                return SlabAllocator.sizeOfClass(i);
+            }
+        }
+    }
+
+    @Test
+    public void testSizeClasses() {
+        int prev = 0;
+        for (int i = 0; i < SlabAllocator.sizeClassCount(); i++) {
+            int size = SlabAllocator.sizeOfClass(i);
+            assertTrue(size > prev);
+            assertEquals(size % 16, 0);
+            prev = size;
+        }
+        assertEquals(prev, SlabAllocator.MAX_SLAB_ALLOCATION);
+    }
+
+    @Test
+    public void testAllocateFree() {
+        CountingAllocator backing = new CountingAllocator();
+        SlabAllocator allocator = new SlabAllocator(backing);
+        try {
+            Set<Long> adrs = new HashSet<>();
+            for (int size = 1; size <= SlabAllocator.MAX_SLAB_ALLOCATION; size += 37) {
+                long adr = allocator.allocate(size);
+                assertNotEquals(adr, 0L);
+                assertTrue(adrs.add(adr));
+                unsafe.setMemory(adr, size, (byte) size);
+            }
+            // only whole regions are reserved from the backing allocator
+            assertTrue(backing.allocations.get() > 0);
+            assertEquals(allocator.getSlabReserved(), backing.allocations.get() * SlabAllocator.DEFAULT_REGION_SIZE);
+            assertTrue(allocator.getSlabUsed() > 0L);
+            assertTrue(allocator.getSlabAssigned() >= allocator.getSlabUsed());
+
+            for (Long adr : adrs) {
+                allocator.free(adr);
+            }
+            assertEquals(allocator.getSlabUsed(), 0L);
+            assertEquals(backing.frees.get(), 0);
+        } finally {
+            allocator.close();
+        }
+        assertEquals(backing.frees.get(), backing.allocations.get());
+        assertEquals(allocator.getSlabReserved(), 0L);
+    }
+
+    @Test
+    public void testReuse() {
+        SlabAllocator allocator = new SlabAllocator(new UnsafeAllocator());
+        try {
+            long adr = allocator.allocate(100);
+            allocator.free(adr);
+            assertEquals(allocator.allocate(100), adr);
+            allocator.free(adr);
+            // same size class
+            assertEquals(allocator.allocate(112), adr);
+            allocator.free(adr);
+
+            long assigned = allocator.getSlabAssigned();
+            for (int i = 0; i < 100000; i++) {
+                allocator.free(allocator.allocate(100));
+            }
+            assertEquals(allocator.getSlabAssigned(), assigned);
+        } finally {
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void testLargeAllocation() {
+        CountingAllocator backing = new CountingAllocator();
+        SlabAllocator allocator = new SlabAllocator(backing);
+        try {
+            long adr = allocator.allocate(SlabAllocator.MAX_SLAB_ALLOCATION + 1);
+            assertNotEquals(adr, 0L);
+            assertEquals(backing.allocations.get(), 1);
+            assertEquals(allocator.getSlabReserved(), 0L);
+            allocator.free(adr);
+            assertEquals(backing.frees.get(), 1);
+        } finally {
+            allocator.close();
+        }
+    }
+
+    @Test
+    public void testManyRegions() {
+        CountingAllocator backing = new CountingAllocator();
+        SlabAllocator allocator = new SlabAllocator(backing, SlabAllocator.PAGE_SIZE);
+        try {
+            List<Long> adrs = new ArrayList<>();
+            for (int i = 0; i < 1000; i++) {
+                adrs.add(allocator.allocate(1024));
+            }
+            assertTrue(backing.allocations.get() > 10);
+            assertEquals(allocator.getSlabReserved(), (long) backing.allocations.get() * SlabAllocator.PAGE_SIZE);
+            assertEquals(allocator.getSlabUsed(), 1000L * classSizeFor(1024));
+            for (Long adr : adrs) {
+                allocator.free(adr);
+            }
+            assertEquals(allocator.getSlabUsed(), 0L);
+        } finally {
+            allocator.close();
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIllegalRegionSize() {
+        new SlabAllocator(new UnsafeAllocator(), SlabAllocator.PAGE_SIZE + 1);
+    }
+
+    @Test
+    public void testMultiThreaded() throws Exception {
+        final SlabAllocator allocator = new SlabAllocator(new UnsafeAllocator());
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            // blocks allocated by one thread are freed by another thread
+            final long[] shared = new long[4096];
+            List<Future<Void>> futures = new ArrayList<>();
+            for (int t = 0; t < 4; t++) {
+                futures.add(executor.submit(new Callable<Void>() {
+                    public Void call() {
+                        ThreadLocalRandom rand = ThreadLocalRandom.current();
+                        for (int i = 0; i < 200000; i++) {
+                            int idx = rand.nextInt(shared.length);
+                            int size = 1 + rand.nextInt(2048);
+                            long adr = allocator.allocate(size);
+                            unsafe.putLong(adr, adr);
+                            long old;
+                            synchronized (shared) {
+                                old = shared[idx];
+                                shared[idx] = adr;
+                            }
+                            if (old != 0L) {
+                                assertEquals(unsafe.getLong(old), old);
+                                allocator.free(old);
+                            }
+                        }
+                        return null;
+                    }
+                }));
+            }
+            for (Future<Void> f : futures) {
+                f.get();
+            }
+            for (long adr : shared) {
+                if (adr != 0L) {
+                    allocator.free(adr);
+                }
+            }
+            assertEquals(allocator.getSlabUsed(), 0L);
+        } finally {
+            executor.shutdown();
+            allocator.close();
+        }
+    }
+}
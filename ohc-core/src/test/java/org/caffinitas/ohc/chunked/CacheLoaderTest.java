@@ -0,0 +1,228 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.chunked;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.caffinitas.ohc.CacheLoader;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.PermanentLoadException;
+import org.caffinitas.ohc.TemporaryLoadException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class CacheLoaderTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    static final CacheLoader<Integer, String> loader = new CacheLoader<Integer, String>() {
+        @Override
+        public String load(Integer key) throws Exception {
+            return key.toString();
+        }
+    };
+    static final CacheLoader<Integer, String> loaderNull = new CacheLoader<Integer, String>() {
+        @Override
+        public String load(Integer key) throws Exception {
+            return null;
+        }
+    };
+    static final CacheLoader<Integer, String> loaderTempFail = new CacheLoader<Integer, String>() {
+        @Override
+        public String load(Integer key) throws Exception {
+            throw new Exception("foo");
+        }
+    };
+
+    private static OHCache<Integer, String> cache(ScheduledExecutorService executorService) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .executorService(executorService)
+                             .capacity(64L * TestUtils.ONE_MB)
+                             .chunkSize(65536)
+                             .build();
+    }
+
+    @Test
+    public void testGetWithLoaderAsync() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try (OHCache<Integer, String> cache = cache(executorService)) {
+            Assert.assertEquals(cache.getWithLoaderAsync(1, loader).get(100, TimeUnit.MILLISECONDS), "1");
+            Assert.assertEquals(cache.get(1), "1");
+            Assert.assertEquals(cache.getWithLoader(1, loaderTempFail), "1");
+
+            Assert.assertNull(cache.getWithLoaderAsync(2, loaderNull).get(100, TimeUnit.MILLISECONDS));
+            Assert.assertFalse(cache.containsKey(2));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetWithLoaderAsyncTempFail() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try (OHCache<Integer, String> cache = cache(executorService)) {
+            try {
+                cache.getWithLoaderAsync(1, loaderTempFail).get(500, TimeUnit.MILLISECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertEquals(e.getCause().getMessage(), "foo");
+            }
+
+            Assert.assertEquals(cache.getWithLoaderAsync(1, loader).get(100, TimeUnit.MILLISECONDS), "1");
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testGetWithLoaderAsyncPermFail() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try (OHCache<Integer, String> cache = cache(executorService)) {
+            final AtomicInteger calls = new AtomicInteger();
+            CacheLoader<Integer, String> loaderPermFail = new CacheLoader<Integer, String>() {
+                @Override
+                public String load(Integer key) throws Exception {
+                    calls.incrementAndGet();
+                    throw new PermanentLoadException("bar");
+                }
+            };
+
+            for (int i = 0; i < 2; i++) {
+                try {
+                    cache.getWithLoaderAsync(1, loaderPermFail).get(500, TimeUnit.MILLISECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof PermanentLoadException);
+                }
+            }
+            Assert.assertEquals(calls.get(), 1);
+
+            // removing the key forgets the permanent failure
+            cache.remove(1);
+            Assert.assertEquals(cache.getWithLoaderAsync(1, loader).get(100, TimeUnit.MILLISECONDS), "1");
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testPermanentFailuresBounded() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try (OHCache<Integer, String> cache = cache(executorService)) {
+            final AtomicInteger calls = new AtomicInteger();
+            CacheLoader<Integer, String> loaderPermFail = new CacheLoader<Integer, String>() {
+                @Override
+                public String load(Integer key) throws Exception {
+                    calls.incrementAndGet();
+                    throw new PermanentLoadException("bar");
+                }
+            };
+
+            int keys = OHCacheChunkedImpl.MAX_PERMANENT_FAILURES + 100;
+            for (int i = 0; i < keys; i++) {
+                assertPermanentFailure(cache.getWithLoaderAsync(i, loaderPermFail));
+            }
+            Assert.assertEquals(calls.get(), keys);
+            Assert.assertEquals(cache.stats().getPermanentFailures(), OHCacheChunkedImpl.MAX_PERMANENT_FAILURES);
+
+            // the most recent permanent failures are remembered, the oldest ones are forgotten
+            assertPermanentFailure(cache.getWithLoaderAsync(keys - 1, loaderPermFail));
+            Assert.assertEquals(calls.get(), keys);
+            Assert.assertEquals(cache.getWithLoaderAsync(0, loader).get(100, TimeUnit.MILLISECONDS), "0");
+
+            cache.clear();
+            Assert.assertEquals(cache.stats().getPermanentFailures(), 0L);
+            Assert.assertEquals(cache.getWithLoaderAsync(keys - 1, loader).get(100, TimeUnit.MILLISECONDS), Integer.toString(keys - 1));
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    private static void assertPermanentFailure(Future<String> future) throws InterruptedException, TimeoutException {
+        try {
+            future.get(500, TimeUnit.MILLISECONDS);
+            Assert.fail();
+        } catch (ExecutionException e) {
+            Assert.assertTrue(e.getCause() instanceof PermanentLoadException);
+        }
+    }
+
+    @Test
+    public void testGetWithSlowLoaderAsyncCoalesced() throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try (OHCache<Integer, String> cache = cache(executorService)) {
+            final AtomicInteger calls = new AtomicInteger();
+            final boolean[] fail = { false };
+            CacheLoader<Integer, String> slowLoader = new CacheLoader<Integer, String>() {
+                @Override
+                public String load(Integer key) throws Exception {
+                    calls.incrementAndGet();
+                    Thread.sleep(200);
+                    if (fail[0]) {
+                        throw new Exception("foo");
+                    }
+                    return key.toString();
+                }
+            };
+
+            Future<String> f1 = cache.getWithLoaderAsync(1, slowLoader);
+            List<Future<String>> waiters = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                waiters.add(cache.getWithLoaderAsync(1, slowLoader));
+            }
+
+            Assert.assertEquals(f1.get(1000, TimeUnit.MILLISECONDS), "1");
+            for (Future<String> waiter : waiters) {
+                Assert.assertEquals(waiter.get(100, TimeUnit.MILLISECONDS), "1");
+            }
+            Assert.assertEquals(calls.get(), 1);
+
+            fail[0] = true;
+            f1 = cache.getWithLoaderAsync(2, slowLoader);
+            Future<String> f2 = cache.getWithLoaderAsync(2, slowLoader);
+            try {
+                f2.get(1000, TimeUnit.MILLISECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertTrue(e.getCause() instanceof TemporaryLoadException);
+            }
+            try {
+                f1.get(100, TimeUnit.MILLISECONDS);
+                Assert.fail();
+            } catch (ExecutionException e) {
+                Assert.assertEquals(e.getCause().getMessage(), "foo");
+            }
+            Assert.assertEquals(calls.get(), 2);
+        } finally {
+            executorService.shutdown();
+        }
+    }
+}
@@ -0,0 +1,132 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.chunked;
+
+import java.io.IOException;
+
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+public class ChunkCompactionTest {
+    private static final int CAPACITY = 256 * 1024;
+    private static final int CHUNK_SIZE = 16384;
+
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "types")
+    public Object[][] types() {
+        return new Object[][]{ { false, false }, { false, true }, { true, false }, { true, true } };
+    }
+
+    private static OHCache<Integer, String> cache(boolean fixed, boolean openAddressing, int compactionBudget) {
+        OHCacheBuilder<Integer, String> builder = OHCacheBuilder.<Integer, String> newBuilder()
+                                                                .keySerializer(TestUtils.intSerializer)
+                                                                .valueSerializer(fixed ? TestUtils.fixedValueSerializer : TestUtils.stringSerializer)
+                                                                .segmentCount(1)
+                                                                .capacity(CAPACITY)
+                                                                .chunkSize(CHUNK_SIZE)
+                                                                .openAddressing(openAddressing)
+                                                                .chunkCompactionBudget(compactionBudget);
+        if (fixed) {
+            builder.fixedEntrySize(TestUtils.INT_SERIALIZER_LEN, TestUtils.FIXED_VALUE_LEN);
+        }
+        return builder.build();
+    }
+
+    /**
+     * Writes the hot keys to the first chunk, reads them and writes cold keys until the first chunk has been recycled.
+     */
+    private static void fillAndRecycleFirstChunk(OHCache<Integer, String> cache) {
+        for (int i = 0; i < 10; i++) {
+            cache.put(i, "hot" + i);
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals(cache.get(i), "hot" + i);
+        }
+
+        for (int i = 1000; cache.stats().getEvictionCount() == 0L; i++) {
+            cache.put(i, "cold" + i);
+        }
+    }
+
+    private static int hotKeys(OHCache<Integer, String> cache) {
+        int hot = 0;
+        for (int i = 0; i < 10; i++) {
+            // containsKey() does not count as an access
+            if (cache.containsKey(i)) {
+                hot++;
+            }
+        }
+        return hot;
+    }
+
+    @Test(dataProvider = "types")
+    public void testCompaction(boolean fixed, boolean openAddressing) throws IOException {
+        try (OHCache<Integer, String> cache = cache(fixed, openAddressing, CHUNK_SIZE)) {
+            fillAndRecycleFirstChunk(cache);
+
+            // read entries have been copied, all other entries of the chunk have been evicted
+            assertEquals(hotKeys(cache), 10);
+            assertTrue(cache.stats().getEvictionCount() > 0L);
+            assertFalse(cache.containsKey(1000));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(cache.get(i), "hot" + i);
+            }
+
+            long size = cache.size();
+            for (int i = 100000; i < 100000 + 3 * size; i++) {
+                cache.put(i, "cold" + i);
+            }
+
+            // entries, that have not been read again, are evicted with their chunk
+            assertEquals(hotKeys(cache), 0);
+        }
+    }
+
+    @Test
+    public void testWithoutCompaction() throws IOException {
+        try (OHCache<Integer, String> cache = cache(false, false, 0)) {
+            fillAndRecycleFirstChunk(cache);
+
+            assertEquals(hotKeys(cache), 0);
+        }
+    }
+
+    @Test(dataProvider = "types")
+    public void testBudget(boolean fixed, boolean openAddressing) throws IOException {
+        int entrySize;
+        try (OHCache<Integer, String> cache = cache(fixed, openAddressing, 0)) {
+            cache.put(0, "hot0");
+            entrySize = (int) (cache.capacity() - cache.freeCapacity());
+        }
+
+        try (OHCache<Integer, String> cache = cache(fixed, openAddressing, 3 * entrySize)) {
+            fillAndRecycleFirstChunk(cache);
+
+            assertEquals(hotKeys(cache), 3);
+        }
+    }
+}
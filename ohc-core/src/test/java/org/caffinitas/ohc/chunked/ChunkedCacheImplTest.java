@@ -27,7 +27,9 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.caffinitas.ohc.BatchResult;
 import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.LockType;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
 import org.caffinitas.ohc.OHCacheStats;
@@ -247,7 +249,9 @@ public class ChunkedCacheImplTest {
             map.put(1, "one");
             map.put(2, "two");
             map.put(3, "three");
-            cache.putAll(map);
+            BatchResult result = cache.putAllBatch(map);
+            Assert.assertEquals(result.getAdded(), 3);
+            Assert.assertEquals(result.getReplaced(), 0);
             Assert.assertEquals(cache.get(1), map.get(1));
             Assert.assertEquals(cache.get(2), map.get(2));
             Assert.assertEquals(cache.get(3), map.get(3));
@@ -255,6 +259,82 @@ public class ChunkedCacheImplTest {
         }
     }
 
+    @Test
+    public void testPutAllRejected() throws Exception {
+        try (OHCache<Integer, String> cache = cache(256, -1, -1, 1024)) {
+            Map<Integer, String> map = new HashMap<>();
+            map.put(1, "one");
+            map.put(2, stringWithLength(2048));
+            map.put(3, stringWithLength(4096));
+            BatchResult result = cache.putAllBatch(map);
+            Assert.assertEquals(result.getAdded(), 1);
+            Assert.assertEquals(result.getRejected(), 2);
+            Assert.assertEquals(cache.stats().getPutFailCount(), 2L);
+            Assert.assertEquals(cache.get(1), "one");
+            Assert.assertNull(cache.get(2));
+        }
+    }
+
+    @Test
+    public void testPutAllBulk() throws Exception {
+        try (OHCache<Integer, String> cache = cache(256, 64, 1, -1)) {
+            Map<Integer, String> map = new HashMap<>();
+            for (int i = 0; i < 50000; i++) {
+                map.put(i, Integer.toString(i));
+            }
+
+            BatchResult result = cache.putAllBatch(map);
+            Assert.assertEquals(result.getAdded(), 50000);
+            Assert.assertEquals(result.getReplaced(), 0);
+            Assert.assertEquals(result.getEvicted(), 0);
+            // hash table grown once
+            Assert.assertEquals(cache.stats().getRehashCount(), 1L);
+            Assert.assertEquals(cache.size(), 50000L);
+
+            for (int i = 0; i < 50000; i += 2) {
+                map.put(i, "replaced " + i);
+            }
+            result = cache.putAllBatch(map);
+            Assert.assertEquals(result.getAdded(), 0);
+            Assert.assertEquals(result.getReplaced(), 50000);
+            for (int i = 0; i < 50000; i++) {
+                Assert.assertEquals(cache.get(i), map.get(i));
+            }
+
+            Assert.assertEquals(cache.removeAllBatch(map.keySet()).getRemoved(), 50000);
+            Assert.assertEquals(cache.size(), 0L);
+        }
+    }
+
+    @Test
+    public void testGetAll() throws Exception {
+        try (OHCache<Integer, String> cache = cache()) {
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                cache.put(i, Integer.toString(i));
+                keys.add(i * 2);
+            }
+            cache.resetStatistics();
+
+            Map<Integer, String> values = cache.getAll(keys);
+            Assert.assertEquals(values.size(), 250);
+            for (int i = 0; i < 500; i += 2) {
+                Assert.assertEquals(values.get(i), Integer.toString(i));
+            }
+
+            OHCacheStats stats = cache.stats();
+            Assert.assertEquals(stats.getHitCount(), 250L);
+            Assert.assertEquals(stats.getMissCount(), 250L);
+
+            // removed entries must not be returned
+            cache.remove(0);
+            values = new HashMap<>();
+            cache.getAll(keys.subList(0, 10), values);
+            Assert.assertEquals(values.size(), 9);
+            Assert.assertFalse(values.containsKey(0));
+        }
+    }
+
     @Test
     public void testRemove() throws Exception {
         try (OHCache<Integer, String> cache = cache()) {
@@ -286,21 +366,21 @@ public class ChunkedCacheImplTest {
             List<Integer> coll = new ArrayList<>();
             for (int i = 0; i < 10; i++)
                 coll.add(i);
-            cache.removeAll(coll);
+            Assert.assertEquals(cache.removeAllBatch(coll).getRemoved(), 10);
 
             //assertTrue(cache.freeCapacity() > lastFree);
             Assert.assertEquals(cache.size(), 90);
 
             for (int i = 10; i < 50; i++)
                 coll.add(i);
-            cache.removeAll(coll);
+            Assert.assertEquals(cache.removeAllBatch(coll).getRemoved(), 40);
 
             //assertTrue(cache.freeCapacity() > lastFree);
             Assert.assertEquals(cache.size(), 50);
 
             for (int i = 50; i < 100; i++)
                 coll.add(i);
-            cache.removeAll(coll);
+            Assert.assertEquals(cache.removeAllBatch(coll).getRemoved(), 50);
 
             //Assert.assertEquals(cache.freeCapacity(), cache.capacity());
             Assert.assertEquals(cache.size(), 0);
@@ -664,4 +744,44 @@ public class ChunkedCacheImplTest {
             Assert.assertEquals(cache.get(1), null);
         }
     }
+
+    @Test
+    public void testLockTypes() throws Exception {
+        for (LockType lockType : LockType.values()) {
+            try (final OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .chunkSize(65536)
+                    .segmentCount(2)
+                    .lockType(lockType)
+                    .build()) {
+                Thread[] threads = new Thread[8];
+                for (int t = 0; t < threads.length; t++) {
+                    final int first = t * 1000;
+                    threads[t] = new Thread() {
+                        public void run() {
+                            for (int i = first; i < first + 1000; i++) {
+                                cache.put(i, Integer.toString(i));
+                                cache.get(i);
+                                cache.get(i - 1);
+                            }
+                        }
+                    };
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                for (int i = 0; i < 8000; i++) {
+                    assertEquals(cache.get(i), Integer.toString(i));
+                }
+
+                OHCacheStats stats = cache.stats();
+                assertEquals(stats.getHitCount() + stats.getMissCount(), 24000L);
+                assertTrue(stats.getLockAcquisitions() >= 24000L);
+                assertTrue(stats.getLockSpins() >= stats.getLockParks());
+            }
+        }
+    }
 }
@@ -19,6 +19,8 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
@@ -27,6 +29,8 @@ import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
+import org.caffinitas.ohc.BatchResult;
+import org.caffinitas.ohc.BulkCacheLoader;
 import org.caffinitas.ohc.CacheLoader;
 import org.caffinitas.ohc.CloseableIterator;
 import org.caffinitas.ohc.DirectValueAccess;
@@ -84,8 +88,15 @@ public class DoubleCheckCacheImpl<K, V> implements OHCache<K, V> {
     }
 
     public void putAll(Map<? extends K, ? extends V> m) {
-        prod.putAll(m);
-        check.putAll(m);
+        putAllBatch(m);
+    }
+
+    public BatchResult putAllBatch(Map<? extends K, ? extends V> m) {
+        BatchResult rProd = prod.putAllBatch(m);
+        BatchResult rCheck = check.putAllBatch(m);
+        Assert.assertEquals(rProd.getAdded() + rProd.getReplaced(), rCheck.getAdded());
+        Assert.assertEquals(rProd.getRejected(), rCheck.getRejected());
+        return rProd;
     }
 
     public boolean remove(K key) {
@@ -96,8 +107,14 @@ public class DoubleCheckCacheImpl<K, V> implements OHCache<K, V> {
     }
 
     public void removeAll(Iterable<K> keys) {
-        prod.removeAll(keys);
-        check.removeAll(keys);
+        removeAllBatch(keys);
+    }
+
+    public BatchResult removeAllBatch(Iterable<K> keys) {
+        BatchResult rProd = prod.removeAllBatch(keys);
+        BatchResult rCheck = check.removeAllBatch(keys);
+        Assert.assertEquals(rProd.getRemoved(), rCheck.getRemoved());
+        return rProd;
     }
 
     public void clear() {
@@ -120,6 +137,22 @@ public class DoubleCheckCacheImpl<K, V> implements OHCache<K, V> {
         return rProd;
     }
 
+    public Map<K, V> getAll(Iterable<K> keys) {
+        Map<K, V> rProd = prod.getAll(keys);
+        Map<K, V> rCheck = check.getAll(keys);
+        Assert.assertEquals(rCheck, rProd);
+        return rProd;
+    }
+
+    public void getAll(Collection<K> keys, Map<K, V> out) {
+        Map<K, V> rProd = new HashMap<>();
+        prod.getAll(keys, rProd);
+        Map<K, V> rCheck = new HashMap<>();
+        check.getAll(keys, rCheck);
+        Assert.assertEquals(rCheck, rProd);
+        out.putAll(rProd);
+    }
+
     public boolean containsKey(K key) {
         boolean rProd = prod.containsKey(key);
         boolean rCheck = check.containsKey(key);
@@ -127,6 +160,10 @@ public class DoubleCheckCacheImpl<K, V> implements OHCache<K, V> {
         return rProd;
     }
 
+    public Map<K, V> getAllWithLoader(Iterable<K> keys, BulkCacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
+        throw new UnsupportedOperationException();
+    }
+
     public V getWithLoader(K key, CacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
         throw new UnsupportedOperationException();
     }
@@ -0,0 +1,140 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.chunked;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.caffinitas.ohc.histo.EstimatedHistogram;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+// Cross-checks the chunked implementation using the open addressing hash table against the independent
+// CheckOHCacheImpl, like ChunkedCacheImplTest does for the default chained hash table.
+public class OpenAddressingTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "fixed")
+    public Object[][] fixed() {
+        return new Object[][]{ { false }, { true } };
+    }
+
+    private static OHCacheBuilder<Integer, String> builder(boolean fixed, long capacity) {
+        OHCacheBuilder<Integer, String> builder = OHCacheBuilder.<Integer, String> newBuilder()
+                .hashTableSize(256)
+                .segmentCount(4)
+                .capacity(capacity)
+                .chunkSize(65536)
+                .openAddressing(true);
+        if (fixed) {
+            builder.keySerializer(TestUtils.fixedKeySerializer)
+                   .valueSerializer(TestUtils.fixedValueSerializer)
+                   .fixedEntrySize(TestUtils.FIXED_KEY_LEN, TestUtils.FIXED_VALUE_LEN);
+        } else {
+            builder.keySerializer(TestUtils.intSerializer)
+                   .valueSerializer(TestUtils.stringSerializer);
+        }
+        return builder;
+    }
+
+    @Test(dataProvider = "fixed")
+    public void testCrossCheck(boolean fixed) throws IOException {
+        try (DoubleCheckCacheImpl<Integer, String> cache = new DoubleCheckCacheImpl<>(builder(fixed, 256L * TestUtils.ONE_MB))) {
+            Random r = new Random(42);
+            for (int i = 0; i < 200000; i++) {
+                int k = r.nextInt(20000);
+                switch (r.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        cache.put(k, Integer.toOctalString(r.nextInt()));
+                        break;
+                    case 2:
+                        cache.putIfAbsent(k, Integer.toOctalString(k));
+                        break;
+                    case 3:
+                        cache.remove(k);
+                        break;
+                    case 4:
+                        cache.get(k);
+                        break;
+                    case 5:
+                        cache.containsKey(k);
+                        break;
+                }
+            }
+
+            for (int k = 0; k < 20000; k++) {
+                cache.get(k);
+            }
+            assertEquals(cache.prod.size(), cache.check.size());
+            assertTrue(cache.prod.stats().getRehashCount() > 0L);
+
+            // remove everything - exercises removal from long probe sequences
+            for (int k = 0; k < 20000; k++) {
+                cache.remove(k);
+            }
+            assertEquals(cache.prod.size(), 0L);
+            for (int k = 0; k < 20000; k++) {
+                assertNull(cache.prod.get(k));
+            }
+        }
+    }
+
+    @Test(dataProvider = "fixed")
+    public void testEviction(boolean fixed) throws IOException {
+        try (OHCache<Integer, String> cache = builder(fixed, 4L * TestUtils.ONE_MB).build()) {
+            for (int i = 0; i < 200000; i++) {
+                cache.put(i, Integer.toOctalString(i));
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertTrue(stats.getEvictionCount() > 0L);
+
+            long present = 0L;
+            for (int i = 0; i < 200000; i++) {
+                String v = cache.get(i);
+                if (v != null) {
+                    assertEquals(v, Integer.toOctalString(i));
+                    assertTrue(cache.containsKey(i));
+                    present++;
+                } else {
+                    assertFalse(cache.containsKey(i));
+                }
+            }
+            assertEquals(cache.size(), present);
+
+            // one sample per hash bucket
+            EstimatedHistogram histogram = cache.getBucketHistogram();
+            long buckets = 0L;
+            for (int size : cache.hashTableSizes()) {
+                buckets += size;
+            }
+            assertEquals(histogram.count(), buckets);
+        }
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class AdaptiveEdenSizeTest {
+    private static final long CAPACITY = 1024 * 1024;
+
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    private static OHCache<Integer, String> cache(boolean adaptive) {
+        OHCacheBuilder<Integer, String> builder = OHCacheBuilder.<Integer, String> newBuilder()
+                                                                .keySerializer(TestUtils.intSerializer)
+                                                                .valueSerializer(TestUtils.stringSerializer)
+                                                                .eviction(Eviction.W_TINY_LFU)
+                                                                .segmentCount(1)
+                                                                .capacity(CAPACITY)
+                                                                .adaptiveEdenSize(adaptive);
+        // the frequency sketch admits ties randomly, a fixed seed makes the hit rate samples reproducible
+        return new OHCacheLinkedImpl<>(builder, new Random(42L));
+    }
+
+    /**
+     * Reads through the cache. Most requests go to a small set of hot keys, the other requests to keys that are
+     * requested only once.
+     */
+    private static void frequencyBiasedWorkload(OHCache<Integer, String> cache, Random r, int requests) {
+        for (int i = 0; i < requests; i++) {
+            int key = r.nextInt(10) < 8 ? r.nextInt(2000) : 1000000 + r.nextInt(Integer.MAX_VALUE - 1000000);
+            if (cache.get(key) == null) {
+                assertTrue(cache.put(key, "value" + key));
+            }
+        }
+    }
+
+    /**
+     * Reads through the cache. New keys are requested a few times within a short window and never again, so
+     * they are evicted by the frequency based admission unless the eden generation is big enough.
+     */
+    private static void recencyBiasedWorkload(OHCache<Integer, String> cache, Random r, int requests) {
+        for (int i = 0; i < requests; i++) {
+            int key = i / 4 - r.nextInt(4000);
+            if (cache.get(key) == null) {
+                assertTrue(cache.put(key, "value" + key));
+            }
+        }
+    }
+
+    private static double hitRate(OHCacheStats stats) {
+        return (double) stats.getHitCount() / (stats.getHitCount() + stats.getMissCount());
+    }
+
+    @Test
+    public void testAdaptiveEdenSize() throws IOException {
+        try (OHCache<Integer, String> cache = cache(true)) {
+            frequencyBiasedWorkload(cache, new Random(42), 500000);
+
+            OHCacheStats stats = cache.stats();
+            assertTrue(stats.getEdenGrowCount() + stats.getEdenShrinkCount() > 0L, stats.toString());
+            assertTrue(stats.getEdenSize() >= 0.049d && stats.getEdenSize() <= 0.8d, stats.toString());
+            // one-hit wonders do not benefit from a big eden generation
+            assertTrue(stats.getEdenSize() < 0.2d, stats.toString());
+
+            double[][] history = stats.getEdenSizeHistory();
+            assertEquals(history.length, 1);
+            assertEquals(history[0].length, (int) Math.min(stats.getEdenGrowCount() + stats.getEdenShrinkCount(),
+                                                           OffHeapLinkedWTinyLFUMap.EDEN_SIZE_HISTORY));
+            assertEquals(history[0][history[0].length - 1], stats.getEdenSize(), 0.0001d);
+            for (double edenSize : history[0]) {
+                assertTrue(edenSize >= 0.049d && edenSize <= 0.8d, Double.toString(edenSize));
+            }
+
+            // the split does not leak capacity
+            assertTrue(cache.freeCapacity() >= 0L && cache.freeCapacity() <= CAPACITY);
+            cache.clear();
+            assertEquals(cache.freeCapacity(), CAPACITY);
+
+            cache.resetStatistics();
+            stats = cache.stats();
+            assertEquals(stats.getEdenGrowCount(), 0L);
+            assertEquals(stats.getEdenShrinkCount(), 0L);
+            assertEquals(stats.getEdenSizeHistory()[0].length, 0);
+        }
+    }
+
+    @Test
+    public void testFrequencyBiasedHitRate() throws IOException {
+        double adaptiveHitRate;
+        try (OHCache<Integer, String> cache = cache(true)) {
+            frequencyBiasedWorkload(cache, new Random(42), 500000);
+            adaptiveHitRate = hitRate(cache.stats());
+        }
+        try (OHCache<Integer, String> cache = cache(false)) {
+            frequencyBiasedWorkload(cache, new Random(42), 500000);
+            assertTrue(adaptiveHitRate >= hitRate(cache.stats()), adaptiveHitRate + " vs " + cache.stats());
+        }
+    }
+
+    @Test
+    public void testRecencyBiasedWorkload() throws IOException {
+        double adaptiveHitRate;
+        try (OHCache<Integer, String> cache = cache(true)) {
+            recencyBiasedWorkload(cache, new Random(42), 500000);
+
+            OHCacheStats stats = cache.stats();
+            assertTrue(stats.getEdenGrowCount() > 0L, stats.toString());
+            // recently requested keys benefit from a big eden generation
+            assertTrue(stats.getEdenSize() > 0.5d, stats.toString());
+            adaptiveHitRate = hitRate(stats);
+        }
+        try (OHCache<Integer, String> cache = cache(false)) {
+            recencyBiasedWorkload(cache, new Random(42), 500000);
+            assertTrue(adaptiveHitRate >= hitRate(cache.stats()), adaptiveHitRate + " vs " + cache.stats());
+        }
+    }
+
+    @Test
+    public void testFixedEdenSize() throws IOException {
+        try (OHCache<Integer, String> cache = cache(false)) {
+            frequencyBiasedWorkload(cache, new Random(42), 100000);
+
+            OHCacheStats stats = cache.stats();
+            assertEquals(stats.getEdenGrowCount(), 0L);
+            assertEquals(stats.getEdenShrinkCount(), 0L);
+            assertEquals(stats.getEdenSize(), 0.2d, 0.0001d);
+            assertEquals(stats.getEdenSizeHistory()[0].length, 0);
+        }
+    }
+}
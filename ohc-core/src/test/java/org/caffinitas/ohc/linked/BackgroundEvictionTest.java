@@ -0,0 +1,122 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import com.google.common.base.Strings;
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class BackgroundEvictionTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "types")
+    public Object[][] types() {
+        return new Object[][]{ { Eviction.LRU, false }, { Eviction.LRU, true }, { Eviction.W_TINY_LFU, false }, { Eviction.W_TINY_LFU, true } };
+    }
+
+    @Test(dataProvider = "types")
+    public void testBackgroundEviction(Eviction eviction, boolean useExecutor) throws IOException, InterruptedException {
+        ScheduledExecutorService executorService = useExecutor ? Executors.newScheduledThreadPool(1) : null;
+        try {
+            long capacity = 1024 * 1024;
+            try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                                                                .keySerializer(TestUtils.intSerializer)
+                                                                .valueSerializer(TestUtils.stringSerializer)
+                                                                .eviction(eviction)
+                                                                .executorService(executorService)
+                                                                .segmentCount(1)
+                                                                .capacity(capacity)
+                                                                .backgroundEviction(true)
+                                                                .backgroundEvictionIntervalMillis(1L)
+                                                                .evictionLowWatermark(.3d)
+                                                                .evictionHighWatermark(.5d)
+                                                                .build()) {
+                // fill the cache until its free capacity is below the low watermark, without the need to evict inline
+                String value = Strings.repeat("x", 200);
+                for (int i = 0; i < 100000 && cache.freeCapacity() >= capacity / 4; i++) {
+                    cache.put(i, value);
+                }
+                assertTrue(cache.freeCapacity() < capacity / 4);
+
+                for (int i = 0; i < 500 && cache.freeCapacity() < capacity / 2; i++) {
+                    Thread.sleep(10);
+                }
+
+                OHCacheStats stats = cache.stats();
+                assertTrue(cache.freeCapacity() >= capacity / 2, Long.toString(cache.freeCapacity()));
+                assertTrue(stats.getBackgroundEvictionCount() > 0L);
+                assertEquals(stats.getInlineEvictionCount(), 0L);
+                assertEquals(stats.getEvictionCount(), stats.getBackgroundEvictionCount());
+            }
+        } finally {
+            if (executorService != null) {
+                executorService.shutdown();
+            }
+        }
+    }
+
+    @Test
+    public void testNoBackgroundEvictionAboveLowWatermark() throws IOException, InterruptedException {
+        long capacity = 1024 * 1024;
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                                                            .keySerializer(TestUtils.intSerializer)
+                                                            .valueSerializer(TestUtils.stringSerializer)
+                                                            .segmentCount(1)
+                                                            .capacity(capacity)
+                                                            .backgroundEviction(true)
+                                                            .backgroundEvictionIntervalMillis(1L)
+                                                            .evictionLowWatermark(.3d)
+                                                            .evictionHighWatermark(.5d)
+                                                            .build()) {
+            String value = Strings.repeat("x", 200);
+            for (int i = 0; i < 300; i++) {
+                cache.put(i, value);
+            }
+            assertTrue(cache.freeCapacity() > capacity / 2);
+
+            Thread.sleep(50);
+
+            assertEquals(cache.size(), 300L);
+            assertEquals(cache.stats().getEvictionCount(), 0L);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testIllegalWatermarks() {
+        OHCacheBuilder.<Integer, String> newBuilder()
+                      .keySerializer(TestUtils.intSerializer)
+                      .valueSerializer(TestUtils.stringSerializer)
+                      .backgroundEviction(true)
+                      .evictionLowWatermark(.5d)
+                      .evictionHighWatermark(.3d)
+                      .build();
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+// Cross-checks the linked implementation using bucket tags against the independent CheckOHCacheImpl,
+// like CrossCheckTest does for hash tables without tags.
+public class BucketTagsTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "variants")
+    public Object[][] variants() {
+        return new Object[][]{
+                { Eviction.LRU, false, false },
+                { Eviction.LRU, true, false },
+                { Eviction.W_TINY_LFU, false, true },
+                { Eviction.CLOCK, true, true },
+        };
+    }
+
+    @Test(dataProvider = "variants")
+    public void testCrossCheck(Eviction eviction, boolean incrementalRehash, boolean optimisticReads) throws IOException {
+        try (DoubleCheckCacheImpl<Integer, String> cache = new DoubleCheckCacheImpl<>(OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .eviction(eviction)
+                .hashTableSize(256)
+                .segmentCount(4)
+                .capacity(256L * 1024 * 1024)
+                .incrementalRehash(incrementalRehash)
+                .optimisticReads(optimisticReads)
+                .bucketTags(true))) {
+            Random r = new Random(42);
+            for (int i = 0; i < 200000; i++) {
+                int k = r.nextInt(20000);
+                switch (r.nextInt(6)) {
+                    case 0:
+                    case 1:
+                        cache.put(k, Integer.toOctalString(r.nextInt()));
+                        break;
+                    case 2:
+                        cache.putIfAbsent(k, Integer.toOctalString(k));
+                        break;
+                    case 3:
+                        cache.remove(k);
+                        break;
+                    case 4:
+                        cache.get(k);
+                        break;
+                    case 5:
+                        cache.containsKey(k);
+                        break;
+                }
+            }
+
+            for (int k = 0; k < 20000; k++) {
+                cache.get(k);
+            }
+            assertEquals(cache.prod.size(), cache.check.size());
+            assertTrue(cache.prod.stats().getRehashCount() > 0L);
+
+            for (int k = 0; k < 20000; k++) {
+                cache.remove(k);
+            }
+            assertEquals(cache.prod.size(), 0L);
+            for (int k = 0; k < 20000; k++) {
+                assertNull(cache.prod.get(k));
+            }
+        }
+    }
+
+    @Test
+    public void testTags() {
+        OffHeapLinkedMap.Table table = OffHeapLinkedMap.Table.create(256, true, true);
+        long[] adrs = new long[3];
+        try {
+            // same bucket, different tags
+            long[] hashes = new long[]{ (1L << 26) | 5L, (2L << 26) | 5L, (3L << 26) | 5L };
+            long absent = (4L << 26) | 5L;
+            for (int i = 0; i < adrs.length; i++) {
+                adrs[i] = Uns.allocate(Util.allocLen(0, 0L, 0L));
+                HashEntries.setHeaderFields(adrs[i], 0);
+                HashEntries.init(hashes[i], 0, 0, adrs[i], Util.SENTINEL_NOT_PRESENT, 0L);
+                table.addAsHead(hashes[i], adrs[i]);
+            }
+
+            assertEquals(table.getFirstCandidate(absent), 0L);
+            for (long hash : hashes) {
+                assertEquals(table.getFirstCandidate(hash), adrs[2]);
+            }
+
+            // tag of an unlinked entry is cleared
+            table.removeLink(hashes[1], adrs[1], -1L);
+            assertEquals(table.getFirstCandidate(hashes[1]), 0L);
+            assertEquals(table.getFirstCandidate(hashes[0]), adrs[2]);
+            assertEquals(table.getFirstCandidate(hashes[2]), adrs[2]);
+
+            table.removeLink(hashes[2], adrs[2], 0L);
+            assertEquals(table.getFirstCandidate(hashes[2]), 0L);
+            assertEquals(table.getFirstCandidate(hashes[0]), adrs[0]);
+
+            table.removeLink(hashes[0], adrs[0], 0L);
+            assertEquals(table.getFirstCandidate(hashes[0]), 0L);
+            assertEquals(table.getFirst(hashes[0]), 0L);
+        } finally {
+            for (long adr : adrs) {
+                if (adr != 0L) {
+                    Uns.free(adr);
+                }
+            }
+            table.release();
+        }
+    }
+}
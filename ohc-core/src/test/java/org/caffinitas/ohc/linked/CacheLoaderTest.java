@@ -1,18 +1,29 @@
 package org.caffinitas.ohc.linked;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.caffinitas.ohc.CacheLoader;
+import org.caffinitas.ohc.CloseableIterator;
 import org.caffinitas.ohc.Eviction;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
 import org.caffinitas.ohc.PermanentLoadException;
+import org.caffinitas.ohc.TestTicker;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.DataProvider;
@@ -236,6 +247,235 @@ public class CacheLoaderTest {
         }
     }
 
+    @Test(dataProvider = "types")
+    public void testGetWithSlowLoaderAsyncManyWaiters(Eviction eviction) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try {
+
+            try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .executorService(executorService)
+                    .eviction(eviction)
+                    .build()) {
+                slowLoaderCalled = 0;
+
+                Future<String> f1 = cache.getWithLoaderAsync(1, slowLoader);
+                Thread.sleep(20);
+                List<Future<String>> waiters = new ArrayList<>();
+                for (int i = 0; i < 1000; i++) {
+                    waiters.add(cache.getWithLoaderAsync(1, slowLoader));
+                }
+
+                // waiters are completed by the loader - not by a task per waiter on the executor
+                Assert.assertTrue(((ThreadPoolExecutor) executorService).getQueue().isEmpty());
+
+                Assert.assertEquals("1", f1.get(1000, TimeUnit.MILLISECONDS));
+                for (Future<String> waiter : waiters) {
+                    Assert.assertEquals("1", waiter.get(100, TimeUnit.MILLISECONDS));
+                }
+
+                Assert.assertEquals(slowLoaderCalled, 1);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Many threads request the same absent key at once, so most of them lose the race to put their sentinel.
+     */
+    @Test(dataProvider = "types")
+    public void testGetWithLoaderAsyncConcurrentSameKey(Eviction eviction) throws Exception {
+        final int threads = 16;
+        final int rounds = 2000;
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        ExecutorService requestors = Executors.newFixedThreadPool(threads);
+        try {
+
+            try (final OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .executorService(executorService)
+                    .eviction(eviction)
+                    .build()) {
+                final AtomicInteger loads = new AtomicInteger();
+                final CacheLoader<Integer, String> countingLoader = new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) throws Exception {
+                        loads.incrementAndGet();
+                        return key.toString();
+                    }
+                };
+
+                final CyclicBarrier barrier = new CyclicBarrier(threads);
+                final AtomicReference<Throwable> failure = new AtomicReference<>();
+                List<Future<?>> requests = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    requests.add(requestors.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                for (int key = 0; key < rounds; key++) {
+                                    barrier.await();
+                                    Assert.assertEquals(cache.getWithLoaderAsync(key, countingLoader).get(5, TimeUnit.SECONDS), Integer.toString(key));
+                                }
+                            } catch (Throwable e) {
+                                failure.compareAndSet(null, e);
+                                barrier.reset();
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> request : requests) {
+                    request.get();
+                }
+
+                if (failure.get() != null) {
+                    throw new AssertionError(failure.get());
+                }
+                Assert.assertEquals(loads.get(), rounds);
+                Assert.assertEquals(cache.size(), rounds);
+            }
+        } finally {
+            requestors.shutdown();
+            executorService.shutdown();
+        }
+    }
+
+    /**
+     * Loads of many different keys complete concurrently, so the addresses of freed sentinels are reused
+     * for the sentinels of other keys, while the previous load may still be unregistered.
+     */
+    @Test(dataProvider = "types")
+    public void testGetWithLoaderAsyncSentinelAddressReuse(Eviction eviction) throws Exception {
+        final int threads = 8;
+        final int keys = 5000;
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(4);
+        ExecutorService requestors = Executors.newFixedThreadPool(threads);
+        try {
+
+            try (final OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .executorService(executorService)
+                    .eviction(eviction)
+                    .build()) {
+                // no value for a third of the keys, failure for another third - both free the sentinel
+                final CacheLoader<Integer, String> mixedLoader = new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) throws Exception {
+                        switch (key % 3) {
+                            case 0:
+                                return null;
+                            case 1:
+                                return key.toString();
+                            default:
+                                throw new Exception("foo");
+                        }
+                    }
+                };
+
+                final AtomicReference<Throwable> failure = new AtomicReference<>();
+                List<Future<?>> requests = new ArrayList<>();
+                for (int t = 0; t < threads; t++) {
+                    final int first = t * keys;
+                    requests.add(requestors.submit(new Runnable() {
+                        @Override
+                        public void run() {
+                            try {
+                                for (int key = first; key < first + keys; key++) {
+                                    // the second request is likely to wait for the load of the first one
+                                    Future<String> f1 = cache.getWithLoaderAsync(key, mixedLoader);
+                                    Future<String> f2 = cache.getWithLoaderAsync(key, mixedLoader);
+                                    for (Future<String> f : Arrays.asList(f1, f2)) {
+                                        try {
+                                            Assert.assertEquals(f.get(5, TimeUnit.SECONDS), key % 3 == 0 ? null : Integer.toString(key));
+                                            Assert.assertNotEquals(key % 3, 2);
+                                        } catch (ExecutionException e) {
+                                            Assert.assertEquals(key % 3, 2, e.toString());
+                                        }
+                                    }
+                                }
+                            } catch (Throwable e) {
+                                failure.compareAndSet(null, e);
+                            }
+                        }
+                    }));
+                }
+                for (Future<?> request : requests) {
+                    request.get();
+                }
+
+                if (failure.get() != null) {
+                    throw new AssertionError(failure.get());
+                }
+                Assert.assertEquals(cache.size(), threads * keys / 3);
+            }
+        } finally {
+            requestors.shutdown();
+            executorService.shutdown();
+        }
+    }
+
+    @DataProvider(name = "optimisticReads")
+    public Object[][] optimisticReads() {
+        return new Object[][] { { false }, { true } };
+    }
+
+    /**
+     * The sentinel is removed while the loader is running, the loader still owns its reference to the sentinel.
+     */
+    @Test(dataProvider = "optimisticReads")
+    public void testGetWithLoaderAsyncSentinelRemoved(boolean optimisticReads) throws Exception {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try {
+
+            try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .executorService(executorService)
+                    .optimisticReads(optimisticReads)
+                    .build()) {
+                final CountDownLatch loading = new CountDownLatch(1);
+                final CountDownLatch release = new CountDownLatch(1);
+                CacheLoader<Integer, String> blockingLoader = new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) throws Exception {
+                        loading.countDown();
+                        release.await();
+                        return key.toString();
+                    }
+                };
+
+                Future<String> f1 = cache.getWithLoaderAsync(1, blockingLoader);
+                Assert.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+                // drops the reference of the map to the sentinel
+                Assert.assertTrue(cache.remove(1));
+
+                Future<String> f2 = cache.getWithLoaderAsync(2, loader);
+                Assert.assertEquals(f2.get(5, TimeUnit.SECONDS), "2");
+
+                release.countDown();
+
+                // the loaded value cannot replace the removed sentinel
+                try {
+                    f1.get(5, TimeUnit.SECONDS);
+                    Assert.fail();
+                } catch (ExecutionException e) {
+                    Assert.assertTrue(e.getCause() instanceof RuntimeException);
+                }
+                Assert.assertFalse(cache.containsKey(1));
+                Assert.assertEquals(cache.get(2), "2");
+
+                Assert.assertEquals(cache.getWithLoaderAsync(1, loader).get(5, TimeUnit.SECONDS), "1");
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
     @Test(dataProvider = "types")
     public void testGetWithSlowTempFailLoaderAsync(Eviction eviction) throws IOException, InterruptedException, ExecutionException, TimeoutException {
         ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
@@ -355,4 +595,75 @@ public class CacheLoaderTest {
         }
     }
 
+    @Test(dataProvider = "types")
+    public void testRefreshAfterWrite(Eviction eviction) throws IOException, InterruptedException, ExecutionException, TimeoutException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(3);
+        try {
+            TestTicker ticker = new TestTicker();
+
+            try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .executorService(executorService)
+                    .eviction(eviction)
+                    .segmentCount(1)
+                    .ticker(ticker)
+                    .refreshAfterWriteMillis(60000L)
+                    .build()) {
+                final AtomicInteger versions = new AtomicInteger();
+                final CountDownLatch release = new CountDownLatch(1);
+                CacheLoader<Integer, String> versionLoader = new CacheLoader<Integer, String>() {
+                    @Override
+                    public String load(Integer key) throws Exception {
+                        int version = versions.incrementAndGet();
+                        if (version > 3) {
+                            release.await();
+                        }
+                        return key + "-" + version;
+                    }
+                };
+
+                Assert.assertEquals(cache.getWithLoader(1, versionLoader), "1-1");
+                Assert.assertEquals(cache.getWithLoader(2, versionLoader), "2-2");
+                Assert.assertEquals(cache.getWithLoader(3, versionLoader), "3-3");
+
+                // not due yet
+                Assert.assertEquals(cache.getWithLoader(1, versionLoader), "1-1");
+                Assert.assertEquals(versions.get(), 3);
+
+                ticker.addMillis(61000L);
+
+                // reads return the current value while a single refresh is in flight
+                for (int i = 0; i < 100; i++) {
+                    Assert.assertEquals(cache.getWithLoader(1, versionLoader), "1-1");
+                }
+                Assert.assertEquals(cache.get(2), "2-2");
+                release.countDown();
+
+                for (int i = 0; i < 100 && cache.stats().getRefreshCount() == 0L; i++) {
+                    Thread.sleep(10);
+                }
+                Assert.assertEquals(cache.stats().getRefreshCount(), 1L);
+                Assert.assertEquals(versions.get(), 4);
+                Assert.assertEquals(cache.size(), 3L);
+
+                if (eviction == Eviction.LRU) {
+                    // the refreshed entry kept its position in the LRU - key 2 has been read after key 1
+                    List<Integer> hotKeys = new ArrayList<>();
+                    try (CloseableIterator<Integer> iter = cache.hotKeyIterator(3)) {
+                        while (iter.hasNext()) {
+                            hotKeys.add(iter.next());
+                        }
+                    }
+                    Assert.assertEquals(hotKeys, Arrays.asList(2, 1, 3));
+                }
+
+                // the reloaded value is not due for a refresh
+                Assert.assertEquals(cache.getWithLoader(1, versionLoader), "1-4");
+                Assert.assertEquals(versions.get(), 4);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
 }
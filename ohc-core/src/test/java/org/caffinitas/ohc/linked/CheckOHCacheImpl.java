@@ -19,7 +19,9 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.channels.ReadableByteChannel;
 import java.nio.channels.WritableByteChannel;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.NoSuchElementException;
@@ -29,6 +31,8 @@ import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.caffinitas.ohc.BatchResult;
+import org.caffinitas.ohc.BulkCacheLoader;
 import org.caffinitas.ohc.CacheLoader;
 import org.caffinitas.ohc.CacheSerializer;
 import org.caffinitas.ohc.CloseableIterator;
@@ -144,9 +148,22 @@ final class CheckOHCacheImpl<K, V> implements OHCache<K, V> {
 
     @Override
     public void putAll(Map<? extends K, ? extends V> m) {
+        putAllBatch(m);
+    }
+
+    @Override
+    public BatchResult putAllBatch(Map<? extends K, ? extends V> m) {
+        // does not distinguish between added and replaced entries
+        long put = 0L;
+        long rejected = 0L;
         for (Map.Entry<? extends K, ? extends V> entry : m.entrySet()) {
-            put(entry.getKey(), entry.getValue());
+            if (put(entry.getKey(), entry.getValue())) {
+                put++;
+            } else {
+                rejected++;
+            }
         }
+        return new BatchResult(put, 0L, rejected, 0L, 0L);
     }
 
     @Override
@@ -158,9 +175,18 @@ final class CheckOHCacheImpl<K, V> implements OHCache<K, V> {
 
     @Override
     public void removeAll(Iterable<K> keys) {
+        removeAllBatch(keys);
+    }
+
+    @Override
+    public BatchResult removeAllBatch(Iterable<K> keys) {
+        long removed = 0L;
         for (K key : keys) {
-            remove(key);
+            if (remove(key)) {
+                removed++;
+            }
         }
+        return new BatchResult(0L, 0L, 0L, 0L, removed);
     }
 
     @Override
@@ -193,6 +219,23 @@ final class CheckOHCacheImpl<K, V> implements OHCache<K, V> {
         return valueSerializer.deserialize(ByteBuffer.wrap(value));
     }
 
+    @Override
+    public Map<K, V> getAll(Iterable<K> keys) {
+        Map<K, V> out = new HashMap<>();
+        for (K key : keys) {
+            V value = get(key);
+            if (value != null) {
+                out.put(key, value);
+            }
+        }
+        return out;
+    }
+
+    @Override
+    public void getAll(Collection<K> keys, Map<K, V> out) {
+        out.putAll(getAll(keys));
+    }
+
     @Override
     public boolean containsKey(K key) {
         HeapKeyBuffer keyBuffer = keySource(key);
@@ -200,6 +243,11 @@ final class CheckOHCacheImpl<K, V> implements OHCache<K, V> {
         return segment.get(keyBuffer) != null;
     }
 
+    @Override
+    public Map<K, V> getAllWithLoader(Iterable<K> keys, BulkCacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
+        throw new UnsupportedOperationException();
+    }
+
     @Override
     public V getWithLoader(K key, CacheLoader<K, V> loader) throws InterruptedException, ExecutionException {
         throw new UnsupportedOperationException();
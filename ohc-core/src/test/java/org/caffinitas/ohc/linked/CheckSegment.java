@@ -151,7 +151,7 @@ final class CheckSegment {
 
     static long sizeOf(HeapKeyBuffer key, byte[] value) {
         // calculate the same value as the original impl would do
-        return Util.ENTRY_OFF_DATA + Util.roundUpTo8(key.size()) + value.length;
+        return Util.dataOffset(Util.FIELDS_ALL) + Util.roundUpTo8(key.size()) + value.length;
     }
 
     void resetStatistics() {
@@ -0,0 +1,140 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class CompactEntryHeaderTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    private static OHCacheBuilder<Integer, String> builder(Eviction eviction, boolean compact) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .eviction(eviction)
+                             .compactEntryHeader(compact);
+    }
+
+    @DataProvider(name = "headers")
+    public Object[][] headers() {
+        return new Object[][]{
+                { builder(Eviction.LRU, false), 64L },
+                { builder(Eviction.LRU, true), 48L },
+                { builder(Eviction.LRU, true).timeouts(true), 56L },
+                { builder(Eviction.LRU, true).timeouts(true).defaultTTLmillis(60000L), 56L },
+                { builder(Eviction.W_TINY_LFU, true), 56L },
+                { builder(Eviction.CLOCK, true), 56L },
+                { builder(Eviction.S3_FIFO, true).timeouts(true), 64L },
+        };
+    }
+
+    @Test(dataProvider = "headers")
+    public void testEntryOverhead(OHCacheBuilder<Integer, String> builder, long entryOverhead) throws IOException {
+        try (OHCache<Integer, String> cache = builder.build()) {
+            assertEquals(cache.stats().getEntryOverhead(), entryOverhead);
+
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, "value" + i);
+            }
+            for (int i = 0; i < 1000; i++) {
+                assertEquals(cache.get(i), "value" + i);
+            }
+            assertTrue(cache.remove(42));
+            assertNull(cache.get(42));
+            assertEquals(cache.size(), 999L);
+
+            cache.clear();
+            assertEquals(cache.freeCapacity(), cache.capacity());
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testExpireAtWithoutTimeouts() throws IOException {
+        try (OHCache<Integer, String> cache = builder(Eviction.LRU, true).build()) {
+            cache.put(1, "one", System.currentTimeMillis() + 60000L);
+        }
+    }
+
+    @Test
+    public void testSerialization() throws IOException {
+        File f = File.createTempFile("CompactEntryHeaderTest-", ".bin");
+        f.deleteOnExit();
+        File k = File.createTempFile("CompactEntryHeaderTest-keys-", ".bin");
+        k.deleteOnExit();
+
+        int serialized;
+        int serializedKeys;
+        // optional header fields are not serialized, so the headers of both caches may differ
+        try (OHCache<Integer, String> cache = builder(Eviction.W_TINY_LFU, true).timeouts(true).build()) {
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, "value" + i);
+            }
+
+            try (BufferedWritableByteChannel ch = new BufferedWritableByteChannel(
+                    FileChannel.open(f.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), 8192)) {
+                serialized = cache.serializeHotNEntries(1000, ch);
+            }
+            try (BufferedWritableByteChannel ch = new BufferedWritableByteChannel(
+                    FileChannel.open(k.toPath(), StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING), 8192)) {
+                serializedKeys = cache.serializeHotNKeys(1000, ch);
+            }
+        }
+
+        try (OHCache<Integer, String> cache = builder(Eviction.LRU, true).build()) {
+            try (BufferedReadableByteChannel ch = new BufferedReadableByteChannel(
+                    FileChannel.open(f.toPath(), StandardOpenOption.READ), 8192)) {
+                assertEquals(cache.deserializeEntries(ch), serialized);
+            }
+            assertTrue(serialized > 0);
+            assertEquals(cache.size(), serialized);
+            for (int i = 0; i < 1000; i++) {
+                String value = cache.get(i);
+                if (value != null) {
+                    assertEquals(value, "value" + i);
+                }
+            }
+
+            int count = 0;
+            try (CloseableIterator<Integer> keys = cache.deserializeKeys(FileChannel.open(k.toPath(), StandardOpenOption.READ))) {
+                while (keys.hasNext()) {
+                    assertTrue(cache.containsKey(keys.next()));
+                    count++;
+                }
+            }
+            assertEquals(count, serializedKeys);
+            assertFalse(cache.containsKey(1000));
+        }
+    }
+}
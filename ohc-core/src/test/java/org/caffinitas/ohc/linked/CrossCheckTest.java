@@ -30,6 +30,7 @@ import java.util.Random;
 import java.util.Set;
 import java.util.TreeSet;
 
+import org.caffinitas.ohc.BatchResult;
 import org.caffinitas.ohc.CloseableIterator;
 import org.caffinitas.ohc.Eviction;
 import org.caffinitas.ohc.HashAlgorithm;
@@ -90,7 +91,8 @@ public class CrossCheckTest {
     public Object[][] cacheEviction() {
         return new Object[][] { { Eviction.LRU, HashAlgorithm.MURMUR3 }, { Eviction.LRU, HashAlgorithm.CRC32 }, { Eviction.LRU, HashAlgorithm.XX },
                 { Eviction.W_TINY_LFU, HashAlgorithm.MURMUR3 }, { Eviction.W_TINY_LFU, HashAlgorithm.CRC32 }, { Eviction.W_TINY_LFU, HashAlgorithm.XX },
-                { Eviction.NONE, HashAlgorithm.MURMUR3 }, { Eviction.NONE, HashAlgorithm.CRC32 }, { Eviction.NONE, HashAlgorithm.XX } };
+                { Eviction.NONE, HashAlgorithm.MURMUR3 }, { Eviction.NONE, HashAlgorithm.CRC32 }, { Eviction.NONE, HashAlgorithm.XX },
+                { Eviction.CLOCK, HashAlgorithm.MURMUR3 }, { Eviction.S3_FIFO, HashAlgorithm.MURMUR3 } };
     }
 
     @DataProvider(name = "lru")
@@ -319,7 +321,10 @@ public class CrossCheckTest {
             map.put(1, "one");
             map.put(2, "two");
             map.put(3, "three");
-            cache.putAll(map);
+            BatchResult result = cache.putAllBatch(map);
+            Assert.assertEquals(result.getAdded(), 3);
+            Assert.assertEquals(result.getReplaced(), 0);
+            Assert.assertEquals(result.getRejected(), 0);
             Assert.assertEquals(cache.get(1), map.get(1));
             Assert.assertEquals(cache.get(2), map.get(2));
             Assert.assertEquals(cache.get(3), map.get(3));
@@ -327,6 +332,29 @@ public class CrossCheckTest {
         }
     }
 
+    @Test(dataProvider = "types")
+    public void testGetAll(Eviction eviction, HashAlgorithm hashAlgorithm) throws Exception {
+        try (OHCache<Integer, String> cache = cache(eviction, hashAlgorithm)) {
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < 500; i++) {
+                cache.put(i, Integer.toString(i));
+                keys.add(i * 2);
+            }
+
+            Map<Integer, String> values = cache.getAll(keys);
+            Assert.assertEquals(values.size(), 250);
+            for (int i = 0; i < 500; i += 2) {
+                Assert.assertEquals(values.get(i), Integer.toString(i));
+            }
+
+            values = new HashMap<>();
+            cache.getAll(keys.subList(0, 10), values);
+            Assert.assertEquals(values.size(), 10);
+
+            Assert.assertTrue(cache.getAll(new ArrayList<Integer>()).isEmpty());
+        }
+    }
+
     @Test(dataProvider = "types")
     public void testRemove(Eviction eviction, HashAlgorithm hashAlgorithm) throws Exception {
         try (OHCache<Integer, String> cache = cache(eviction, hashAlgorithm)) {
@@ -362,7 +390,7 @@ public class CrossCheckTest {
             for (int i = 0; i < 10; i++) {
                 coll.add(i);
             }
-            cache.removeAll(coll);
+            Assert.assertEquals(cache.removeAllBatch(coll).getRemoved(), 10);
 
             assertTrue(cache.freeCapacity() > lastFree);
             Assert.assertEquals(cache.size(), 90);
@@ -370,7 +398,7 @@ public class CrossCheckTest {
             for (int i = 10; i < 50; i++) {
                 coll.add(i);
             }
-            cache.removeAll(coll);
+            Assert.assertEquals(cache.removeAllBatch(coll).getRemoved(), 40);
 
             assertTrue(cache.freeCapacity() > lastFree);
             Assert.assertEquals(cache.size(), 50);
@@ -378,7 +406,7 @@ public class CrossCheckTest {
             for (int i = 50; i < 100; i++) {
                 coll.add(i);
             }
-            cache.removeAll(coll);
+            Assert.assertEquals(cache.removeAllBatch(coll).getRemoved(), 50);
 
             Assert.assertEquals(cache.freeCapacity(), cache.capacity());
             Assert.assertEquals(cache.size(), 0);
@@ -780,7 +808,7 @@ public class CrossCheckTest {
     @Test(dataProvider = "types")
     public void testTooBigEntryOnPut(Eviction eviction, HashAlgorithm hashAlgorithm) throws IOException {
         try (OHCache<Integer, String> cache = cache(eviction, hashAlgorithm, 8, -1, -1,
-                Util.roundUpTo8(TestUtils.intSerializer.serializedSize(1)) + Util.ENTRY_OFF_DATA + 5)) {
+                Util.roundUpTo8(TestUtils.intSerializer.serializedSize(1)) + Util.dataOffset(Util.FIELDS_ALL) + 5)) {
             cache.put(1, new String(new byte[100]));
             Assert.assertEquals(cache.size(), 0);
 
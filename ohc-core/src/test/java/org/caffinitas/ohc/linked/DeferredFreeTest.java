@@ -0,0 +1,153 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class DeferredFreeTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    private static OHCache<Integer, String> cache(ScheduledExecutorService executorService, long capacity) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .executorService(executorService)
+                             .segmentCount(1)
+                             .capacity(capacity)
+                             .deferredFree(true)
+                             .deferredFreeBatchSize(16)
+                             .build();
+    }
+
+    @Test
+    public void testFreedInBatches() throws IOException {
+        long capacity = 1024 * 1024;
+        try (OHCache<Integer, String> cache = cache(null, capacity)) {
+            cache.put(0, "foo");
+            long entrySize = capacity - cache.freeCapacity();
+            for (int i = 1; i < 100; i++) {
+                cache.put(i, "foo");
+            }
+
+            for (int i = 0; i < 10; i++) {
+                cache.remove(i);
+            }
+            assertNull(cache.get(0));
+            assertEquals(cache.size(), 90L);
+            // removed entries are not yet freed
+            assertEquals(cache.stats().getPendingFreeBytes(), 10 * entrySize);
+            assertEquals(cache.freeCapacity(), capacity - 100 * entrySize);
+
+            // completes the batch, freed by the removing thread
+            for (int i = 10; i < 16; i++) {
+                cache.remove(i);
+            }
+            assertEquals(cache.stats().getPendingFreeBytes(), 0L);
+            assertEquals(cache.freeCapacity(), capacity - 84 * entrySize);
+
+            // replaced entries
+            for (int i = 16; i < 20; i++) {
+                cache.put(i, "bar");
+            }
+            assertEquals(cache.stats().getPendingFreeBytes(), 4 * entrySize);
+            assertEquals(cache.get(16), "bar");
+        }
+    }
+
+    @Test
+    public void testFreedOnExecutor() throws IOException, InterruptedException {
+        ScheduledExecutorService executorService = Executors.newScheduledThreadPool(1);
+        try {
+            long capacity = 1024 * 1024;
+            try (OHCache<Integer, String> cache = cache(executorService, capacity)) {
+                for (int i = 0; i < 100; i++) {
+                    cache.put(i, "foo");
+                }
+                for (int i = 0; i < 16; i++) {
+                    cache.remove(i);
+                }
+
+                for (int i = 0; i < 100 && cache.stats().getPendingFreeBytes() != 0L; i++) {
+                    Thread.sleep(10);
+                }
+                assertEquals(cache.stats().getPendingFreeBytes(), 0L);
+                assertEquals(cache.size(), 84L);
+            }
+        } finally {
+            executorService.shutdown();
+        }
+    }
+
+    @Test
+    public void testPendingBytesCharged() throws IOException {
+        long capacity = 1024 * 1024;
+        try (OHCache<Integer, String> cache = cache(null, capacity)) {
+            cache.put(0, "foo");
+            long entrySize = capacity - cache.freeCapacity();
+            int n = 1;
+            for (; cache.freeCapacity() >= entrySize; n++) {
+                cache.put(n, "foo");
+            }
+            assertEquals(cache.stats().getEvictionCount(), 0L);
+
+            for (int i = 0; i < 10; i++) {
+                cache.remove(i);
+            }
+            assertEquals(cache.stats().getPendingFreeBytes(), 10 * entrySize);
+
+            // the queued entries are still allocated - they are freed instead of adding beyond the capacity
+            for (int i = n; i < n + 10; i++) {
+                cache.put(i, "foo");
+            }
+            assertEquals(cache.stats().getPendingFreeBytes(), 0L);
+            assertEquals(cache.stats().getEvictionCount(), 0L);
+            assertEquals(cache.size(), (long) n);
+            assertTrue(cache.freeCapacity() >= 0L);
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        long capacity = 1024 * 1024;
+        try (OHCache<Integer, String> cache = cache(null, capacity)) {
+            cache.put(0, "foo");
+            long entrySize = capacity - cache.freeCapacity();
+            for (int i = 1; i < 100000; i++) {
+                cache.put(i, "foo");
+            }
+
+            assertTrue(cache.stats().getEvictionCount() > 0L);
+            assertEquals(cache.stats().getEvictionCount() + cache.size(), 100000L);
+            // evicted entries are freed in batches by the evicting thread
+            assertTrue(cache.stats().getPendingFreeBytes() < 16 * entrySize);
+            assertEquals(cache.get(99999), "foo");
+        }
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Random;
+
+import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class FifoEvictionTest {
+    private static final long CAPACITY = 1024 * 1024;
+
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "evictions")
+    public Object[][] evictions() {
+        return new Object[][]{ { Eviction.CLOCK }, { Eviction.S3_FIFO } };
+    }
+
+    private static OHCache<Integer, String> cache(Eviction eviction) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .eviction(eviction)
+                             .segmentCount(1)
+                             .capacity(CAPACITY)
+                             .build();
+    }
+
+    /**
+     * Hot keys are read after each new key, cold keys are written once.
+     */
+    @Test(dataProvider = "evictions")
+    public void testHotKeysSurvive(Eviction eviction) throws IOException {
+        try (OHCache<Integer, String> cache = cache(eviction)) {
+            for (int i = 0; i < 10; i++) {
+                cache.put(i, "hot" + i);
+            }
+
+            for (int i = 1000; i < 100000; i++) {
+                cache.put(i, "cold" + i);
+                assertNotNull(cache.get(i % 10));
+            }
+
+            assertTrue(cache.stats().getEvictionCount() > 0L);
+            assertEquals(cache.stats().getEvictionCount() + cache.size(), 100000L - 1000L + 10L);
+            for (int i = 0; i < 10; i++) {
+                assertEquals(cache.get(i), "hot" + i);
+            }
+            assertFalse(cache.containsKey(1000));
+        }
+    }
+
+    @Test(dataProvider = "evictions")
+    public void testSetCapacity(Eviction eviction) throws IOException {
+        try (OHCache<Integer, String> cache = cache(eviction)) {
+            cache.setCapacity(2 * CAPACITY);
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, "value" + i);
+            }
+            cache.clear();
+            assertEquals(cache.capacity(), 2 * CAPACITY);
+            assertEquals(cache.freeCapacity(), 2 * CAPACITY);
+
+            cache.setCapacity(CAPACITY / 2);
+            for (int i = 0; i < 100000; i++) {
+                cache.put(i, "value" + i);
+            }
+            assertTrue(cache.freeCapacity() >= 0L);
+            cache.clear();
+            assertEquals(cache.freeCapacity(), CAPACITY / 2);
+        }
+    }
+
+    @Test(dataProvider = "evictions")
+    public void testRandom(Eviction eviction) throws IOException {
+        try (OHCache<Integer, String> cache = cache(eviction)) {
+            Random r = new Random(42);
+            for (int i = 0; i < 200000; i++) {
+                int key = r.nextInt(20000);
+                switch (r.nextInt(10)) {
+                    case 0:
+                        cache.remove(key);
+                        break;
+                    case 1:
+                    case 2:
+                        cache.put(key, "value" + key + "-" + i);
+                        break;
+                    default:
+                        String value = cache.get(key);
+                        if (value == null) {
+                            cache.put(key, "value" + key);
+                        } else {
+                            assertTrue(value.startsWith("value" + key), value);
+                        }
+                        break;
+                }
+            }
+
+            // the eviction order contains exactly the entries of the segment
+            int count = 0;
+            try (CloseableIterator<Integer> iter = cache.hotKeyIterator((int) cache.size() + 10)) {
+                while (iter.hasNext()) {
+                    assertTrue(cache.containsKey(iter.next()));
+                    count++;
+                }
+            }
+            assertEquals(count, cache.size());
+            assertTrue(cache.freeCapacity() >= 0L);
+
+            cache.clear();
+            assertEquals(cache.size(), 0L);
+            assertEquals(cache.freeCapacity(), CAPACITY);
+        }
+    }
+
+    @DataProvider(name = "hashTableSizes")
+    public Object[][] hashTableSizes() {
+        // the ghost queue starts with the size of the hash table (at least 256) and grows with the number of entries
+        return new Object[][]{ { 8192 }, { 256 } };
+    }
+
+    @Test(dataProvider = "hashTableSizes")
+    public void testS3FifoGhost(int hashTableSize) throws IOException {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                                                            .keySerializer(TestUtils.intSerializer)
+                                                            .valueSerializer(TestUtils.stringSerializer)
+                                                            .eviction(Eviction.S3_FIFO)
+                                                            .segmentCount(1)
+                                                            .capacity(CAPACITY)
+                                                            .hashTableSize(hashTableSize)
+                                                            .build()) {
+            // key 0 is evicted first from the small queue, since it has not been read
+            cache.put(0, "foo");
+            // keys 1-20 have been read and move to the main queue, so the ghost queue remembers up to 20 entries
+            for (int i = 1; i <= 20; i++) {
+                cache.put(i, "hot");
+                assertEquals(cache.get(i), "hot");
+            }
+            for (int i = 1000; cache.stats().getEvictionCount() < 5L; i++) {
+                cache.put(i, "bar");
+            }
+            assertFalse(cache.containsKey(0));
+
+            // found in the ghost queue - added to the main queue, which is not evicted while the small queue is full
+            cache.put(0, "foo");
+            long evicted = cache.stats().getEvictionCount();
+            for (int i = 100000; cache.stats().getEvictionCount() < evicted + 5000; i++) {
+                cache.put(i, "baz");
+            }
+            assertTrue(cache.containsKey(0));
+        }
+    }
+}
@@ -0,0 +1,136 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.LockType;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class GetAllTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "configs")
+    public Object[][] configs() {
+        return new Object[][]{
+                                 { Eviction.LRU, LockType.SPIN_YIELD, false, false },
+                                 { Eviction.LRU, LockType.SPIN_YIELD, false, true },
+                                 { Eviction.LRU, LockType.READ_WRITE, true, false },
+                                 { Eviction.W_TINY_LFU, LockType.SPIN_YIELD, false, true },
+                                 { Eviction.W_TINY_LFU, LockType.READ_WRITE, true, false },
+                                 { Eviction.NONE, LockType.SPIN_PARK, false, false }
+        };
+    }
+
+    private static OHCache<Integer, String> cache(Eviction eviction, LockType lockType, boolean readBuffers, boolean optimisticReads) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .eviction(eviction)
+                             .lockType(lockType)
+                             .readBuffers(readBuffers)
+                             .optimisticReads(optimisticReads)
+                             .timeouts(true)
+                             .segmentCount(4)
+                             .capacity(64 * 1024 * 1024)
+                             .build();
+    }
+
+    @Test(dataProvider = "configs")
+    public void testGetAll(Eviction eviction, LockType lockType, boolean readBuffers, boolean optimisticReads) throws IOException {
+        try (OHCache<Integer, String> cache = cache(eviction, lockType, readBuffers, optimisticReads)) {
+            for (int i = 0; i < 1000; i++) {
+                cache.put(i, Integer.toOctalString(i));
+            }
+
+            // includes missing and duplicate keys
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < 2000; i += 3) {
+                keys.add(i);
+            }
+            keys.add(3);
+
+            Map<Integer, String> values = cache.getAll(keys);
+            assertEquals(values.size(), 334);
+            for (int i = 0; i < 2000; i++) {
+                assertEquals(values.get(i), i < 1000 && i % 3 == 0 ? Integer.toOctalString(i) : null);
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertEquals(stats.getHitCount(), 335L);
+            assertEquals(stats.getMissCount(), 333L);
+
+            // keys given as a plain Iterable
+            final Set<Integer> keySet = new HashSet<>(keys);
+            values = cache.getAll(new Iterable<Integer>() {
+                public Iterator<Integer> iterator() {
+                    return keySet.iterator();
+                }
+            });
+            assertEquals(values.size(), 334);
+        }
+    }
+
+    @Test(dataProvider = "configs")
+    public void testGetAllExpired(Eviction eviction, LockType lockType, boolean readBuffers, boolean optimisticReads) throws Exception {
+        try (OHCache<Integer, String> cache = cache(eviction, lockType, readBuffers, optimisticReads)) {
+            long expireAt = System.currentTimeMillis() + 50L;
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                cache.put(i, Integer.toOctalString(i), i % 2 == 0 ? expireAt : OHCache.NEVER_EXPIRE);
+                keys.add(i);
+            }
+
+            assertEquals(cache.getAll(keys).size(), 100);
+
+            Thread.sleep(100L);
+
+            Map<Integer, String> values = cache.getAll(keys);
+            assertEquals(values.size(), 50);
+            for (int i = 0; i < 100; i++) {
+                assertEquals(values.containsKey(i), i % 2 != 0);
+            }
+
+            // expired entries are removed by subsequent (locked) lookups
+            for (int i = 0; i < 100; i += 2) {
+                assertNull(cache.get(i));
+                assertFalse(cache.containsKey(i));
+            }
+            assertEquals(cache.size(), 50L);
+            assertTrue(cache.stats().getExpireCount() > 0L);
+        }
+    }
+}
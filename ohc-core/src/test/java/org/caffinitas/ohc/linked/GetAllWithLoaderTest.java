@@ -0,0 +1,247 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.caffinitas.ohc.BulkCacheLoader;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class GetAllWithLoaderTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "chunkSizes")
+    public Object[][] chunkSizes() {
+        return new Object[][]{ { 0 }, { 65536 } };
+    }
+
+    private static OHCache<Integer, String> cache(int chunkSize, long windowMicros, int maxBatchSize) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .chunkSize(chunkSize)
+                             .segmentCount(4)
+                             .capacity(64 * 1024 * 1024)
+                             .bulkLoadWindowMicros(windowMicros)
+                             .bulkLoadMaxBatchSize(maxBatchSize)
+                             .build();
+    }
+
+    // records the requested keys, loads all keys except the multiples of 10
+    static class RecordingLoader implements BulkCacheLoader<Integer, String> {
+        final List<Set<Integer>> calls = Collections.synchronizedList(new ArrayList<Set<Integer>>());
+
+        @Override
+        public Map<Integer, String> loadAll(Set<Integer> keys) throws Exception {
+            calls.add(new HashSet<>(keys));
+            Map<Integer, String> values = new HashMap<>();
+            for (Integer key : keys) {
+                if (key % 10 != 0) {
+                    values.put(key, Integer.toHexString(key));
+                }
+            }
+            return values;
+        }
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void testGetAllWithLoader(int chunkSize) throws Exception {
+        try (OHCache<Integer, String> cache = cache(chunkSize, 0L, 1024)) {
+            for (int i = 0; i < 50; i++) {
+                cache.put(i, Integer.toOctalString(i));
+            }
+
+            RecordingLoader loader = new RecordingLoader();
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                keys.add(i);
+            }
+
+            Map<Integer, String> values = cache.getAllWithLoader(keys, loader);
+
+            // only the misses are loaded, at once
+            assertEquals(loader.calls.size(), 1);
+            assertEquals(loader.calls.get(0).size(), 50);
+            assertEquals(values.size(), 95);
+            for (int i = 0; i < 100; i++) {
+                if (i < 50) {
+                    assertEquals(values.get(i), Integer.toOctalString(i));
+                } else if (i % 10 == 0) {
+                    assertFalse(values.containsKey(i));
+                    assertFalse(cache.containsKey(i));
+                } else {
+                    assertEquals(values.get(i), Integer.toHexString(i));
+                    assertEquals(cache.get(i), Integer.toHexString(i));
+                }
+            }
+
+            // keys without a value are loaded again
+            cache.getAllWithLoader(keys, loader);
+            assertEquals(loader.calls.size(), 2);
+            assertEquals(loader.calls.get(1).size(), 5);
+        }
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void testMaxBatchSize(int chunkSize) throws Exception {
+        try (OHCache<Integer, String> cache = cache(chunkSize, 0L, 16)) {
+            RecordingLoader loader = new RecordingLoader();
+            List<Integer> keys = new ArrayList<>();
+            for (int i = 1; i <= 40; i++) {
+                keys.add(i);
+            }
+
+            assertEquals(cache.getAllWithLoader(keys, loader).size(), 36);
+
+            assertEquals(loader.calls.size(), 3);
+            assertEquals(loader.calls.get(0).size() + loader.calls.get(1).size() + loader.calls.get(2).size(), 40);
+        }
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void testFailure(int chunkSize) throws Exception {
+        try (OHCache<Integer, String> cache = cache(chunkSize, 0L, 1024)) {
+            BulkCacheLoader<Integer, String> failing = new BulkCacheLoader<Integer, String>() {
+                @Override
+                public Map<Integer, String> loadAll(Set<Integer> keys) throws Exception {
+                    throw new Exception("foo");
+                }
+            };
+
+            try {
+                cache.getAllWithLoader(Arrays.asList(1, 2, 3), failing);
+                fail();
+            } catch (ExecutionException e) {
+                assertEquals(e.getCause().getMessage(), "foo");
+            }
+
+            // failed keys are not remembered
+            assertEquals(cache.getAllWithLoader(Arrays.asList(1, 2, 3), new RecordingLoader()).size(), 3);
+        }
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void testCoalesceInFlight(int chunkSize) throws Exception {
+        try (OHCache<Integer, String> cache = cache(chunkSize, 0L, 1024)) {
+            final CountDownLatch loading = new CountDownLatch(2);
+            final CountDownLatch release = new CountDownLatch(1);
+            final RecordingLoader loader = new RecordingLoader() {
+                @Override
+                public Map<Integer, String> loadAll(Set<Integer> keys) throws Exception {
+                    loading.countDown();
+                    release.await();
+                    return super.loadAll(keys);
+                }
+            };
+
+            ExecutorService executor = Executors.newFixedThreadPool(2);
+            try {
+                final OHCache<Integer, String> c = cache;
+                Future<Map<Integer, String>> first = executor.submit(new Callable<Map<Integer, String>>() {
+                    @Override
+                    public Map<Integer, String> call() throws Exception {
+                        return c.getAllWithLoader(Arrays.asList(1, 2, 3), loader);
+                    }
+                });
+                while (loading.getCount() == 2L) {
+                    Thread.sleep(1L);
+                }
+
+                // 2 and 3 are in flight, only 4 must be loaded
+                Future<Map<Integer, String>> second = executor.submit(new Callable<Map<Integer, String>>() {
+                    @Override
+                    public Map<Integer, String> call() throws Exception {
+                        return c.getAllWithLoader(Arrays.asList(2, 3, 4), loader);
+                    }
+                });
+                assertTrue(loading.await(5, TimeUnit.SECONDS));
+                release.countDown();
+
+                assertEquals(first.get(5, TimeUnit.SECONDS).size(), 3);
+                assertEquals(second.get(5, TimeUnit.SECONDS).size(), 3);
+                Set<Set<Integer>> calls = new HashSet<>(loader.calls);
+                assertEquals(calls, new HashSet<>(Arrays.<Set<Integer>> asList(new HashSet<>(Arrays.asList(1, 2, 3)),
+                                                                                Collections.singleton(4))));
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+
+    @Test(dataProvider = "chunkSizes")
+    public void testWindow(int chunkSize) throws Exception {
+        try (OHCache<Integer, String> cache = cache(chunkSize, TimeUnit.SECONDS.toMicros(10), 1024)) {
+            final RecordingLoader loader = new RecordingLoader();
+            final OHCache<Integer, String> c = cache;
+
+            ExecutorService executor = Executors.newFixedThreadPool(8);
+            try {
+                // the first caller waits for the window, the others add their misses to its batch -
+                // the batch is loaded as soon as it reaches the maximum batch size
+                List<Future<Map<Integer, String>>> futures = new ArrayList<>();
+                for (int t = 0; t < 8; t++) {
+                    final List<Integer> keys = new ArrayList<>();
+                    for (int i = 1; i <= 128; i++) {
+                        keys.add(t * 128 + i);
+                    }
+                    futures.add(executor.submit(new Callable<Map<Integer, String>>() {
+                        @Override
+                        public Map<Integer, String> call() throws Exception {
+                            return c.getAllWithLoader(keys, loader);
+                        }
+                    }));
+                }
+
+                int total = 0;
+                for (Future<Map<Integer, String>> future : futures) {
+                    total += future.get(5, TimeUnit.SECONDS).size();
+                }
+                assertEquals(total, 1024 - 102);
+                assertEquals(loader.calls.size(), 1);
+                assertEquals(loader.calls.get(0).size(), 1024);
+            } finally {
+                executor.shutdown();
+            }
+        }
+    }
+}
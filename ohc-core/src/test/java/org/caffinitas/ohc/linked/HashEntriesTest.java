@@ -36,6 +36,7 @@ public class HashEntriesTest {
     @Test
     public void testInit() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         boolean ok = false;
         try {
             HashEntries.init(0x98765432abcddeafL, 5, 10, adr, 0, 0L);
@@ -59,6 +60,7 @@ public class HashEntriesTest {
     @Test
     public void testCompareKey() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         KeyBuffer key = new KeyBuffer(11);
         try {
             HashEntries.init(0L, 11, 0, adr, Util.SENTINEL_NOT_PRESENT, 0L);
@@ -87,6 +89,7 @@ public class HashEntriesTest {
     @Test
     public void testGetSetLRUNext() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         try {
             Uns.setMemory(adr, 0, MIN_ALLOC_LEN, (byte) 0);
             HashEntries.init(0x98765432abcddeafL, 5, 10, adr, 0, 0L);
@@ -104,6 +107,7 @@ public class HashEntriesTest {
     @Test
     public void testGetSetLRUPrev() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         try {
             Uns.setMemory(adr, 0, MIN_ALLOC_LEN, (byte) 0);
             HashEntries.init(0x98765432abcddeafL, 5, 10, adr, 0, 0L);
@@ -121,6 +125,7 @@ public class HashEntriesTest {
     @Test
     public void testGetHash() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         try {
             Uns.setMemory(adr, 0, MIN_ALLOC_LEN, (byte) 0);
             HashEntries.init(0x98765432abcddeafL, 5, 10, adr, 0, 0L);
@@ -136,6 +141,7 @@ public class HashEntriesTest {
     @Test
     public void testGetSetNext() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         try {
             Uns.setMemory(adr, 0, MIN_ALLOC_LEN, (byte) 0);
             HashEntries.init(0x98765432abcddeafL, 5, 10, adr, 0, 0L);
@@ -153,6 +159,7 @@ public class HashEntriesTest {
     @Test
     public void testGetAllocLen() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         try {
 
             HashEntries.init(0x98765432abcddeafL, 0, 10, adr, 0, 0L);
@@ -172,6 +179,17 @@ public class HashEntriesTest {
 
             HashEntries.init(0x98765432abcddeafL, 16, 10, adr, 0, 0L);
             assertEquals(HashEntries.getAllocLen(adr), Util.ENTRY_OFF_DATA + 16L + 10L);
+
+            // optional header fields
+            HashEntries.setHeaderFields(adr, Util.FIELD_EXPIRE_AT);
+            HashEntries.init(0x98765432abcddeafL, 16, 10, adr, 0, 0L);
+            assertEquals(HashEntries.getDataOffset(adr), Util.ENTRY_OFF_DATA + 8L);
+            assertEquals(HashEntries.getAllocLen(adr), Util.ENTRY_OFF_DATA + 8L + 16L + 10L);
+
+            HashEntries.setHeaderFields(adr, Util.FIELDS_ALL);
+            HashEntries.init(0x98765432abcddeafL, 16, 10, adr, 0, 0L);
+            assertEquals(HashEntries.getDataOffset(adr), Util.ENTRY_OFF_DATA + 16L);
+            assertEquals(HashEntries.getAllocLen(adr), Util.ENTRY_OFF_DATA + 16L + 16L + 10L);
         } finally {
             Uns.free(adr);
         }
@@ -180,6 +198,7 @@ public class HashEntriesTest {
     @Test
     public void testReferenceDereference() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         boolean ok = false;
         try {
             HashEntries.init(0x98765432abcddeafL, 0, 10, adr, 0, 0L);
@@ -203,6 +222,7 @@ public class HashEntriesTest {
     @Test
     public void testDereferenceFail() throws Exception {
         long adr = Uns.allocate(MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(adr, 0);
         boolean ok = false;
         try {
             HashEntries.init(0x98765432abcddeafL, 0, 10, adr, Util.SENTINEL_NOT_PRESENT, 0L);
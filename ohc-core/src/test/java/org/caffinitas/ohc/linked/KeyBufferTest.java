@@ -16,6 +16,8 @@
 package org.caffinitas.ohc.linked;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
 
 import java.nio.ByteBuffer;
 
@@ -121,4 +123,38 @@ public class KeyBufferTest {
             }
         }
     }
+
+    @Test(dataProvider = "hashes")
+    public void testScratch(HashAlgorithm hashAlgorithm) throws Exception {
+        org.caffinitas.ohc.linked.Hasher ohcHasher = org.caffinitas.ohc.linked.Hasher.create(hashAlgorithm);
+
+        byte[] big = TestUtils.randomBytes(100);
+        KeyBuffer scratch = KeyBuffer.scratch(big.length);
+        scratch.byteBuffer().put(big);
+        scratch.finish(ohcHasher);
+
+        for (int i = 1; i < 100; i++) {
+            byte[] ref = TestUtils.randomBytes(i);
+
+            KeyBuffer out = KeyBuffer.scratch(i);
+            assertSame(out, scratch);
+            ByteBuffer buf = out.byteBuffer();
+            assertEquals(buf.remaining(), i);
+            buf.put(ref);
+            out.finish(ohcHasher);
+
+            KeyBuffer exact = new KeyBuffer(i);
+            exact.byteBuffer().put(ref);
+            exact.finish(ohcHasher);
+
+            assertEquals(out.size(), i);
+            assertEquals(out.hash(), exact.hash());
+            assertEquals(out, exact);
+        }
+
+        KeyBuffer large = KeyBuffer.scratch(KeyBuffer.MAX_SCRATCH_SIZE + 1);
+        assertNotSame(large, scratch);
+        assertEquals(large.size(), KeyBuffer.MAX_SCRATCH_SIZE + 1);
+        assertSame(KeyBuffer.scratch(KeyBuffer.MAX_SCRATCH_SIZE), scratch);
+    }
 }
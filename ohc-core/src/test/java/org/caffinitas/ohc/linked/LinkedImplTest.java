@@ -15,10 +15,19 @@
  */
 package org.caffinitas.ohc.linked;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
+import org.caffinitas.ohc.BatchResult;
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.LockType;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
@@ -67,4 +76,102 @@ public class LinkedImplTest {
         builder.build().close();
     }
 
+    @Test
+    public void testPutAllBulk() throws Exception {
+        try (OHCache<Integer, String> cache = cache(256, 64, 1, 1024)) {
+            Map<Integer, String> map = new HashMap<>();
+            for (int i = 0; i < 50000; i++) {
+                map.put(i, Integer.toString(i));
+            }
+            // too large
+            map.put(-1, new String(new byte[1000]));
+
+            BatchResult result = cache.putAllBatch(map);
+            assertEquals(result.getAdded(), 50000L);
+            assertEquals(result.getReplaced(), 0L);
+            assertEquals(result.getRejected(), 1L);
+            assertEquals(result.getEvicted(), 0L);
+            // hash table grown once
+            assertEquals(cache.stats().getRehashCount(), 1L);
+            assertEquals(cache.size(), 50000L);
+
+            map.remove(-1);
+            for (int i = 0; i < 50000; i += 2) {
+                map.put(i, "replaced " + i);
+            }
+            result = cache.putAllBatch(map);
+            assertEquals(result.getAdded(), 0L);
+            assertEquals(result.getReplaced(), 50000L);
+            for (int i = 0; i < 50000; i++) {
+                assertEquals(cache.get(i), map.get(i));
+            }
+
+            assertEquals(cache.removeAllBatch(map.keySet()).getRemoved(), 50000L);
+            assertEquals(cache.size(), 0L);
+        }
+    }
+
+    @Test
+    public void testPutAllEvicts() throws Exception {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .eviction(Eviction.LRU)
+                .segmentCount(1)
+                .capacity(1024 * 1024)
+                .build()) {
+            Map<Integer, String> map = new HashMap<>();
+            String value = new String(new byte[1000]);
+            for (int i = 0; i < 5000; i++) {
+                map.put(i, value);
+            }
+
+            BatchResult result = cache.putAllBatch(map);
+            assertEquals(result.getAdded(), 5000L);
+            assertTrue(result.getEvicted() > 0L);
+            assertEquals(cache.size(), 5000L - result.getEvicted());
+            assertEquals(cache.stats().getEvictionCount(), result.getEvicted());
+        }
+    }
+
+    @Test
+    public void testLockTypes() throws Exception {
+        for (LockType lockType : LockType.values()) {
+            try (final OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                    .keySerializer(TestUtils.intSerializer)
+                    .valueSerializer(TestUtils.stringSerializer)
+                    .optimisticReads(lockType == LockType.READ_WRITE)
+                    .segmentCount(2)
+                    .lockType(lockType)
+                    .build()) {
+                Thread[] threads = new Thread[8];
+                for (int t = 0; t < threads.length; t++) {
+                    final int first = t * 1000;
+                    threads[t] = new Thread() {
+                        public void run() {
+                            for (int i = first; i < first + 1000; i++) {
+                                cache.put(i, Integer.toString(i));
+                                cache.get(i);
+                                cache.get(i - 1);
+                            }
+                        }
+                    };
+                    threads[t].start();
+                }
+                for (Thread thread : threads) {
+                    thread.join();
+                }
+
+                for (int i = 0; i < 8000; i++) {
+                    assertEquals(cache.get(i), Integer.toString(i));
+                }
+
+                OHCacheStats stats = cache.stats();
+                assertEquals(stats.getHitCount() + stats.getMissCount(), 24000L);
+                // optimistic reads do not acquire the lock
+                assertTrue(stats.getLockAcquisitions() >= 8000L);
+                assertTrue(stats.getLockSpins() >= stats.getLockParks());
+            }
+        }
+    }
 }
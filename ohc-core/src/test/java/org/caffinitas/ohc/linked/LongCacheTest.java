@@ -0,0 +1,174 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.LockType;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.caffinitas.ohc.OHLongCache;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class LongCacheTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "configs")
+    public Object[][] configs() {
+        return new Object[][]{
+                                 { Eviction.LRU, false },
+                                 { Eviction.LRU, true },
+                                 { Eviction.W_TINY_LFU, false },
+                                 { Eviction.NONE, false }
+        };
+    }
+
+    private static OHLongCache<String> cache(Eviction eviction, boolean optimisticReads, long capacity) {
+        return OHCacheBuilder.<Long, String> newBuilder()
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .eviction(eviction)
+                             .lockType(LockType.SPIN_YIELD)
+                             .optimisticReads(optimisticReads)
+                             .segmentCount(4)
+                             .capacity(capacity)
+                             .buildLongCache();
+    }
+
+    private static long key(int i) {
+        // spread keys over the whole long range including negative values
+        return (i & 1) == 0 ? (long) i * 0x9e3779b97f4a7c15L : -i;
+    }
+
+    @Test(dataProvider = "configs")
+    public void testPutGetRemove(Eviction eviction, boolean optimisticReads) throws IOException {
+        try (OHLongCache<String> cache = cache(eviction, optimisticReads, 64 * 1024 * 1024)) {
+            long[] special = { 0L, 1L, -1L, Long.MIN_VALUE, Long.MAX_VALUE };
+            for (long k : special) {
+                assertNull(cache.get(k));
+                assertTrue(cache.put(k, Long.toString(k)));
+            }
+            for (long k : special) {
+                assertEquals(cache.get(k), Long.toString(k));
+                assertTrue(cache.containsKey(k));
+            }
+
+            for (int i = 0; i < 10000; i++) {
+                assertTrue(cache.put(key(i), Integer.toString(i)));
+            }
+            assertEquals(cache.size(), 10000L + 3L);
+
+            for (int i = 0; i < 10000; i++) {
+                assertEquals(cache.get(key(i)), Integer.toString(i));
+            }
+            assertFalse(cache.containsKey(12345678L));
+            assertNull(cache.get(12345678L));
+
+            // replace
+            assertTrue(cache.put(key(42), "foo"));
+            assertEquals(cache.get(key(42)), "foo");
+
+            assertFalse(cache.putIfAbsent(key(43), "bar"));
+            assertEquals(cache.get(key(43)), "43");
+            assertTrue(cache.putIfAbsent(12345678L, "bar"));
+            assertEquals(cache.get(12345678L), "bar");
+
+            for (int i = 0; i < 10000; i += 2) {
+                assertTrue(cache.remove(key(i)));
+            }
+            assertFalse(cache.remove(key(0)));
+            for (int i = 0; i < 10000; i++) {
+                assertEquals(cache.containsKey(key(i)), (i & 1) != 0);
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertEquals(stats.getPutAddCount(), 10000L + 5L + 1L - 2L);
+            assertEquals(stats.getPutReplaceCount(), 1L + 2L);
+            assertEquals(stats.getRemoveCount(), 5000L);
+
+            cache.clear();
+            assertEquals(cache.size(), 0L);
+        }
+    }
+
+    @Test
+    public void testEviction() throws IOException {
+        try (OHLongCache<String> cache = cache(Eviction.LRU, false, 1024 * 1024)) {
+            String value = new String(new byte[200]);
+            for (int i = 0; i < 20000; i++) {
+                cache.put(i, value);
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertTrue(stats.getEvictionCount() > 0L);
+            assertEquals(cache.size(), 20000L - stats.getEvictionCount());
+            assertEquals(cache.get(19999L), value);
+        }
+    }
+
+    @Test
+    public void testTooLarge() throws IOException {
+        try (OHLongCache<String> cache = OHCacheBuilder.<Long, String> newBuilder()
+                                                       .valueSerializer(TestUtils.stringSerializer)
+                                                       .maxEntrySize(256)
+                                                       .buildLongCache()) {
+            assertTrue(cache.put(1L, "foo"));
+            assertFalse(cache.put(1L, new String(new byte[1000])));
+            assertFalse(cache.containsKey(1L));
+            assertEquals(cache.stats().getPutFailCount(), 1L);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testChunkedNotSupported() {
+        OHCacheBuilder.<Long, String> newBuilder()
+                      .valueSerializer(TestUtils.stringSerializer)
+                      .chunkSize(65536)
+                      .buildLongCache();
+    }
+
+    @Test
+    public void testKeySerializer() {
+        // key objects must have the same layout as the keys written by the primitive code paths
+        long adr = Uns.allocate(8);
+        try {
+            for (long k : new long[]{ 0L, 1L, -1L, 0x0102030405060708L, Long.MIN_VALUE }) {
+                ByteBuffer buf = Uns.directBufferFor(adr, 0L, 8L, false);
+                OHLongCacheLinkedImpl.LONG_KEY_SERIALIZER.serialize(k, buf);
+                assertEquals(Uns.getLong(adr, 0L), k);
+                assertEquals(OHLongCacheLinkedImpl.LONG_KEY_SERIALIZER.deserialize(Uns.directBufferFor(adr, 0L, 8L, true)), Long.valueOf(k));
+
+                KeyBuffer keyBuffer = new KeyBuffer(8);
+                Uns.putLongToByteArray(keyBuffer.buffer, 0, k);
+                Hasher hasher = new Hasher.LongHash();
+                assertEquals(keyBuffer.finish(hasher).hash(), hasher.hash(adr, 0L, 8));
+            }
+        } finally {
+            Uns.free(adr);
+        }
+    }
+}
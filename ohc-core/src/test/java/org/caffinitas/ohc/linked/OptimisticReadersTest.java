@@ -0,0 +1,53 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class OptimisticReadersTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @Test
+    public void testReclaimByReaders() {
+        OptimisticReaders readers = new OptimisticReaders(4, null);
+
+        long hashEntryAdr = Uns.allocate(HashEntriesTest.MIN_ALLOC_LEN);
+        HashEntries.setHeaderFields(hashEntryAdr, 0);
+        HashEntries.init(0L, 0, 0, hashEntryAdr, Util.SENTINEL_NOT_PRESENT, 0L);
+
+        // a reader is active while the writer retires the hash entry
+        int stripe = readers.enter();
+        readers.retire(hashEntryAdr);
+        readers.reclaim();
+        readers.exit(stripe);
+        assertTrue(readers.isPending());
+
+        // no more writes - the readers reclaim the retired hash entry
+        for (int i = 0; i < 1000 && readers.isPending(); i++) {
+            if (readers.exit(readers.enter())) {
+                readers.reclaim();
+            }
+        }
+        assertFalse(readers.isPending());
+    }
+}
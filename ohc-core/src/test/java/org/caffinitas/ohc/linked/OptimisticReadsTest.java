@@ -0,0 +1,184 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class OptimisticReadsTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "evictions")
+    public Object[][] evictions() {
+        return new Object[][]{ { Eviction.LRU }, { Eviction.W_TINY_LFU }, { Eviction.NONE } };
+    }
+
+    @Test(dataProvider = "evictions")
+    public void testOptimisticReads(Eviction eviction) throws IOException {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .eviction(eviction)
+                .hashTableSize(256)
+                .segmentCount(4)
+                .incrementalRehash(true)
+                .optimisticReads(true)
+                .capacity(512 * 1024 * 1024)
+                .build()) {
+            for (int i = 0; i < 10000; i++) {
+                cache.put(i, Integer.toOctalString(i));
+            }
+
+            for (int i = 0; i < 10000; i++) {
+                assertEquals(cache.get(i), Integer.toOctalString(i));
+                assertTrue(cache.containsKey(i));
+            }
+            for (int i = 10000; i < 11000; i++) {
+                assertNull(cache.get(i));
+                assertFalse(cache.containsKey(i));
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertEquals(stats.getHitCount(), 20000L);
+            assertEquals(stats.getMissCount(), 2000L);
+
+            for (int i = 0; i < 10000; i += 2) {
+                assertTrue(cache.remove(i));
+            }
+            for (int i = 0; i < 10000; i++) {
+                assertEquals(cache.get(i), i % 2 == 0 ? null : Integer.toOctalString(i));
+            }
+
+            cache.resetStatistics();
+            stats = cache.stats();
+            assertEquals(stats.getHitCount(), 0L);
+            assertEquals(stats.getMissCount(), 0L);
+
+            cache.clear();
+            assertNull(cache.get(1));
+            assertEquals(cache.size(), 0L);
+        }
+    }
+
+    @Test
+    public void testOptimisticReadsExpired() throws Exception {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .timeouts(true)
+                .optimisticReads(true)
+                .build()) {
+            cache.put(1, "one", System.currentTimeMillis() + 50L);
+            assertEquals(cache.get(1), "one");
+
+            Thread.sleep(100L);
+
+            // expired entries are handled by the locked code path
+            assertNull(cache.get(1));
+            assertEquals(cache.size(), 0L);
+        }
+    }
+
+    @Test
+    public void testConcurrentOptimisticReads() throws Exception {
+        // small capacity, hash table and incremental rehash to exercise evictions and table replacement
+        try (final OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .hashTableSize(256)
+                .segmentCount(2)
+                .incrementalRehash(true)
+                .incrementalRehashStep(1)
+                .optimisticReads(true)
+                .capacity(1024 * 1024)
+                .build()) {
+            final int keys = 50000;
+            final AtomicBoolean stop = new AtomicBoolean();
+
+            ExecutorService executor = Executors.newFixedThreadPool(6);
+            try {
+                List<Future<?>> futures = new ArrayList<>();
+                for (int t = 0; t < 2; t++) {
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                            while (!stop.get()) {
+                                int k = rnd.nextInt(keys);
+                                if (rnd.nextInt(8) == 0) {
+                                    cache.remove(k);
+                                } else {
+                                    cache.put(k, Integer.toHexString(k));
+                                }
+                            }
+                        }
+                    }));
+                }
+                for (int t = 0; t < 4; t++) {
+                    futures.add(executor.submit(new Runnable() {
+                        public void run() {
+                            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+                            while (!stop.get()) {
+                                int k = rnd.nextInt(keys);
+                                String v = cache.get(k);
+                                if (v != null) {
+                                    assertEquals(v, Integer.toHexString(k));
+                                }
+                                cache.containsKey(k);
+                            }
+                        }
+                    }));
+                }
+
+                Thread.sleep(2000L);
+                stop.set(true);
+
+                for (Future<?> f : futures) {
+                    f.get();
+                }
+            } finally {
+                executor.shutdown();
+                executor.awaitTermination(10, TimeUnit.SECONDS);
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertTrue(stats.getHitCount() > 0L);
+            assertTrue(stats.getEvictionCount() > 0L);
+        }
+    }
+}
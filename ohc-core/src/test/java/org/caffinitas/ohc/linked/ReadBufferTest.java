@@ -0,0 +1,126 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.LockType;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class ReadBufferTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @Test
+    public void testRecordAndDrain() {
+        ReadBuffer readBuffer = new ReadBuffer(2);
+        int stripe = readBuffer.stripe();
+
+        for (int i = 1; i <= ReadBuffer.STRIPE_SIZE; i++) {
+            assertTrue(readBuffer.record(stripe, i * 8L, i));
+        }
+        assertFalse(readBuffer.record(stripe, 4711L, 4711L));
+
+        final long[] sum = new long[2];
+        readBuffer.drain(new ReadBuffer.DrainHandler() {
+            public boolean accessed(long hashEntryAdr, long hash) {
+                assertEquals(hashEntryAdr, hash * 8L);
+                sum[0] += hash;
+                sum[1]++;
+                // every other entry has been removed from the hash table
+                return hash % 2 == 0;
+            }
+        });
+        assertEquals(sum[1], ReadBuffer.STRIPE_SIZE);
+        assertEquals(sum[0], ReadBuffer.STRIPE_SIZE * (ReadBuffer.STRIPE_SIZE + 1) / 2);
+        assertEquals(readBuffer.drainedCount(), ReadBuffer.STRIPE_SIZE / 2);
+
+        // stripe is empty again
+        assertTrue(readBuffer.record(stripe, 8L, 1L));
+
+        readBuffer.dropped(stripe);
+        readBuffer.hit(stripe);
+        readBuffer.miss(stripe);
+        assertEquals(readBuffer.droppedCount(), 1L);
+        assertEquals(readBuffer.hitCount(), 1L);
+        assertEquals(readBuffer.missCount(), 1L);
+
+        readBuffer.resetStatistics();
+        assertEquals(readBuffer.droppedCount(), 0L);
+        assertEquals(readBuffer.drainedCount(), 0L);
+        assertEquals(readBuffer.hitCount(), 0L);
+        assertEquals(readBuffer.missCount(), 0L);
+    }
+
+    @DataProvider(name = "evictions")
+    public Object[][] evictions() {
+        return new Object[][]{ { Eviction.LRU, LockType.SPIN_YIELD }, { Eviction.LRU, LockType.READ_WRITE },
+                               { Eviction.W_TINY_LFU, LockType.SPIN_YIELD }, { Eviction.W_TINY_LFU, LockType.READ_WRITE },
+                               { Eviction.CLOCK, LockType.SPIN_YIELD }, { Eviction.S3_FIFO, LockType.SPIN_YIELD } };
+    }
+
+    @Test(dataProvider = "evictions")
+    public void testBufferedAccesses(Eviction eviction, LockType lockType) throws IOException {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .eviction(eviction)
+                .lockType(lockType)
+                .readBuffers(true)
+                .segmentCount(1)
+                .capacity(256 * 1024)
+                .build()) {
+            String value = new String(new byte[100]);
+            for (int i = 0; i < 300; i++) {
+                cache.put(i, value);
+            }
+
+            // more reads than fit into the read buffer
+            for (int r = 0; r < 20; r++) {
+                for (int i = 0; i < 10; i++) {
+                    assertNotNull(cache.get(i));
+                }
+            }
+
+            // evict the eldest entries, the buffered accesses must be applied before
+            for (int i = 1000; i < 1100; i++) {
+                cache.put(i, value);
+            }
+
+            for (int i = 0; i < 10; i++) {
+                assertTrue(cache.containsKey(i), "key " + i);
+            }
+
+            OHCacheStats stats = cache.stats();
+            assertEquals(stats.getHitCount(), 210L);
+            assertTrue(stats.getReadBufferDrained() > 0L);
+            assertTrue(stats.getEvictionCount() > 0L);
+        }
+    }
+}
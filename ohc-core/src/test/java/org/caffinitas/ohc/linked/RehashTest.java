@@ -16,12 +16,15 @@
 package org.caffinitas.ohc.linked;
 
 import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
 import java.io.IOException;
 
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
 
@@ -52,4 +55,90 @@ public class RehashTest {
             }
         }
     }
+
+    @Test
+    public void testIncrementalRehash() throws IOException {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .hashTableSize(256)
+                .segmentCount(1)
+                .incrementalRehash(true)
+                .incrementalRehashStep(2)
+                .capacity(512 * 1024 * 1024)
+                .build()) {
+            boolean seenInProgress = false;
+            for (int i = 0; i < 100000; i++) {
+                cache.put(i, Integer.toOctalString(i));
+
+                // entries must be found in both the old and the new table while the rehash is in progress
+                if (i % 7 == 0 && (i / 2) % 11 != 0) {
+                    assertEquals(cache.get(i / 2), Integer.toOctalString(i / 2));
+                }
+                if (i % 11 == 0) {
+                    assertTrue(cache.remove(i));
+                    assertFalse(cache.containsKey(i));
+                }
+
+                OHCacheStats stats = cache.stats();
+                if (stats.getRehashesInProgress() > 0) {
+                    seenInProgress = true;
+                    assertTrue(stats.getRehashPendingBuckets() > 0);
+                }
+            }
+
+            assertTrue(seenInProgress);
+            assertTrue(cache.stats().getRehashCount() > 0);
+
+            for (int i = 0; i < 100000; i++) {
+                String v = cache.get(i);
+                if (i % 11 == 0) {
+                    assertNull(v);
+                } else {
+                    assertEquals(v, Integer.toOctalString(i));
+                }
+            }
+
+            // iteration completes a pending rehash
+            cache.getBucketHistogram();
+            assertEquals(cache.stats().getRehashesInProgress(), 0L);
+            assertEquals(cache.stats().getRehashPendingBuckets(), 0L);
+        }
+    }
+
+    @Test
+    public void testIncrementalRehashBounded() throws IOException {
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .hashTableSize(256)
+                .segmentCount(1)
+                .incrementalRehash(true)
+                .incrementalRehashStep(1)
+                .capacity(512 * 1024 * 1024)
+                .build()) {
+            // with the default load factor of .75, the old table is drained before the next threshold is reached
+            // by migrating 2 buckets per insert - the rehash is never completed at once
+            long maxBuckets = 2L;
+
+            long rehashes = 0L;
+            long pendingBuckets = 0L;
+            for (int i = 0; i < 50000; i++) {
+                cache.put(i, Integer.toOctalString(i));
+
+                OHCacheStats stats = cache.stats();
+                if (stats.getRehashCount() > rehashes) {
+                    // the put completed a rehash, maybe the hash table has grown again
+                    assertTrue(pendingBuckets <= maxBuckets, "migrated " + pendingBuckets + " buckets at once");
+                } else if (pendingBuckets > 0L) {
+                    assertTrue(pendingBuckets - stats.getRehashPendingBuckets() <= maxBuckets,
+                               "migrated " + (pendingBuckets - stats.getRehashPendingBuckets()) + " buckets at once");
+                }
+                rehashes = stats.getRehashCount();
+                pendingBuckets = stats.getRehashPendingBuckets();
+            }
+
+            assertTrue(rehashes >= 5L);
+        }
+    }
 }
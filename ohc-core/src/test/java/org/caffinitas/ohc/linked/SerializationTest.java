@@ -302,7 +302,7 @@ public class SerializationTest {
                 .keySerializer(TestUtils.intSerializer)
                 .valueSerializer(TestUtils.stringSerializer)
                 .capacity(512L * 1024 * 1024)
-                .maxEntrySize(TestUtils.intSerializer.serializedSize(1) + Util.ENTRY_OFF_DATA + Util.roundUpTo8(9))
+                .maxEntrySize(TestUtils.intSerializer.serializedSize(1) + Util.dataOffset(Util.FIELDS_ALL) + Util.roundUpTo8(9))
                 .build()) {
             try (BufferedReadableByteChannel ch = new BufferedReadableByteChannel(
                     FileChannel.open(f.toPath(), StandardOpenOption.READ, StandardOpenOption.TRUNCATE_EXISTING), 8192)) {
@@ -0,0 +1,187 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.caffinitas.ohc.Admission;
+import org.caffinitas.ohc.CloseableIterator;
+import org.caffinitas.ohc.Eviction;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class SizeAwareAdmissionTest {
+    private static final long CAPACITY = 1024 * 1024;
+    private static final int BIG_VALUE_LEN = 32 * 1024;
+
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    @DataProvider(name = "admissions")
+    public Object[][] admissions() {
+        return new Object[][]{ { Admission.FREQUENCY }, { Admission.SIZE_AWARE }, { Admission.BYTE_HIT_RATIO } };
+    }
+
+    private static OHCache<Integer, String> cache(Admission admission) {
+        return OHCacheBuilder.<Integer, String> newBuilder()
+                             .keySerializer(TestUtils.intSerializer)
+                             .valueSerializer(TestUtils.stringSerializer)
+                             .eviction(Eviction.W_TINY_LFU)
+                             .admission(admission)
+                             .segmentCount(1)
+                             .capacity(CAPACITY)
+                             .build();
+    }
+
+    private static String value(int key) {
+        if (key < 0) {
+            char[] chars = new char[BIG_VALUE_LEN];
+            Arrays.fill(chars, 'x');
+            return new String(chars);
+        }
+        return "value" + key;
+    }
+
+    /**
+     * Reads through the cache. Most requests go to small entries with a skewed distribution, the other requests
+     * go to big entries, each of them is requested more often than most of the small entries.
+     *
+     * @return hit ratio, byte hit ratio
+     */
+    private static double[] mixedSizeWorkload(OHCache<Integer, String> cache, Random r, int requests) {
+        long hits = 0L;
+        long hitBytes = 0L;
+        long totalBytes = 0L;
+        for (int i = 0; i < requests; i++) {
+            int key = r.nextInt(10) < 9 ? r.nextInt(1 + r.nextInt(5000)) : -1 - r.nextInt(200);
+            int len = key < 0 ? BIG_VALUE_LEN : value(key).length();
+            totalBytes += len;
+            String value = cache.get(key);
+            if (value == null) {
+                assertTrue(cache.put(key, value(key)));
+            } else {
+                assertEquals(value.length(), len);
+                hits++;
+                hitBytes += len;
+            }
+        }
+        return new double[]{ (double) hits / requests, (double) hitBytes / totalBytes };
+    }
+
+    @Test
+    public void testHitRatio() throws IOException {
+        double[] frequency;
+        try (OHCache<Integer, String> cache = cache(Admission.FREQUENCY)) {
+            frequency = mixedSizeWorkload(cache, new Random(42), 500000);
+        }
+        double[] sizeAware;
+        try (OHCache<Integer, String> cache = cache(Admission.SIZE_AWARE)) {
+            sizeAware = mixedSizeWorkload(cache, new Random(42), 500000);
+        }
+        double[] byteHitRatio;
+        try (OHCache<Integer, String> cache = cache(Admission.BYTE_HIT_RATIO)) {
+            byteHitRatio = mixedSizeWorkload(cache, new Random(42), 500000);
+        }
+
+        // big entries do not displace a lot of small entries, that are requested more often in total
+        assertTrue(sizeAware[0] > frequency[0], sizeAware[0] + " <= " + frequency[0]);
+        // ... but big entries are preferred, if bytes count
+        assertTrue(byteHitRatio[1] > sizeAware[1], byteHitRatio[1] + " <= " + sizeAware[1]);
+    }
+
+    /**
+     * Small, hot candidates compete with big, colder victims. The candidates are expected to get more hits than
+     * the victims, but the victims are expected to serve more bytes.
+     */
+    @Test
+    public void testSmallCandidatesBigVictims() throws IOException {
+        int[] sizeAware = smallCandidatesBigVictims(Admission.SIZE_AWARE);
+        int[] byteHitRatio = smallCandidatesBigVictims(Admission.BYTE_HIT_RATIO);
+
+        // size aware admission replaces big victims with small candidates
+        assertTrue(sizeAware[0] < byteHitRatio[0], sizeAware[0] + " >= " + byteHitRatio[0]);
+        assertTrue(sizeAware[1] > byteHitRatio[1], sizeAware[1] + " <= " + byteHitRatio[1]);
+    }
+
+    /**
+     * @return number of big entries, number of small entries in the cache
+     */
+    private static int[] smallCandidatesBigVictims(Admission admission) throws IOException {
+        try (OHCache<Integer, String> cache = cache(admission)) {
+            // big entries, read once, fill the main generation
+            int bigEntries = (int) (CAPACITY / BIG_VALUE_LEN);
+            for (int i = 1; i <= bigEntries; i++) {
+                assertTrue(cache.put(-i, value(-i)));
+                assertEquals(cache.get(-i), value(-i));
+            }
+
+            // small entries, read three times
+            int smallEntries = 5000;
+            for (int i = 0; i < smallEntries; i++) {
+                assertTrue(cache.put(i, value(i)));
+                for (int n = 0; n < 3; n++) {
+                    assertEquals(cache.get(i), value(i));
+                }
+            }
+
+            int[] r = new int[2];
+            for (int i = 1; i <= bigEntries; i++) {
+                if (cache.containsKey(-i)) {
+                    r[0]++;
+                }
+            }
+            for (int i = 0; i < smallEntries; i++) {
+                if (cache.containsKey(i)) {
+                    r[1]++;
+                }
+            }
+            return r;
+        }
+    }
+
+    @Test(dataProvider = "admissions")
+    public void testConsistency(Admission admission) throws IOException {
+        try (OHCache<Integer, String> cache = cache(admission)) {
+            mixedSizeWorkload(cache, new Random(42), 200000);
+
+            assertTrue(cache.stats().getEvictionCount() > 0L);
+            int count = 0;
+            try (CloseableIterator<Integer> iter = cache.keyIterator()) {
+                while (iter.hasNext()) {
+                    Integer key = iter.next();
+                    assertEquals(cache.get(key), value(key));
+                    count++;
+                }
+            }
+            assertEquals(count, cache.size());
+            assertTrue(cache.freeCapacity() >= 0L && cache.freeCapacity() <= CAPACITY);
+
+            cache.clear();
+            assertEquals(cache.size(), 0L);
+            assertEquals(cache.freeCapacity(), CAPACITY);
+        }
+    }
+}
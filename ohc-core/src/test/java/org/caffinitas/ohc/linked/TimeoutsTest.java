@@ -19,100 +19,61 @@ import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNull;
 import static org.testng.Assert.assertTrue;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
 
 import org.caffinitas.ohc.CacheLoader;
+import org.caffinitas.ohc.Eviction;
 import org.caffinitas.ohc.OHCache;
 import org.caffinitas.ohc.OHCacheBuilder;
+import org.caffinitas.ohc.OHCacheStats;
 import org.caffinitas.ohc.TestTicker;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 public class TimeoutsTest {
-    @Test
-    public void testTimeouts() {
-        TestTicker ticker = new TestTicker();
+    @DataProvider(name = "evictions")
+    public Object[][] evictions() {
+        return new Object[][]{ { Eviction.LRU }, { Eviction.W_TINY_LFU }, { Eviction.NONE }, { Eviction.CLOCK }, { Eviction.S3_FIFO } };
+    }
 
-        Timeouts timeouts = new Timeouts(ticker, 64, 128);
-        try {
-            long now = ticker.currentTimeMillis();
+    @Test(dataProvider = "evictions")
+    public void testSweeper(Eviction eviction) throws Exception {
+        TestTicker ticker = new TestTicker();
 
-            long in1000 = now + 1000L;
+        try (OHCache<Integer, String> cache = OHCacheBuilder.<Integer, String> newBuilder()
+                .keySerializer(TestUtils.intSerializer)
+                .valueSerializer(TestUtils.stringSerializer)
+                .eviction(eviction)
+                .ticker(ticker)
+                .timeoutsSweepIntervalMillis(1L)
+                .build()) {
+            long expireAt = ticker.currentTimeMillis() + 1000L;
             for (int i = 0; i < 1000; i++) {
-                timeouts.add(5000 + i, in1000);
+                cache.put(i, "foo", expireAt);
+            }
+            for (int i = 1000; i < 1100; i++) {
+                cache.put(i, "bar");
             }
 
-            timeouts.add(42L, now);
-            long in50 = now + 50;
-            timeouts.add(142L, in50);
-            timeouts.add(143L, in50);
-            timeouts.add(144L, in50);
-
-            final List<Long> ll = new ArrayList<>();
-            timeouts.removeExpired(new Timeouts.TimeoutHandler() {
-                @Override
-                public void expired(long hashEntryAdr) {
-                    ll.add(hashEntryAdr);
-                }
-            });
-
-            assertEquals(ll.size(), 1);
-            assertEquals(ll.get(0), Long.valueOf(42L));
-
-            ll.clear();
-            timeouts.removeExpired(new Timeouts.TimeoutHandler() {
-                @Override
-                public void expired(long hashEntryAdr) {
-                    ll.add(hashEntryAdr);
-                }
-            });
-            assertEquals(ll.size(), 0);
-
-            //
-
-            ticker.addMillis(100L);
-
-            ll.clear();
-            timeouts.removeExpired(new Timeouts.TimeoutHandler() {
-                @Override
-                public void expired(long hashEntryAdr) {
-                    ll.add(hashEntryAdr);
-                }
-            });
-
-            timeouts.remove(143L, in50);
-
-            assertEquals(ll.size(), 3);
-            assertTrue(ll.containsAll(Arrays.asList(142L, 144L)));
-
-            ll.clear();
-            timeouts.removeExpired(new Timeouts.TimeoutHandler() {
-                @Override
-                public void expired(long hashEntryAdr) {
-                    ll.add(hashEntryAdr);
-                }
-            });
-            assertEquals(ll.size(), 0);
-
-            //
+            Thread.sleep(20L);
+            assertEquals(cache.size(), 1100L);
 
+            // no reads or writes that remove expired entries
             ticker.addMillis(1000L);
+            for (int i = 0; i < 500 && cache.size() > 100L; i++) {
+                Thread.sleep(10);
+            }
 
-            ll.clear();
-            timeouts.removeExpired(new Timeouts.TimeoutHandler() {
-                @Override
-                public void expired(long hashEntryAdr) {
-                    ll.add(hashEntryAdr);
-                }
-            });
-            assertEquals(ll.size(), 1000);
-        } finally {
-            timeouts.release();
+            OHCacheStats stats = cache.stats();
+            assertEquals(cache.size(), 100L);
+            assertEquals(stats.getExpireCount(), 1000L);
+            assertTrue(stats.getSweptBytes() > 0L);
+            assertTrue(stats.getSweepNanos() > 0L);
+            assertEquals(((OHCacheLinkedImpl) cache).usedTimeouts(), 0);
+            assertEquals(cache.get(1000), "bar");
         }
     }
 
@@ -0,0 +1,190 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.caffinitas.ohc.TestTicker;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class TimerWheelTest {
+    @AfterMethod(alwaysRun = true)
+    public void deinit() {
+        Uns.clearUnsDebugForTest();
+    }
+
+    private static final class Expired implements TimerWheel.TimeoutHandler {
+        final List<Long> adrs = new ArrayList<>();
+
+        @Override
+        public void expired(long hashEntryAdr) {
+            adrs.add(hashEntryAdr);
+        }
+    }
+
+    @Test
+    public void testTimerWheel() {
+        TestTicker ticker = new TestTicker();
+
+        TimerWheel timeouts = new TimerWheel(ticker, 64, 128);
+        try {
+            long now = ticker.currentTimeMillis();
+
+            long in1000 = now + 1000L;
+            for (int i = 0; i < 1000; i++) {
+                timeouts.add(5000 + i, in1000);
+            }
+
+            timeouts.add(42L, now);
+            long in50 = now + 50;
+            timeouts.add(142L, in50);
+            timeouts.add(143L, in50);
+            timeouts.add(144L, in50);
+            assertEquals(timeouts.used(), 1004);
+
+            Expired expired = new Expired();
+            assertEquals(timeouts.removeExpired(expired), 1);
+            assertEquals(expired.adrs.get(0), Long.valueOf(42L));
+            assertEquals(timeouts.removeExpired(expired), 0);
+
+            ticker.addMillis(100L);
+            timeouts.remove(143L, in50);
+
+            expired.adrs.clear();
+            assertEquals(timeouts.removeExpired(expired), 2);
+            assertTrue(expired.adrs.contains(142L));
+            assertTrue(expired.adrs.contains(144L));
+            assertEquals(timeouts.removeExpired(expired), 0);
+
+            ticker.addMillis(1000L);
+            assertEquals(timeouts.removeExpired(expired), 1000);
+            assertEquals(timeouts.used(), 0);
+        } finally {
+            timeouts.release();
+        }
+    }
+
+    @Test
+    public void testCascade() {
+        TestTicker ticker = new TestTicker();
+
+        TimerWheel timeouts = new TimerWheel(ticker, 0, 0);
+        try {
+            long now = ticker.currentTimeMillis();
+            long[] ttls = { 10L, TimeUnit.SECONDS.toMillis(30), TimeUnit.MINUTES.toMillis(5), TimeUnit.MINUTES.toMillis(90),
+                            TimeUnit.HOURS.toMillis(30), TimeUnit.DAYS.toMillis(10), TimeUnit.DAYS.toMillis(400) };
+            for (int i = 0; i < ttls.length; i++) {
+                timeouts.add(1000 + i, now + ttls[i]);
+            }
+
+            Expired expired = new Expired();
+            for (int i = 0; i < ttls.length; i++) {
+                // just before the expiration
+                ticker.addMillis(now + ttls[i] - 1 - ticker.currentTimeMillis());
+                assertEquals(timeouts.removeExpired(expired), 0, "ttl " + ttls[i]);
+
+                ticker.addMillis(1L);
+                assertEquals(timeouts.removeExpired(expired), 1, "ttl " + ttls[i]);
+                assertEquals(expired.adrs.get(i), Long.valueOf(1000 + i));
+                assertEquals(timeouts.used(), ttls.length - i - 1);
+            }
+        } finally {
+            timeouts.release();
+        }
+    }
+
+    @Test
+    public void testRandom() {
+        TestTicker ticker = new TestTicker();
+        Random r = new Random(42);
+
+        TimerWheel timeouts = new TimerWheel(ticker, 16, 8);
+        try {
+            // reference of the expected timeouts
+            Map<Long, Long> reference = new HashMap<>();
+            Expired expired = new Expired();
+
+            for (int round = 0; round < 200; round++) {
+                for (int i = 0; i < 500; i++) {
+                    long adr = 8L * (1 + r.nextInt(20000));
+                    long expireAt = ticker.currentTimeMillis() + (r.nextBoolean() ? r.nextInt(1000) : r.nextInt(1000000));
+                    Long old = reference.put(adr, expireAt);
+                    if (old != null) {
+                        timeouts.remove(adr, old);
+                    }
+                    timeouts.add(adr, expireAt);
+                }
+                for (int i = 0; i < 100; i++) {
+                    long adr = 8L * (1 + r.nextInt(20000));
+                    Long old = reference.remove(adr);
+                    if (old != null) {
+                        timeouts.remove(adr, old);
+                    }
+                }
+                assertEquals(timeouts.used(), reference.size());
+
+                ticker.addMillis(r.nextInt(round % 10 == 0 ? 100000 : 500));
+
+                expired.adrs.clear();
+                timeouts.removeExpired(expired);
+                long now = ticker.currentTimeMillis();
+                for (Long adr : expired.adrs) {
+                    assertTrue(reference.remove(adr) <= now);
+                }
+                for (Long expireAt : reference.values()) {
+                    assertTrue(expireAt > now);
+                }
+                assertEquals(timeouts.used(), reference.size());
+            }
+        } finally {
+            timeouts.release();
+        }
+    }
+
+    @Test
+    public void testSweepExpired() {
+        TestTicker ticker = new TestTicker();
+
+        TimerWheel timeouts = new TimerWheel(ticker, 64, 128);
+        try {
+            long now = ticker.currentTimeMillis();
+            for (int i = 0; i < 1000; i++) {
+                timeouts.add(5000 + i, i % 2 == 0 ? now : now + 100000L);
+            }
+
+            Expired expired = new Expired();
+            for (int i = 1; i < 5; i++) {
+                assertFalse(timeouts.sweepExpired(expired, 100));
+                assertEquals(expired.adrs.size(), i * 100);
+            }
+            assertTrue(timeouts.sweepExpired(expired, 100));
+            assertEquals(expired.adrs.size(), 500);
+            assertEquals(timeouts.used(), 500);
+        } finally {
+            timeouts.release();
+        }
+    }
+}
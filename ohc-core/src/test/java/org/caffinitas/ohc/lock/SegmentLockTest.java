@@ -0,0 +1,189 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.lock;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.caffinitas.ohc.LockType;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class SegmentLockTest {
+    @DataProvider(name = "lockTypes")
+    public Object[][] lockTypes() {
+        return new Object[][]{ { LockType.SPIN_YIELD }, { LockType.SPIN_PARK }, { LockType.READ_WRITE } };
+    }
+
+    @Test(dataProvider = "lockTypes")
+    public void testReentrant(LockType lockType) {
+        SegmentLock lock = SegmentLock.create(lockType);
+
+        assertTrue(lock.lock());
+        assertFalse(lock.lock());
+        assertFalse(lock.lockShared());
+        lock.unlockShared(false);
+        lock.unlock(false);
+        lock.unlock(true);
+
+        assertEquals(lock.acquisitions(), 1L);
+
+        assertTrue(lock.lockShared());
+        lock.unlockShared(true);
+
+        assertEquals(lock.acquisitions(), 2L);
+        lock.resetStatistics();
+        assertEquals(lock.acquisitions(), 0L);
+    }
+
+    @Test(dataProvider = "lockTypes")
+    public void testMutualExclusion(LockType lockType) throws Exception {
+        final SegmentLock lock = SegmentLock.create(lockType);
+
+        // more threads than CPUs
+        int threads = Runtime.getRuntime().availableProcessors() * 2 + 2;
+        final int loops = 20000;
+        final int[] counter = new int[1];
+        final AtomicInteger inside = new AtomicInteger();
+        final AtomicInteger errors = new AtomicInteger();
+
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                final boolean reader = t % 3 == 0;
+                futures.add(executor.submit(new Runnable() {
+                    public void run() {
+                        for (int i = 0; i < loops; i++) {
+                            if (reader) {
+                                boolean wasFirst = lock.lockShared();
+                                try {
+                                    if (!lock.isShared() && inside.incrementAndGet() != 1) {
+                                        errors.incrementAndGet();
+                                    }
+                                    int c = counter[0];
+                                    if (c < 0) {
+                                        errors.incrementAndGet();
+                                    }
+                                    if (!lock.isShared()) {
+                                        inside.decrementAndGet();
+                                    }
+                                } finally {
+                                    lock.unlockShared(wasFirst);
+                                }
+                            } else {
+                                boolean wasFirst = lock.lock();
+                                try {
+                                    if (inside.incrementAndGet() != 1) {
+                                        errors.incrementAndGet();
+                                    }
+                                    counter[0]++;
+                                    inside.decrementAndGet();
+                                } finally {
+                                    lock.unlock(wasFirst);
+                                }
+                            }
+                        }
+                    }
+                }));
+            }
+            for (Future<?> f : futures) {
+                f.get();
+            }
+
+            int writers = 0;
+            for (int t = 0; t < threads; t++) {
+                if (t % 3 != 0) {
+                    writers++;
+                }
+            }
+            assertEquals(errors.get(), 0);
+            assertEquals(counter[0], writers * loops);
+            assertEquals(lock.acquisitions(), (long) threads * loops);
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testSharedReaders() throws Exception {
+        final SegmentLock lock = SegmentLock.create(LockType.READ_WRITE);
+        final CountDownLatch bothInside = new CountDownLatch(2);
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            List<Future<Boolean>> futures = new ArrayList<>();
+            for (int t = 0; t < 2; t++) {
+                futures.add(executor.submit(new Callable<Boolean>() {
+                    public Boolean call() throws Exception {
+                        boolean wasFirst = lock.lockShared();
+                        try {
+                            bothInside.countDown();
+                            // both readers hold the lock at the same time
+                            return bothInside.await(10, TimeUnit.SECONDS);
+                        } finally {
+                            lock.unlockShared(wasFirst);
+                        }
+                    }
+                }));
+            }
+            for (Future<Boolean> f : futures) {
+                assertTrue(f.get());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void testParkStatistics() throws Exception {
+        final SegmentLock lock = SegmentLock.create(LockType.SPIN_PARK);
+
+        boolean wasFirst = lock.lock();
+        Thread t = new Thread() {
+            public void run() {
+                lock.unlock(lock.lock());
+            }
+        };
+        t.start();
+        try {
+            while (lock.parks() == 0L && t.getState() != Thread.State.WAITING) {
+                Thread.sleep(1L);
+            }
+        } finally {
+            lock.unlock(wasFirst);
+        }
+        t.join();
+
+        assertEquals(lock.acquisitions(), 2L);
+        assertTrue(lock.spins() >= SpinParkLock.MAX_SPINS);
+        assertTrue(lock.parks() > 0L);
+        assertTrue(lock.waitNanos() > 0L);
+    }
+}
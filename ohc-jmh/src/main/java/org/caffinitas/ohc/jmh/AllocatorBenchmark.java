@@ -20,6 +20,7 @@ import java.util.concurrent.atomic.AtomicLong;
 
 import org.caffinitas.ohc.alloc.IAllocator;
 import org.caffinitas.ohc.alloc.JNANativeAllocator;
+import org.caffinitas.ohc.alloc.SlabAllocator;
 import org.caffinitas.ohc.alloc.UnsafeAllocator;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.BenchmarkMode;
@@ -45,7 +46,7 @@ import org.openjdk.jmh.annotations.Warmup;
 public class AllocatorBenchmark {
     @Param({ "128", /*"256", "512", "1024", "1536", "2048", "4096", */"8192" })
     private int size = 128;
-    @Param({ "Unsafe", "JNA" })
+    @Param({ "Unsafe", "JNA", "Slab" })
     private String allocatorType = "JNA";
 
     private IAllocator allocator;
@@ -104,12 +105,18 @@ public class AllocatorBenchmark {
             case "JNA":
                 allocator = new JNANativeAllocator();
                 break;
+            case "Slab":
+                allocator = new SlabAllocator(new JNANativeAllocator());
+                break;
         }
     }
 
     @TearDown
     public void tearDown(Allocations allocations) {
         allocations.freeAll(allocator);
+        if (allocator instanceof SlabAllocator) {
+            ((SlabAllocator) allocator).close();
+        }
     }
 
     @Benchmark
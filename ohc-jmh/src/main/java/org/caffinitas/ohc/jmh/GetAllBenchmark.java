@@ -0,0 +1,142 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link OHCache#getAll(java.util.Collection, Map)} against a loop of {@link OHCache#get(Object)}
+ * for the same batches of keys.
+ */
+@BenchmarkMode({ /*Mode.AverageTime, */Mode.Throughput })
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3, time = 5)
+@Threads(4)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512M")
+public class GetAllBenchmark {
+    private OHCache<Integer, byte[]> cache;
+
+    @Param({ "256" })
+    private int valueSz = 256;
+    @Param("1073741824")
+    private long capacity = 1024 * 1024 * 1024;
+    @Param("1000000")
+    private int keys = 1_000_000;
+    @Param({ "50", "500" })
+    private int batchSz = 50;
+    @Param({ "-1", "65536" })
+    private int chunkSz = -1;
+
+    @State(Scope.Thread)
+    public static class Batches {
+        final List<List<Integer>> batches = new ArrayList<>();
+        final Map<Integer, byte[]> out = new HashMap<>();
+        int run;
+
+        @Setup
+        public void setup(GetAllBenchmark benchmark) {
+            ThreadLocalRandom rand = ThreadLocalRandom.current();
+            for (int b = 0; b < 64; b++) {
+                List<Integer> batch = new ArrayList<>(benchmark.batchSz);
+                for (int i = 0; i < benchmark.batchSz; i++) {
+                    batch.add(rand.nextInt(benchmark.keys));
+                }
+                batches.add(batch);
+            }
+        }
+
+        List<Integer> next() {
+            return batches.get(run++ & 63);
+        }
+    }
+
+    @Setup
+    public void setup() {
+        cache = OHCacheBuilder.<Integer, byte[]> newBuilder()
+                .capacity(capacity)
+                .keySerializer(Utils.intSerializer)
+                .valueSerializer(Utils.byteArraySerializer)
+                .chunkSize(chunkSz)
+                .build();
+
+        byte[] value = new byte[valueSz];
+        for (int i = 0; i < keys; i++) {
+            cache.put(i, value);
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        cache.close();
+    }
+
+    @Benchmark
+    public Map<Integer, byte[]> getAll(Batches batches) {
+        Map<Integer, byte[]> out = batches.out;
+        out.clear();
+        cache.getAll(batches.next(), out);
+        return out;
+    }
+
+    @Benchmark
+    public Map<Integer, byte[]> getLoop(Batches batches) {
+        Map<Integer, byte[]> out = batches.out;
+        out.clear();
+        for (Integer key : batches.next()) {
+            byte[] value = cache.get(key);
+            if (value != null) {
+                out.put(key, value);
+            }
+        }
+        return out;
+    }
+
+    @Benchmark
+    @Threads(value = 1)
+    public Map<Integer, byte[]> getAllSingleThreaded(Batches batches) {
+        return getAll(batches);
+    }
+
+    @Benchmark
+    @Threads(value = 1)
+    public Map<Integer, byte[]> getLoopSingleThreaded(Batches batches) {
+        return getLoop(batches);
+    }
+}
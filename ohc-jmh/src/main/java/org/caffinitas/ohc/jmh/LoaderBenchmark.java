@@ -0,0 +1,117 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.jmh;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.caffinitas.ohc.CacheLoader;
+import org.caffinitas.ohc.OHCache;
+import org.caffinitas.ohc.OHCacheBuilder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Thundering herd on {@link OHCache#getWithLoaderAsync(Object, CacheLoader)}: each operation issues
+ * {@code waiters} concurrent requests for the same missing key and waits until all of them completed.
+ * The sampled time is the latency of the slowest waiter of a herd, see the p0.99 percentile for the p99.
+ */
+@BenchmarkMode(Mode.SampleTime)
+@State(Scope.Benchmark)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3, time = 5)
+@Threads(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512M")
+public class LoaderBenchmark {
+    private OHCache<Integer, byte[]> cache;
+    private ScheduledExecutorService executorService;
+    private CacheLoader<Integer, byte[]> loader;
+
+    @Param({ "256" })
+    private int valueSz = 256;
+    @Param("1000")
+    private int waiters = 1000;
+    @Param({ "0", "1" })
+    private int loadMillis = 1;
+
+    private int key;
+
+    @Setup
+    public void setup() {
+        executorService = Executors.newScheduledThreadPool(4);
+
+        cache = OHCacheBuilder.<Integer, byte[]> newBuilder()
+                .capacity(64 * 1024 * 1024)
+                .keySerializer(Utils.intSerializer)
+                .valueSerializer(Utils.byteArraySerializer)
+                .executorService(executorService)
+                .build();
+
+        final byte[] value = new byte[valueSz];
+        loader = new CacheLoader<Integer, byte[]>() {
+            @Override
+            public byte[] load(Integer key) throws Exception {
+                if (loadMillis > 0) {
+                    Thread.sleep(loadMillis);
+                }
+                return value;
+            }
+        };
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        cache.close();
+        executorService.shutdown();
+    }
+
+    @Benchmark
+    public int thunderingHerd() throws ExecutionException, InterruptedException {
+        Integer k = key++;
+
+        List<Future<byte[]>> futures = new ArrayList<>(waiters);
+        for (int i = 0; i < waiters; i++) {
+            futures.add(cache.getWithLoaderAsync(k, loader));
+        }
+
+        int len = 0;
+        for (Future<byte[]> future : futures) {
+            len += future.get().length;
+        }
+
+        cache.remove(k);
+
+        return len;
+    }
+}
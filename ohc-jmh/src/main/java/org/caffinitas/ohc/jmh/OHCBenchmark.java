@@ -37,6 +37,10 @@ import org.openjdk.jmh.annotations.TearDown;
 import org.openjdk.jmh.annotations.Threads;
 import org.openjdk.jmh.annotations.Warmup;
 
+/**
+ * Single-entry operations. Run with {@code -prof gc} to see the allocation rate per operation, e.g.
+ * {@code java -jar target/benchmarks.jar OHCBenchmark.*SingleThreaded -prof gc}.
+ */
 @BenchmarkMode({ /*Mode.AverageTime, */Mode.Throughput })
 @State(Scope.Benchmark)
 @Warmup(iterations = 2)
@@ -67,6 +71,12 @@ public class OHCBenchmark {
     private int fixedValLen = -1;
     @Param({ "LRU", "W_TINY_LFU" })
     private Eviction eviction = Eviction.LRU;
+    @Param({ "false", "true" })
+    private boolean openAddressing;
+    @Param("false")
+    private boolean backgroundEviction;
+    @Param("false")
+    private boolean bucketTags;
 
     private byte[] value;
 
@@ -93,6 +103,9 @@ public class OHCBenchmark {
                 .fixedEntrySize(fixedKeyLen, fixedValLen)
                 .hashMode(hashAlg)
                 .eviction(eviction)
+                .openAddressing(openAddressing)
+                .backgroundEviction(backgroundEviction)
+                .bucketTags(bucketTags)
                 .build();
 
         value = new byte[valueSz];
@@ -119,6 +132,12 @@ public class OHCBenchmark {
         cache.containsKey(0);
     }
 
+    @Benchmark
+    @Threads(value = 1)
+    public void removeNonExistingSingleThreaded() {
+        cache.remove(-1);
+    }
+
     @Benchmark
     @Threads(value = 1)
     public void putSingleThreaded(PutState state) {
@@ -34,6 +34,9 @@ import org.caffinitas.ohc.Ticker;
  * timestamp. The size of a slot's list is unbounded, it is resized if necessary -
  * both increasing and decreasing.
  * </p>
+ * <p>
+ * Superseded by {@link TimerWheel}, kept as the baseline of {@link TimeoutsBenchmark}.
+ * </p>
  */
 final class Timeouts {
     private final long slotBitmask;
@@ -106,7 +109,7 @@ final class Timeouts {
      *
      * @param expireHandler implementation that will be called for each expired entry.
      */
-    int removeExpired(TimeoutHandler expireHandler) {
+    int removeExpired(TimerWheel.TimeoutHandler expireHandler) {
         // ensure the clock never goes backwards
         long t = ticker.currentTimeMillis();
 
@@ -130,17 +133,6 @@ final class Timeouts {
         return (int) (expireAt & slotBitmask);
     }
 
-    interface TimeoutHandler {
-        /**
-         * Called by {@link #removeExpired(TimeoutHandler)} for each expired entry.
-         * The implementation must <b>not</b> call {@link #remove(long, long)} since
-         * removal of the entry in this structure has already taken place.
-         *
-         * @param hashEntryAdr cache entry address that has expired
-         */
-        void expired(long hashEntryAdr);
-    }
-
     private final class Slot {
         // minimum number of entries in a slot
         private static final int MIN_LEN = 16;
@@ -212,7 +204,7 @@ final class Timeouts {
             maybeCompact();
         }
 
-        int removeExpired(long now, TimeoutHandler expireHandler) {
+        int removeExpired(long now, TimerWheel.TimeoutHandler expireHandler) {
             int expired = 0;
             for (int i = 0; i < len; i++) {
                 int off = i * ENTRY_SIZE;
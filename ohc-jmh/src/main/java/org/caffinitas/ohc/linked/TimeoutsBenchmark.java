@@ -0,0 +1,228 @@
+/*
+ *      Copyright (C) 2014 Robert Stupp, Koeln, Germany, robert-stupp.de
+ *
+ *   Licensed under the Apache License, Version 2.0 (the "License");
+ *   you may not use this file except in compliance with the License.
+ *   You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *   Unless required by applicable law or agreed to in writing, software
+ *   distributed under the License is distributed on an "AS IS" BASIS,
+ *   WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *   See the License for the specific language governing permissions and
+ *   limitations under the License.
+ */
+package org.caffinitas.ohc.linked;
+
+import java.util.concurrent.TimeUnit;
+
+import org.caffinitas.ohc.Ticker;
+import org.caffinitas.ohc.jmh.FasterRandom;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares {@link TimerWheel} with the previous {@link Timeouts} implementation for a single segment.
+ * Each operation replaces the timeout of a random entry, like a put of an existing key, and advances the time
+ * by one millisecond. Expired entries are removed every {@link #EXPIRE_INTERVAL} operations and written again.
+ */
+@BenchmarkMode({ Mode.Throughput })
+@State(Scope.Thread)
+@Warmup(iterations = 2)
+@Measurement(iterations = 3)
+@Threads(1)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Fork(value = 1, jvmArgsAppend = "-Xmx512M")
+public class TimeoutsBenchmark {
+    @Param({ "wheel", "timeouts" })
+    private String type = "wheel";
+    // short: 1-10 seconds, long: 1-24 hours, mixed: 80% seconds, 15% minutes, 5% hours
+    @Param({ "short", "mixed", "long" })
+    private String ttls = "mixed";
+    @Param("100000")
+    private int entries = 100000;
+
+    private static final int EXPIRE_INTERVAL = 64;
+
+    private final FasterRandom random = new FasterRandom();
+    private final ManualTicker ticker = new ManualTicker();
+
+    private TimeoutsAdapter timeouts;
+    private long[] expireAt;
+    private int[] expired;
+    private int expiredCount;
+    private int operations;
+
+    private final TimerWheel.TimeoutHandler expireHandler = new TimerWheel.TimeoutHandler() {
+        @Override
+        public void expired(long hashEntryAdr) {
+            int i = (int) (hashEntryAdr / 64L) - 1;
+            expireAt[i] = 0L;
+            expired[expiredCount++] = i;
+        }
+    };
+
+    @Setup
+    public void setup() {
+        random.setSeed(42L);
+
+        switch (type) {
+            case "wheel":
+                final TimerWheel timerWheel = new TimerWheel(ticker, 0, 0);
+                timeouts = new TimeoutsAdapter() {
+                    @Override
+                    public void add(long hashEntryAdr, long expireAt) {
+                        timerWheel.add(hashEntryAdr, expireAt);
+                    }
+
+                    @Override
+                    public void remove(long hashEntryAdr, long expireAt) {
+                        timerWheel.remove(hashEntryAdr, expireAt);
+                    }
+
+                    @Override
+                    public int removeExpired(TimerWheel.TimeoutHandler expireHandler) {
+                        return timerWheel.removeExpired(expireHandler);
+                    }
+
+                    @Override
+                    public void release() {
+                        timerWheel.release();
+                    }
+                };
+                break;
+            case "timeouts":
+                final Timeouts previous = new Timeouts(ticker, 0, 0);
+                timeouts = new TimeoutsAdapter() {
+                    @Override
+                    public void add(long hashEntryAdr, long expireAt) {
+                        previous.add(hashEntryAdr, expireAt);
+                    }
+
+                    @Override
+                    public void remove(long hashEntryAdr, long expireAt) {
+                        previous.remove(hashEntryAdr, expireAt);
+                    }
+
+                    @Override
+                    public int removeExpired(TimerWheel.TimeoutHandler expireHandler) {
+                        return previous.removeExpired(expireHandler);
+                    }
+
+                    @Override
+                    public void release() {
+                        previous.release();
+                    }
+                };
+                break;
+            default:
+                throw new IllegalArgumentException("type " + type);
+        }
+
+        expireAt = new long[entries];
+        expired = new int[entries];
+        for (int i = 0; i < entries; i++) {
+            add(i);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        timeouts.release();
+    }
+
+    @Benchmark
+    public int putAndExpire() {
+        int i = random.nextInt(entries);
+        if (expireAt[i] != 0L) {
+            timeouts.remove(adr(i), expireAt[i]);
+        }
+        add(i);
+
+        ticker.millis++;
+        if (++operations % EXPIRE_INTERVAL != 0) {
+            return 0;
+        }
+
+        int count = timeouts.removeExpired(expireHandler);
+        for (int n = 0; n < expiredCount; n++) {
+            add(expired[n]);
+        }
+        expiredCount = 0;
+        return count;
+    }
+
+    private void add(int i) {
+        long t = ticker.millis + ttl();
+        expireAt[i] = t;
+        timeouts.add(adr(i), t);
+    }
+
+    private static long adr(int i) {
+        return (i + 1) * 64L;
+    }
+
+    private long ttl() {
+        switch (ttls) {
+            case "short":
+                return seconds(1, 10);
+            case "long":
+                return hours(1, 24);
+            case "mixed":
+                int r = random.nextInt(100);
+                if (r < 80) {
+                    return seconds(1, 60);
+                }
+                if (r < 95) {
+                    return TimeUnit.MINUTES.toMillis(1 + random.nextInt(60));
+                }
+                return hours(1, 24);
+            default:
+                throw new IllegalArgumentException("ttls " + ttls);
+        }
+    }
+
+    private long seconds(int min, int max) {
+        return TimeUnit.SECONDS.toMillis(min) + random.nextInt((int) TimeUnit.SECONDS.toMillis(max - min));
+    }
+
+    private long hours(int min, int max) {
+        return TimeUnit.HOURS.toMillis(min) + random.nextInt((int) TimeUnit.HOURS.toMillis(max - min));
+    }
+
+    private interface TimeoutsAdapter {
+        void add(long hashEntryAdr, long expireAt);
+
+        void remove(long hashEntryAdr, long expireAt);
+
+        int removeExpired(TimerWheel.TimeoutHandler expireHandler);
+
+        void release();
+    }
+
+    private static final class ManualTicker implements Ticker {
+        long millis = System.currentTimeMillis();
+
+        @Override
+        public long nanos() {
+            return TimeUnit.MILLISECONDS.toNanos(millis);
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return millis;
+        }
+    }
+}